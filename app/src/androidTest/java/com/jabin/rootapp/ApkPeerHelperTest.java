@@ -0,0 +1,161 @@
+package com.jabin.rootapp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.DatagramSocket;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 局域网共享：同一主机上启动两个实例，各自使用独立的缓存目录和HTTP端口、共用组播端口，
+ * 验证组播查询找到另一个实例，并能从其HTTP服务完整或按Range下载
+ */
+@RunWith(AndroidJUnit4.class)
+public class ApkPeerHelperTest {
+
+    private static final int PAYLOAD_SIZE = 256 * 1024 + 17;
+
+    private File mRoot;
+    private ApkPeerHelper mServer;
+    private ApkPeerHelper mClient;
+    private byte[] mPayload;
+    private String mDigest;
+
+    @Before
+    public void setUp() throws Exception {
+        File cacheDir = InstrumentationRegistry.getInstrumentation().getTargetContext().getCacheDir();
+        mRoot = new File(cacheDir, "peer_test");
+        deleteRecursively(mRoot);
+        int discoveryPort;
+        try (DatagramSocket probe = new DatagramSocket(0)) {
+            discoveryPort = probe.getLocalPort();
+        }
+        mServer = new ApkPeerHelper(null, new File(mRoot, "server"), ApkPeerHelper.DEFAULT_GROUP, discoveryPort);
+        mClient = new ApkPeerHelper(null, new File(mRoot, "client"), ApkPeerHelper.DEFAULT_GROUP, discoveryPort);
+
+        mPayload = new byte[PAYLOAD_SIZE];
+        new Random(42).nextBytes(mPayload);
+        mDigest = AppBackupHelper.toHex(MessageDigest.getInstance("SHA-256").digest(mPayload));
+        File temp = mServer.createCacheTempFile();
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(mPayload);
+        }
+        mServer.commitCacheFile(temp, mDigest);
+
+        mServer.start(0);
+        mClient.start(0);
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+        mClient.stop();
+        deleteRecursively(mRoot);
+    }
+
+    @Test
+    public void findsOtherInstanceAndDownloads() throws IOException {
+        assertTrue(mServer.getHttpPort() != mClient.getHttpPort());
+        String url = mClient.findPeerUrl(mDigest, 2000);
+
+        assertNotNull("No peer replied", url);
+        assertTrue(url, url.contains(":" + mServer.getHttpPort() + "/apk/" + mDigest));
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            assertEquals(200, connection.getResponseCode());
+            assertArrayEquals(mPayload, readAll(connection.getInputStream()));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    public void servesRangeForResume() throws IOException {
+        String url = mClient.findPeerUrl(mDigest, 2000);
+        assertNotNull("No peer replied", url);
+        int offset = PAYLOAD_SIZE / 3;
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestProperty("Range", "bytes=" + offset + "-");
+        try {
+            assertEquals(206, connection.getResponseCode());
+            assertEquals("bytes " + offset + "-" + (PAYLOAD_SIZE - 1) + "/" + PAYLOAD_SIZE,
+                    connection.getHeaderField("Content-Range"));
+            assertArrayEquals(Arrays.copyOfRange(mPayload, offset, PAYLOAD_SIZE),
+                    readAll(connection.getInputStream()));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    public void noReplyForUnknownOrOwnDigest() {
+        char[] other = mDigest.toCharArray();
+        other[0] = other[0] == '0' ? '1' : '0';
+        assertNull(mClient.findPeerUrl(new String(other), 500));
+        // 自己发出的查询不应答，只有另一个实例缓存了该安装包时才能找到
+        assertNull(mServer.findPeerUrl(mDigest, 500));
+    }
+
+    @Test
+    public void failedStartReleasesSockets() throws IOException {
+        int httpPort = mServer.getHttpPort();
+        mServer.stop();
+        // 不是组播地址，加入组播组失败
+        ApkPeerHelper broken = new ApkPeerHelper(null, new File(mRoot, "broken"), "127.0.0.1",
+                ApkPeerHelper.DEFAULT_DISCOVERY_PORT);
+        try {
+            broken.start(httpPort);
+            broken.stop();
+            fail("Joining a unicast group should fail");
+        } catch (IOException e) {
+            assertFalse(broken.isRunning());
+        }
+        // 失败时HTTP端口已释放，原实例可以在同一端口重新启动
+        mServer.start(httpPort);
+        assertEquals(httpPort, mServer.getHttpPort());
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
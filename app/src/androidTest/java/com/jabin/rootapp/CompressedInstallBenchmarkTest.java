@@ -0,0 +1,66 @@
+package com.jabin.rootapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 压缩安装包与原始安装包写入安装会话的耗时对比，以应用自身的APK为样本，结果输出到logcat
+ */
+@RunWith(AndroidJUnit4.class)
+public class CompressedInstallBenchmarkTest {
+
+    private static final String TAG = "InstallBenchmark";
+    private static final int ITERATIONS = 5;
+
+    private Context mContext;
+    private File mGzipApk;
+
+    @Before
+    public void setUp() throws IOException {
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mGzipApk = new File(mContext.getCacheDir(), "benchmark.apk.gz");
+        try (InputStream in = new FileInputStream(mContext.getPackageCodePath());
+             OutputStream out = new GZIPOutputStream(new FileOutputStream(mGzipApk), 65536)) {
+            byte[] buffer = new byte[65536];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mGzipApk.delete();
+    }
+
+    @Test
+    public void compareGzipWithPlainApk() throws IOException {
+        File plainApk = new File(mContext.getPackageCodePath());
+        AppManagerHelper.InstallBenchmark benchmark = new AppManagerHelper(mContext)
+                .benchmarkCompressedInstall(plainApk, mGzipApk, ITERATIONS);
+
+        assertEquals(ITERATIONS, benchmark.plainMs.length);
+        assertTrue(benchmark.gzipSize < benchmark.plainSize);
+        Log.i(TAG, benchmark.toString());
+    }
+}
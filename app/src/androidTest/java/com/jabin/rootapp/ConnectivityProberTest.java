@@ -0,0 +1,186 @@
+package com.jabin.rootapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.net.Network;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连通性探测：在回环地址上模拟TCP、DNS和HTTP服务，验证各目标分别统计、域名目标经解析线程探测
+ */
+@RunWith(AndroidJUnit4.class)
+public class ConnectivityProberTest {
+
+    private ServerSocket mTcpServer;
+    private ServerSocket mHttpServer;
+    private DatagramSocket mDnsServer;
+    private final List<Thread> mThreads = new ArrayList<>();
+    private ConnectivityProber mProber;
+
+    @Before
+    public void setUp() throws IOException {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        mTcpServer = new ServerSocket(0, 8, loopback);
+        // 以域名访问的HTTP服务绑定在localhost解析到的地址上
+        mHttpServer = new ServerSocket(0, 8, InetAddress.getByName("localhost"));
+        mDnsServer = new DatagramSocket(0, loopback);
+        startThread(this::acceptTcp);
+        startThread(this::serveHttp);
+        startThread(this::serveDns);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (mProber != null) {
+            mProber.stop();
+        }
+        closeQuietly(mTcpServer);
+        closeQuietly(mHttpServer);
+        mDnsServer.close();
+        for (Thread thread : mThreads) {
+            thread.join(1000);
+        }
+    }
+
+    @Test
+    public void probesEachTargetSeparately() throws Exception {
+        int closedPort;
+        try (ServerSocket closed = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            closedPort = closed.getLocalPort();
+        }
+        List<ConnectivityProber.ProbeTarget> targets = new ArrayList<>();
+        targets.add(ConnectivityProber.ProbeTarget.tcp("127.0.0.1", mTcpServer.getLocalPort()));
+        targets.add(ConnectivityProber.ProbeTarget.dns("127.0.0.1", mDnsServer.getLocalPort(), "example.com"));
+        targets.add(ConnectivityProber.ProbeTarget.http("localhost", mHttpServer.getLocalPort(), "/"));
+        targets.add(ConnectivityProber.ProbeTarget.tcp("127.0.0.1", closedPort));
+
+        final BlockingQueue<List<ConnectivityProber.InterfaceStats>> results = new LinkedBlockingQueue<>();
+        mProber = new ConnectivityProber(InstrumentationRegistry.getInstrumentation().getTargetContext(),
+                200, results::add);
+        mProber.setTargets(targets);
+        Map<String, Network> interfaces = new HashMap<>();
+        interfaces.put("lo", null);
+        mProber.setInterfaces(interfaces);
+        mProber.start();
+
+        List<ConnectivityProber.InterfaceStats> stats = results.poll(10, TimeUnit.SECONDS);
+        assertNotNull("No probe results", stats);
+        assertEquals(targets.size(), stats.size());
+        for (int i = 0; i < targets.size(); i++) {
+            ConnectivityProber.InterfaceStats item = findStats(stats, targets.get(i));
+            assertEquals("lo", item.iface);
+            assertTrue(item.samples >= 1);
+            if (i < 3) {
+                assertEquals(item.toString(), 0, item.lost);
+                assertTrue(item.p50Ms >= 0);
+            } else {
+                // 端口未监听，连接被拒绝计为丢包
+                assertEquals(item.samples, item.lost);
+            }
+        }
+    }
+
+    @Test
+    public void literalDetection() {
+        assertTrue(ConnectivityProber.isAddressLiteral("223.5.5.5"));
+        assertTrue(ConnectivityProber.isAddressLiteral("::1"));
+        assertTrue(!ConnectivityProber.isAddressLiteral("www.baidu.com"));
+        assertTrue(!ConnectivityProber.isAddressLiteral(""));
+    }
+
+    private static ConnectivityProber.InterfaceStats findStats(List<ConnectivityProber.InterfaceStats> stats,
+                                                               ConnectivityProber.ProbeTarget target) {
+        for (ConnectivityProber.InterfaceStats item : stats) {
+            if (item.target.equals(target.toString())) {
+                return item;
+            }
+        }
+        throw new AssertionError("No stats for " + target + " in " + stats);
+    }
+
+    private void startThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "ProberTestServer");
+        mThreads.add(thread);
+        thread.start();
+    }
+
+    private void acceptTcp() {
+        while (!mTcpServer.isClosed()) {
+            try (Socket socket = mTcpServer.accept()) {
+                // 只需要完成连接
+            } catch (IOException e) {
+                // 服务关闭
+            }
+        }
+    }
+
+    private void serveHttp() {
+        while (!mHttpServer.isClosed()) {
+            try (Socket socket = mHttpServer.accept()) {
+                InputStream in = socket.getInputStream();
+                // 读到请求头结束
+                int matched = 0;
+                int b;
+                while (matched < 4 && (b = in.read()) >= 0) {
+                    matched = (b == (matched % 2 == 0 ? '\r' : '\n')) ? matched + 1 : 0;
+                }
+                OutputStream out = socket.getOutputStream();
+                out.write("HTTP/1.1 204 No Content\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+            } catch (IOException e) {
+                // 服务关闭
+            }
+        }
+    }
+
+    /**
+     * 把查询原样返回并置上应答标志
+     */
+    private void serveDns() {
+        byte[] buffer = new byte[512];
+        while (!mDnsServer.isClosed()) {
+            try {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                mDnsServer.receive(packet);
+                buffer[2] |= (byte) 0x80;
+                mDnsServer.send(new DatagramPacket(buffer, packet.getLength(), packet.getSocketAddress()));
+            } catch (IOException e) {
+                // 服务关闭
+            }
+        }
+    }
+
+    private static void closeQuietly(ServerSocket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // 忽略
+        }
+    }
+}
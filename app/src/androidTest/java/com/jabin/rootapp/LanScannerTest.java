@@ -0,0 +1,132 @@
+package com.jabin.rootapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 局域网扫描：在回环地址上监听一个端口，验证开放端口和被拒绝的端口都使主机计为在线
+ */
+@RunWith(AndroidJUnit4.class)
+public class LanScannerTest {
+
+    private ServerSocket mListener;
+    private Thread mAcceptThread;
+    private int mClosedPort;
+    private final List<String> mHosts = new CopyOnWriteArrayList<>();
+    private final List<Integer> mOpenPorts = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<LanScanner.Summary> mFinished = new LinkedBlockingQueue<>();
+    private LanScanner mScanner;
+
+    @Before
+    public void setUp() throws IOException {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        mListener = new ServerSocket(0, 8, loopback);
+        mAcceptThread = new Thread(() -> {
+            while (!mListener.isClosed()) {
+                try (Socket socket = mListener.accept()) {
+                    // 只需要完成连接
+                } catch (IOException e) {
+                    // 服务关闭
+                }
+            }
+        }, "LanScannerTestServer");
+        mAcceptThread.start();
+        try (ServerSocket closed = new ServerSocket(0, 1, loopback)) {
+            mClosedPort = closed.getLocalPort();
+        }
+        mScanner = new LanScanner(new LanScanner.Listener() {
+            @Override
+            public void onHostFound(String host, long rttUs) {
+                mHosts.add(host);
+            }
+
+            @Override
+            public void onPortOpen(String host, int port, long rttUs) {
+                mOpenPorts.add(port);
+            }
+
+            @Override
+            public void onProgress(int done, int total) {
+            }
+
+            @Override
+            public void onFinished(LanScanner.Summary summary) {
+                mFinished.add(summary);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mScanner.cancel();
+        mListener.close();
+        mAcceptThread.join(1000);
+    }
+
+    @Test
+    public void findsOpenPortOnLoopback() throws InterruptedException {
+        LanScanner.Summary summary = scan(mListener.getLocalPort(), mClosedPort);
+
+        assertEquals(2, summary.probes);
+        assertEquals(1, summary.openPorts);
+        assertEquals(1, summary.aliveHosts);
+        assertEquals(Collections.singletonList(mListener.getLocalPort()), mOpenPorts);
+        assertEquals(Collections.singletonList("127.0.0.1"), mHosts);
+    }
+
+    @Test
+    public void refusedPortCountsHostAsAlive() throws InterruptedException {
+        LanScanner.Summary summary = scan(mClosedPort);
+
+        assertEquals(0, summary.openPorts);
+        // 端口未监听时收到RST，主机仍计为在线
+        assertEquals(1, summary.aliveHosts);
+        assertEquals(Collections.singletonList("127.0.0.1"), mHosts);
+    }
+
+    @Test
+    public void expandTargetAcceptsOnlyIpv4Literals() {
+        assertEquals(2, LanScanner.expandTarget("192.168.1.7/30").size());
+        assertEquals(Collections.singletonList(InetAddress.getLoopbackAddress()),
+                LanScanner.expandTarget("127.0.0.1"));
+        // 空输入不能解析成回环地址，主机名不能在调用线程上触发DNS查询
+        for (String target : new String[]{"", "localhost", "1.2.3", "1.2.3.256", "/24"}) {
+            try {
+                LanScanner.expandTarget(target);
+                fail("Accepted target: " + target);
+            } catch (IllegalArgumentException e) {
+                // 预期
+            }
+        }
+    }
+
+    private LanScanner.Summary scan(int... ports) throws InterruptedException {
+        LanScanner.Config config = new LanScanner.Config();
+        config.hosts.add(InetAddress.getLoopbackAddress());
+        config.ports = ports;
+        config.timeoutMs = 2000;
+        mScanner.start(config);
+        LanScanner.Summary summary = mFinished.poll(10, TimeUnit.SECONDS);
+        assertNotNull("Scan did not finish", summary);
+        return summary;
+    }
+}
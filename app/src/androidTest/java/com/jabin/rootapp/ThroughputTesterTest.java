@@ -0,0 +1,107 @@
+package com.jabin.rootapp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 吞吐量测试：客户端和服务端都在本机，通过回环地址验证TCP、UDP测试和重复结束报文的处理
+ */
+@RunWith(AndroidJUnit4.class)
+public class ThroughputTesterTest {
+
+    private ThroughputTester mServer;
+    private int mPort;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new ThroughputTester();
+        // TCP和UDP使用同一端口，先找一个空闲端口
+        try (ServerSocket probe = new ServerSocket(0)) {
+            mPort = probe.getLocalPort();
+        }
+        mServer.startServer(mPort);
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stopServer();
+    }
+
+    @Test
+    public void tcpReportsReceivedBytes() throws Exception {
+        ThroughputTester.ClientConfig config = newConfig(false);
+        ThroughputTester.Result result = new ThroughputTester().runClient(config).get(10, TimeUnit.SECONDS);
+
+        assertEquals(2, result.streams);
+        assertTrue(result.bytes > 0);
+        assertTrue(result.getGoodputMbps() > 0);
+    }
+
+    @Test
+    public void udpReportsPacketsAndLoss() throws Exception {
+        ThroughputTester.ClientConfig config = newConfig(true);
+        config.udpBitrate = 20000000L;
+        ThroughputTester.Result result = new ThroughputTester().runClient(config).get(10, TimeUnit.SECONDS);
+
+        assertTrue(result.packetsSent > 0);
+        assertTrue(result.packetsReceived > 0);
+        assertTrue(result.packetsReceived <= result.packetsSent);
+        assertTrue(result.bytes > 0);
+    }
+
+    @Test
+    public void duplicateEndGetsSameStats() throws Exception {
+        try (DatagramSocket socket = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), mPort));
+            socket.setSoTimeout(2000);
+            byte[] data = new byte[100];
+            for (int seq = 0; seq < 3; seq++) {
+                ByteBuffer.wrap(data).putInt(seq).putLong(System.nanoTime());
+                socket.send(new DatagramPacket(data, data.length));
+            }
+            byte[] first = sendEnd(socket);
+            // 第一次回复丢失时客户端会重发结束报文，应得到同一份统计
+            byte[] second = sendEnd(socket);
+
+            assertEquals(3, ByteBuffer.wrap(first).getLong(0));
+            assertEquals(300, ByteBuffer.wrap(first).getLong(8));
+            assertArrayEquals(first, second);
+        }
+    }
+
+    private static byte[] sendEnd(DatagramSocket socket) throws IOException {
+        byte[] end = new byte[12];
+        ByteBuffer.wrap(end).putInt(-1);
+        socket.send(new DatagramPacket(end, end.length));
+        byte[] reply = new byte[24];
+        socket.receive(new DatagramPacket(reply, reply.length));
+        return reply;
+    }
+
+    private ThroughputTester.ClientConfig newConfig(boolean udp) {
+        ThroughputTester.ClientConfig config = new ThroughputTester.ClientConfig();
+        config.host = "127.0.0.1";
+        config.port = mPort;
+        config.udp = udp;
+        config.streams = 2;
+        config.durationMs = 500;
+        return config;
+    }
+}
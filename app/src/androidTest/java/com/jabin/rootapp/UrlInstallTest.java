@@ -0,0 +1,264 @@
+package com.jabin.rootapp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * URL安装的下载部分：用本地HTTP服务模拟下载源，验证断点续传和摘要校验
+ */
+@RunWith(AndroidJUnit4.class)
+public class UrlInstallTest {
+
+    private static final int PAYLOAD_SIZE = 1024 * 1024 + 123;
+
+    private byte[] mPayload;
+    private StandInServer mServer;
+    private File mSessionFile;
+    private File mCacheFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mPayload = new byte[PAYLOAD_SIZE];
+        new Random(42).nextBytes(mPayload);
+        mServer = new StandInServer(mPayload);
+        File dir = InstrumentationRegistry.getInstrumentation().getTargetContext().getCacheDir();
+        mSessionFile = File.createTempFile("session", ".apk", dir);
+        mCacheFile = File.createTempFile("cache", ".apk", dir);
+    }
+
+    @After
+    public void tearDown() {
+        mServer.close();
+        mSessionFile.delete();
+        mCacheFile.delete();
+    }
+
+    @Test
+    public void resumesWithRangeAfterTruncatedResponse() throws Exception {
+        mServer.truncateFirstAt = PAYLOAD_SIZE / 3;
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        long written;
+        try (RandomAccessFile session = new RandomAccessFile(mSessionFile, "rw");
+             RandomAccessFile cache = new RandomAccessFile(mCacheFile, "rw")) {
+            written = AppManagerHelper.download(mServer.getUrl(), new FileSink(session), digest, cache);
+        }
+
+        assertEquals(PAYLOAD_SIZE, written);
+        assertEquals(2, mServer.ranges.size());
+        assertNull(mServer.ranges.get(0));
+        // 续传请求从已写入的位置开始
+        assertTrue(mServer.ranges.get(1).startsWith("bytes="));
+        long resumeAt = Long.parseLong(mServer.ranges.get(1).substring(6, mServer.ranges.get(1).length() - 1));
+        assertTrue(resumeAt > 0 && resumeAt <= PAYLOAD_SIZE / 3);
+
+        assertArrayEquals(mPayload, readFile(mSessionFile));
+        assertArrayEquals(mPayload, readFile(mCacheFile));
+        assertEquals(sha256(mPayload), AppManagerHelper.checkDigest(sha256(mPayload), digest));
+    }
+
+    @Test
+    public void restartsWhenServerIgnoresRange() throws Exception {
+        mServer.truncateFirstAt = PAYLOAD_SIZE / 2;
+        mServer.supportsRange = false;
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        long written;
+        try (RandomAccessFile session = new RandomAccessFile(mSessionFile, "rw")) {
+            written = AppManagerHelper.download(mServer.getUrl(), new FileSink(session), digest, null);
+        }
+
+        assertEquals(PAYLOAD_SIZE, written);
+        assertEquals(2, mServer.ranges.size());
+        assertArrayEquals(mPayload, readFile(mSessionFile));
+        // 重新下载时摘要必须从头计算
+        assertEquals(sha256(mPayload), AppManagerHelper.checkDigest(sha256(mPayload), digest));
+    }
+
+    @Test
+    public void rejectsDigestMismatch() throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (RandomAccessFile session = new RandomAccessFile(mSessionFile, "rw")) {
+            AppManagerHelper.download(mServer.getUrl(), new FileSink(session), digest, null);
+        }
+        byte[] other = mPayload.clone();
+        other[0] ^= 1;
+        try {
+            AppManagerHelper.checkDigest(sha256(other), digest);
+            fail("Digest mismatch not detected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("mismatch"));
+        }
+    }
+
+    @Test
+    public void failsAfterRetriesOnHttpError() throws Exception {
+        mServer.status = 500;
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (RandomAccessFile session = new RandomAccessFile(mSessionFile, "rw")) {
+            AppManagerHelper.download(mServer.getUrl(), new FileSink(session), digest, null);
+            fail("HTTP error not reported");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("500"));
+        }
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return AppBackupHelper.toHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            byte[] data = new byte[(int) raf.length()];
+            raf.readFully(data);
+            return data;
+        }
+    }
+
+    /**
+     * 用文件模拟安装会话，按偏移写入
+     */
+    private static class FileSink implements AppManagerHelper.DownloadSink {
+        private final RandomAccessFile mFile;
+
+        FileSink(RandomAccessFile file) {
+            this.mFile = file;
+        }
+
+        @Override
+        public OutputStream openWrite(long offset, long length) throws IOException {
+            mFile.seek(offset);
+            return new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    mFile.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    mFile.write(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public void fsync(OutputStream out) throws IOException {
+            mFile.getFD().sync();
+        }
+    }
+
+    /**
+     * 最简HTTP服务，支持单段Range，可让第一次响应中途断开
+     */
+    private static class StandInServer implements Runnable {
+        private final byte[] mPayload;
+        private final ServerSocket mServerSocket;
+        private final Thread mThread;
+        // 每次请求的Range头，没有时为null
+        final List<String> ranges = Collections.synchronizedList(new ArrayList<>());
+        volatile int truncateFirstAt = -1;
+        volatile boolean supportsRange = true;
+        volatile int status = 200;
+
+        StandInServer(byte[] payload) throws IOException {
+            this.mPayload = payload;
+            this.mServerSocket = new ServerSocket(0, 8, InetAddress.getLoopbackAddress());
+            this.mThread = new Thread(this, "StandInServer");
+            mThread.start();
+        }
+
+        String getUrl() {
+            return "http://127.0.0.1:" + mServerSocket.getLocalPort() + "/app.apk";
+        }
+
+        @Override
+        public void run() {
+            while (!mServerSocket.isClosed()) {
+                try (Socket socket = mServerSocket.accept()) {
+                    handle(socket);
+                } catch (IOException e) {
+                    // 服务关闭或客户端断开
+                }
+            }
+        }
+
+        private void handle(Socket socket) throws IOException {
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+            String line = reader.readLine();
+            if (line == null) {
+                return;
+            }
+            String range = null;
+            while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                if (line.toLowerCase().startsWith("range:")) {
+                    range = line.substring(6).trim();
+                }
+            }
+            ranges.add(range);
+            OutputStream out = socket.getOutputStream();
+            if (status != 200) {
+                out.write(("HTTP/1.1 " + status + " Error\r\nContent-Length: 0\r\nConnection: close\r\n\r\n")
+                        .getBytes(StandardCharsets.ISO_8859_1));
+                return;
+            }
+
+            int start = 0;
+            String head;
+            if (range != null && supportsRange) {
+                start = Integer.parseInt(range.substring(6, range.indexOf('-')));
+                head = "HTTP/1.1 206 Partial Content\r\nContent-Range: bytes " + start + "-"
+                        + (mPayload.length - 1) + "/" + mPayload.length + "\r\n";
+            } else {
+                head = "HTTP/1.1 200 OK\r\n";
+            }
+            int length = mPayload.length - start;
+            out.write((head + "Content-Length: " + length + "\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.ISO_8859_1));
+            int end = mPayload.length;
+            if (ranges.size() == 1 && truncateFirstAt > 0) {
+                end = truncateFirstAt;
+            }
+            out.write(mPayload, start, end - start);
+            out.flush();
+        }
+
+        void close() {
+            try {
+                mServerSocket.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+            try {
+                mThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
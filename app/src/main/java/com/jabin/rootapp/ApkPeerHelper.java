@@ -0,0 +1,528 @@
+package com.jabin.rootapp;
+
+import android.content.Context;
+import android.net.wifi.WifiManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 局域网安装包共享助手类：下载过的安装包按SHA-256摘要缓存，通过HTTP提供给同一局域网内的其他设备，
+ * 并通过组播查询哪台设备缓存了指定摘要的安装包。文件内容用FileChannel.transferTo从文件直接发送到套接字，
+ * 不经过应用层缓冲；支持单段Range请求，下载中断后可续传。
+ * 每个实例有独立的缓存目录和HTTP端口，同一主机上的多个实例可共用组播端口，便于通过回环地址联调
+ */
+public class ApkPeerHelper {
+
+    private static final String TAG = "ApkPeerHelper";
+    public static final int DEFAULT_HTTP_PORT = 8642;
+    public static final String DEFAULT_GROUP = "239.255.86.42";
+    public static final int DEFAULT_DISCOVERY_PORT = 8643;
+    public static final long DEFAULT_LOOKUP_TIMEOUT_MS = 800;
+    private static final String CACHE_DIR = "apk_cache";
+    private static final String APK_SUFFIX = ".apk";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final long MAX_CACHE_BYTES = 2L * 1024 * 1024 * 1024;
+    private static final int MAX_CONNECTIONS = 8;
+    private static final int MAX_HEADER_BYTES = 8192;
+    private static final int SOCKET_TIMEOUT_MS = 30 * 1000;
+    // 组播查询报文为“RAPK? 实例ID 摘要”，有缓存的设备单播应答“RAPK! 摘要 HTTP端口”
+    private static final String QUERY_PREFIX = "RAPK?";
+    private static final String REPLY_PREFIX = "RAPK!";
+
+    private static ApkPeerHelper sInstance;
+
+    private final Context mContext;
+    private final File mCacheDir;
+    private final String mGroup;
+    private final int mDiscoveryPort;
+    // 区分本实例发出的查询，避免应答自己
+    private final String mInstanceId = UUID.randomUUID().toString().substring(0, 8);
+
+    private ServerSocketChannel mServerChannel;
+    private MulticastSocket mDiscoverySocket;
+    private ExecutorService mConnectionExecutor;
+    private WifiManager.MulticastLock mMulticastLock;
+    private volatile int mHttpPort;
+
+    /**
+     * @param context 用于获取组播锁，为null时不获取（回环联调）
+     * @param cacheDir 安装包缓存目录
+     * @param group 组播地址
+     * @param discoveryPort 组播端口
+     */
+    ApkPeerHelper(Context context, File cacheDir, String group, int discoveryPort) {
+        this.mContext = context;
+        this.mCacheDir = cacheDir;
+        this.mGroup = group;
+        this.mDiscoveryPort = discoveryPort;
+    }
+
+    public static synchronized ApkPeerHelper getInstance(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            sInstance = new ApkPeerHelper(appContext, new File(appContext.getFilesDir(), CACHE_DIR),
+                    DEFAULT_GROUP, DEFAULT_DISCOVERY_PORT);
+        }
+        return sInstance;
+    }
+
+    /**
+     * 开始共享：启动HTTP服务并应答组播查询
+     * @param httpPort HTTP端口，传0时由系统分配
+     */
+    public synchronized void start(int httpPort) throws IOException {
+        if (mServerChannel != null) {
+            return;
+        }
+        mCacheDir.mkdirs();
+        deleteTempFiles();
+
+        final ServerSocketChannel server = ServerSocketChannel.open();
+        MulticastSocket discovery = null;
+        try {
+            server.socket().setReuseAddress(true);
+            server.socket().bind(new InetSocketAddress(httpPort));
+            discovery = new MulticastSocket(mDiscoveryPort);
+            // false表示开启回环，本机其他实例也能收到查询
+            discovery.setLoopbackMode(false);
+            discovery.joinGroup(InetAddress.getByName(mGroup));
+        } catch (IOException e) {
+            // 加入组播组失败时组播套接字已绑定端口，需一并关闭
+            closeQuietly(server);
+            if (discovery != null) {
+                discovery.close();
+            }
+            throw e;
+        }
+        mServerChannel = server;
+        mDiscoverySocket = discovery;
+        mHttpPort = server.socket().getLocalPort();
+        mConnectionExecutor = Executors.newFixedThreadPool(MAX_CONNECTIONS, r -> new Thread(r, "ApkPeerConnection"));
+        acquireMulticastLock();
+
+        final ExecutorService executor = mConnectionExecutor;
+        new Thread(() -> acceptLoop(server, executor), "ApkPeerHttp").start();
+        final MulticastSocket discoverySocket = discovery;
+        new Thread(() -> discoveryLoop(discoverySocket), "ApkPeerDiscovery").start();
+        Log.d(TAG, "Sharing " + mCacheDir + " on port " + mHttpPort + ", discovery " + mGroup + ":" + mDiscoveryPort);
+    }
+
+    /**
+     * 停止共享，正在进行的传输会被中断，缓存保留
+     */
+    public synchronized void stop() {
+        if (mServerChannel == null) {
+            return;
+        }
+        closeQuietly(mServerChannel);
+        mDiscoverySocket.close();
+        mConnectionExecutor.shutdownNow();
+        if (mMulticastLock != null && mMulticastLock.isHeld()) {
+            mMulticastLock.release();
+        }
+        mServerChannel = null;
+        mDiscoverySocket = null;
+        mConnectionExecutor = null;
+        mHttpPort = 0;
+    }
+
+    public synchronized boolean isRunning() {
+        return mServerChannel != null;
+    }
+
+    /**
+     * 当前HTTP端口，未运行时为0
+     */
+    public int getHttpPort() {
+        return mHttpPort;
+    }
+
+    /**
+     * 已缓存的安装包数量
+     */
+    public int getCachedCount() {
+        File[] files = listCachedFiles();
+        return files != null ? files.length : 0;
+    }
+
+    /**
+     * 获取摘要对应的缓存文件（不一定存在）
+     */
+    public File getCacheFile(String sha256) {
+        return new File(mCacheDir, sha256.toLowerCase(Locale.US) + APK_SUFFIX);
+    }
+
+    /**
+     * 创建缓存临时文件，下载并校验摘要后调用commitCacheFile改名为正式缓存
+     */
+    public File createCacheTempFile() throws IOException {
+        mCacheDir.mkdirs();
+        return File.createTempFile("download", TEMP_SUFFIX, mCacheDir);
+    }
+
+    /**
+     * 把下载完成的临时文件放入缓存，超出容量时删除最久未使用的安装包
+     * @param tempFile createCacheTempFile创建的临时文件
+     * @param sha256 文件的实际摘要
+     */
+    public void commitCacheFile(File tempFile, String sha256) {
+        File target = getCacheFile(sha256);
+        if (!tempFile.renameTo(target)) {
+            Log.w(TAG, "Failed to move " + tempFile + " into cache");
+            tempFile.delete();
+            return;
+        }
+        pruneCache();
+    }
+
+    /**
+     * 通过组播查询缓存了指定安装包的设备，取最先应答的设备（通常也是延迟最低的）
+     * @param sha256 安装包摘要
+     * @param timeoutMs 等待应答的时间
+     * @return 下载地址，没有设备应答时返回null
+     */
+    public String findPeerUrl(String sha256, long timeoutMs) {
+        String digest = sha256.toLowerCase(Locale.US);
+        if (!isSha256(digest)) {
+            return null;
+        }
+        long start = SystemClock.elapsedRealtime();
+        try (DatagramSocket socket = new DatagramSocket()) {
+            byte[] query = (QUERY_PREFIX + " " + mInstanceId + " " + digest).getBytes(StandardCharsets.UTF_8);
+            socket.send(new DatagramPacket(query, query.length, InetAddress.getByName(mGroup), mDiscoveryPort));
+
+            byte[] buffer = new byte[256];
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            long deadline = start + timeoutMs;
+            long remaining;
+            while ((remaining = deadline - SystemClock.elapsedRealtime()) > 0) {
+                socket.setSoTimeout((int) remaining);
+                packet.setLength(buffer.length);
+                try {
+                    socket.receive(packet);
+                } catch (SocketTimeoutException e) {
+                    break;
+                }
+                String[] fields = new String(buffer, 0, packet.getLength(), StandardCharsets.UTF_8).split(" ");
+                if (fields.length != 3 || !REPLY_PREFIX.equals(fields[0]) || !digest.equals(fields[1])) {
+                    continue;
+                }
+                int port;
+                try {
+                    port = Integer.parseInt(fields[2]);
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                String host = packet.getAddress().getHostAddress();
+                Log.d(TAG, "Peer " + host + ":" + port + " has " + digest + ", replied in "
+                        + (SystemClock.elapsedRealtime() - start) + " ms");
+                return "http://" + host + ":" + port + "/apk/" + digest;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Peer lookup failed: " + e.getMessage());
+        }
+        return null;
+    }
+
+    private void acceptLoop(ServerSocketChannel server, ExecutorService executor) {
+        while (true) {
+            final SocketChannel client;
+            try {
+                client = server.accept();
+            } catch (IOException e) {
+                // stop()关闭了服务端
+                break;
+            }
+            try {
+                executor.execute(() -> serve(client));
+            } catch (RejectedExecutionException e) {
+                closeQuietly(client);
+            }
+        }
+    }
+
+    private void discoveryLoop(MulticastSocket socket) {
+        byte[] buffer = new byte[256];
+        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        while (true) {
+            packet.setLength(buffer.length);
+            try {
+                socket.receive(packet);
+            } catch (IOException e) {
+                // stop()关闭了套接字
+                break;
+            }
+            String[] fields = new String(buffer, 0, packet.getLength(), StandardCharsets.UTF_8).split(" ");
+            if (fields.length != 3 || !QUERY_PREFIX.equals(fields[0]) || mInstanceId.equals(fields[1])) {
+                continue;
+            }
+            String digest = fields[2].toLowerCase(Locale.US);
+            if (!isSha256(digest) || !getCacheFile(digest).isFile()) {
+                continue;
+            }
+            byte[] reply = (REPLY_PREFIX + " " + digest + " " + mHttpPort).getBytes(StandardCharsets.UTF_8);
+            try {
+                socket.send(new DatagramPacket(reply, reply.length, packet.getSocketAddress()));
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to reply to " + packet.getSocketAddress() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 处理一个HTTP连接：只支持GET/HEAD /apk/摘要，每个连接处理一个请求
+     */
+    private void serve(SocketChannel channel) {
+        try (SocketChannel client = channel) {
+            client.socket().setSoTimeout(SOCKET_TIMEOUT_MS);
+            String[] headers = readHeaders(client.socket().getInputStream());
+            if (headers == null) {
+                return;
+            }
+            String[] request = headers[0].split(" ");
+            if (request.length < 2 || !("GET".equals(request[0]) || "HEAD".equals(request[0]))) {
+                sendStatus(client, "405 Method Not Allowed", null);
+                return;
+            }
+            String path = request[1];
+            String digest = path.startsWith("/apk/") ? path.substring(5).toLowerCase(Locale.US) : "";
+            File file = getCacheFile(digest);
+            if (!isSha256(digest) || !file.isFile()) {
+                sendStatus(client, "404 Not Found", null);
+                return;
+            }
+
+            long length = file.length();
+            long first = 0;
+            long last = length - 1;
+            String range = findHeader(headers, "range");
+            if (range != null) {
+                long[] bounds = parseRange(range, length);
+                if (bounds == null) {
+                    sendStatus(client, "416 Range Not Satisfiable", "Content-Range: bytes */" + length + "\r\n");
+                    return;
+                }
+                first = bounds[0];
+                last = bounds[1];
+            }
+            long count = last - first + 1;
+            StringBuilder response = new StringBuilder()
+                    .append(range != null ? "HTTP/1.1 206 Partial Content\r\n" : "HTTP/1.1 200 OK\r\n")
+                    .append("Content-Type: application/vnd.android.package-archive\r\n")
+                    .append("Content-Length: ").append(count).append("\r\n")
+                    .append("Accept-Ranges: bytes\r\n");
+            if (range != null) {
+                response.append("Content-Range: bytes ").append(first).append('-').append(last)
+                        .append('/').append(length).append("\r\n");
+            }
+            response.append("Connection: close\r\n\r\n");
+            writeFully(client, response.toString());
+            if ("HEAD".equals(request[0])) {
+                return;
+            }
+
+            long start = SystemClock.elapsedRealtime();
+            long sent = 0;
+            try (FileChannel fileChannel = new FileInputStream(file).getChannel()) {
+                while (sent < count) {
+                    long transferred = fileChannel.transferTo(first + sent, count - sent, client);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    sent += transferred;
+                }
+            }
+            // 用修改时间记录最近使用，清理缓存时保留常用的安装包
+            file.setLastModified(System.currentTimeMillis());
+            long elapsed = Math.max(1, SystemClock.elapsedRealtime() - start);
+            Log.d(TAG, "Served " + sent + "/" + count + " bytes of " + digest + " to "
+                    + client.socket().getInetAddress().getHostAddress() + " in " + elapsed + " ms, "
+                    + (sent * 1000 / elapsed / 1024) + " KB/s");
+        } catch (IOException e) {
+            Log.w(TAG, "Connection failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 读取请求行和请求头，直到空行
+     * @return 各行内容，连接在请求头结束前关闭时返回null
+     */
+    private static String[] readHeaders(InputStream in) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(512);
+        int matched = 0;
+        while (matched < 4) {
+            int b = in.read();
+            if (b < 0) {
+                return null;
+            }
+            if (buffer.size() >= MAX_HEADER_BYTES) {
+                throw new IOException("Request header too large");
+            }
+            buffer.write(b);
+            // 依次匹配\r\n\r\n
+            if (b == (matched % 2 == 0 ? '\r' : '\n')) {
+                matched++;
+            } else {
+                matched = b == '\r' ? 1 : 0;
+            }
+        }
+        return buffer.toString("ISO-8859-1").trim().split("\r\n");
+    }
+
+    private static String findHeader(String[] headers, String name) {
+        for (int i = 1; i < headers.length; i++) {
+            int colon = headers[i].indexOf(':');
+            if (colon > 0 && headers[i].substring(0, colon).trim().equalsIgnoreCase(name)) {
+                return headers[i].substring(colon + 1).trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 解析单段Range：bytes=起始-结束、bytes=起始-、bytes=-末尾长度
+     * @return {起始, 结束}（含），格式不支持或超出文件范围时返回null
+     */
+    static long[] parseRange(String range, long length) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = range.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            long first;
+            long last;
+            if (dash == 0) {
+                long suffix = Long.parseLong(spec.substring(1));
+                first = Math.max(0, length - suffix);
+                last = length - 1;
+            } else {
+                first = Long.parseLong(spec.substring(0, dash));
+                last = dash == spec.length() - 1 ? length - 1 : Math.min(Long.parseLong(spec.substring(dash + 1)), length - 1);
+            }
+            return first <= last && first < length ? new long[]{first, last} : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void sendStatus(SocketChannel client, String status, String extraHeaders) throws IOException {
+        writeFully(client, "HTTP/1.1 " + status + "\r\n" + (extraHeaders != null ? extraHeaders : "")
+                + "Content-Length: 0\r\nConnection: close\r\n\r\n");
+    }
+
+    private static void writeFully(SocketChannel client, String text) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1));
+        while (buffer.hasRemaining()) {
+            client.write(buffer);
+        }
+    }
+
+    static boolean isSha256(String value) {
+        if (value.length() != 64) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private File[] listCachedFiles() {
+        return mCacheDir.listFiles((dir, name) -> name.endsWith(APK_SUFFIX));
+    }
+
+    /**
+     * 缓存超出容量时按最近使用时间从旧到新删除
+     */
+    private void pruneCache() {
+        File[] files = listCachedFiles();
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= MAX_CACHE_BYTES) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (total <= MAX_CACHE_BYTES) {
+                break;
+            }
+            long size = file.length();
+            if (file.delete()) {
+                total -= size;
+                Log.d(TAG, "Evicted " + file.getName() + " from cache");
+            }
+        }
+    }
+
+    /**
+     * 删除上次运行中断留下的临时文件
+     */
+    private void deleteTempFiles() {
+        File[] files = mCacheDir.listFiles((dir, name) -> name.endsWith(TEMP_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    private void acquireMulticastLock() {
+        if (mContext == null) {
+            return;
+        }
+        // WiFi默认过滤组播报文，持有组播锁期间才能收到其他设备的查询
+        if (mMulticastLock == null) {
+            WifiManager wifiManager = (WifiManager) mContext.getSystemService(Context.WIFI_SERVICE);
+            if (wifiManager == null) {
+                return;
+            }
+            mMulticastLock = wifiManager.createMulticastLock(TAG);
+            mMulticastLock.setReferenceCounted(false);
+        }
+        mMulticastLock.acquire();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // 忽略
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package com.jabin.rootapp;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 应用备份助手类，将已安装应用的APK（含拆分包）导出到外部存储或U盘
+ */
+public class AppBackupHelper {
+
+    private static final String TAG = "AppBackupHelper";
+    public static final String MANIFEST_NAME = "manifest.json";
+    // 并行复制的工作线程数
+    private static final int WORKER_COUNT = 3;
+    // 计算摘要时每次映射的最大字节数
+    private static final long MAP_CHUNK = 64L * 1024 * 1024;
+
+    private Context mContext;
+    private PackageManager mPackageManager;
+    private Handler mMainHandler;
+
+    public AppBackupHelper(Context context) {
+        this.mContext = context;
+        this.mPackageManager = context.getPackageManager();
+        this.mMainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * 备份应用APK到指定目录，目录结构为 backupDir/包名/base.apk，并生成manifest.json
+     * @param packageNames 应用包名列表
+     * @param backupDir 备份目录
+     * @param callback 备份回调，在主线程执行
+     */
+    public void backupPackages(final List<String> packageNames, final File backupDir, final BackupCallback callback) {
+        new Thread(() -> {
+            final List<BackupResult> results = new ArrayList<>();
+            try {
+                if (!backupDir.exists() && !backupDir.mkdirs()) {
+                    throw new IOException("Cannot create backup dir: " + backupDir);
+                }
+                File manifestFile = new File(backupDir, MANIFEST_NAME);
+                JSONObject manifest = readManifest(manifestFile);
+                Map<String, JSONObject> oldEntries = indexManifest(manifest);
+
+                ExecutorService executor = Executors.newFixedThreadPool(WORKER_COUNT);
+                List<Future<FileResult>> futures = new ArrayList<>();
+                List<BackupResult> pending = new ArrayList<>();
+                for (String packageName : packageNames) {
+                    PackageInfo packageInfo;
+                    try {
+                        packageInfo = mPackageManager.getPackageInfo(packageName, 0);
+                    } catch (PackageManager.NameNotFoundException e) {
+                        Log.w(TAG, "Package not found: " + packageName);
+                        continue;
+                    }
+                    BackupResult result = new BackupResult(packageInfo);
+                    pending.add(result);
+                    File packageDir = new File(backupDir, packageName);
+                    packageDir.mkdirs();
+                    JSONObject oldEntry = oldEntries.get(packageName);
+                    for (String sourcePath : getApkPaths(packageInfo.applicationInfo)) {
+                        final File source = new File(sourcePath);
+                        final File target = new File(packageDir, source.getName());
+                        final JSONObject oldFile = findFileEntry(oldEntry, source.getName());
+                        final BackupResult owner = result;
+                        futures.add(executor.submit(() -> copyFile(owner, source, target, oldFile)));
+                    }
+                }
+                executor.shutdown();
+
+                int done = 0;
+                for (Future<FileResult> future : futures) {
+                    FileResult fileResult = future.get();
+                    fileResult.owner.files.add(fileResult);
+                    final int progress = ++done;
+                    final int total = futures.size();
+                    final String name = fileResult.owner.packageName;
+                    mMainHandler.post(() -> callback.onProgress(name, progress, total));
+                }
+                results.addAll(pending);
+
+                // 合并旧清单中未参与本次备份的应用，重新写入清单
+                writeManifest(manifestFile, oldEntries, results);
+                final File finalManifest = manifestFile;
+                mMainHandler.post(() -> callback.onComplete(results, finalManifest));
+            } catch (Exception e) {
+                e.printStackTrace();
+                Log.e(TAG, "Backup failed: " + e.getMessage());
+                mMainHandler.post(() -> callback.onFailed(e));
+            }
+        }, "AppBackup").start();
+    }
+
+    /**
+     * 获取应用的所有APK路径（基础包和拆分包）
+     */
+    private List<String> getApkPaths(ApplicationInfo appInfo) {
+        List<String> paths = new ArrayList<>();
+        paths.add(appInfo.sourceDir);
+        if (appInfo.splitSourceDirs != null) {
+            for (String split : appInfo.splitSourceDirs) {
+                paths.add(split);
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * 复制单个APK文件，目标文件已存在且摘要一致时跳过
+     * @param oldFile 清单中该文件的旧记录，可为null
+     */
+    private FileResult copyFile(BackupResult owner, File source, File target, JSONObject oldFile) {
+        FileResult result = new FileResult(owner, source.getName());
+        try {
+            result.size = source.length();
+            result.sha256 = digestFile(source);
+
+            if (target.exists() && target.length() == result.size) {
+                // 目标文件的大小和修改时间都与清单记录一致时才信任记录的摘要，否则重新计算
+                String targetDigest = null;
+                if (oldFile != null && oldFile.optLong("size", -1) == target.length()
+                        && oldFile.optLong("mtime", -1) == target.lastModified()) {
+                    targetDigest = oldFile.optString("sha256", null);
+                }
+                if (targetDigest == null) {
+                    targetDigest = digestFile(target);
+                }
+                if (result.sha256.equals(targetDigest)) {
+                    result.mtime = target.lastModified();
+                    result.skipped = true;
+                    result.success = true;
+                    return result;
+                }
+            }
+
+            File tmp = new File(target.getPath() + ".tmp");
+            try (FileInputStream in = new FileInputStream(source);
+                 FileOutputStream out = new FileOutputStream(tmp);
+                 FileChannel inChannel = in.getChannel();
+                 FileChannel outChannel = out.getChannel()) {
+                // transferTo由内核直接完成拷贝（sendfile），不经过用户态缓冲区
+                long position = 0;
+                while (position < result.size) {
+                    long transferred = inChannel.transferTo(position, result.size - position, outChannel);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    position += transferred;
+                }
+                out.getFD().sync();
+                if (position != result.size) {
+                    throw new IOException("Short copy: " + position + "/" + result.size);
+                }
+            }
+            if (!tmp.renameTo(target)) {
+                tmp.delete();
+                throw new IOException("Cannot rename " + tmp + " to " + target);
+            }
+            result.mtime = target.lastModified();
+            result.success = true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            Log.e(TAG, "Failed to copy " + source + ": " + e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 使用内存映射计算文件的SHA-256摘要
+     * @param file 文件
+     * @return 十六进制摘要字符串
+     */
+    public static String digestFile(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file);
+             FileChannel channel = in.getChannel()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long length = Math.min(MAP_CHUNK, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                digest.update(buffer);
+                position += length;
+            }
+            return toHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * 字节数组转十六进制字符串
+     */
+    public static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 读取备份清单，不存在或损坏时返回空清单
+     */
+    public static JSONObject readManifest(File manifestFile) {
+        if (!manifestFile.exists()) {
+            return new JSONObject();
+        }
+        try (FileInputStream in = new FileInputStream(manifestFile)) {
+            byte[] data = new byte[(int) manifestFile.length()];
+            int offset = 0;
+            while (offset < data.length) {
+                int read = in.read(data, offset, data.length - offset);
+                if (read < 0) {
+                    break;
+                }
+                offset += read;
+            }
+            return new JSONObject(new String(data, 0, offset, StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to read manifest: " + e.getMessage());
+            return new JSONObject();
+        }
+    }
+
+    /**
+     * 按包名索引清单中的应用条目
+     */
+    private Map<String, JSONObject> indexManifest(JSONObject manifest) {
+        Map<String, JSONObject> entries = new HashMap<>();
+        JSONArray packages = manifest.optJSONArray("packages");
+        if (packages != null) {
+            for (int i = 0; i < packages.length(); i++) {
+                JSONObject entry = packages.optJSONObject(i);
+                if (entry != null) {
+                    entries.put(entry.optString("packageName"), entry);
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * 在清单条目中查找指定文件的记录
+     */
+    private JSONObject findFileEntry(JSONObject entry, String fileName) {
+        if (entry == null) {
+            return null;
+        }
+        JSONArray files = entry.optJSONArray("files");
+        if (files == null) {
+            return null;
+        }
+        for (int i = 0; i < files.length(); i++) {
+            JSONObject file = files.optJSONObject(i);
+            if (file != null && fileName.equals(file.optString("name"))) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 写入备份清单（先写临时文件再重命名，避免中途失败导致清单损坏）
+     */
+    private void writeManifest(File manifestFile, Map<String, JSONObject> oldEntries, List<BackupResult> results)
+            throws JSONException, IOException {
+        Map<String, JSONObject> entries = new HashMap<>(oldEntries);
+        for (BackupResult result : results) {
+            JSONObject entry = new JSONObject();
+            entry.put("packageName", result.packageName);
+            entry.put("versionName", result.versionName);
+            entry.put("versionCode", result.versionCode);
+            JSONArray files = new JSONArray();
+            for (FileResult fileResult : result.files) {
+                if (!fileResult.success) {
+                    continue;
+                }
+                JSONObject file = new JSONObject();
+                file.put("name", fileResult.name);
+                file.put("size", fileResult.size);
+                file.put("sha256", fileResult.sha256);
+                file.put("mtime", fileResult.mtime);
+                files.put(file);
+            }
+            entry.put("files", files);
+            entries.put(result.packageName, entry);
+        }
+
+        JSONObject manifest = new JSONObject();
+        manifest.put("createdAt", System.currentTimeMillis());
+        JSONArray packages = new JSONArray();
+        for (JSONObject entry : entries.values()) {
+            packages.put(entry);
+        }
+        manifest.put("packages", packages);
+
+        File tmp = new File(manifestFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(manifest.toString(2).getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(manifestFile)) {
+            throw new IOException("Cannot write manifest " + manifestFile);
+        }
+    }
+
+    /**
+     * 单个应用的备份结果
+     */
+    public static class BackupResult {
+        public final String packageName;
+        public final String versionName;
+        public final int versionCode;
+        public final List<FileResult> files = new ArrayList<>();
+
+        BackupResult(PackageInfo packageInfo) {
+            this.packageName = packageInfo.packageName;
+            this.versionName = packageInfo.versionName;
+            this.versionCode = packageInfo.versionCode;
+        }
+
+        /**
+         * 是否所有文件都备份成功
+         */
+        public boolean isSuccess() {
+            for (FileResult file : files) {
+                if (!file.success) {
+                    return false;
+                }
+            }
+            return !files.isEmpty();
+        }
+    }
+
+    /**
+     * 单个APK文件的备份结果
+     */
+    public static class FileResult {
+        final BackupResult owner;
+        public final String name;
+        public long size;
+        public String sha256;
+        // 备份文件的修改时间，用于判断清单中的摘要是否仍然有效
+        public long mtime;
+        public boolean skipped;
+        public boolean success;
+
+        FileResult(BackupResult owner, String name) {
+            this.owner = owner;
+            this.name = name;
+        }
+    }
+
+    /**
+     * 备份回调接口
+     */
+    public interface BackupCallback {
+        /**
+         * 备份进度回调
+         * @param packageName 刚完成文件所属的应用包名
+         * @param done 已完成的文件数
+         * @param total 文件总数
+         */
+        void onProgress(String packageName, int done, int total);
+
+        /**
+         * 备份完成回调
+         * @param results 各应用的备份结果
+         * @param manifestFile 清单文件
+         */
+        void onComplete(List<BackupResult> results, File manifestFile);
+
+        /**
+         * 备份失败回调
+         * @param e 失败原因
+         */
+        void onFailed(Exception e);
+    }
+}
@@ -16,6 +16,7 @@ public class AppInfo {
     private long updateTime;
     private String versionName;
     private int versionCode;
+    private boolean selected;
 
     public String getAppName() {
         return appName;
@@ -88,4 +89,12 @@ public class AppInfo {
     public void setVersionCode(int versionCode) {
         this.versionCode = versionCode;
     }
+
+    public boolean isSelected() {
+        return selected;
+    }
+
+    public void setSelected(boolean selected) {
+        this.selected = selected;
+    }
 }
\ No newline at end of file
@@ -2,10 +2,13 @@ package com.jabin.rootapp;
 
 import android.content.Context;
 import android.content.pm.PackageInfo;
+import android.text.format.Formatter;
+import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -13,7 +16,11 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 /**
  * 应用列表适配器，用于显示可卸载应用列表
@@ -24,6 +31,10 @@ public class AppListAdapter extends RecyclerView.Adapter<AppListAdapter.AppViewH
     private List<AppInfo> mAppList;
     private OnAppItemClickListener mListener;
     private OnUninstallClickListener mUninstallListener;
+    // 局部刷新标记：只更新进程占用文本，不重新绑定图标等内容
+    private static final Object PAYLOAD_STATS = new Object();
+    private boolean mShowStats;
+    private SparseArray<ProcessStatsSampler.AppStats> mStats = new SparseArray<>();
 
     public interface OnAppItemClickListener {
         void onAppItemClick(AppInfo appInfo);
@@ -60,6 +71,13 @@ public class AppListAdapter extends RecyclerView.Adapter<AppListAdapter.AppViewH
         // 设置应用包名
         holder.tvAppPackage.setText(appInfo.getPackageName());
         
+        bindStats(holder, appInfo);
+        
+        // 设置选中状态，先移除监听避免复用ViewHolder时误触发
+        holder.cbSelect.setOnCheckedChangeListener(null);
+        holder.cbSelect.setChecked(appInfo.isSelected());
+        holder.cbSelect.setOnCheckedChangeListener((buttonView, isChecked) -> appInfo.setSelected(isChecked));
+        
         // 设置点击事件
         holder.itemView.setOnClickListener(v -> {
             if (mListener != null) {
@@ -75,6 +93,40 @@ public class AppListAdapter extends RecyclerView.Adapter<AppListAdapter.AppViewH
         });
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull AppViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_STATS)) {
+            bindStats(holder, mAppList.get(position));
+            return;
+        }
+        onBindViewHolder(holder, position);
+    }
+
+    /**
+     * 绑定进程内存/CPU占用
+     */
+    private void bindStats(AppViewHolder holder, AppInfo appInfo) {
+        if (!mShowStats || appInfo.getApplicationInfo() == null) {
+            holder.tvAppStats.setVisibility(View.GONE);
+            return;
+        }
+        holder.tvAppStats.setVisibility(View.VISIBLE);
+        ProcessStatsSampler.AppStats stats = mStats.get(appInfo.getApplicationInfo().uid);
+        if (stats == null) {
+            holder.tvAppStats.setText("未运行");
+            return;
+        }
+        String text = "RSS " + Formatter.formatShortFileSize(mContext, stats.rssKb * 1024);
+        if (stats.pssKb > 0) {
+            text += "  PSS " + Formatter.formatShortFileSize(mContext, stats.pssKb * 1024);
+        }
+        text += String.format(Locale.getDefault(), "  CPU %.1f%%", stats.cpuPercent);
+        if (stats.processCount > 1) {
+            text += "  (" + stats.processCount + "个进程)";
+        }
+        holder.tvAppStats.setText(text);
+    }
+
     @Override
     public int getItemCount() {
         return mAppList != null ? mAppList.size() : 0;
@@ -89,20 +141,85 @@ public class AppListAdapter extends RecyclerView.Adapter<AppListAdapter.AppViewH
         notifyDataSetChanged();
     }
 
+    /**
+     * 获取已选中的应用
+     * @return 已选中的应用列表
+     */
+    public List<AppInfo> getSelectedApps() {
+        List<AppInfo> selected = new ArrayList<>();
+        if (mAppList != null) {
+            for (AppInfo appInfo : mAppList) {
+                if (appInfo.isSelected()) {
+                    selected.add(appInfo);
+                }
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 设置是否显示进程内存/CPU占用
+     * @param showStats 是否显示
+     */
+    public void setShowStats(boolean showStats) {
+        this.mShowStats = showStats;
+        if (!showStats) {
+            mStats = new SparseArray<>();
+        }
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_STATS);
+    }
+
+    /**
+     * 更新进程占用数据，只刷新指定范围内（可见）的行
+     * @param stats UID -> 资源占用
+     * @param first 第一个可见位置
+     * @param last 最后一个可见位置
+     */
+    public void updateStats(SparseArray<ProcessStatsSampler.AppStats> stats, int first, int last) {
+        this.mStats = stats;
+        if (first < 0 || last < first) {
+            return;
+        }
+        notifyItemRangeChanged(first, Math.min(last, getItemCount() - 1) - first + 1, PAYLOAD_STATS);
+    }
+
+    /**
+     * 获取指定范围内应用的UID
+     * @param first 起始位置
+     * @param last 结束位置（包含）
+     * @return UID集合
+     */
+    public Set<Integer> getUids(int first, int last) {
+        Set<Integer> uids = new HashSet<>();
+        if (mAppList == null || first < 0) {
+            return uids;
+        }
+        for (int i = first; i <= last && i < mAppList.size(); i++) {
+            if (mAppList.get(i).getApplicationInfo() != null) {
+                uids.add(mAppList.get(i).getApplicationInfo().uid);
+            }
+        }
+        return uids;
+    }
+
     /**
      * 应用列表ViewHolder
      */
     static class AppViewHolder extends RecyclerView.ViewHolder {
+        CheckBox cbSelect;
         ImageView ivAppIcon;
         TextView tvAppName;
         TextView tvAppPackage;
+        TextView tvAppStats;
         Button btnUninstall;
 
         public AppViewHolder(@NonNull View itemView) {
             super(itemView);
+            cbSelect = itemView.findViewById(R.id.cb_select);
             ivAppIcon = itemView.findViewById(R.id.iv_app_icon);
             tvAppName = itemView.findViewById(R.id.tv_app_name);
             tvAppPackage = itemView.findViewById(R.id.tv_app_package);
+            tvAppStats = itemView.findViewById(R.id.tv_app_stats);
             btnUninstall = itemView.findViewById(R.id.btn_uninstall);
         }
     }
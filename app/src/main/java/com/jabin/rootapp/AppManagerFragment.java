@@ -1,30 +1,52 @@
 package com.jabin.rootapp;
 
+import android.app.usage.NetworkStats;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.graphics.drawable.Drawable;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.text.InputType;
+import android.text.format.Formatter;
 import android.util.Log;
+import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
+import android.widget.CheckBox;
+import android.widget.EditText;
 import android.widget.ImageView;
+import android.widget.LinearLayout;
+import android.widget.RadioButton;
+import android.widget.RadioGroup;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 应用管理Fragment - 提供静默安装和卸载应用功能
@@ -34,10 +56,28 @@ public class AppManagerFragment extends Fragment {
     private static final String TAG = "AppManagerFragment";
     private Button btnSilentInstall;
     private Button btnRefreshApps;
+    private Button btnCleanCache;
+    private Button btnBackupApps;
+    private Button btnRestoreApps;
+    private Button btnInstallUrl;
+    private Button btnUsageStats;
+    private Button btnDataUsage;
+    private Button btnImportPermissions;
+    private CheckBox cbProcessStats;
+    private CheckBox cbPeerShare;
+    private TextView tvPeerShareStatus;
     private RecyclerView rvAppList;
+    private LinearLayoutManager mLayoutManager;
+    private ProcessStatsSampler mStatsSampler;
     private AppListAdapter mAppListAdapter;
     private List<AppInfo> mAppList;
     private PackageManager mPackageManager;
+    private final ActivityResultLauncher<String> mImportProfilesLauncher = registerForActivityResult(
+            new ActivityResultContracts.GetContent(), uri -> {
+                if (uri != null && isAdded()) {
+                    importPermissionProfiles(uri);
+                }
+            });
 
     public AppManagerFragment() {
         // Required empty public constructor
@@ -70,10 +110,21 @@ public class AppManagerFragment extends Fragment {
     private void initViews(View view) {
         btnSilentInstall = view.findViewById(R.id.btn_silent_install);
         btnRefreshApps = view.findViewById(R.id.btn_refresh_apps);
+        btnCleanCache = view.findViewById(R.id.btn_clean_cache);
+        btnBackupApps = view.findViewById(R.id.btn_backup_apps);
+        btnRestoreApps = view.findViewById(R.id.btn_restore_apps);
+        btnInstallUrl = view.findViewById(R.id.btn_install_url);
+        btnUsageStats = view.findViewById(R.id.btn_usage_stats);
+        btnDataUsage = view.findViewById(R.id.btn_data_usage);
+        btnImportPermissions = view.findViewById(R.id.btn_import_permissions);
+        cbProcessStats = view.findViewById(R.id.cb_process_stats);
+        cbPeerShare = view.findViewById(R.id.cb_peer_share);
+        tvPeerShareStatus = view.findViewById(R.id.tv_peer_share_status);
         rvAppList = view.findViewById(R.id.rv_app_list);
         
         // 配置RecyclerView
-        rvAppList.setLayoutManager(new LinearLayoutManager(getActivity()));
+        mLayoutManager = new LinearLayoutManager(getActivity());
+        rvAppList.setLayoutManager(mLayoutManager);
         mAppList = new ArrayList<>();
         mAppListAdapter = new AppListAdapter(getActivity(), mAppList, new AppListAdapter.OnAppItemClickListener() {
             @Override
@@ -87,6 +138,8 @@ public class AppManagerFragment extends Fragment {
             }
         });
         rvAppList.setAdapter(mAppListAdapter);
+        
+        mStatsSampler = new ProcessStatsSampler(ProcessStatsSampler.DEFAULT_INTERVAL_MS, this::onProcessStatsUpdated);
     }
     
     /**
@@ -105,6 +158,51 @@ public class AppManagerFragment extends Fragment {
         
         // 刷新应用列表
         btnRefreshApps.setOnClickListener(v -> loadUninstallableApps());
+        
+        // 批量清理缓存
+        btnCleanCache.setOnClickListener(v -> showCleanDialog());
+        
+        // 备份APK
+        btnBackupApps.setOnClickListener(v -> showBackupDialog());
+        
+        // 恢复备份
+        btnRestoreApps.setOnClickListener(v -> showRestoreDialog());
+        
+        // 从URL安装
+        btnInstallUrl.setOnClickListener(v -> showInstallUrlDialog());
+        
+        // 使用统计
+        btnUsageStats.setOnClickListener(v -> showUsageStats());
+        btnDataUsage.setOnClickListener(v -> selectDataUsageWindow());
+        
+        // 导入权限配置，之后安装对应应用时自动授予
+        btnImportPermissions.setOnClickListener(v -> mImportProfilesLauncher.launch("application/json"));
+        
+        // 进程监控开关
+        cbProcessStats.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            mAppListAdapter.setShowStats(isChecked);
+            if (isChecked) {
+                updateWatchedUids();
+                mStatsSampler.start();
+            } else {
+                mStatsSampler.stop();
+            }
+        });
+        
+        // 局域网共享开关，离开页面后继续共享
+        cbPeerShare.setChecked(ApkPeerHelper.getInstance(getActivity()).isRunning());
+        updatePeerShareStatus();
+        cbPeerShare.setOnCheckedChangeListener((buttonView, isChecked) -> setPeerShareEnabled(isChecked));
+        
+        // 列表滚动后只采样可见行对应的应用
+        rvAppList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_IDLE && cbProcessStats.isChecked()) {
+                    updateWatchedUids();
+                }
+            }
+        });
     }
     
     @Override
@@ -112,6 +210,40 @@ public class AppManagerFragment extends Fragment {
         super.onResume();
         // 进入fragment时自动刷新应用列表
         loadUninstallableApps();
+        if (cbProcessStats.isChecked()) {
+            // 等列表布局完成后再取可见范围
+            rvAppList.post(() -> {
+                if (isResumed()) {
+                    updateWatchedUids();
+                    mStatsSampler.start();
+                }
+            });
+        }
+    }
+    
+    @Override
+    public void onPause() {
+        super.onPause();
+        mStatsSampler.stop();
+    }
+    
+    /**
+     * 把可见行对应的UID交给采样器
+     */
+    private void updateWatchedUids() {
+        mStatsSampler.setWatchedUids(mAppListAdapter.getUids(
+                mLayoutManager.findFirstVisibleItemPosition(), mLayoutManager.findLastVisibleItemPosition()));
+    }
+    
+    /**
+     * 进程采样结果回调，只刷新可见行
+     */
+    private void onProcessStatsUpdated(SparseArray<ProcessStatsSampler.AppStats> stats) {
+        if (!isResumed() || !cbProcessStats.isChecked()) {
+            return;
+        }
+        mAppListAdapter.updateStats(stats, mLayoutManager.findFirstVisibleItemPosition(),
+                mLayoutManager.findLastVisibleItemPosition());
     }
     
     /**
@@ -173,6 +305,500 @@ public class AppManagerFragment extends Fragment {
         }
     }
     
+    /**
+     * 显示批量清理对话框
+     */
+    private void showCleanDialog() {
+        final List<AppInfo> selectedApps = mAppListAdapter.getSelectedApps();
+        if (selectedApps.isEmpty()) {
+            Toast.makeText(getActivity(), "请先勾选要清理的应用", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        
+        final boolean[] clearData = {false};
+        AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+        builder.setTitle("清理 " + selectedApps.size() + " 个应用");
+        builder.setMultiChoiceItems(new String[]{"同时清除应用数据"}, clearData,
+                (dialog, which, isChecked) -> clearData[0] = isChecked);
+        builder.setPositiveButton("开始清理", (dialog, which) -> cleanApps(selectedApps, clearData[0]));
+        builder.setNegativeButton("取消", null);
+        builder.show();
+    }
+    
+    /**
+     * 批量清理应用缓存或数据
+     * @param apps 要清理的应用
+     * @param clearData 是否同时清除应用数据
+     */
+    private void cleanApps(List<AppInfo> apps, boolean clearData) {
+        List<String> packageNames = new ArrayList<>();
+        for (AppInfo appInfo : apps) {
+            packageNames.add(appInfo.getPackageName());
+        }
+        
+        btnCleanCache.setEnabled(false);
+        final Context context = getActivity().getApplicationContext();
+        AppStorageHelper storageHelper = new AppStorageHelper(context);
+        storageHelper.cleanPackages(packageNames, clearData, new AppStorageHelper.CleanCallback() {
+            @Override
+            public void onPackageCleaned(AppStorageHelper.CleanResult result) {
+                Log.d(TAG, "Cleaned " + result.packageName + ": " + result.success + ", " + result.reclaimedBytes + " bytes");
+            }
+            
+            @Override
+            public void onComplete(List<AppStorageHelper.CleanResult> results, long totalReclaimedBytes) {
+                btnCleanCache.setEnabled(true);
+                if (!isAdded()) {
+                    return;
+                }
+                
+                StringBuilder message = new StringBuilder();
+                for (AppStorageHelper.CleanResult result : results) {
+                    message.append(result.packageName).append(": ")
+                            .append(result.success ? Formatter.formatFileSize(context, result.reclaimedBytes) : "失败")
+                            .append("\n");
+                }
+                message.append("\n共释放: ").append(Formatter.formatFileSize(context, totalReclaimedBytes));
+                
+                AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+                builder.setTitle("清理完成");
+                builder.setMessage(message.toString());
+                builder.setPositiveButton("确定", null);
+                builder.show();
+                
+                loadUninstallableApps();
+            }
+        });
+    }
+    
+    /**
+     * 显示APK备份对话框，未勾选应用时备份全部第三方应用
+     */
+    private void showBackupDialog() {
+        List<AppInfo> selectedApps = mAppListAdapter.getSelectedApps();
+        final List<AppInfo> apps = selectedApps.isEmpty() ? new ArrayList<>(mAppList) : selectedApps;
+        if (apps.isEmpty()) {
+            Toast.makeText(getActivity(), "没有可备份的应用", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        
+        final EditText etBackupDir = new EditText(getActivity());
+        etBackupDir.setText(new File(Environment.getExternalStorageDirectory(), "RootAppBackup").getAbsolutePath());
+        
+        AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+        builder.setTitle("备份 " + apps.size() + " 个应用到目录");
+        builder.setView(etBackupDir);
+        builder.setPositiveButton("开始备份", (dialog, which) -> {
+            String path = etBackupDir.getText().toString().trim();
+            if (path.isEmpty()) {
+                Toast.makeText(getActivity(), "请输入备份目录", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            backupApps(apps, new File(path));
+        });
+        builder.setNegativeButton("取消", null);
+        builder.show();
+    }
+    
+    /**
+     * 备份应用APK
+     * @param apps 要备份的应用
+     * @param backupDir 备份目录
+     */
+    private void backupApps(List<AppInfo> apps, File backupDir) {
+        List<String> packageNames = new ArrayList<>();
+        for (AppInfo appInfo : apps) {
+            packageNames.add(appInfo.getPackageName());
+        }
+        
+        btnBackupApps.setEnabled(false);
+        final Context context = getActivity().getApplicationContext();
+        AppBackupHelper backupHelper = new AppBackupHelper(context);
+        backupHelper.backupPackages(packageNames, backupDir, new AppBackupHelper.BackupCallback() {
+            @Override
+            public void onProgress(String packageName, int done, int total) {
+                btnBackupApps.setText("备份中 " + done + "/" + total);
+            }
+            
+            @Override
+            public void onComplete(List<AppBackupHelper.BackupResult> results, File manifestFile) {
+                btnBackupApps.setEnabled(true);
+                btnBackupApps.setText("备份APK");
+                if (!isAdded()) {
+                    return;
+                }
+                
+                int copied = 0;
+                int skipped = 0;
+                int failed = 0;
+                long bytes = 0;
+                for (AppBackupHelper.BackupResult result : results) {
+                    for (AppBackupHelper.FileResult file : result.files) {
+                        if (!file.success) {
+                            failed++;
+                        } else if (file.skipped) {
+                            skipped++;
+                        } else {
+                            copied++;
+                            bytes += file.size;
+                        }
+                    }
+                }
+                
+                AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+                builder.setTitle("备份完成");
+                builder.setMessage("复制: " + copied + " 个文件 (" + Formatter.formatFileSize(context, bytes) + ")\n"
+                        + "跳过(已存在): " + skipped + "\n"
+                        + "失败: " + failed + "\n"
+                        + "清单: " + manifestFile.getAbsolutePath());
+                builder.setPositiveButton("确定", null);
+                builder.show();
+            }
+            
+            @Override
+            public void onFailed(Exception e) {
+                btnBackupApps.setEnabled(true);
+                btnBackupApps.setText("备份APK");
+                Toast.makeText(context, "备份失败: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+    
+    /**
+     * 显示恢复备份对话框，支持备份目录或zip归档
+     */
+    private void showRestoreDialog() {
+        final EditText etSource = new EditText(getActivity());
+        etSource.setText(new File(Environment.getExternalStorageDirectory(), "RootAppBackup").getAbsolutePath());
+        
+        AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+        builder.setTitle("备份目录或zip归档路径");
+        builder.setView(etSource);
+        builder.setPositiveButton("开始恢复", (dialog, which) -> {
+            File source = new File(etSource.getText().toString().trim());
+            if (!source.exists()) {
+                Toast.makeText(getActivity(), "路径不存在", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            restoreApps(source);
+        });
+        builder.setNegativeButton("取消", null);
+        builder.show();
+    }
+    
+    /**
+     * 从备份恢复应用
+     * @param source 备份目录或zip归档
+     */
+    private void restoreApps(File source) {
+        btnRestoreApps.setEnabled(false);
+        final Context context = getActivity().getApplicationContext();
+        AppRestoreHelper restoreHelper = new AppRestoreHelper(context);
+        restoreHelper.restore(source, new AppRestoreHelper.RestoreCallback() {
+            @Override
+            public void onProgress(String packageName, int done, int total) {
+                btnRestoreApps.setText("恢复中 " + done + "/" + total);
+            }
+            
+            @Override
+            public void onComplete(List<AppManagerHelper.InstallResult> results) {
+                btnRestoreApps.setEnabled(true);
+                btnRestoreApps.setText("恢复备份");
+                if (!isAdded()) {
+                    return;
+                }
+                
+                StringBuilder message = new StringBuilder();
+                for (AppManagerHelper.InstallResult result : results) {
+                    message.append(result.packageName).append(": ")
+                            .append(result.success ? "成功" : "失败 " + result.message)
+                            .append("\n");
+                }
+                AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+                builder.setTitle("恢复完成");
+                builder.setMessage(message.length() > 0 ? message.toString() : "备份中没有可恢复的应用");
+                builder.setPositiveButton("确定", null);
+                builder.show();
+                
+                loadUninstallableApps();
+            }
+            
+            @Override
+            public void onFailed(Exception e) {
+                btnRestoreApps.setEnabled(true);
+                btnRestoreApps.setText("恢复备份");
+                Toast.makeText(context, "恢复失败: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+    
+    /**
+     * 显示URL安装对话框
+     */
+    private void showInstallUrlDialog() {
+        LinearLayout layout = new LinearLayout(getActivity());
+        layout.setOrientation(LinearLayout.VERTICAL);
+        final EditText etUrl = new EditText(getActivity());
+        etUrl.setHint("http://192.168.1.10/app.apk");
+        final EditText etSha256 = new EditText(getActivity());
+        etSha256.setHint("SHA-256（可选）");
+        layout.addView(etUrl);
+        layout.addView(etSha256);
+        
+        AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+        builder.setTitle("从URL安装");
+        builder.setView(layout);
+        builder.setPositiveButton("安装", (dialog, which) -> {
+            String url = etUrl.getText().toString().trim();
+            if (!url.startsWith("http://") && !url.startsWith("https://")) {
+                Toast.makeText(getActivity(), "请输入有效的HTTP地址", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            installFromUrl(url, etSha256.getText().toString().trim());
+        });
+        builder.setNegativeButton("取消", null);
+        builder.show();
+    }
+    
+    /**
+     * 从URL安装应用
+     * @param url APK下载地址
+     * @param sha256 期望的SHA-256摘要，可为空
+     */
+    private void installFromUrl(String url, String sha256) {
+        btnInstallUrl.setEnabled(false);
+        final Context context = getActivity().getApplicationContext();
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        new AppManagerHelper(context).installFromUrl(url, sha256, result -> mainHandler.post(() -> {
+            btnInstallUrl.setEnabled(true);
+            if (isAdded()) {
+                updatePeerShareStatus();
+            }
+            if (result.success) {
+                Toast.makeText(context, "应用安装成功: " + result.packageName, Toast.LENGTH_SHORT).show();
+                if (isAdded()) {
+                    loadUninstallableApps();
+                }
+            } else {
+                Toast.makeText(context, "应用安装失败: " + result.message, Toast.LENGTH_LONG).show();
+            }
+        }));
+    }
+    
+    /**
+     * 开启或关闭局域网共享：开启后本机下载的安装包会缓存并提供给同一局域网的其他设备，
+     * 其他设备按摘要从URL安装时优先从本机下载
+     */
+    private void setPeerShareEnabled(boolean enabled) {
+        final Context context = getActivity().getApplicationContext();
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        cbPeerShare.setEnabled(false);
+        new Thread(() -> {
+            ApkPeerHelper peers = ApkPeerHelper.getInstance(context);
+            String error = null;
+            if (enabled) {
+                try {
+                    peers.start(ApkPeerHelper.DEFAULT_HTTP_PORT);
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to start peer sharing: " + e.getMessage());
+                    error = e.getMessage();
+                }
+            } else {
+                peers.stop();
+            }
+            final String message = error;
+            mainHandler.post(() -> {
+                if (!isAdded()) {
+                    return;
+                }
+                cbPeerShare.setEnabled(true);
+                if (message != null) {
+                    Toast.makeText(context, "开启共享失败: " + message, Toast.LENGTH_LONG).show();
+                    // 取消勾选会再执行一次stop()，未启动时不做任何事
+                    cbPeerShare.setChecked(false);
+                }
+                updatePeerShareStatus();
+            });
+        }, "PeerShareToggle").start();
+    }
+    
+    /**
+     * 显示共享端口和已缓存的安装包数量
+     */
+    private void updatePeerShareStatus() {
+        ApkPeerHelper peers = ApkPeerHelper.getInstance(getActivity());
+        tvPeerShareStatus.setText(peers.isRunning()
+                ? "端口 " + peers.getHttpPort() + "，已缓存 " + peers.getCachedCount() + " 个安装包"
+                : "未开启");
+    }
+    
+    /**
+     * 显示最近30天的应用使用统计，先增量更新索引再查询
+     */
+    private void showUsageStats() {
+        btnUsageStats.setEnabled(false);
+        final Context context = getActivity().getApplicationContext();
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        new Thread(() -> {
+            UsageIndexHelper usageIndex = UsageIndexHelper.getInstance(context);
+            usageIndex.update();
+            final List<UsageIndexHelper.UsageSummary> summaries = usageIndex.query(30);
+            mainHandler.post(() -> {
+                btnUsageStats.setEnabled(true);
+                if (!isAdded()) {
+                    return;
+                }
+                if (summaries.isEmpty()) {
+                    Toast.makeText(context, "暂无使用记录", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                
+                String[] items = new String[summaries.size()];
+                for (int i = 0; i < summaries.size(); i++) {
+                    UsageIndexHelper.UsageSummary summary = summaries.get(i);
+                    items[i] = getAppLabel(summary.packageName) + "\n"
+                            + formatDuration(summary.foregroundMs) + "，启动 " + summary.launchCount + " 次";
+                }
+                AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+                builder.setTitle("最近30天使用统计");
+                builder.setItems(items, (dialog, which) -> showDailyUsage(summaries.get(which).packageName));
+                builder.setPositiveButton("关闭", null);
+                builder.show();
+            });
+        }, "UsageStats").start();
+    }
+    
+    /**
+     * 选择流量统计的时间范围
+     */
+    private void selectDataUsageWindow() {
+        final int[] windows = {1, 7, 30};
+        new AlertDialog.Builder(getActivity())
+                .setTitle("流量统计范围")
+                .setItems(new String[]{"今天", "最近7天", "最近30天"}, (dialog, which) -> showDataUsage(windows[which]))
+                .show();
+    }
+    
+    /**
+     * 显示各应用在指定天数内的流量，已结束日期的数据来自缓存，只重新查询今天
+     * @param days 天数
+     */
+    private void showDataUsage(final int days) {
+        btnDataUsage.setEnabled(false);
+        final Context context = getActivity().getApplicationContext();
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        new Thread(() -> {
+            final List<DataUsageHelper.UidUsage> usages = DataUsageHelper.getInstance(context).query(days);
+            mainHandler.post(() -> {
+                btnDataUsage.setEnabled(true);
+                if (!isAdded()) {
+                    return;
+                }
+                if (usages.isEmpty()) {
+                    Toast.makeText(context, "暂无流量记录", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                
+                String[] items = new String[usages.size()];
+                for (int i = 0; i < usages.size(); i++) {
+                    DataUsageHelper.UidUsage usage = usages.get(i);
+                    StringBuilder item = new StringBuilder(getUidLabel(usage.uid)).append("\n↓ ")
+                            .append(Formatter.formatFileSize(context, usage.rxBytes)).append("  ↑ ")
+                            .append(Formatter.formatFileSize(context, usage.txBytes));
+                    for (int type = 0; type < usage.perType.length; type++) {
+                        long bytes = usage.perType[type][0] + usage.perType[type][1];
+                        if (bytes > 0) {
+                            item.append("  ").append(DataUsageHelper.NETWORK_TYPE_NAMES[type]).append(" ")
+                                    .append(Formatter.formatFileSize(context, bytes));
+                        }
+                    }
+                    items[i] = item.toString();
+                }
+                AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+                builder.setTitle(days == 1 ? "今天流量统计" : "最近" + days + "天流量统计");
+                builder.setItems(items, null);
+                builder.setPositiveButton("关闭", null);
+                builder.show();
+            });
+        }, "DataUsage").start();
+    }
+    
+    /**
+     * 获取UID对应的名称：优先使用应用列表中的应用名，其次为系统包名，特殊UID显示说明
+     */
+    private String getUidLabel(int uid) {
+        for (AppInfo appInfo : mAppList) {
+            if (appInfo.getApplicationInfo() != null && appInfo.getApplicationInfo().uid == uid) {
+                return appInfo.getAppName();
+            }
+        }
+        if (uid == NetworkStats.Bucket.UID_REMOVED) {
+            return "已卸载的应用";
+        } else if (uid == NetworkStats.Bucket.UID_TETHERING) {
+            return "网络共享（热点）";
+        } else if (uid == Process.SYSTEM_UID) {
+            return "系统 (1000)";
+        }
+        String[] packages = mPackageManager.getPackagesForUid(uid);
+        if (packages != null && packages.length > 0) {
+            return getAppLabel(packages[0]) + (packages.length > 1 ? " 等" + packages.length + "个应用" : "");
+        }
+        return "UID " + uid;
+    }
+    
+    /**
+     * 显示单个应用最近7天的每日前台时长
+     * @param packageName 应用包名
+     */
+    private void showDailyUsage(String packageName) {
+        final Context context = getActivity().getApplicationContext();
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        // 索引正在后台更新时查询会等待索引锁，不能在主线程执行
+        new Thread(() -> {
+            final long[] daily = UsageIndexHelper.getInstance(context).queryDaily(packageName, 7);
+            mainHandler.post(() -> {
+                if (!isAdded()) {
+                    return;
+                }
+                SimpleDateFormat sdf = new SimpleDateFormat("MM-dd");
+                StringBuilder message = new StringBuilder();
+                for (int i = 0; i < daily.length; i++) {
+                    long day = System.currentTimeMillis() - i * 24L * 60 * 60 * 1000;
+                    message.append(sdf.format(new Date(day))).append(": ").append(formatDuration(daily[i])).append("\n");
+                }
+                AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+                builder.setTitle(getAppLabel(packageName));
+                builder.setMessage(message.toString());
+                builder.setPositiveButton("确定", null);
+                builder.show();
+            });
+        }, "DailyUsage").start();
+    }
+    
+    /**
+     * 获取应用名称，获取失败时返回包名
+     */
+    private String getAppLabel(String packageName) {
+        try {
+            return mPackageManager.getApplicationInfo(packageName, 0).loadLabel(mPackageManager).toString();
+        } catch (PackageManager.NameNotFoundException e) {
+            return packageName;
+        }
+    }
+    
+    /**
+     * 格式化时长
+     * @param millis 毫秒
+     * @return 如“1小时5分”
+     */
+    private String formatDuration(long millis) {
+        long minutes = millis / 60000;
+        if (minutes < 60) {
+            return minutes + "分";
+        }
+        return (minutes / 60) + "小时" + (minutes % 60) + "分";
+    }
+    
     /**
      * 显示应用详情
      * @param appInfo 应用信息
@@ -192,6 +818,8 @@ public class AppManagerFragment extends Fragment {
         TextView tvAppInstallTime = view.findViewById(R.id.tv_app_install_time);
         TextView tvAppUpdateTime = view.findViewById(R.id.tv_app_update_time);
         Button btnUninstall = view.findViewById(R.id.btn_uninstall);
+        Button btnLaunchBenchmark = view.findViewById(R.id.btn_launch_benchmark);
+        Button btnPermissionProfile = view.findViewById(R.id.btn_permission_profile);
         
         // 设置应用信息
         ivAppIcon.setImageDrawable(appInfo.getAppIcon());
@@ -206,11 +834,160 @@ public class AppManagerFragment extends Fragment {
             silentUninstallApp(appInfo);
         });
         
+        // 设置启动测试按钮点击事件
+        btnLaunchBenchmark.setOnClickListener(v -> showLaunchBenchmarkDialog(appInfo));
+        
+        // 设置权限配置按钮点击事件
+        btnPermissionProfile.setOnClickListener(v -> showPermissionProfileDialog(appInfo));
+        
         builder.setView(view);
         builder.setNegativeButton("关闭", null);
         builder.show();
     }
     
+    /**
+     * 显示运行时权限配置对话框，保存后安装该应用时会自动授予所选权限
+     * @param appInfo 应用信息
+     */
+    private void showPermissionProfileDialog(AppInfo appInfo) {
+        final PermissionProfileHelper profileHelper = new PermissionProfileHelper(getActivity());
+        final List<String> permissions = profileHelper.getRuntimePermissions(appInfo.getPackageName());
+        if (permissions.isEmpty()) {
+            Toast.makeText(getActivity(), "该应用没有声明运行时权限", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        
+        Set<String> profile = profileHelper.getProfile(appInfo.getPackageName());
+        String[] items = new String[permissions.size()];
+        final boolean[] checked = new boolean[permissions.size()];
+        for (int i = 0; i < permissions.size(); i++) {
+            String permission = permissions.get(i);
+            items[i] = permission.substring(permission.lastIndexOf('.') + 1);
+            checked[i] = profile.contains(permission);
+        }
+        
+        AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+        builder.setTitle("安装后自动授予的权限");
+        builder.setMultiChoiceItems(items, checked, (dialog, which, isChecked) -> checked[which] = isChecked);
+        builder.setPositiveButton("保存并授予", (dialog, which) -> {
+            Set<String> selected = new LinkedHashSet<>();
+            for (int i = 0; i < permissions.size(); i++) {
+                if (checked[i]) {
+                    selected.add(permissions.get(i));
+                }
+            }
+            profileHelper.setProfile(appInfo.getPackageName(), selected);
+            PermissionProfileHelper.GrantResult result = profileHelper.applyProfile(appInfo.getPackageName());
+            Toast.makeText(getActivity(), "已授予 " + result.granted + " 项，失败 " + result.failed.size() + " 项",
+                    Toast.LENGTH_SHORT).show();
+        });
+        builder.setNegativeButton("取消", null);
+        builder.show();
+    }
+    
+    /**
+     * 从所选JSON文件导入权限配置，格式为 {"包名": ["权限", ...], ...}
+     * @param uri 文件地址
+     */
+    private void importPermissionProfiles(final Uri uri) {
+        btnImportPermissions.setEnabled(false);
+        final Context context = getActivity().getApplicationContext();
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        new Thread(() -> {
+            String message;
+            try (InputStream in = context.getContentResolver().openInputStream(uri)) {
+                if (in == null) {
+                    throw new IOException("Cannot open " + uri);
+                }
+                int count = new PermissionProfileHelper(context).importProfiles(in);
+                message = "已导入 " + count + " 个应用的权限配置";
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to import permission profiles: " + e.getMessage());
+                message = "导入失败: " + e.getMessage();
+            }
+            final String result = message;
+            mainHandler.post(() -> {
+                btnImportPermissions.setEnabled(true);
+                Toast.makeText(context, result, Toast.LENGTH_SHORT).show();
+            });
+        }, "ImportProfiles").start();
+    }
+    
+    /**
+     * 显示启动耗时测试对话框
+     * @param appInfo 应用信息
+     */
+    private void showLaunchBenchmarkDialog(AppInfo appInfo) {
+        LinearLayout layout = new LinearLayout(getActivity());
+        layout.setOrientation(LinearLayout.VERTICAL);
+        final RadioGroup rgMode = new RadioGroup(getActivity());
+        final RadioButton rbCold = new RadioButton(getActivity());
+        rbCold.setText("冷启动");
+        rbCold.setId(View.generateViewId());
+        RadioButton rbWarm = new RadioButton(getActivity());
+        rbWarm.setText("热启动");
+        rbWarm.setId(View.generateViewId());
+        rgMode.addView(rbCold);
+        rgMode.addView(rbWarm);
+        rgMode.check(rbCold.getId());
+        final EditText etIterations = new EditText(getActivity());
+        etIterations.setInputType(InputType.TYPE_CLASS_NUMBER);
+        etIterations.setText("10");
+        final CheckBox cbFullyDrawn = new CheckBox(getActivity());
+        cbFullyDrawn.setText("等待完全绘制（应用需调用reportFullyDrawn）");
+        cbFullyDrawn.setChecked(true);
+        layout.addView(rgMode);
+        layout.addView(etIterations);
+        layout.addView(cbFullyDrawn);
+        
+        AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+        builder.setTitle("启动耗时测试: " + appInfo.getAppName());
+        builder.setView(layout);
+        builder.setPositiveButton("开始", (dialog, which) -> {
+            int iterations;
+            try {
+                iterations = Integer.parseInt(etIterations.getText().toString().trim());
+            } catch (NumberFormatException e) {
+                iterations = 10;
+            }
+            runLaunchBenchmark(appInfo, rbCold.isChecked(), Math.max(1, iterations), cbFullyDrawn.isChecked());
+        });
+        builder.setNegativeButton("取消", null);
+        builder.show();
+    }
+    
+    /**
+     * 执行启动耗时测试并显示统计结果
+     */
+    private void runLaunchBenchmark(AppInfo appInfo, boolean cold, int iterations, boolean measureFullyDrawn) {
+        final Context context = getActivity().getApplicationContext();
+        Toast.makeText(context, "开始测试，共 " + iterations + " 次", Toast.LENGTH_SHORT).show();
+        new LaunchBenchmarkHelper(context).runBenchmark(appInfo.getPackageName(), cold, iterations, measureFullyDrawn,
+                new LaunchBenchmarkHelper.BenchmarkCallback() {
+                    @Override
+                    public void onProgress(int done, int total) {
+                        Log.d(TAG, "Launch benchmark progress: " + done + "/" + total);
+                    }
+                    
+                    @Override
+                    public void onComplete(LaunchBenchmarkHelper.Stats firstFrame, LaunchBenchmarkHelper.Stats fullyDrawn) {
+                        if (!isAdded()) {
+                            return;
+                        }
+                        AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+                        builder.setTitle(appInfo.getAppName() + (cold ? " 冷启动" : " 热启动"));
+                        builder.setMessage("首帧耗时:\n" + firstFrame + "\n\n完全绘制耗时:\n" + fullyDrawn);
+                        builder.setPositiveButton("确定", null);
+                        builder.show();
+                    }
+                    
+                    @Override
+                    public void onFailed(Exception e) {
+                        Toast.makeText(context, "启动测试失败: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    }
+                });
+    }
+    
     /**
      * 格式化日期
      * @param timeInMillis 时间戳
@@ -1,25 +1,58 @@
 package com.jabin.rootapp;
 
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.pm.PackageInstaller;
 import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.lang.reflect.Method;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 /**
  * 应用管理助手类，提供静默安装和卸载应用功能
  */
 public class AppManagerHelper {
 
+    private static final String TAG = "AppManagerHelper";
+    private static final String ACTION_INSTALL_COMMIT = "com.jabin.rootapp.INSTALL_COMMIT";
+    // URL安装时下载中断的最大续传次数
+    private static final int MAX_DOWNLOAD_RETRIES = 3;
+    private static final int CONNECT_TIMEOUT_MS = 10 * 1000;
+    private static final int READ_TIMEOUT_MS = 30 * 1000;
+
+    // 安装包格式
+    private static final int FORMAT_APK = 0;
+    private static final int FORMAT_GZIP = 1;
+    private static final int FORMAT_ZSTD = 2;
+
+    // 接收安装结果广播的后台线程，避免在主线程等待结果时死锁
+    private static HandlerThread sResultThread;
+
     private Context mContext;
     private PackageManager mPackageManager;
 
@@ -30,7 +63,7 @@ public class AppManagerHelper {
 
     /**
      * 静默安装应用
-     * @param apkPath APK文件路径
+     * @param apkPath APK文件路径，支持gzip压缩的APK（按文件头自动识别）
      * @return 是否安装成功
      */
     public boolean silentInstall(String apkPath) {
@@ -55,25 +88,28 @@ public class AppManagerHelper {
      */
     private boolean installApkWithPackageInstaller(String apkPath) {
         try {
-            PackageInstaller packageInstaller = mPackageManager.getPackageInstaller();
-            PackageInstaller.SessionParams params = new PackageInstaller.SessionParams(
-                    PackageInstaller.SessionParams.MODE_FULL_INSTALL);
-            int sessionId = packageInstaller.createSession(params);
-
-            PackageInstaller.Session session = packageInstaller.openSession(sessionId);
-            OutputStream out = session.openWrite("app", 0, -1);
-            InputStream in = new FileInputStream(apkPath);
-            byte[] buffer = new byte[65536];
-            int bytesRead;
-            while ((bytesRead = in.read(buffer)) != -1) {
-                out.write(buffer, 0, bytesRead);
+            File apkFile = new File(apkPath);
+            int format = detectFormat(apkFile);
+            if (format == FORMAT_ZSTD) {
+                // 系统和现有依赖中没有zstd解码器，只支持gzip
+                Log.e(TAG, "zstd compressed APK is not supported, use gzip instead: " + apkPath);
+                return false;
             }
-            session.fsync(out);
-            in.close();
-            out.close();
+            // gzip尾部的ISIZE对多段压缩或超过4GB的数据不准确，解压后大小按未知处理
+            long apkSize = format == FORMAT_GZIP ? -1 : apkFile.length();
 
-            // 创建安装会话并提交
-            session.commit(null);
+            int sessionId = createInstallSession(null, apkSize);
+            PackageInstaller.Session session = mPackageManager.getPackageInstaller().openSession(sessionId);
+            long start = SystemClock.elapsedRealtime();
+            long written = writeApkFile(session, apkFile, format);
+            long elapsed = Math.max(1, SystemClock.elapsedRealtime() - start);
+            Log.d(TAG, "Wrote " + written + " bytes (" + (format == FORMAT_GZIP ? "gzip" : "apk") + ", "
+                    + apkFile.length() + " bytes on disk) in " + elapsed + " ms, "
+                    + (written * 1000 / elapsed / 1024) + " KB/s");
+
+            // 提交安装会话，结果异步回调
+            commitSession(session, sessionId, result ->
+                    Log.d(TAG, "Install " + apkPath + " finished: " + result.success + ", " + result.message));
             session.close();
             return true;
         } catch (IOException e) {
@@ -82,6 +118,422 @@ public class AppManagerHelper {
         }
     }
 
+    /**
+     * 将APK文件写入安装会话，gzip在读线程中解压，与会话写入并行，不经过临时文件
+     * @return 写入的字节数（解压后）
+     */
+    private long writeApkFile(PackageInstaller.Session session, File apkFile, int format) throws IOException {
+        try (InputStream in = format == FORMAT_GZIP
+                ? new GZIPInputStream(new FileInputStream(apkFile), 65536)
+                : new FileInputStream(apkFile)) {
+            return writeToSession(session, "app", in, format == FORMAT_GZIP ? -1 : apkFile.length());
+        }
+    }
+
+    /**
+     * 对比gzip压缩安装包与原始安装包写入安装会话的耗时。两种格式交替写入新建的会话，写完即放弃，不实际安装；
+     * 会话提交后系统的安装过程与来源格式无关，两者的差异只在写入阶段。不能在主线程调用
+     * @param plainApk 原始APK
+     * @param gzipApk 同一APK的gzip压缩文件
+     * @param iterations 每种格式的写入次数
+     * @return 对比结果
+     */
+    public InstallBenchmark benchmarkCompressedInstall(File plainApk, File gzipApk, int iterations) throws IOException {
+        if (detectFormat(gzipApk) != FORMAT_GZIP) {
+            throw new IOException("Not a gzip file: " + gzipApk);
+        }
+        InstallBenchmark benchmark = new InstallBenchmark(plainApk.length(), gzipApk.length(), iterations);
+        for (int i = 0; i < iterations; i++) {
+            // 交替先后顺序，减少页缓存对后写入一方的偏向
+            boolean plainFirst = i % 2 == 0;
+            for (int pass = 0; pass < 2; pass++) {
+                boolean plain = (pass == 0) == plainFirst;
+                int sessionId = createInstallSession(null, plain ? plainApk.length() : -1);
+                try (PackageInstaller.Session session = mPackageManager.getPackageInstaller().openSession(sessionId)) {
+                    long start = SystemClock.elapsedRealtime();
+                    long written = plain ? writeApkFile(session, plainApk, FORMAT_APK)
+                            : writeApkFile(session, gzipApk, FORMAT_GZIP);
+                    long elapsed = SystemClock.elapsedRealtime() - start;
+                    if (written != plainApk.length()) {
+                        throw new IOException("Decompressed size " + written + " differs from " + plainApk.length());
+                    }
+                    (plain ? benchmark.plainMs : benchmark.gzipMs)[i] = elapsed;
+                } finally {
+                    abandonSession(sessionId);
+                }
+            }
+        }
+        Log.d(TAG, "Install benchmark: " + benchmark);
+        return benchmark;
+    }
+
+    /**
+     * 从HTTP(S)地址安装应用，下载数据直接写入安装会话，不落地临时文件。
+     * 下载中断时使用Range请求从已写入位置续传，全部写入后校验SHA-256再提交。
+     * 指定了摘要时先在局域网内查找缓存了同一安装包的设备，从该设备下载失败或摘要不符再回到原地址；
+     * 局域网共享开启时下载的安装包同时写入共享缓存
+     * @param url APK下载地址
+     * @param expectedSha256 期望的SHA-256摘要（十六进制），不校验时传null
+     * @param callback 安装结果回调（在后台线程执行）
+     */
+    public void installFromUrl(final String url, final String expectedSha256, final InstallCallback callback) {
+        new Thread(() -> {
+            ApkPeerHelper peers = ApkPeerHelper.getInstance(mContext);
+            if (expectedSha256 != null && !expectedSha256.isEmpty()) {
+                String peerUrl = peers.findPeerUrl(expectedSha256, ApkPeerHelper.DEFAULT_LOOKUP_TIMEOUT_MS);
+                if (peerUrl != null && downloadAndCommit(peerUrl, expectedSha256, peers, callback) == null) {
+                    return;
+                }
+            }
+            InstallResult failure = downloadAndCommit(url, expectedSha256, peers, callback);
+            if (failure != null) {
+                callback.onInstallFinished(failure);
+            }
+        }, "UrlInstall").start();
+    }
+
+    /**
+     * 下载到新的安装会话，校验摘要后提交
+     * @return 下载或校验失败时返回失败结果（会话已放弃），已提交时返回null，安装结果通过callback回调
+     */
+    private InstallResult downloadAndCommit(String url, String expectedSha256, ApkPeerHelper peers, InstallCallback callback) {
+        int sessionId = -1;
+        PackageInstaller.Session session = null;
+        File cacheTemp = null;
+        RandomAccessFile cacheFile = null;
+        try {
+            sessionId = createInstallSession(null, -1);
+            session = mPackageManager.getPackageInstaller().openSession(sessionId);
+            if (peers.isRunning()) {
+                cacheTemp = peers.createCacheTempFile();
+                cacheFile = new RandomAccessFile(cacheTemp, "rw");
+            }
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long written = download(url, new SessionSink(session, "app"), digest, cacheFile);
+            String actual = checkDigest(expectedSha256, digest);
+            Log.d(TAG, "Downloaded " + written + " bytes from " + url + ", sha256=" + actual);
+
+            if (cacheFile != null) {
+                cacheFile.setLength(written);
+                cacheFile.close();
+                cacheFile = null;
+                peers.commitCacheFile(cacheTemp, actual);
+                cacheTemp = null;
+            }
+            commitSession(session, sessionId, callback);
+            session.close();
+            return null;
+        } catch (Exception e) {
+            e.printStackTrace();
+            Log.e(TAG, "Failed to install from " + url + ": " + e.getMessage());
+            if (session != null) {
+                session.close();
+            }
+            if (sessionId != -1) {
+                abandonSession(sessionId);
+            }
+            return new InstallResult(sessionId, false, null, e.getMessage());
+        } finally {
+            if (cacheFile != null) {
+                try {
+                    cacheFile.close();
+                } catch (IOException e) {
+                    // 忽略
+                }
+            }
+            if (cacheTemp != null) {
+                cacheTemp.delete();
+            }
+        }
+    }
+
+    /**
+     * 计算下载数据的摘要并与期望值比较
+     * @param expectedSha256 期望的SHA-256摘要，为空时不校验
+     * @return 实际摘要（十六进制）
+     */
+    static String checkDigest(String expectedSha256, MessageDigest digest) throws IOException {
+        String actual = AppBackupHelper.toHex(digest.digest());
+        if (expectedSha256 != null && !expectedSha256.isEmpty() && !expectedSha256.equalsIgnoreCase(actual)) {
+            throw new IOException("SHA-256 mismatch, expected " + expectedSha256 + " but got " + actual);
+        }
+        return actual;
+    }
+
+    /**
+     * 下载到写入目标（通常是安装会话），网络读取和写入流水线并行，失败时断点续传
+     * @param cacheFile 同时写入的共享缓存文件，不缓存时传null
+     * @return 写入的总字节数
+     */
+    static long download(String url, DownloadSink sink, MessageDigest digest,
+                         RandomAccessFile cacheFile) throws IOException {
+        long written = 0;
+        long totalLength = -1;
+        IOException lastError = null;
+        for (int attempt = 0; attempt <= MAX_DOWNLOAD_RETRIES; attempt++) {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            if (written > 0) {
+                connection.setRequestProperty("Range", "bytes=" + written + "-");
+            }
+            try {
+                int code = connection.getResponseCode();
+                if (code == HttpURLConnection.HTTP_OK) {
+                    if (written > 0) {
+                        // 服务器不支持Range，只能从头开始
+                        Log.w(TAG, "Server ignored Range request, restarting download");
+                        written = 0;
+                        digest.reset();
+                    }
+                    totalLength = connection.getContentLength();
+                } else if (code != HttpURLConnection.HTTP_PARTIAL) {
+                    throw new IOException("HTTP " + code + " " + connection.getResponseMessage());
+                }
+
+                long remaining = totalLength > 0 ? totalLength - written : -1;
+                try (InputStream in = connection.getInputStream();
+                     OutputStream out = sink.openWrite(written, remaining)) {
+                    OutputStream target = cacheFile != null ? new CacheTeeOutputStream(out, cacheFile, written) : out;
+                    PipedStreamCopier copier = new PipedStreamCopier(in, target, digest);
+                    try {
+                        copier.copy();
+                    } finally {
+                        written += copier.getBytesWritten();
+                    }
+                    sink.fsync(out);
+                }
+                if (totalLength > 0 && written != totalLength) {
+                    throw new IOException("Incomplete download: " + written + "/" + totalLength);
+                }
+                return written;
+            } catch (IOException e) {
+                lastError = e;
+                Log.w(TAG, "Download attempt " + (attempt + 1) + " failed at " + written + " bytes: " + e.getMessage());
+            } finally {
+                connection.disconnect();
+            }
+        }
+        throw lastError;
+    }
+
+    /**
+     * 创建安装会话
+     * @param packageName 应用包名，未知时传null
+     * @param totalSize 安装包总大小，未知时传-1
+     * @return 会话ID
+     */
+    public int createInstallSession(String packageName, long totalSize) throws IOException {
+        return createInstallSession(packageName, totalSize, true);
+    }
+
+    private int createInstallSession(String packageName, long totalSize, boolean presetPermissions) throws IOException {
+        PackageInstaller.SessionParams params = new PackageInstaller.SessionParams(
+                PackageInstaller.SessionParams.MODE_FULL_INSTALL);
+        if (totalSize > 0) {
+            params.setSize(totalSize);
+        }
+        if (packageName != null) {
+            params.setAppPackageName(packageName);
+            // 包名已知时把权限配置带入会话，安装时一次性授予
+            if (presetPermissions && new PermissionProfileHelper(mContext).applyToSession(params, packageName)) {
+                try {
+                    return mPackageManager.getPackageInstaller().createSession(params);
+                } catch (SecurityException e) {
+                    // 未获得INSTALL_GRANT_RUNTIME_PERMISSIONS时不预授权，安装后再授予
+                    Log.w(TAG, "Cannot preset permissions for " + packageName + ": " + e.getMessage());
+                    return createInstallSession(packageName, totalSize, false);
+                }
+            }
+        }
+        return mPackageManager.getPackageInstaller().createSession(params);
+    }
+
+    /**
+     * 将输入流写入安装会话
+     * @param session 安装会话
+     * @param name 会话内的文件名，同一会话内多个拆分包需不同名称
+     * @param in 输入流
+     * @param size 数据长度，未知时传-1
+     * @return 写入的字节数
+     */
+    public long writeToSession(PackageInstaller.Session session, String name, InputStream in, long size) throws IOException {
+        long total;
+        try (OutputStream out = session.openWrite(name, 0, size)) {
+            // 读取（含解压）和写入在两个线程中流水线进行
+            total = new PipedStreamCopier(in, out, null).copy();
+            session.fsync(out);
+        }
+        return total;
+    }
+
+    /**
+     * 根据文件头识别安装包格式
+     */
+    private int detectFormat(File file) throws IOException {
+        byte[] magic = new byte[4];
+        try (InputStream in = new FileInputStream(file)) {
+            if (in.read(magic) < 4) {
+                return FORMAT_APK;
+            }
+        }
+        if ((magic[0] & 0xff) == 0x1f && (magic[1] & 0xff) == 0x8b) {
+            return FORMAT_GZIP;
+        }
+        if ((magic[0] & 0xff) == 0x28 && (magic[1] & 0xff) == 0xb5
+                && (magic[2] & 0xff) == 0x2f && (magic[3] & 0xff) == 0xfd) {
+            return FORMAT_ZSTD;
+        }
+        return FORMAT_APK;
+    }
+
+    /**
+     * 提交安装会话，安装结果通过回调返回（在后台线程执行）
+     * @param session 安装会话
+     * @param sessionId 会话ID
+     * @param callback 安装结果回调
+     */
+    public void commitSession(PackageInstaller.Session session, final int sessionId, final InstallCallback callback) {
+        startCommit(session, sessionId, callback);
+    }
+
+    /**
+     * 注册结果广播并提交会话，返回的接收器可用于在超时后注销
+     */
+    private CommitReceiver startCommit(PackageInstaller.Session session, int sessionId, InstallCallback callback) {
+        final String action = ACTION_INSTALL_COMMIT + "." + sessionId;
+        CommitReceiver receiver = new CommitReceiver(sessionId, callback);
+        ContextCompat.registerReceiver(mContext, receiver, new IntentFilter(action), null,
+                new Handler(getResultThread().getLooper()), ContextCompat.RECEIVER_NOT_EXPORTED);
+
+        Intent intent = new Intent(action).setPackage(mContext.getPackageName());
+        int flags = PendingIntent.FLAG_UPDATE_CURRENT;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            // 安装器需要向Intent中填充结果，必须是可变的
+            flags |= PendingIntent.FLAG_MUTABLE;
+        }
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(mContext, sessionId, intent, flags);
+        try {
+            session.commit(pendingIntent.getIntentSender());
+        } catch (RuntimeException e) {
+            receiver.cancel();
+            throw e;
+        }
+        return receiver;
+    }
+
+    /**
+     * 提交安装会话并等待安装结果，不能在主线程调用
+     * @param session 安装会话
+     * @param sessionId 会话ID
+     * @param timeoutMs 超时时间（毫秒）
+     * @return 安装结果
+     */
+    public InstallResult commitSessionAndWait(PackageInstaller.Session session, int sessionId, long timeoutMs)
+            throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final InstallResult[] holder = new InstallResult[1];
+        CommitReceiver receiver = startCommit(session, sessionId, result -> {
+            holder[0] = result;
+            latch.countDown();
+        });
+        boolean finished = false;
+        try {
+            finished = latch.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } finally {
+            if (!finished) {
+                receiver.cancel();
+            }
+        }
+        // 注销前结果刚好到达时仍以结果为准
+        if (latch.getCount() == 0) {
+            return holder[0];
+        }
+        return new InstallResult(sessionId, false, null, "Timed out after " + timeoutMs + " ms");
+    }
+
+    /**
+     * 安装结果接收器，收到最终结果或被取消后只注销一次
+     */
+    private class CommitReceiver extends BroadcastReceiver {
+        private final int mSessionId;
+        private final InstallCallback mCallback;
+        private boolean mDone;
+
+        CommitReceiver(int sessionId, InstallCallback callback) {
+            this.mSessionId = sessionId;
+            this.mCallback = callback;
+        }
+
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            int status = intent.getIntExtra(PackageInstaller.EXTRA_STATUS, PackageInstaller.STATUS_FAILURE);
+            if (status == PackageInstaller.STATUS_PENDING_USER_ACTION) {
+                // 正常情况下系统应用不会走到这里，兜底弹出系统确认界面后继续等待最终结果
+                Intent confirmIntent = intent.getParcelableExtra(Intent.EXTRA_INTENT);
+                if (confirmIntent != null) {
+                    confirmIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+                    mContext.startActivity(confirmIntent);
+                }
+                return;
+            }
+            if (!finish()) {
+                return;
+            }
+            InstallResult result = new InstallResult(mSessionId,
+                    status == PackageInstaller.STATUS_SUCCESS,
+                    intent.getStringExtra(PackageInstaller.EXTRA_PACKAGE_NAME),
+                    intent.getStringExtra(PackageInstaller.EXTRA_STATUS_MESSAGE));
+            if (result.success && result.packageName != null) {
+                // 安装成功后立即按配置授予运行时权限
+                result.grantResult = new PermissionProfileHelper(mContext).applyProfile(result.packageName);
+            }
+            mCallback.onInstallFinished(result);
+        }
+
+        /**
+         * 不再等待结果，注销接收器
+         */
+        void cancel() {
+            finish();
+        }
+
+        private boolean finish() {
+            synchronized (this) {
+                if (mDone) {
+                    return false;
+                }
+                mDone = true;
+            }
+            try {
+                mContext.unregisterReceiver(this);
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "Receiver already unregistered: " + e.getMessage());
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 放弃安装会话
+     * @param sessionId 会话ID
+     */
+    public void abandonSession(int sessionId) {
+        try {
+            mPackageManager.getPackageInstaller().abandonSession(sessionId);
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to abandon session " + sessionId + ": " + e.getMessage());
+        }
+    }
+
+    private static synchronized HandlerThread getResultThread() {
+        if (sResultThread == null) {
+            sResultThread = new HandlerThread("InstallResult");
+            sResultThread.start();
+        }
+        return sResultThread;
+    }
+
     /**
      * 静默卸载应用
      * @param packageName 应用包名
@@ -132,4 +584,136 @@ public class AppManagerHelper {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * 下载数据的写入目标，支持从指定偏移继续写入
+     */
+    interface DownloadSink {
+        /**
+         * @param offset 写入起始位置
+         * @param length 本次写入的长度，未知时为-1
+         */
+        OutputStream openWrite(long offset, long length) throws IOException;
+
+        void fsync(OutputStream out) throws IOException;
+    }
+
+    /**
+     * 写入安装会话中的一个文件
+     */
+    private static class SessionSink implements DownloadSink {
+        private final PackageInstaller.Session mSession;
+        private final String mName;
+
+        SessionSink(PackageInstaller.Session session, String name) {
+            this.mSession = session;
+            this.mName = name;
+        }
+
+        @Override
+        public OutputStream openWrite(long offset, long length) throws IOException {
+            return mSession.openWrite(mName, offset, length);
+        }
+
+        @Override
+        public void fsync(OutputStream out) throws IOException {
+            mSession.fsync(out);
+        }
+    }
+
+    /**
+     * 写入安装会话的同时按相同偏移写入共享缓存文件
+     */
+    private static class CacheTeeOutputStream extends FilterOutputStream {
+        private final RandomAccessFile mCacheFile;
+
+        CacheTeeOutputStream(OutputStream out, RandomAccessFile cacheFile, long offset) throws IOException {
+            super(out);
+            this.mCacheFile = cacheFile;
+            cacheFile.seek(offset);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            mCacheFile.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            mCacheFile.write(b, off, len);
+        }
+    }
+
+    /**
+     * 安装结果
+     */
+    public static class InstallResult {
+        public final int sessionId;
+        public final boolean success;
+        public final String packageName;
+        public final String message;
+        // 安装后权限授予结果，未安装成功时为null
+        public PermissionProfileHelper.GrantResult grantResult;
+
+        InstallResult(int sessionId, boolean success, String packageName, String message) {
+            this.sessionId = sessionId;
+            this.success = success;
+            this.packageName = packageName;
+            this.message = message;
+        }
+    }
+
+    /**
+     * 压缩安装包写入耗时对比结果
+     */
+    public static class InstallBenchmark {
+        public final long plainSize;
+        public final long gzipSize;
+        // 每次写入的耗时（毫秒）
+        public final long[] plainMs;
+        public final long[] gzipMs;
+
+        InstallBenchmark(long plainSize, long gzipSize, int iterations) {
+            this.plainSize = plainSize;
+            this.gzipSize = gzipSize;
+            this.plainMs = new long[iterations];
+            this.gzipMs = new long[iterations];
+        }
+
+        public long getPlainMedianMs() {
+            return median(plainMs);
+        }
+
+        public long getGzipMedianMs() {
+            return median(gzipMs);
+        }
+
+        private static long median(long[] values) {
+            if (values.length == 0) {
+                return 0;
+            }
+            long[] sorted = values.clone();
+            Arrays.sort(sorted);
+            return sorted[sorted.length / 2];
+        }
+
+        @Override
+        public String toString() {
+            return "apk " + plainSize + " bytes median " + getPlainMedianMs() + " ms, gzip " + gzipSize
+                    + " bytes median " + getGzipMedianMs() + " ms, " + plainMs.length + " iterations";
+        }
+    }
+
+    /**
+     * 安装结果回调接口
+     */
+    public interface InstallCallback {
+        /**
+         * 安装完成回调
+         * @param result 安装结果
+         */
+        void onInstallFinished(InstallResult result);
+    }
+
+}
@@ -0,0 +1,364 @@
+package com.jabin.rootapp;
+
+import android.content.Context;
+import android.content.pm.PackageInstaller;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 应用恢复助手类，将备份归档（zip或备份目录）中的APK直接流式写入安装会话
+ */
+public class AppRestoreHelper {
+
+    private static final String TAG = "AppRestoreHelper";
+    // 单个应用提交安装的超时时间
+    private static final long COMMIT_TIMEOUT_MS = 120 * 1000;
+
+    private Context mContext;
+    private AppManagerHelper mAppManager;
+    private Handler mMainHandler;
+
+    public AppRestoreHelper(Context context) {
+        this.mContext = context;
+        this.mAppManager = new AppManagerHelper(context);
+        this.mMainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * 恢复备份，写入下一个应用的同时提交上一个应用的安装
+     * @param source 备份zip文件或AppBackupHelper生成的备份目录
+     * @param callback 恢复回调，在主线程执行
+     */
+    public void restore(final File source, final RestoreCallback callback) {
+        new Thread(() -> {
+            ZipFile zipFile = null;
+            try {
+                Map<String, List<RestoreEntry>> packages;
+                Map<String, String> digests;
+                if (source.isDirectory()) {
+                    packages = scanDirectory(source);
+                    digests = loadDigests(AppBackupHelper.readManifest(new File(source, AppBackupHelper.MANIFEST_NAME)));
+                } else {
+                    zipFile = new ZipFile(source);
+                    packages = scanZip(zipFile);
+                    digests = loadDigests(readZipManifest(zipFile));
+                }
+                List<AppManagerHelper.InstallResult> results = restorePackages(packages, digests, callback);
+                mMainHandler.post(() -> callback.onComplete(results));
+            } catch (Exception e) {
+                e.printStackTrace();
+                Log.e(TAG, "Restore failed: " + e.getMessage());
+                mMainHandler.post(() -> callback.onFailed(e));
+            } finally {
+                if (zipFile != null) {
+                    try {
+                        zipFile.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }, "AppRestore").start();
+    }
+
+    /**
+     * 流水线恢复：当前线程负责写入会话，提交线程负责提交并等待安装结果
+     */
+    private List<AppManagerHelper.InstallResult> restorePackages(Map<String, List<RestoreEntry>> packages,
+                                                                 Map<String, String> digests,
+                                                                 final RestoreCallback callback) throws Exception {
+        final List<AppManagerHelper.InstallResult> results = new ArrayList<>();
+        final int total = packages.size();
+        // 容量为1：最多只有一个已写完的会话在排队，写入线程不会领先太多
+        final BlockingQueue<PendingCommit> queue = new ArrayBlockingQueue<>(1);
+        final PendingCommit endMarker = new PendingCommit(null, -1, null);
+
+        Thread committer = new Thread(() -> {
+            try {
+                while (true) {
+                    PendingCommit pending = queue.take();
+                    if (pending == endMarker) {
+                        break;
+                    }
+                    AppManagerHelper.InstallResult result;
+                    try {
+                        result = mAppManager.commitSessionAndWait(pending.session, pending.sessionId, COMMIT_TIMEOUT_MS);
+                    } catch (InterruptedException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        // 单个应用提交失败不能中断提交线程，否则写入线程会一直阻塞在队列上
+                        Log.e(TAG, "Failed to commit " + pending.packageName + ": " + e.getMessage());
+                        mAppManager.abandonSession(pending.sessionId);
+                        result = new AppManagerHelper.InstallResult(pending.sessionId, false,
+                                pending.packageName, e.getMessage());
+                    } finally {
+                        pending.session.close();
+                    }
+                    Log.d(TAG, "Restored " + pending.packageName + ": " + result.success + ", " + result.message);
+                    reportResult(results, result, pending.packageName, total, callback);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "AppRestoreCommit");
+        committer.start();
+
+        try {
+            for (Map.Entry<String, List<RestoreEntry>> entry : packages.entrySet()) {
+                String packageName = entry.getKey();
+                long totalSize = 0;
+                for (RestoreEntry restoreEntry : entry.getValue()) {
+                    totalSize += Math.max(0, restoreEntry.size);
+                }
+
+                int sessionId = -1;
+                PackageInstaller.Session session = null;
+                try {
+                    sessionId = mAppManager.createInstallSession(packageName, totalSize);
+                    session = mContext.getPackageManager().getPackageInstaller().openSession(sessionId);
+                    for (RestoreEntry restoreEntry : entry.getValue()) {
+                        writeEntry(session, restoreEntry, digests.get(packageName + "/" + restoreEntry.name));
+                    }
+                    queue.put(new PendingCommit(packageName, sessionId, session));
+                } catch (Exception e) {
+                    Log.e(TAG, "Failed to write " + packageName + ": " + e.getMessage());
+                    if (session != null) {
+                        session.close();
+                    }
+                    if (sessionId != -1) {
+                        mAppManager.abandonSession(sessionId);
+                    }
+                    reportResult(results, new AppManagerHelper.InstallResult(sessionId, false, packageName, e.getMessage()),
+                            packageName, total, callback);
+                }
+            }
+        } finally {
+            queue.put(endMarker);
+            committer.join();
+        }
+        return results;
+    }
+
+    /**
+     * 将单个条目写入会话，清单中有摘要时边写边校验
+     */
+    private void writeEntry(PackageInstaller.Session session, RestoreEntry entry, String expectedDigest) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (InputStream in = new DigestInputStream(entry.opener.open(), digest)) {
+            mAppManager.writeToSession(session, entry.name, in, entry.size);
+        }
+        if (expectedDigest != null) {
+            String actual = AppBackupHelper.toHex(digest.digest());
+            if (!expectedDigest.equals(actual)) {
+                throw new IOException("Digest mismatch for " + entry.name);
+            }
+        }
+    }
+
+    private void reportResult(List<AppManagerHelper.InstallResult> results, AppManagerHelper.InstallResult result,
+                              String packageName, int total, RestoreCallback callback) {
+        final int done;
+        synchronized (results) {
+            results.add(result);
+            done = results.size();
+        }
+        mMainHandler.post(() -> callback.onProgress(packageName, done, total));
+    }
+
+    /**
+     * 扫描备份目录，目录结构为 包名/*.apk
+     */
+    private Map<String, List<RestoreEntry>> scanDirectory(File dir) {
+        Map<String, List<RestoreEntry>> packages = new LinkedHashMap<>();
+        File[] packageDirs = dir.listFiles(File::isDirectory);
+        if (packageDirs == null) {
+            return packages;
+        }
+        for (File packageDir : packageDirs) {
+            File[] apks = packageDir.listFiles((d, name) -> name.endsWith(".apk"));
+            if (apks == null || apks.length == 0) {
+                continue;
+            }
+            List<RestoreEntry> entries = new ArrayList<>();
+            for (final File apk : apks) {
+                entries.add(new RestoreEntry(apk.getName(), apk.length(), () -> new FileInputStream(apk)));
+            }
+            packages.put(packageDir.getName(), entries);
+        }
+        return packages;
+    }
+
+    /**
+     * 扫描zip归档，只读取中央目录，不解压到磁盘
+     */
+    private Map<String, List<RestoreEntry>> scanZip(final ZipFile zipFile) {
+        Map<String, List<RestoreEntry>> packages = new LinkedHashMap<>();
+        Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+        while (zipEntries.hasMoreElements()) {
+            final ZipEntry zipEntry = zipEntries.nextElement();
+            String path = zipEntry.getName();
+            if (zipEntry.isDirectory() || !path.endsWith(".apk")) {
+                continue;
+            }
+            // 兼容归档中多一层顶级目录的情况，取APK的上一级目录名作为包名
+            String[] parts = path.split("/");
+            if (parts.length < 2) {
+                continue;
+            }
+            String packageName = parts[parts.length - 2];
+            String name = parts[parts.length - 1];
+            List<RestoreEntry> entries = packages.get(packageName);
+            if (entries == null) {
+                entries = new ArrayList<>();
+                packages.put(packageName, entries);
+            }
+            entries.add(new RestoreEntry(name, zipEntry.getSize(), () -> zipFile.getInputStream(zipEntry)));
+        }
+        return packages;
+    }
+
+    /**
+     * 读取归档中的备份清单，优先取根目录下的manifest.json，其次取一层顶级目录下的（与scanZip兼容）
+     */
+    private JSONObject readZipManifest(ZipFile zipFile) {
+        ZipEntry manifestEntry = zipFile.getEntry(AppBackupHelper.MANIFEST_NAME);
+        if (manifestEntry == null) {
+            Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry zipEntry = zipEntries.nextElement();
+                String[] parts = zipEntry.getName().split("/");
+                if (parts.length == 2 && parts[1].equals(AppBackupHelper.MANIFEST_NAME)) {
+                    manifestEntry = zipEntry;
+                    break;
+                }
+            }
+        }
+        if (manifestEntry == null) {
+            return new JSONObject();
+        }
+        try (InputStream in = zipFile.getInputStream(manifestEntry)) {
+            byte[] data = new byte[(int) manifestEntry.getSize()];
+            int offset = 0;
+            while (offset < data.length) {
+                int read = in.read(data, offset, data.length - offset);
+                if (read < 0) {
+                    break;
+                }
+                offset += read;
+            }
+            return new JSONObject(new String(data, 0, offset, StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to read manifest from archive: " + e.getMessage());
+            return new JSONObject();
+        }
+    }
+
+    /**
+     * 从备份清单中提取 包名/文件名 -> 摘要
+     */
+    private Map<String, String> loadDigests(JSONObject manifest) {
+        Map<String, String> digests = new HashMap<>();
+        JSONArray packages = manifest.optJSONArray("packages");
+        if (packages == null) {
+            return digests;
+        }
+        for (int i = 0; i < packages.length(); i++) {
+            JSONObject entry = packages.optJSONObject(i);
+            JSONArray files = entry != null ? entry.optJSONArray("files") : null;
+            if (files == null) {
+                continue;
+            }
+            for (int j = 0; j < files.length(); j++) {
+                JSONObject file = files.optJSONObject(j);
+                if (file != null && file.has("sha256")) {
+                    digests.put(entry.optString("packageName") + "/" + file.optString("name"), file.optString("sha256"));
+                }
+            }
+        }
+        return digests;
+    }
+
+    /**
+     * 输入流打开器，按需打开条目数据
+     */
+    private interface StreamOpener {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * 归档中的单个APK条目
+     */
+    private static class RestoreEntry {
+        final String name;
+        final long size;
+        final StreamOpener opener;
+
+        RestoreEntry(String name, long size, StreamOpener opener) {
+            this.name = name;
+            this.size = size;
+            this.opener = opener;
+        }
+    }
+
+    /**
+     * 已写入完成、等待提交的会话
+     */
+    private static class PendingCommit {
+        final String packageName;
+        final int sessionId;
+        final PackageInstaller.Session session;
+
+        PendingCommit(String packageName, int sessionId, PackageInstaller.Session session) {
+            this.packageName = packageName;
+            this.sessionId = sessionId;
+            this.session = session;
+        }
+    }
+
+    /**
+     * 恢复回调接口
+     */
+    public interface RestoreCallback {
+        /**
+         * 恢复进度回调
+         * @param packageName 刚完成的应用包名
+         * @param done 已完成的应用数
+         * @param total 应用总数
+         */
+        void onProgress(String packageName, int done, int total);
+
+        /**
+         * 恢复完成回调
+         * @param results 各应用的安装结果
+         */
+        void onComplete(List<AppManagerHelper.InstallResult> results);
+
+        /**
+         * 恢复失败回调
+         * @param e 失败原因
+         */
+        void onFailed(Exception e);
+    }
+}
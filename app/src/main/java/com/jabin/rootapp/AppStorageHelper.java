@@ -0,0 +1,211 @@
+package com.jabin.rootapp;
+
+import android.app.ActivityManager;
+import android.app.usage.StorageStats;
+import android.app.usage.StorageStatsManager;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.UserHandle;
+import android.util.Log;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 应用存储助手类，提供批量清理应用缓存和清除应用数据功能
+ */
+public class AppStorageHelper {
+
+    private static final String TAG = "AppStorageHelper";
+    // 同时清理的最大应用数
+    private static final int MAX_PARALLEL = 4;
+    // 清理后等待存储统计刷新的轮询间隔和超时时间
+    private static final long POLL_INTERVAL_MS = 200;
+    private static final long POLL_TIMEOUT_MS = 5000;
+
+    private Context mContext;
+    private PackageManager mPackageManager;
+    private ActivityManager mActivityManager;
+    private Handler mMainHandler;
+
+    public AppStorageHelper(Context context) {
+        this.mContext = context;
+        this.mPackageManager = context.getPackageManager();
+        this.mActivityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        this.mMainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * 批量清理应用缓存（可选清除数据），各应用并行处理，回调在主线程执行
+     * @param packageNames 应用包名列表
+     * @param clearData 是否同时清除应用数据
+     * @param callback 清理回调
+     */
+    public void cleanPackages(final List<String> packageNames, final boolean clearData, final CleanCallback callback) {
+        final List<CleanResult> results = Collections.synchronizedList(new ArrayList<>());
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(MAX_PARALLEL, packageNames.size())));
+
+        final List<Future<?>> futures = new ArrayList<>();
+        for (final String packageName : packageNames) {
+            futures.add(executor.submit(() -> {
+                final CleanResult result = cleanPackage(packageName, clearData);
+                results.add(result);
+                mMainHandler.post(() -> callback.onPackageCleaned(result));
+            }));
+        }
+        executor.shutdown();
+
+        // 单独的等待线程汇总结果，避免阻塞调用方
+        new Thread(() -> {
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    Log.e(TAG, "Clean task failed: " + e.getMessage());
+                }
+            }
+            long totalBytes = 0;
+            synchronized (results) {
+                for (CleanResult result : results) {
+                    totalBytes += result.reclaimedBytes;
+                }
+            }
+            final long total = totalBytes;
+            final List<CleanResult> snapshot = new ArrayList<>(results);
+            mMainHandler.post(() -> callback.onComplete(snapshot, total));
+        }, "AppStorageCleaner").start();
+    }
+
+    /**
+     * 清理单个应用，在工作线程中调用
+     * @param packageName 应用包名
+     * @param clearData 是否同时清除应用数据
+     * @return 清理结果
+     */
+    public CleanResult cleanPackage(String packageName, boolean clearData) {
+        CleanResult result = new CleanResult(packageName);
+        try {
+            long before = querySize(packageName, clearData);
+            boolean invoked = clearData ? clearApplicationUserData(packageName) : deleteApplicationCacheFiles(packageName);
+            if (!invoked) {
+                return result;
+            }
+            result.success = true;
+
+            // 清理操作在系统服务中异步执行，轮询存储统计直到大小变化或超时
+            long after = before;
+            long deadline = System.currentTimeMillis() + POLL_TIMEOUT_MS;
+            while (before > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(POLL_INTERVAL_MS);
+                after = querySize(packageName, clearData);
+                if (after < before) {
+                    break;
+                }
+            }
+            result.reclaimedBytes = Math.max(0, before - after);
+            Log.d(TAG, "Cleaned " + packageName + ", reclaimed " + result.reclaimedBytes + " bytes");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            e.printStackTrace();
+            Log.e(TAG, "Failed to clean " + packageName + ": " + e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 通过反射调用PackageManager.deleteApplicationCacheFiles清理缓存
+     */
+    private boolean deleteApplicationCacheFiles(String packageName) {
+        try {
+            Class<?> observerClass = Class.forName("android.content.pm.IPackageDataObserver");
+            Method method = mPackageManager.getClass().getMethod("deleteApplicationCacheFiles", String.class, observerClass);
+            method.invoke(mPackageManager, packageName, null);
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            Log.e(TAG, "Failed to delete cache files: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 通过反射调用ActivityManager.clearApplicationUserData清除应用数据（包含缓存）
+     */
+    private boolean clearApplicationUserData(String packageName) {
+        try {
+            Class<?> observerClass = Class.forName("android.content.pm.IPackageDataObserver");
+            Method method = mActivityManager.getClass().getMethod("clearApplicationUserData", String.class, observerClass);
+            Object result = method.invoke(mActivityManager, packageName, null);
+            return !(result instanceof Boolean) || (Boolean) result;
+        } catch (Exception e) {
+            e.printStackTrace();
+            Log.e(TAG, "Failed to clear user data: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 查询应用可回收的空间大小
+     * @param packageName 应用包名
+     * @param includeData 是否包含数据大小
+     * @return 字节数，无法获取时返回0
+     */
+    private long querySize(String packageName, boolean includeData) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return 0;
+        }
+        try {
+            StorageStatsManager statsManager = (StorageStatsManager) mContext.getSystemService(Context.STORAGE_STATS_SERVICE);
+            ApplicationInfo appInfo = mPackageManager.getApplicationInfo(packageName, 0);
+            UserHandle user = UserHandle.getUserHandleForUid(appInfo.uid);
+            StorageStats stats = statsManager.queryStatsForPackage(appInfo.storageUuid, packageName, user);
+            // dataBytes已包含cacheBytes
+            return includeData ? stats.getDataBytes() : stats.getCacheBytes();
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to query storage stats for " + packageName + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * 单个应用的清理结果
+     */
+    public static class CleanResult {
+        public final String packageName;
+        public boolean success;
+        public long reclaimedBytes;
+
+        CleanResult(String packageName) {
+            this.packageName = packageName;
+        }
+    }
+
+    /**
+     * 清理回调接口
+     */
+    public interface CleanCallback {
+        /**
+         * 单个应用清理完成回调
+         * @param result 清理结果
+         */
+        void onPackageCleaned(CleanResult result);
+
+        /**
+         * 全部应用清理完成回调
+         * @param results 所有应用的清理结果
+         * @param totalReclaimedBytes 共回收的字节数
+         */
+        void onComplete(List<CleanResult> results, long totalReclaimedBytes);
+    }
+}
@@ -0,0 +1,313 @@
+package com.jabin.rootapp;
+
+import android.Manifest;
+import android.annotation.SuppressLint;
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.le.BluetoothLeScanner;
+import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanResult;
+import android.bluetooth.le.ScanSettings;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 蓝牙低功耗设备扫描器：按占空比周期扫描（扫描一段时间后休眠），支持时由蓝牙芯片批量上报结果，
+ * 按MAC地址去重，信号强度取最近几次的滑动平均；结果变化后按固定间隔限速通知界面，
+ * 长时间未再出现的设备从列表中移除。所有回调和状态都在主线程
+ */
+@SuppressLint("MissingPermission")
+public class BleScanner {
+
+    private static final String TAG = "BleScanner";
+    public static final long DEFAULT_SCAN_WINDOW_MS = 10 * 1000;
+    public static final long DEFAULT_SCAN_PERIOD_MS = 30 * 1000;
+    public static final long DEFAULT_PUBLISH_INTERVAL_MS = 1000;
+    // 批量上报的延迟，芯片在此期间缓存结果，减少唤醒次数
+    private static final long REPORT_DELAY_MS = 2000;
+    private static final int RSSI_WINDOW = 5;
+    private static final long DEVICE_TIMEOUT_MS = 60 * 1000;
+
+    private final Context mContext;
+    private final long mScanWindowMs;
+    private final long mScanPeriodMs;
+    private final long mPublishIntervalMs;
+    private final Listener mListener;
+    private final BluetoothAdapter mBluetoothAdapter;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    // MAC地址 -> 设备
+    private final Map<String, Device> mDevices = new HashMap<>();
+    private BluetoothLeScanner mScanner;
+    private boolean mRunning;
+    private boolean mScanning;
+    private boolean mPublishScheduled;
+    private long mLastPublishTime;
+
+    /**
+     * @param scanWindowMs 每个周期内的扫描时长
+     * @param scanPeriodMs 扫描周期，不小于扫描时长，两者相等时持续扫描
+     * @param publishIntervalMs 两次通知界面的最小间隔
+     */
+    public BleScanner(Context context, long scanWindowMs, long scanPeriodMs, long publishIntervalMs, Listener listener) {
+        this.mContext = context.getApplicationContext();
+        this.mScanWindowMs = scanWindowMs;
+        this.mScanPeriodMs = Math.max(scanPeriodMs, scanWindowMs);
+        this.mPublishIntervalMs = publishIntervalMs;
+        this.mListener = listener;
+        this.mBluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
+    }
+
+    /**
+     * 扫描需要的运行时权限：之前的版本需要定位权限，Android 12及以上还需要BLUETOOTH_SCAN。
+     * 清单里没有声明neverForLocation，否则系统会过滤掉iBeacon等信标广播
+     */
+    public static String[] getRequiredPermissions() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            return new String[]{Manifest.permission.BLUETOOTH_SCAN,
+                    Manifest.permission.ACCESS_FINE_LOCATION};
+        }
+        return new String[]{Manifest.permission.ACCESS_FINE_LOCATION};
+    }
+
+    public static boolean hasPermissions(Context context) {
+        for (String permission : getRequiredPermissions()) {
+            if (ContextCompat.checkSelfPermission(context, permission) != PackageManager.PERMISSION_GRANTED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 开始周期扫描，需在主线程调用
+     * @return 蓝牙未开启或缺少权限时返回false
+     */
+    public boolean start() {
+        if (mRunning) {
+            return true;
+        }
+        if (mBluetoothAdapter == null || !mBluetoothAdapter.isEnabled()) {
+            Log.w(TAG, "Bluetooth is not enabled");
+            return false;
+        }
+        if (!hasPermissions(mContext)) {
+            Log.w(TAG, "Missing scan permission");
+            return false;
+        }
+        mRunning = true;
+        mStartWindowTask.run();
+        return true;
+    }
+
+    /**
+     * 停止扫描并清空设备列表
+     */
+    public void stop() {
+        if (!mRunning) {
+            return;
+        }
+        mRunning = false;
+        mHandler.removeCallbacksAndMessages(null);
+        stopScan(false);
+        mDevices.clear();
+        mPublishScheduled = false;
+    }
+
+    public boolean isScanning() {
+        return mScanning;
+    }
+
+    private final Runnable mStartWindowTask = new Runnable() {
+        @Override
+        public void run() {
+            mScanner = mBluetoothAdapter.getBluetoothLeScanner();
+            if (mScanner == null) {
+                // 蓝牙已关闭，下个周期再试
+                Log.w(TAG, "LE scanner unavailable, retrying next period");
+                mHandler.postDelayed(this, mScanPeriodMs);
+                return;
+            }
+            ScanSettings.Builder settings = new ScanSettings.Builder()
+                    .setScanMode(ScanSettings.SCAN_MODE_BALANCED);
+            if (mBluetoothAdapter.isOffloadedScanBatchingSupported()) {
+                settings.setReportDelay(REPORT_DELAY_MS);
+            }
+            try {
+                mScanner.startScan(null, settings.build(), mScanCallback);
+                mScanning = true;
+            } catch (SecurityException | IllegalStateException e) {
+                Log.e(TAG, "Failed to start scan: " + e.getMessage());
+            }
+            mHandler.postDelayed(mWindowEndTask, mScanWindowMs);
+            schedulePublish();
+        }
+    };
+
+    private final Runnable mWindowEndTask = new Runnable() {
+        @Override
+        public void run() {
+            if (mScanPeriodMs > mScanWindowMs) {
+                stopScan(true);
+                schedulePublish();
+                mHandler.postDelayed(mStartWindowTask, mScanPeriodMs - mScanWindowMs);
+            } else {
+                // 持续扫描，只需周期性清理过期设备
+                schedulePublish();
+                mHandler.postDelayed(this, mScanWindowMs);
+            }
+        }
+    };
+
+    private void stopScan(boolean flush) {
+        if (!mScanning || mScanner == null) {
+            return;
+        }
+        try {
+            if (flush) {
+                // 取回芯片中还未上报的批量结果
+                mScanner.flushPendingScanResults(mScanCallback);
+            }
+            mScanner.stopScan(mScanCallback);
+        } catch (SecurityException | IllegalStateException e) {
+            Log.w(TAG, "Failed to stop scan: " + e.getMessage());
+        }
+        mScanning = false;
+    }
+
+    private final ScanCallback mScanCallback = new ScanCallback() {
+        @Override
+        public void onScanResult(int callbackType, ScanResult result) {
+            if (mRunning) {
+                record(result);
+                schedulePublish();
+            }
+        }
+
+        @Override
+        public void onBatchScanResults(List<ScanResult> results) {
+            if (!mRunning) {
+                return;
+            }
+            for (ScanResult result : results) {
+                record(result);
+            }
+            schedulePublish();
+        }
+
+        @Override
+        public void onScanFailed(int errorCode) {
+            // 短时间内启动扫描过于频繁时系统也会拒绝，等下个周期
+            Log.w(TAG, "Scan failed: " + errorCode);
+            mScanning = false;
+        }
+    };
+
+    /**
+     * 合并一条扫描结果，同一批次中同一设备的多条结果都计入滑动平均
+     */
+    private void record(ScanResult result) {
+        String address = result.getDevice().getAddress();
+        Device device = mDevices.get(address);
+        if (device == null) {
+            device = new Device(address);
+            mDevices.put(address, device);
+        }
+        if (result.getScanRecord() != null && result.getScanRecord().getDeviceName() != null) {
+            device.name = result.getScanRecord().getDeviceName();
+        }
+        device.addRssi(result.getRssi());
+        // 批量上报时结果的时间戳早于回调时间，以检测到的时间为准
+        device.lastSeen = Math.max(device.lastSeen, result.getTimestampNanos() / 1000000);
+    }
+
+    private void schedulePublish() {
+        if (mPublishScheduled) {
+            return;
+        }
+        mPublishScheduled = true;
+        long delay = Math.max(0, mLastPublishTime + mPublishIntervalMs - SystemClock.elapsedRealtime());
+        mHandler.postDelayed(mPublishTask, delay);
+    }
+
+    private final Runnable mPublishTask = new Runnable() {
+        @Override
+        public void run() {
+            mPublishScheduled = false;
+            mLastPublishTime = SystemClock.elapsedRealtime();
+            long expireBefore = mLastPublishTime - DEVICE_TIMEOUT_MS;
+            for (Iterator<Device> it = mDevices.values().iterator(); it.hasNext(); ) {
+                if (it.next().lastSeen < expireBefore) {
+                    it.remove();
+                }
+            }
+            List<Device> devices = new ArrayList<>(mDevices.values());
+            Collections.sort(devices, (a, b) -> Integer.compare(b.getSmoothedRssi(), a.getSmoothedRssi()));
+            mListener.onDevicesUpdated(devices, mScanning);
+        }
+    };
+
+    /**
+     * 扫描到的设备，在主线程更新
+     */
+    public static class Device {
+        public final String address;
+        public String name;
+        // 最近一次的信号强度
+        public int rssi;
+        // 最近一次检测到的时间（elapsedRealtime）
+        public long lastSeen;
+        private final int[] mSamples = new int[RSSI_WINDOW];
+        private int mCount;
+        private int mNext;
+        private int mSum;
+
+        Device(String address) {
+            this.address = address;
+        }
+
+        void addRssi(int value) {
+            if (mCount == RSSI_WINDOW) {
+                mSum -= mSamples[mNext];
+            } else {
+                mCount++;
+            }
+            mSamples[mNext] = value;
+            mSum += value;
+            mNext = (mNext + 1) % RSSI_WINDOW;
+            rssi = value;
+        }
+
+        /**
+         * 最近几次信号强度的平均值
+         */
+        public int getSmoothedRssi() {
+            return mCount > 0 ? Math.round((float) mSum / mCount) : rssi;
+        }
+    }
+
+    /**
+     * 扫描结果监听接口
+     */
+    public interface Listener {
+        /**
+         * 设备列表变化时回调（主线程），两次回调间隔不小于限速间隔
+         * @param devices 当前设备，按平均信号强度从强到弱
+         * @param scanning 是否处于扫描时段（否则为休眠时段）
+         */
+        void onDevicesUpdated(List<Device> devices, boolean scanning);
+    }
+}
@@ -0,0 +1,73 @@
+package com.jabin.rootapp;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+/**
+ * 广播等待工具类：把“等待系统状态变化广播”包装为CompletableFuture，
+ * 用于替代固定时长的Thread.sleep等待
+ */
+public final class BroadcastWaiter {
+
+    private static HandlerThread sThread;
+
+    private BroadcastWaiter() {
+    }
+
+    /**
+     * 注册广播接收器并等待满足条件的广播，需在触发状态变化的操作之前调用，避免错过广播。
+     * 注册时收到的粘性广播（当前状态）会被忽略，只处理之后的状态变化
+     * @param context 上下文
+     * @param action 广播Action
+     * @param condition 广播满足的条件
+     * @param timeoutMs 超时时间，超时后以TimeoutException结束
+     * @return 收到的广播，future结束（包括取消）时自动注销接收器
+     */
+    public static CompletableFuture<Intent> waitFor(final Context context, final String action,
+                                                    final Predicate<Intent> condition, long timeoutMs) {
+        final CompletableFuture<Intent> future = new CompletableFuture<>();
+        final BroadcastReceiver receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context ctx, Intent intent) {
+                if (!isInitialStickyBroadcast() && condition.test(intent)) {
+                    future.complete(intent);
+                }
+            }
+        };
+        final Runnable timeout = () -> future.completeExceptionally(
+                new TimeoutException("Timed out waiting for " + action));
+
+        Handler handler = new Handler(getThread().getLooper());
+        ContextCompat.registerReceiver(context, receiver, new IntentFilter(action), null, handler,
+                ContextCompat.RECEIVER_NOT_EXPORTED);
+        handler.postDelayed(timeout, timeoutMs);
+
+        future.whenComplete((intent, error) -> {
+            handler.removeCallbacks(timeout);
+            try {
+                context.unregisterReceiver(receiver);
+            } catch (IllegalArgumentException e) {
+                // 已注销
+            }
+        });
+        return future;
+    }
+
+    private static synchronized HandlerThread getThread() {
+        if (sThread == null) {
+            sThread = new HandlerThread("BroadcastWaiter");
+            sThread.start();
+        }
+        return sThread;
+    }
+}
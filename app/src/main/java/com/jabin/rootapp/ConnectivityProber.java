@@ -0,0 +1,606 @@
+package com.jabin.rootapp;
+
+import android.content.Context;
+import android.net.Network;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 连通性探测器：按周期在每个网络接口上发起TCP连接、DNS查询和HTTP请求探测，
+ * 全部探测在一个线程中用非阻塞Selector并发执行，目标域名在单独的解析线程中解析，不阻塞探测线程；
+ * 每个接口的每个目标用固定大小的环形缓冲记录最近的延迟，计算p50/p95/p99和丢包率，结果在主线程回调
+ */
+public class ConnectivityProber {
+
+    private static final String TAG = "ConnectivityProber";
+    public static final long DEFAULT_INTERVAL_MS = 5000;
+    // 单次探测超时，超时计为丢包
+    private static final long PROBE_TIMEOUT_MS = 3000;
+    // 每个接口保留的最近探测次数
+    private static final int HISTORY_SIZE = 120;
+    // 没有可用网络信息时使用默认路由，记在这个名称下
+    private static final String DEFAULT_INTERFACE = "default";
+
+    private final Context mContext;
+    private final long mIntervalMs;
+    private final Listener mListener;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private volatile List<ProbeTarget> mTargets = defaultTargets();
+    // 固定的待探测接口，为null时按网络状态收集
+    private volatile Map<String, Network> mInterfaces;
+    private ProbeLoop mLoop;
+
+    public ConnectivityProber(Context context, long intervalMs, Listener listener) {
+        this.mContext = context.getApplicationContext();
+        this.mIntervalMs = intervalMs;
+        this.mListener = listener;
+    }
+
+    /**
+     * 默认探测目标：公共DNS的TCP 53端口、DNS查询和HTTP请求
+     */
+    public static List<ProbeTarget> defaultTargets() {
+        List<ProbeTarget> targets = new ArrayList<>();
+        targets.add(ProbeTarget.tcp("223.5.5.5", 53));
+        targets.add(ProbeTarget.dns("223.5.5.5", "www.baidu.com"));
+        targets.add(ProbeTarget.http("www.baidu.com", 80, "/"));
+        return targets;
+    }
+
+    /**
+     * 设置探测目标，从下一轮探测开始生效
+     */
+    public void setTargets(List<ProbeTarget> targets) {
+        mTargets = new ArrayList<>(targets);
+    }
+
+    /**
+     * 固定待探测的接口，从下一轮探测开始生效
+     * @param interfaces 接口名 -> Network（为null时走默认路由）；参数为null时恢复按网络状态收集
+     */
+    void setInterfaces(Map<String, Network> interfaces) {
+        mInterfaces = interfaces != null ? new LinkedHashMap<>(interfaces) : null;
+    }
+
+    /**
+     * 开始周期探测
+     */
+    public synchronized void start() {
+        if (mLoop != null) {
+            return;
+        }
+        mLoop = new ProbeLoop();
+        new Thread(mLoop, "ConnectivityProber").start();
+    }
+
+    /**
+     * 停止探测，进行中的探测会被关闭
+     */
+    public synchronized void stop() {
+        if (mLoop == null) {
+            return;
+        }
+        mLoop.cancel();
+        mLoop = null;
+    }
+
+    /**
+     * 待探测的接口：接口名 -> 对应的Network，Network为null时走默认路由
+     */
+    private Map<String, Network> collectInterfaces() {
+        Map<String, Network> fixed = mInterfaces;
+        if (fixed != null) {
+            return fixed;
+        }
+        Map<String, Network> interfaces = new LinkedHashMap<>();
+        for (NetworkStateStore.LinkInfo link : NetworkStateStore.getInstance(mContext).getLinks()) {
+            if (link.interfaceName != null && link.ipAddress != null && link.network != null) {
+                interfaces.put(link.interfaceName, link.network);
+            }
+        }
+        if (interfaces.isEmpty()) {
+            interfaces.put(DEFAULT_INTERFACE, null);
+        }
+        return interfaces;
+    }
+
+    /**
+     * 探测线程：每个实例对应一次start，除解析结果队列外的状态只在本线程访问
+     */
+    private class ProbeLoop implements Runnable {
+        private volatile boolean mRunning = true;
+        private volatile Selector mSelector;
+        private final List<Probe> mActive = new ArrayList<>();
+        // 接口+目标 -> 延迟记录
+        private final Map<String, LatencyRing> mRings = new LinkedHashMap<>();
+        private final Random mRandom = new Random();
+        // 域名解析线程，解析完成的探测放入队列后唤醒Selector
+        private final ExecutorService mResolver = Executors.newSingleThreadExecutor(
+                r -> new Thread(r, "ConnectivityProber-DNS"));
+        private final Queue<Probe> mResolved = new ConcurrentLinkedQueue<>();
+        private boolean mRoundPending;
+
+        void cancel() {
+            mRunning = false;
+            Selector selector = mSelector;
+            if (selector != null) {
+                selector.wakeup();
+            }
+        }
+
+        @Override
+        public void run() {
+            try (Selector selector = Selector.open()) {
+                mSelector = selector;
+                long nextRound = 0;
+                while (mRunning) {
+                    long now = SystemClock.elapsedRealtime();
+                    if (now >= nextRound) {
+                        startRound(selector);
+                        nextRound = now + mIntervalMs;
+                    }
+                    selector.select(Math.max(1, Math.min(nextRound, earliestDeadline()) - now));
+
+                    Probe resolved;
+                    while ((resolved = mResolved.poll()) != null) {
+                        if (mActive.contains(resolved)) {
+                            connect(selector, resolved);
+                        }
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (key.isValid()) {
+                            handleKey(key);
+                        }
+                    }
+                    expireProbes();
+
+                    if (mRoundPending && mActive.isEmpty()) {
+                        mRoundPending = false;
+                        publish();
+                    }
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Probe loop failed: " + e.getMessage(), e);
+            } finally {
+                mResolver.shutdownNow();
+                for (Probe probe : new ArrayList<>(mActive)) {
+                    closeQuietly(probe.channel);
+                }
+                mActive.clear();
+            }
+        }
+
+        /**
+         * 在每个接口上对每个目标发起一次探测，域名目标先交给解析线程
+         */
+        private void startRound(Selector selector) {
+            List<ProbeTarget> targets = mTargets;
+            long deadline = SystemClock.elapsedRealtime() + PROBE_TIMEOUT_MS;
+            for (Map.Entry<String, Network> entry : collectInterfaces().entrySet()) {
+                for (ProbeTarget target : targets) {
+                    final Probe probe = new Probe(target, entry.getKey(), entry.getValue());
+                    // 解析超时同样计为丢包
+                    probe.deadline = deadline;
+                    mActive.add(probe);
+                    if (isAddressLiteral(target.host)) {
+                        // IP字面量不会触发DNS查询，直接发起
+                        resolve(probe);
+                        connect(selector, probe);
+                    } else {
+                        mResolver.execute(() -> {
+                            resolve(probe);
+                            mResolved.add(probe);
+                            selector.wakeup();
+                        });
+                    }
+                }
+            }
+            mRoundPending = true;
+        }
+
+        /**
+         * 解析目标地址，按接口对应的网络解析；在解析线程或探测线程调用
+         */
+        private void resolve(Probe probe) {
+            try {
+                probe.address = probe.network != null ? probe.network.getByName(probe.target.host)
+                        : InetAddress.getByName(probe.target.host);
+            } catch (Exception e) {
+                Log.w(TAG, "Failed to resolve " + probe.target.host + " on " + probe.iface + ": " + e.getMessage());
+            }
+        }
+
+        /**
+         * 地址解析完成后建立连接或发送查询，解析耗时不计入延迟
+         */
+        private void connect(Selector selector, Probe probe) {
+            ProbeTarget target = probe.target;
+            if (probe.address == null) {
+                complete(probe, false);
+                return;
+            }
+            try {
+                InetSocketAddress remote = new InetSocketAddress(probe.address, target.port);
+                probe.startNs = System.nanoTime();
+                probe.deadline = SystemClock.elapsedRealtime() + PROBE_TIMEOUT_MS;
+
+                if (target.type == ProbeTarget.DNS) {
+                    DatagramChannel channel = DatagramChannel.open();
+                    probe.channel = channel;
+                    channel.configureBlocking(false);
+                    if (probe.network != null) {
+                        probe.network.bindSocket(channel.socket());
+                    }
+                    channel.connect(remote);
+                    probe.dnsId = mRandom.nextInt(0x10000);
+                    channel.write(buildDnsQuery(probe.dnsId, target.extra));
+                    probe.buffer = ByteBuffer.allocate(512);
+                    channel.register(selector, SelectionKey.OP_READ, probe);
+                } else {
+                    SocketChannel channel = SocketChannel.open();
+                    probe.channel = channel;
+                    channel.configureBlocking(false);
+                    if (probe.network != null) {
+                        probe.network.bindSocket(channel.socket());
+                    }
+                    if (channel.connect(remote)) {
+                        onConnected(probe, null);
+                    } else {
+                        channel.register(selector, SelectionKey.OP_CONNECT, probe);
+                    }
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Probe " + target + " on " + probe.iface + " failed to start: " + e.getMessage());
+                complete(probe, false);
+            }
+        }
+
+        private void handleKey(SelectionKey key) {
+            Probe probe = (Probe) key.attachment();
+            try {
+                if (key.isConnectable()) {
+                    if (((SocketChannel) key.channel()).finishConnect()) {
+                        onConnected(probe, key);
+                    }
+                } else if (key.isWritable()) {
+                    ((SocketChannel) key.channel()).write(probe.buffer);
+                    if (!probe.buffer.hasRemaining()) {
+                        probe.buffer = ByteBuffer.allocate(16);
+                        key.interestOps(SelectionKey.OP_READ);
+                    }
+                } else if (key.isReadable()) {
+                    onReadable(probe, key);
+                }
+            } catch (IOException e) {
+                complete(probe, false);
+            }
+        }
+
+        /**
+         * TCP探测在连接建立时完成；HTTP探测连接后发送请求
+         */
+        private void onConnected(Probe probe, SelectionKey key) throws IOException {
+            if (probe.target.type == ProbeTarget.TCP) {
+                complete(probe, true);
+                return;
+            }
+            String request = "GET " + probe.target.extra + " HTTP/1.1\r\nHost: " + probe.target.host
+                    + "\r\nConnection: close\r\n\r\n";
+            probe.buffer = ByteBuffer.wrap(request.getBytes(StandardCharsets.US_ASCII));
+            if (key != null) {
+                key.interestOps(SelectionKey.OP_WRITE);
+            } else {
+                probe.channel.register(mSelector, SelectionKey.OP_WRITE, probe);
+            }
+        }
+
+        /**
+         * DNS探测收到匹配的应答即完成；HTTP探测收到响应头首个字节即完成
+         */
+        private void onReadable(Probe probe, SelectionKey key) throws IOException {
+            if (probe.target.type == ProbeTarget.DNS) {
+                probe.buffer.clear();
+                int length = ((DatagramChannel) key.channel()).read(probe.buffer);
+                if (length >= 12 && (probe.buffer.getShort(0) & 0xffff) == probe.dnsId
+                        && (probe.buffer.get(2) & 0x80) != 0) {
+                    complete(probe, true);
+                }
+                return;
+            }
+            int length = ((SocketChannel) key.channel()).read(probe.buffer);
+            if (length < 0) {
+                complete(probe, false);
+            } else if (probe.buffer.position() >= 5) {
+                String head = new String(probe.buffer.array(), 0, 5, StandardCharsets.US_ASCII);
+                complete(probe, "HTTP/".equals(head));
+            }
+        }
+
+        private void expireProbes() {
+            long now = SystemClock.elapsedRealtime();
+            for (Probe probe : new ArrayList<>(mActive)) {
+                if (now >= probe.deadline) {
+                    complete(probe, false);
+                }
+            }
+        }
+
+        private long earliestDeadline() {
+            long earliest = Long.MAX_VALUE;
+            for (Probe probe : mActive) {
+                earliest = Math.min(earliest, probe.deadline);
+            }
+            return earliest;
+        }
+
+        private void complete(Probe probe, boolean success) {
+            if (!mActive.remove(probe)) {
+                return;
+            }
+            closeQuietly(probe.channel);
+            String key = probe.iface + " " + probe.target;
+            LatencyRing ring = mRings.get(key);
+            if (ring == null) {
+                ring = new LatencyRing(probe.iface, probe.target.toString(), HISTORY_SIZE);
+                mRings.put(key, ring);
+            }
+            ring.add(success ? (int) ((System.nanoTime() - probe.startNs) / 1000) : LatencyRing.LOST);
+        }
+
+        private void publish() {
+            final List<InterfaceStats> stats = new ArrayList<>();
+            int[] scratch = new int[HISTORY_SIZE];
+            for (LatencyRing ring : mRings.values()) {
+                stats.add(ring.summarize(scratch));
+            }
+            mMainHandler.post(() -> {
+                if (mRunning) {
+                    mListener.onProbeResults(stats);
+                }
+            });
+        }
+    }
+
+    /**
+     * 构造A记录查询报文
+     */
+    private static ByteBuffer buildDnsQuery(int id, String name) {
+        ByteBuffer query = ByteBuffer.allocate(512);
+        query.putShort((short) id);
+        // 标准查询，期望递归
+        query.putShort((short) 0x0100);
+        query.putShort((short) 1);
+        query.putShort((short) 0);
+        query.putShort((short) 0);
+        query.putShort((short) 0);
+        for (String label : name.split("\\.")) {
+            byte[] bytes = label.getBytes(StandardCharsets.US_ASCII);
+            query.put((byte) bytes.length);
+            query.put(bytes);
+        }
+        query.put((byte) 0);
+        query.putShort((short) 1);
+        query.putShort((short) 1);
+        query.flip();
+        return query;
+    }
+
+    /**
+     * 是否为IP字面量，字面量解析不会发起DNS查询
+     */
+    static boolean isAddressLiteral(String host) {
+        if (host.indexOf(':') >= 0) {
+            return true;
+        }
+        for (int i = 0; i < host.length(); i++) {
+            char c = host.charAt(i);
+            if ((c < '0' || c > '9') && c != '.') {
+                return false;
+            }
+        }
+        return !host.isEmpty();
+    }
+
+    private static void closeQuietly(SelectableChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // 忽略
+        }
+    }
+
+    /**
+     * 单次进行中的探测
+     */
+    private static class Probe {
+        final ProbeTarget target;
+        final String iface;
+        final Network network;
+        // 由解析线程写入，经队列交给探测线程
+        volatile InetAddress address;
+        SelectableChannel channel;
+        ByteBuffer buffer;
+        long startNs;
+        long deadline;
+        int dnsId;
+
+        Probe(ProbeTarget target, String iface, Network network) {
+            this.target = target;
+            this.iface = iface;
+            this.network = network;
+        }
+    }
+
+    /**
+     * 单个接口上单个目标的固定大小延迟环形缓冲，单位微秒，LOST表示丢包
+     */
+    static class LatencyRing {
+        static final int LOST = -1;
+
+        private final String mIface;
+        private final String mTarget;
+        private final int[] mValues;
+        private int mCount;
+        private int mNext;
+
+        LatencyRing(String iface, String target, int capacity) {
+            mIface = iface;
+            mTarget = target;
+            mValues = new int[capacity];
+        }
+
+        void add(int latencyUs) {
+            mValues[mNext] = latencyUs;
+            mNext = (mNext + 1) % mValues.length;
+            if (mCount < mValues.length) {
+                mCount++;
+            }
+        }
+
+        /**
+         * 计算百分位和丢包率
+         * @param scratch 排序用的临时数组，长度不小于容量
+         */
+        InterfaceStats summarize(int[] scratch) {
+            int received = 0;
+            for (int i = 0; i < mCount; i++) {
+                if (mValues[i] != LOST) {
+                    scratch[received++] = mValues[i];
+                }
+            }
+            Arrays.sort(scratch, 0, received);
+            InterfaceStats stats = new InterfaceStats(mIface, mTarget);
+            stats.samples = mCount;
+            stats.lost = mCount - received;
+            if (received > 0) {
+                stats.p50Ms = percentile(scratch, received, 50);
+                stats.p95Ms = percentile(scratch, received, 95);
+                stats.p99Ms = percentile(scratch, received, 99);
+            }
+            return stats;
+        }
+
+        private static float percentile(int[] sorted, int count, int percent) {
+            int index = (int) Math.ceil(percent / 100.0 * count) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, index))] / 1000f;
+        }
+    }
+
+    /**
+     * 探测目标
+     */
+    public static class ProbeTarget {
+        public static final int TCP = 0;
+        public static final int DNS = 1;
+        public static final int HTTP = 2;
+
+        public final int type;
+        public final String host;
+        public final int port;
+        // DNS为查询的域名，HTTP为请求路径
+        public final String extra;
+
+        private ProbeTarget(int type, String host, int port, String extra) {
+            this.type = type;
+            this.host = host;
+            this.port = port;
+            this.extra = extra;
+        }
+
+        public static ProbeTarget tcp(String host, int port) {
+            return new ProbeTarget(TCP, host, port, null);
+        }
+
+        public static ProbeTarget dns(String server, String queryName) {
+            return new ProbeTarget(DNS, server, 53, queryName);
+        }
+
+        public static ProbeTarget dns(String server, int port, String queryName) {
+            return new ProbeTarget(DNS, server, port, queryName);
+        }
+
+        public static ProbeTarget http(String host, int port, String path) {
+            return new ProbeTarget(HTTP, host, port, path);
+        }
+
+        @Override
+        public String toString() {
+            String[] names = {"TCP", "DNS", "HTTP"};
+            return names[type] + " " + host + ":" + port;
+        }
+    }
+
+    /**
+     * 单个接口上单个目标的延迟统计
+     */
+    public static class InterfaceStats {
+        public final String iface;
+        public final String target;
+        public int samples;
+        public int lost;
+        public float p50Ms;
+        public float p95Ms;
+        public float p99Ms;
+
+        InterfaceStats(String iface, String target) {
+            this.iface = iface;
+            this.target = target;
+        }
+
+        public float getLossPercent() {
+            return samples > 0 ? lost * 100f / samples : 0;
+        }
+
+        @Override
+        public String toString() {
+            if (samples == lost) {
+                return iface + " " + target + "  全部丢包 (" + samples + "次)";
+            }
+            return String.format(Locale.US, "%s %s  p50 %.1fms  p95 %.1fms  p99 %.1fms  丢包 %.1f%% (%d次)",
+                    iface, target, p50Ms, p95Ms, p99Ms, getLossPercent(), samples);
+        }
+    }
+
+    /**
+     * 探测结果监听接口
+     */
+    public interface Listener {
+        /**
+         * 每轮探测完成后回调（主线程）
+         * @param stats 各接口上各目标的延迟统计
+         */
+        void onProbeResults(List<InterfaceStats> stats);
+    }
+}
@@ -0,0 +1,243 @@
+package com.jabin.rootapp;
+
+import android.app.usage.NetworkStats;
+import android.app.usage.NetworkStatsManager;
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.util.Log;
+import android.util.SparseArray;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * 应用流量统计助手类：按自然日和网络类型（WiFi、以太网、移动网络）向系统查询各UID的收发字节数，
+ * 已结束且已过一个统计桶时长的日期结果不会再变化，缓存在内存和本地文件中；
+ * 再次查询时只重新查询今天和刚结束的日期，查询失败的结果不缓存
+ */
+public class DataUsageHelper {
+
+    private static final String TAG = "DataUsageHelper";
+    private static final String CACHE_FILE = "data_usage_cache.bin";
+    // 旧版本可能缓存了查询失败或未结束的日期，格式号变化后丢弃
+    private static final int MAGIC = 0x44555332; // "DUS2"
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+    // 系统按桶（默认2小时）汇总流量，日期结束后最后一个桶写入前结果仍可能变化
+    private static final long BUCKET_MS = 2 * 60 * 60 * 1000L;
+    public static final int MAX_DAYS = 30;
+
+    // 统计的网络类型，下标即结果中perType的下标
+    public static final int[] NETWORK_TYPES = {
+            ConnectivityManager.TYPE_WIFI, ConnectivityManager.TYPE_ETHERNET, ConnectivityManager.TYPE_MOBILE};
+    public static final String[] NETWORK_TYPE_NAMES = {"WiFi", "以太网", "移动网络"};
+
+    private static DataUsageHelper sInstance;
+
+    private final File mCacheFile;
+    private final NetworkStatsManager mNetworkStatsManager;
+    // (本地日序号, 网络类型下标) -> UID -> {接收, 发送}，只保存已结束并查询成功的日期
+    private final Map<Long, SparseArray<long[]>> mCompletedDays = new HashMap<>();
+
+    private DataUsageHelper(Context context) {
+        mCacheFile = new File(context.getFilesDir(), CACHE_FILE);
+        mNetworkStatsManager = (NetworkStatsManager) context.getSystemService(Context.NETWORK_STATS_SERVICE);
+        load();
+    }
+
+    public static synchronized DataUsageHelper getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new DataUsageHelper(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * 查询最近若干天各UID的流量，按总流量降序，在后台线程调用
+     * @param days 天数（1为今天，不超过30）
+     * @return 各UID的流量汇总
+     */
+    public synchronized List<UidUsage> query(int days) {
+        days = Math.max(1, Math.min(days, MAX_DAYS));
+        long start = System.currentTimeMillis();
+        long now = System.currentTimeMillis();
+        long today = localDay(now);
+        SparseArray<UidUsage> totals = new SparseArray<>();
+        int queried = 0;
+        int cached = 0;
+
+        for (long day = today - days + 1; day <= today; day++) {
+            boolean settled = dayStart(day) + DAY_MS + BUCKET_MS <= now;
+            for (int type = 0; type < NETWORK_TYPES.length; type++) {
+                long key = day * NETWORK_TYPES.length + type;
+                SparseArray<long[]> usage = settled ? mCompletedDays.get(key) : null;
+                if (usage == null) {
+                    usage = queryDay(day, type, now);
+                    queried++;
+                    if (usage == null) {
+                        // 查询失败按无流量显示，下次重新查询
+                        continue;
+                    }
+                    if (settled) {
+                        mCompletedDays.put(key, usage);
+                        cached++;
+                    }
+                }
+                for (int i = 0; i < usage.size(); i++) {
+                    int uid = usage.keyAt(i);
+                    UidUsage total = totals.get(uid);
+                    if (total == null) {
+                        total = new UidUsage(uid);
+                        totals.put(uid, total);
+                    }
+                    long[] bytes = usage.valueAt(i);
+                    total.perType[type][0] += bytes[0];
+                    total.perType[type][1] += bytes[1];
+                    total.rxBytes += bytes[0];
+                    total.txBytes += bytes[1];
+                }
+            }
+        }
+        // 有新缓存的日期时才写回文件
+        if (cached > 0) {
+            prune(today);
+            save();
+        }
+
+        List<UidUsage> result = new ArrayList<>();
+        for (int i = 0; i < totals.size(); i++) {
+            result.add(totals.valueAt(i));
+        }
+        Collections.sort(result, (a, b) -> Long.compare(b.rxBytes + b.txBytes, a.rxBytes + a.txBytes));
+        Log.d(TAG, "Queried " + queried + " day buckets for " + days + " days in "
+                + (System.currentTimeMillis() - start) + " ms");
+        return result;
+    }
+
+    /**
+     * 向系统查询某一天某种网络类型的各UID流量
+     * @return UID -> {接收, 发送}，查询失败时返回null
+     */
+    private SparseArray<long[]> queryDay(long day, int typeIndex, long now) {
+        SparseArray<long[]> usage = new SparseArray<>();
+        long dayStart = dayStart(day);
+        long dayEnd = Math.min(dayStart + DAY_MS, now);
+        try (NetworkStats stats = mNetworkStatsManager.querySummary(NETWORK_TYPES[typeIndex], null, dayStart, dayEnd)) {
+            NetworkStats.Bucket bucket = new NetworkStats.Bucket();
+            while (stats.hasNextBucket()) {
+                stats.getNextBucket(bucket);
+                long[] bytes = usage.get(bucket.getUid());
+                if (bytes == null) {
+                    bytes = new long[2];
+                    usage.put(bucket.getUid(), bytes);
+                }
+                bytes[0] += bucket.getRxBytes();
+                bytes[1] += bucket.getTxBytes();
+            }
+        } catch (Exception e) {
+            // 设备不支持的网络类型或缺少订阅信息时查询失败
+            Log.w(TAG, "Failed to query " + NETWORK_TYPE_NAMES[typeIndex] + " usage: " + e.getMessage());
+            return null;
+        }
+        return usage;
+    }
+
+    private static long localDay(long time) {
+        return (time + TimeZone.getDefault().getOffset(time)) / DAY_MS;
+    }
+
+    /**
+     * 本地日序号对应的开始时间
+     */
+    private static long dayStart(long day) {
+        return day * DAY_MS - TimeZone.getDefault().getOffset(day * DAY_MS);
+    }
+
+    /**
+     * 删除超出保留天数的缓存
+     */
+    private void prune(long today) {
+        long oldest = (today - MAX_DAYS) * NETWORK_TYPES.length;
+        for (Iterator<Long> it = mCompletedDays.keySet().iterator(); it.hasNext(); ) {
+            if (it.next() < oldest) {
+                it.remove();
+            }
+        }
+    }
+
+    private void load() {
+        if (!mCacheFile.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mCacheFile)))) {
+            if (in.readInt() != MAGIC) {
+                Log.w(TAG, "Unknown cache format, ignoring");
+                return;
+            }
+            int entryCount = in.readInt();
+            for (int i = 0; i < entryCount; i++) {
+                long key = in.readLong();
+                int uidCount = in.readInt();
+                SparseArray<long[]> usage = new SparseArray<>(uidCount);
+                for (int j = 0; j < uidCount; j++) {
+                    usage.put(in.readInt(), new long[]{in.readLong(), in.readLong()});
+                }
+                mCompletedDays.put(key, usage);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to load usage cache: " + e.getMessage());
+            mCompletedDays.clear();
+        }
+    }
+
+    private void save() {
+        File tmp = new File(mCacheFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(mCompletedDays.size());
+            for (Map.Entry<Long, SparseArray<long[]>> entry : mCompletedDays.entrySet()) {
+                SparseArray<long[]> usage = entry.getValue();
+                out.writeLong(entry.getKey());
+                out.writeInt(usage.size());
+                for (int i = 0; i < usage.size(); i++) {
+                    out.writeInt(usage.keyAt(i));
+                    out.writeLong(usage.valueAt(i)[0]);
+                    out.writeLong(usage.valueAt(i)[1]);
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to save usage cache: " + e.getMessage());
+            return;
+        }
+        if (!tmp.renameTo(mCacheFile)) {
+            Log.e(TAG, "Failed to replace usage cache file");
+        }
+    }
+
+    /**
+     * 单个UID的流量汇总
+     */
+    public static class UidUsage {
+        public final int uid;
+        public long rxBytes;
+        public long txBytes;
+        // 按NETWORK_TYPES下标的{接收, 发送}
+        public final long[][] perType = new long[NETWORK_TYPES.length][2];
+
+        UidUsage(int uid) {
+            this.uid = uid;
+        }
+    }
+}
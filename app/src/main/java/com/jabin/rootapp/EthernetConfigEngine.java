@@ -0,0 +1,428 @@
+package com.jabin.rootapp;
+
+import android.content.Context;
+import android.net.LinkAddress;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 以太网配置引擎：逐个接口对比期望配置和当前配置，只对有变化的接口调用setConfiguration，
+ * 避免无变化时重复设置导致链路重连；多个接口之间互不依赖，并行配置
+ */
+public class EthernetConfigEngine {
+
+    private static final String TAG = "EthernetConfigEngine";
+    private static final int MAX_PARALLEL = 4;
+
+    // 隐藏接口在类加载时解析一次，不存在的为null
+    private static final Class<?> ETHERNET_MANAGER_CLASS = ReflectCache.findClass("android.net.EthernetManager");
+    private static final Class<?> IP_CONFIGURATION_CLASS = ReflectCache.findClass("android.net.IpConfiguration");
+    private static final Class<?> IP_ASSIGNMENT_CLASS = ReflectCache.findClass("android.net.IpConfiguration$IpAssignment");
+    private static final Class<?> STATIC_IP_CONFIGURATION_CLASS = ReflectCache.findClass("android.net.StaticIpConfiguration");
+    private static final Method GET_INTERFACE_LIST = ReflectCache.resolveMethod(ETHERNET_MANAGER_CLASS, "getInterfaceList");
+    private static final Method GET_CONFIGURATION = ReflectCache.resolveMethod(ETHERNET_MANAGER_CLASS,
+            "getConfiguration", String.class);
+    private static final Method SET_CONFIGURATION = ReflectCache.resolveMethod(ETHERNET_MANAGER_CLASS,
+            "setConfiguration", String.class, IP_CONFIGURATION_CLASS);
+    private static final Method GET_IP_ASSIGNMENT = ReflectCache.resolveMethod(IP_CONFIGURATION_CLASS, "getIpAssignment");
+    private static final Method GET_STATIC_IP_CONFIGURATION = ReflectCache.resolveMethod(IP_CONFIGURATION_CLASS,
+            "getStaticIpConfiguration");
+    private static final Method SET_IP_ASSIGNMENT = ReflectCache.resolveMethod(IP_CONFIGURATION_CLASS,
+            "setIpAssignment", IP_ASSIGNMENT_CLASS);
+    private static final Method SET_STATIC_IP_CONFIGURATION = ReflectCache.resolveMethod(IP_CONFIGURATION_CLASS,
+            "setStaticIpConfiguration", STATIC_IP_CONFIGURATION_CLASS);
+    private static final Object IP_ASSIGNMENT_DHCP = ReflectCache.resolveStaticValue(IP_ASSIGNMENT_CLASS, "DHCP");
+    private static final Object IP_ASSIGNMENT_STATIC = ReflectCache.resolveStaticValue(IP_ASSIGNMENT_CLASS, "STATIC");
+    private static final Constructor<?> STATIC_IP_CONFIGURATION_CONSTRUCTOR =
+            ReflectCache.resolveConstructor(STATIC_IP_CONFIGURATION_CLASS);
+    private static final Field STATIC_IP_ADDRESS = ReflectCache.resolveField(STATIC_IP_CONFIGURATION_CLASS, "ipAddress", true);
+    private static final Field STATIC_GATEWAY = ReflectCache.resolveField(STATIC_IP_CONFIGURATION_CLASS, "gateway", true);
+    private static final Field STATIC_DNS_SERVERS = ReflectCache.resolveField(STATIC_IP_CONFIGURATION_CLASS, "dnsServers", true);
+    private static final Field STATIC_DOMAINS = ReflectCache.resolveField(STATIC_IP_CONFIGURATION_CLASS, "domains", true);
+    // 不同系统版本可用的LinkAddress构造器不同
+    private static final Constructor<?> LINK_ADDRESS_INET = ReflectCache.resolveConstructor(LinkAddress.class,
+            InetAddress.class, int.class);
+    private static final Constructor<?> LINK_ADDRESS_STRING_PREFIX = ReflectCache.resolveConstructor(LinkAddress.class,
+            String.class, int.class);
+    private static final Constructor<?> LINK_ADDRESS_STRING = ReflectCache.resolveConstructor(LinkAddress.class,
+            String.class);
+
+    private Object mEthernetManager;
+
+    public EthernetConfigEngine(Context context) {
+        try {
+            mEthernetManager = context.getSystemService("ethernet");
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to get EthernetManager: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取以太网接口列表，获取失败或为空时返回eth0
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> getInterfaces() {
+        List<String> interfaces = new ArrayList<>();
+        try {
+            Object result = ReflectCache.require(GET_INTERFACE_LIST, "getInterfaceList").invoke(mEthernetManager);
+            if (result instanceof List) {
+                interfaces.addAll((List<String>) result);
+            } else if (result instanceof String[]) {
+                Collections.addAll(interfaces, (String[]) result);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to get interface list: " + e.getMessage());
+        }
+        if (interfaces.isEmpty()) {
+            interfaces.add("eth0");
+        }
+        return interfaces;
+    }
+
+    /**
+     * 把期望配置应用到全部以太网接口
+     * @param desired 期望配置
+     * @return 完成时为每个接口的配置结果
+     */
+    public CompletableFuture<List<InterfaceResult>> apply(EthernetConfig desired) {
+        return apply(desired, null);
+    }
+
+    /**
+     * 把期望配置应用到指定接口，各接口并行配置
+     * @param desired 期望配置
+     * @param interfaces 接口列表，为null时使用全部以太网接口（在后台线程获取）
+     * @return 完成时为每个接口的配置结果，不阻塞调用线程
+     */
+    public CompletableFuture<List<InterfaceResult>> apply(final EthernetConfig desired, List<String> interfaces) {
+        if (mEthernetManager == null || ETHERNET_MANAGER_CLASS == null) {
+            CompletableFuture<List<InterfaceResult>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalStateException("EthernetManager is not available"));
+            return failed;
+        }
+        if (interfaces == null) {
+            return CompletableFuture.supplyAsync(this::getInterfaces)
+                    .thenCompose(targets -> applyTo(desired, targets));
+        }
+        return applyTo(desired, interfaces);
+    }
+
+    private CompletableFuture<List<InterfaceResult>> applyTo(final EthernetConfig desired, List<String> targets) {
+        final long start = SystemClock.elapsedRealtime();
+        if (targets.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(targets.size(), MAX_PARALLEL));
+
+        final List<CompletableFuture<InterfaceResult>> futures = new ArrayList<>();
+        for (final String iface : targets) {
+            futures.add(CompletableFuture.supplyAsync(() -> applyToInterface(iface, desired), executor));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(v -> {
+                    executor.shutdown();
+                    List<InterfaceResult> results = new ArrayList<>();
+                    for (CompletableFuture<InterfaceResult> future : futures) {
+                        results.add(future.join());
+                    }
+                    Log.d(TAG, "Configured " + results.size() + " interfaces in "
+                            + (SystemClock.elapsedRealtime() - start) + " ms: " + results);
+                    return results;
+                });
+    }
+
+    /**
+     * 配置单个接口，异常不会抛出，记录在结果中
+     */
+    private InterfaceResult applyToInterface(String iface, EthernetConfig desired) {
+        long start = SystemClock.elapsedRealtime();
+        InterfaceResult result = new InterfaceResult(iface);
+        try {
+            Object config = ReflectCache.require(GET_CONFIGURATION, "getConfiguration").invoke(mEthernetManager, iface);
+            if (config == null) {
+                throw new IllegalStateException("No configuration for " + iface);
+            }
+
+            if (matches(config, desired)) {
+                result.status = InterfaceResult.UNCHANGED;
+            } else {
+                writeConfig(config, desired);
+                result.status = setConfiguration(iface, config) ? InterfaceResult.APPLIED : InterfaceResult.FAILED;
+            }
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            Log.e(TAG, "Failed to configure " + iface + ": " + cause.getMessage(), e);
+            result.status = InterfaceResult.FAILED;
+            result.message = cause.getMessage();
+        }
+        result.elapsedMs = SystemClock.elapsedRealtime() - start;
+        return result;
+    }
+
+    private boolean setConfiguration(String iface, Object config) throws Exception {
+        Object ret = ReflectCache.require(SET_CONFIGURATION, "setConfiguration").invoke(mEthernetManager, iface, config);
+        // 部分设备返回null或非布尔值，视为成功
+        boolean success = !(ret instanceof Boolean) || (Boolean) ret;
+        if (ret instanceof String) {
+            success = "success".equalsIgnoreCase((String) ret);
+        }
+        return success;
+    }
+
+    /**
+     * 读取接口当前的原始配置对象（系统返回的是副本），用于回滚无法用EthernetConfig表示的配置
+     * @param iface 接口名
+     * @return 原始配置，读取失败返回null
+     */
+    public Object readSnapshot(String iface) {
+        try {
+            return ReflectCache.require(GET_CONFIGURATION, "getConfiguration").invoke(mEthernetManager, iface);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to read configuration of " + iface + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 把readSnapshot读取的原始配置写回接口，在后台线程执行
+     * @return 完成时为配置结果
+     */
+    public CompletableFuture<InterfaceResult> restoreSnapshot(final String iface, final Object snapshot) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = SystemClock.elapsedRealtime();
+            InterfaceResult result = new InterfaceResult(iface);
+            try {
+                result.status = setConfiguration(iface, snapshot) ? InterfaceResult.APPLIED : InterfaceResult.FAILED;
+            } catch (Exception e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                Log.e(TAG, "Failed to restore " + iface + ": " + cause.getMessage(), e);
+                result.status = InterfaceResult.FAILED;
+                result.message = cause.getMessage();
+            }
+            result.elapsedMs = SystemClock.elapsedRealtime() - start;
+            return result;
+        });
+    }
+
+    /**
+     * 读取接口当前的配置
+     * @param iface 接口名
+     * @return 当前配置，读取失败返回null
+     */
+    public EthernetConfig readCurrent(String iface) {
+        try {
+            Object config = ReflectCache.require(GET_CONFIGURATION, "getConfiguration").invoke(mEthernetManager, iface);
+            return config != null ? toEthernetConfig(config) : null;
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to read configuration of " + iface + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 判断接口当前配置是否已经等于期望配置
+     */
+    private boolean matches(Object config, EthernetConfig desired) throws Exception {
+        EthernetConfig current = toEthernetConfig(config);
+        return current != null && current.sameAs(desired);
+    }
+
+    /**
+     * 把IpConfiguration对象转换为EthernetConfig，既不是DHCP也不是有效静态配置时返回null
+     */
+    private EthernetConfig toEthernetConfig(Object config) throws Exception {
+        Object assignment = ReflectCache.require(GET_IP_ASSIGNMENT, "getIpAssignment").invoke(config);
+        String assignmentName = String.valueOf(assignment);
+        if ("DHCP".equals(assignmentName)) {
+            return EthernetConfig.dhcp();
+        }
+        if (!"STATIC".equals(assignmentName)) {
+            return null;
+        }
+        Object staticConfig = ReflectCache.require(GET_STATIC_IP_CONFIGURATION, "getStaticIpConfiguration").invoke(config);
+        if (staticConfig == null) {
+            return null;
+        }
+        LinkAddress linkAddress = (LinkAddress) ReflectCache.require(STATIC_IP_ADDRESS, "ipAddress").get(staticConfig);
+        InetAddress gateway = (InetAddress) ReflectCache.require(STATIC_GATEWAY, "gateway").get(staticConfig);
+        List<?> dnsServers = (List<?>) ReflectCache.require(STATIC_DNS_SERVERS, "dnsServers").get(staticConfig);
+        if (linkAddress == null) {
+            return null;
+        }
+        String dns1 = dnsServers != null && dnsServers.size() > 0 ? ((InetAddress) dnsServers.get(0)).getHostAddress() : "";
+        String dns2 = dnsServers != null && dnsServers.size() > 1 ? ((InetAddress) dnsServers.get(1)).getHostAddress() : "";
+        return EthernetConfig.staticIp(linkAddress.getAddress().getHostAddress(),
+                gateway != null ? gateway.getHostAddress() : "",
+                EthernetConfig.toNetmask(linkAddress.getPrefixLength()), dns1, dns2);
+    }
+
+    /**
+     * 把期望配置写入IpConfiguration对象
+     */
+    private void writeConfig(Object config, EthernetConfig desired) throws Exception {
+        Object assignment = desired.dhcp ? IP_ASSIGNMENT_DHCP : IP_ASSIGNMENT_STATIC;
+        ReflectCache.require(SET_IP_ASSIGNMENT, "setIpAssignment")
+                .invoke(config, ReflectCache.require(assignment, "IpAssignment"));
+        if (desired.dhcp) {
+            return;
+        }
+
+        if (desired.ipAddress == null || desired.ipAddress.isEmpty()) {
+            throw new IllegalArgumentException("Static IP address is empty");
+        }
+        Object staticIpConfig = ReflectCache.require(STATIC_IP_CONFIGURATION_CONSTRUCTOR, "StaticIpConfiguration")
+                .newInstance();
+        ReflectCache.require(STATIC_IP_ADDRESS, "ipAddress")
+                .set(staticIpConfig, createLinkAddress(desired.ipAddress, desired.getPrefixLength()));
+        // 网关为空时不设置，不能交给InetAddress.getByName("")，它会解析为回环地址
+        ReflectCache.require(STATIC_GATEWAY, "gateway")
+                .set(staticIpConfig, desired.getGatewayAddress());
+        ReflectCache.require(STATIC_DNS_SERVERS, "dnsServers")
+                .set(staticIpConfig, desired.getDnsServers());
+        if (STATIC_DOMAINS != null) {
+            STATIC_DOMAINS.set(staticIpConfig, "");
+        }
+        ReflectCache.require(SET_STATIC_IP_CONFIGURATION, "setStaticIpConfiguration").invoke(config, staticIpConfig);
+    }
+
+    /**
+     * 创建LinkAddress，使用当前系统版本可用的构造器
+     */
+    private Object createLinkAddress(String ipAddress, int prefixLength) throws Exception {
+        if (LINK_ADDRESS_INET != null) {
+            return LINK_ADDRESS_INET.newInstance(InetAddress.getByName(ipAddress), prefixLength);
+        }
+        if (LINK_ADDRESS_STRING_PREFIX != null) {
+            return LINK_ADDRESS_STRING_PREFIX.newInstance(ipAddress, prefixLength);
+        }
+        // 格式: "ip/prefix" 例如: "192.168.1.100/24"
+        return ReflectCache.require(LINK_ADDRESS_STRING, "LinkAddress").newInstance(ipAddress + "/" + prefixLength);
+    }
+
+    /**
+     * 期望的以太网配置
+     */
+    public static class EthernetConfig {
+        public final boolean dhcp;
+        public final String ipAddress;
+        public final String gateway;
+        public final String netmask;
+        public final String dns1;
+        public final String dns2;
+
+        private EthernetConfig(boolean dhcp, String ipAddress, String gateway, String netmask, String dns1, String dns2) {
+            this.dhcp = dhcp;
+            this.ipAddress = ipAddress;
+            this.gateway = gateway;
+            this.netmask = netmask;
+            this.dns1 = dns1 != null ? dns1 : "";
+            this.dns2 = dns2 != null ? dns2 : "";
+        }
+
+        public static EthernetConfig dhcp() {
+            return new EthernetConfig(true, null, null, null, null, null);
+        }
+
+        public static EthernetConfig staticIp(String ipAddress, String gateway, String netmask, String dns1, String dns2) {
+            return new EthernetConfig(false, ipAddress, gateway, netmask, dns1, dns2);
+        }
+
+        /**
+         * 从子网掩码计算前缀长度，无法解析时使用24
+         */
+        int getPrefixLength() {
+            try {
+                String[] maskParts = netmask.split("\\.");
+                if (maskParts.length == 4) {
+                    int mask = 0;
+                    for (String part : maskParts) {
+                        mask = (mask << 8) | Integer.parseInt(part);
+                    }
+                    return 32 - Integer.numberOfTrailingZeros(mask);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to calculate prefix length, using default 24: " + e.getMessage());
+            }
+            return 24;
+        }
+
+        /**
+         * 前缀长度转换为子网掩码
+         */
+        static String toNetmask(int prefixLength) {
+            int mask = prefixLength == 0 ? 0 : -1 << (32 - prefixLength);
+            return ((mask >>> 24) & 0xff) + "." + ((mask >>> 16) & 0xff) + "." + ((mask >>> 8) & 0xff) + "." + (mask & 0xff);
+        }
+
+        /**
+         * 判断两个配置是否等价（地址按解析后的值比较）
+         */
+        public boolean sameAs(EthernetConfig other) throws Exception {
+            if (dhcp || other.dhcp) {
+                return dhcp == other.dhcp;
+            }
+            return InetAddress.getByName(ipAddress).equals(InetAddress.getByName(other.ipAddress))
+                    && getPrefixLength() == other.getPrefixLength()
+                    && Objects.equals(getGatewayAddress(), other.getGatewayAddress())
+                    && getDnsServers().equals(other.getDnsServers());
+        }
+
+        /**
+         * 网关地址，未填写时为null
+         */
+        InetAddress getGatewayAddress() throws Exception {
+            return gateway != null && !gateway.isEmpty() ? InetAddress.getByName(gateway) : null;
+        }
+
+        ArrayList<InetAddress> getDnsServers() throws Exception {
+            ArrayList<InetAddress> dnsList = new ArrayList<>();
+            if (!dns1.isEmpty()) {
+                dnsList.add(InetAddress.getByName(dns1));
+            }
+            if (!dns2.isEmpty()) {
+                dnsList.add(InetAddress.getByName(dns2));
+            }
+            return dnsList;
+        }
+    }
+
+    /**
+     * 单个接口的配置结果
+     */
+    public static class InterfaceResult {
+        public static final int APPLIED = 0;
+        public static final int UNCHANGED = 1;
+        public static final int FAILED = 2;
+
+        public final String iface;
+        public int status;
+        public String message;
+        public long elapsedMs;
+
+        InterfaceResult(String iface) {
+            this.iface = iface;
+        }
+
+        @Override
+        public String toString() {
+            String state = status == APPLIED ? "已应用" : status == UNCHANGED ? "无变化" : "失败";
+            String text = iface + ": " + state + " (" + elapsedMs + " ms)";
+            if (message != null) {
+                text += " " + message;
+            }
+            return text;
+        }
+    }
+}
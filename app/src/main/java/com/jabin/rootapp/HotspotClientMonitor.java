@@ -0,0 +1,529 @@
+package com.jabin.rootapp;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 热点设备监控：周期读取邻居表（/proc/net/arp），筛出热点接口上的设备，
+ * 与上一次结果比较后只通知加入和离开的设备；邻居表内容未变化时跳过解析。
+ * 设备名来自DHCP租约文件，流量来自连接跟踪表，两者不可读时对应信息为空。
+ * 连接跟踪表可能很大，按较长周期读取，并复用字节缓冲按字节解析
+ */
+public class HotspotClientMonitor {
+
+    private static final String TAG = "HotspotClientMonitor";
+    public static final long DEFAULT_INTERVAL_MS = 1000;
+    // 连接跟踪表的读取周期
+    private static final long TRAFFIC_INTERVAL_MS = 3000;
+    private static final String PROC_NET_ARP = "/proc/net/arp";
+    private static final String PROC_NF_CONNTRACK = "/proc/net/nf_conntrack";
+    private static final String DNSMASQ_LEASES = "/data/misc/dhcp/dnsmasq.leases";
+    // ARP表项标志：已完成解析
+    private static final int ATF_COM = 0x2;
+    // 无法获取热点接口列表时，按常见的热点接口名前缀识别
+    private static final String[] HOTSPOT_PREFIXES = {"ap", "swlan", "softap", "wlan1", "rndis", "bt-pan"};
+    private static final byte[] SRC = "src=".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BYTES = "bytes=".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PACKETS = "packets=".getBytes(StandardCharsets.US_ASCII);
+    private static final Method GET_TETHERED_IFACES = ReflectCache.resolveMethod(ConnectivityManager.class,
+            "getTetheredIfaces");
+
+    private final Context mContext;
+    private final long mIntervalMs;
+    private final Listener mListener;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private HandlerThread mThread;
+    // 当前的监控任务，每次start新建，旧任务即使还在执行也只会操作自己的文件和设备表
+    private PollRun mRun;
+
+    public HotspotClientMonitor(Context context, long intervalMs, Listener listener) {
+        this.mContext = context.getApplicationContext();
+        this.mIntervalMs = intervalMs;
+        this.mListener = listener;
+    }
+
+    /**
+     * 开始监控
+     */
+    public synchronized void start() {
+        if (mThread != null) {
+            return;
+        }
+        mThread = new HandlerThread("HotspotClients");
+        mThread.start();
+        mRun = new PollRun(new Handler(mThread.getLooper()));
+        mRun.handler.post(mRun);
+    }
+
+    /**
+     * 停止监控，下次开始时已知设备会重新作为加入事件通知
+     */
+    public synchronized void stop() {
+        if (mThread == null) {
+            return;
+        }
+        final PollRun run = mRun;
+        run.stopped = true;
+        run.handler.removeCallbacksAndMessages(null);
+        // 在该任务自己的线程上关闭文件，设备表随任务丢弃
+        run.handler.post(run::closeFiles);
+        mThread.quitSafely();
+        mThread = null;
+        mRun = null;
+    }
+
+    private static boolean rangeEquals(byte[] a, byte[] b, int length) {
+        for (int i = 0; i < length; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 当前热点使用的接口，通过隐藏接口ConnectivityManager.getTetheredIfaces获取
+     */
+    private Set<String> getHotspotInterfaces() {
+        Set<String> ifaces = new HashSet<>();
+        try {
+            ConnectivityManager connectivityManager =
+                    (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+            String[] tethered = (String[]) ReflectCache.require(GET_TETHERED_IFACES, "getTetheredIfaces")
+                    .invoke(connectivityManager);
+            if (tethered != null) {
+                ifaces.addAll(Arrays.asList(tethered));
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to get tethered interfaces: " + e.getMessage());
+        }
+        return ifaces;
+    }
+
+    private static boolean isHotspotInterface(String iface, Set<String> hotspotIfaces) {
+        if (!hotspotIfaces.isEmpty()) {
+            return hotspotIfaces.contains(iface);
+        }
+        for (String prefix : HOTSPOT_PREFIXES) {
+            if (iface.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 读取dnsmasq租约文件：到期时间 MAC IP 设备名 客户端ID
+     * @return MAC -> 设备名，文件不可读时为空
+     */
+    private static Map<String, String> readLeaseHostnames() {
+        Map<String, String> hostnames = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(DNSMASQ_LEASES))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length >= 4 && !"*".equals(fields[3])) {
+                    hostnames.put(fields[1].toLowerCase(), fields[3]);
+                }
+            }
+        } catch (IOException e) {
+            // 新版本系统的DHCP服务不再使用dnsmasq，租约文件不存在
+        }
+        return hostnames;
+    }
+
+    /**
+     * 从整个文件读到缓冲，缓冲不够时加倍
+     * @return 读取后的缓冲，可能是新分配的
+     */
+    private static byte[] readFully(RandomAccessFile file, byte[] buffer, int[] length) throws IOException {
+        file.seek(0);
+        int total = 0;
+        int read;
+        while ((read = file.read(buffer, total, buffer.length - total)) > 0) {
+            total += read;
+            if (total == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+        }
+        length[0] = total;
+        return buffer;
+    }
+
+    /**
+     * 在[start, end)中查找字节串
+     * @return 位置，找不到时返回-1
+     */
+    private static int indexOf(byte[] buf, int start, int end, byte[] pattern) {
+        outer:
+        for (int i = start; i <= end - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (buf[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * 按字节比较查找源地址属于哪个设备
+     * @return 设备序号，不是热点设备时返回-1
+     */
+    private static int findIp(byte[][] ips, byte[] buf, int start, int end) {
+        for (int i = 0; i < ips.length; i++) {
+            byte[] ip = ips[i];
+            if (ip.length == end - start && indexOf(buf, start, end, ip) == start) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long parseLong(byte[] buf, int start, int end) {
+        long value = 0;
+        for (int i = start; i < end && buf[i] >= '0' && buf[i] <= '9'; i++) {
+            value = value * 10 + (buf[i] - '0');
+        }
+        return value;
+    }
+
+    private static void closeQuietly(RandomAccessFile file) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+        }
+    }
+
+    /**
+     * 一次start到stop之间的监控任务，持有自己的文件、缓冲和设备表，只在自己的线程上访问和重新调度
+     */
+    private class PollRun implements Runnable {
+        final Handler handler;
+        volatile boolean stopped;
+        private RandomAccessFile mArpFile;
+        private byte[] mBuffer = new byte[4096];
+        private byte[] mLastArp = new byte[0];
+        private RandomAccessFile mConntrackFile;
+        private byte[] mConntrackBuffer = new byte[16384];
+        private final int[] mLength = new int[1];
+        private boolean mConntrackReadable = true;
+        private long mLastTrafficTime;
+        // 连接跟踪表项（协议和原方向四元组） -> 上次读到的计数，表项消失后删除
+        private final Map<String, Flow> mFlows = new HashMap<>();
+        private int mGeneration;
+        // MAC -> 设备
+        private final Map<String, Client> mClients = new LinkedHashMap<>();
+
+        PollRun(Handler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void run() {
+            if (stopped) {
+                return;
+            }
+            poll();
+            if (!stopped) {
+                handler.postDelayed(this, mIntervalMs);
+            }
+        }
+
+        private void poll() {
+            final List<Client> joined = new ArrayList<>();
+            final List<Client> left = new ArrayList<>();
+            try {
+                int length = readArp();
+                // 邻居表未变化时不重新解析
+                if (length != mLastArp.length || !rangeEquals(mBuffer, mLastArp, length)) {
+                    mLastArp = Arrays.copyOf(mBuffer, length);
+                    diffClients(parseArp(length), joined, left);
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to read " + PROC_NET_ARP + ": " + e.getMessage());
+                closeQuietly(mArpFile);
+                mArpFile = null;
+            }
+            // 有设备加入时立即读取流量，否则按较长周期读取
+            long now = SystemClock.elapsedRealtime();
+            boolean trafficChanged = false;
+            if (!mClients.isEmpty() && (!joined.isEmpty() || now - mLastTrafficTime >= TRAFFIC_INTERVAL_MS)) {
+                mLastTrafficTime = now;
+                trafficChanged = updateTraffic();
+            }
+            if (joined.isEmpty() && left.isEmpty() && !trafficChanged) {
+                return;
+            }
+            mMainHandler.post(() -> {
+                if (!stopped) {
+                    mListener.onClientsChanged(joined, left);
+                }
+            });
+        }
+
+        private int readArp() throws IOException {
+            if (mArpFile == null) {
+                mArpFile = new RandomAccessFile(PROC_NET_ARP, "r");
+            }
+            mBuffer = readFully(mArpFile, mBuffer, mLength);
+            return mLength[0];
+        }
+
+        /**
+         * 解析ARP表：IP地址 硬件类型 标志 MAC地址 掩码 接口，只保留热点接口上已完成解析的表项
+         * @return MAC -> IP
+         */
+        private Map<String, String> parseArp(int length) {
+            Map<String, String> entries = new HashMap<>();
+            Set<String> hotspotIfaces = getHotspotInterfaces();
+            String[] lines = new String(mBuffer, 0, length).split("\n");
+            // 第一行为表头
+            for (int i = 1; i < lines.length; i++) {
+                String[] fields = lines[i].trim().split("\\s+");
+                if (fields.length < 6) {
+                    continue;
+                }
+                int flags;
+                try {
+                    flags = Integer.decode(fields[2]);
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if ((flags & ATF_COM) == 0 || "00:00:00:00:00:00".equals(fields[3])
+                        || !isHotspotInterface(fields[5], hotspotIfaces)) {
+                    continue;
+                }
+                entries.put(fields[3].toLowerCase(), fields[0]);
+            }
+            return entries;
+        }
+
+        /**
+         * 与已知设备比较，得到加入和离开的设备；已知设备IP变化时原地更新
+         */
+        private void diffClients(Map<String, String> entries, List<Client> joined, List<Client> left) {
+            for (Iterator<Map.Entry<String, Client>> it = mClients.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, Client> entry = it.next();
+                if (!entries.containsKey(entry.getKey())) {
+                    it.remove();
+                    left.add(entry.getValue());
+                }
+            }
+            Map<String, String> hostnames = null;
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                Client client = mClients.get(entry.getKey());
+                if (client != null) {
+                    client.ip = entry.getValue();
+                    continue;
+                }
+                if (hostnames == null) {
+                    // 只有新设备加入时才读取租约文件
+                    hostnames = readLeaseHostnames();
+                }
+                client = new Client(entry.getKey(), entry.getValue(), hostnames.get(entry.getKey()));
+                mClients.put(client.mac, client);
+                joined.add(client);
+            }
+            if (!joined.isEmpty() || !left.isEmpty()) {
+                Log.d(TAG, "Clients: +" + joined.size() + " -" + left.size() + " = " + mClients.size());
+            }
+        }
+
+        /**
+         * 从连接跟踪表累计各设备的流量（需要内核开启nf_conntrack_acct），
+         * 以设备为源地址的方向计为上传，回复方向计为下载。表项过期后计数会从表中消失，
+         * 因此按表项记录上次读到的计数，只把增量累加到设备上，设备流量只增不减。
+         * 整表读入复用的缓冲后按字节匹配，只为热点设备的表项创建键
+         * @return 是否有设备的流量发生变化
+         */
+        private boolean updateTraffic() {
+            if (!mConntrackReadable) {
+                return false;
+            }
+            Client[] clients = mClients.values().toArray(new Client[0]);
+            byte[][] ips = new byte[clients.length][];
+            for (int i = 0; i < clients.length; i++) {
+                ips[i] = clients[i].ip.getBytes(StandardCharsets.US_ASCII);
+            }
+            int length;
+            try {
+                if (mConntrackFile == null) {
+                    mConntrackFile = new RandomAccessFile(PROC_NF_CONNTRACK, "r");
+                }
+                mConntrackBuffer = readFully(mConntrackFile, mConntrackBuffer, mLength);
+                length = mLength[0];
+            } catch (IOException e) {
+                Log.w(TAG, "Connection tracking not readable, traffic unavailable: " + e.getMessage());
+                closeQuietly(mConntrackFile);
+                mConntrackFile = null;
+                mConntrackReadable = false;
+                return false;
+            }
+            int generation = ++mGeneration;
+            boolean changed = false;
+            byte[] buf = mConntrackBuffer;
+            int pos = 0;
+            while (pos < length) {
+                int lineEnd = pos;
+                while (lineEnd < length && buf[lineEnd] != '\n') {
+                    lineEnd++;
+                }
+                int src = indexOf(buf, pos, lineEnd, SRC);
+                if (src >= 0) {
+                    int srcStart = src + SRC.length;
+                    int srcEnd = srcStart;
+                    while (srcEnd < lineEnd && buf[srcEnd] != ' ') {
+                        srcEnd++;
+                    }
+                    int index = findIp(ips, buf, srcStart, srcEnd);
+                    // 第一个bytes=为原方向（设备发出），第二个为回复方向（设备接收）
+                    int first = index >= 0 ? indexOf(buf, srcEnd, lineEnd, BYTES) : -1;
+                    if (first >= 0) {
+                        int second = indexOf(buf, first + BYTES.length, lineEnd, BYTES);
+                        long tx = parseLong(buf, first + BYTES.length, lineEnd);
+                        long rx = second >= 0 ? parseLong(buf, second + BYTES.length, lineEnd) : 0;
+                        int packets = indexOf(buf, srcEnd, first, PACKETS);
+                        Flow flow = findFlow(buf, pos, src, packets >= 0 ? packets : first, clients[index]);
+                        changed |= flow.update(tx, rx);
+                        flow.generation = generation;
+                    }
+                }
+                pos = lineEnd + 1;
+            }
+            for (Iterator<Flow> it = mFlows.values().iterator(); it.hasNext(); ) {
+                if (it.next().generation != generation) {
+                    it.remove();
+                }
+            }
+            return changed;
+        }
+
+        /**
+         * 按协议名和原方向四元组查找表项，超时时间和连接状态会变化，不作为键的一部分
+         */
+        private Flow findFlow(byte[] buf, int lineStart, int tupleStart, int tupleEnd, Client client) {
+            // 行首为“ipv4 2 tcp 6 超时 ...”，第三个字段是协议名
+            int protoStart = lineStart;
+            for (int field = 0; field < 2; field++) {
+                while (protoStart < tupleStart && buf[protoStart] != ' ') {
+                    protoStart++;
+                }
+                while (protoStart < tupleStart && buf[protoStart] == ' ') {
+                    protoStart++;
+                }
+            }
+            int protoEnd = protoStart;
+            while (protoEnd < tupleStart && buf[protoEnd] != ' ') {
+                protoEnd++;
+            }
+            String key = new String(buf, protoStart, protoEnd - protoStart, StandardCharsets.US_ASCII) + " "
+                    + new String(buf, tupleStart, tupleEnd - tupleStart, StandardCharsets.US_ASCII);
+            Flow flow = mFlows.get(key);
+            if (flow == null || flow.client != client) {
+                flow = new Flow(client);
+                mFlows.put(key, flow);
+            }
+            return flow;
+        }
+
+        private void closeFiles() {
+            closeQuietly(mArpFile);
+            mArpFile = null;
+            closeQuietly(mConntrackFile);
+            mConntrackFile = null;
+        }
+    }
+
+    /**
+     * 一条连接跟踪表项上次读到的计数
+     */
+    private static class Flow {
+        final Client client;
+        long tx;
+        long rx;
+        int generation;
+
+        Flow(Client client) {
+            this.client = client;
+        }
+
+        /**
+         * 把与上次计数的增量累加到设备；计数变小说明表项被删除后以相同四元组重建，整个计数都是新增
+         * @return 是否有新增流量
+         */
+        boolean update(long newTx, long newRx) {
+            long txDelta = newTx >= tx ? newTx - tx : newTx;
+            long rxDelta = newRx >= rx ? newRx - rx : newRx;
+            tx = newTx;
+            rx = newRx;
+            boolean first = !client.hasTraffic;
+            client.hasTraffic = true;
+            if (txDelta == 0 && rxDelta == 0) {
+                return first;
+            }
+            client.txBytes += txDelta;
+            client.rxBytes += rxDelta;
+            return true;
+        }
+    }
+
+    /**
+     * 热点上的设备，加入后同一对象持续更新，界面可直接持有
+     */
+    public static class Client {
+        public final String mac;
+        public final String hostname;
+        public volatile String ip;
+        // 监控期间累计的下载和上传字节数，只在监控线程写入
+        public volatile long rxBytes;
+        public volatile long txBytes;
+        // 流量信息是否可用
+        public volatile boolean hasTraffic;
+
+        Client(String mac, String ip, String hostname) {
+            this.mac = mac;
+            this.ip = ip;
+            this.hostname = hostname;
+        }
+    }
+
+    /**
+     * 设备变化监听接口
+     */
+    public interface Listener {
+        /**
+         * 设备加入、离开或流量变化时回调（主线程）
+         * @param joined 新加入的设备
+         * @param left 离开的设备
+         */
+        void onClientsChanged(Collection<Client> joined, Collection<Client> left);
+    }
+}
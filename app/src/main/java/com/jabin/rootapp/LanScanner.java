@@ -0,0 +1,503 @@
+package com.jabin.rootapp;
+
+import android.net.Network;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.system.ErrnoException;
+import android.system.OsConstants;
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 局域网扫描器：对子网内的主机逐个端口发起非阻塞TCP连接，一个线程用Selector同时维持数百个连接，
+ * 按设定的速率发起新连接。连接成功记为端口开放，连接被拒绝（收到RST）说明主机在线但端口关闭，
+ * 超时或不可达视为无响应。结果边扫描边在主线程回调
+ */
+public class LanScanner {
+
+    private static final String TAG = "LanScanner";
+    // 常见设备端口：远程管理、网页、打印机（515/631/9100）、摄像头（554/8000/37777）、文件共享
+    public static final int[] DEFAULT_PORTS = {
+            21, 22, 23, 80, 443, 445, 515, 554, 631, 3389, 5000, 8000, 8080, 8443, 9100, 37777};
+    public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+    public static final int DEFAULT_RATE_PER_SECOND = 500;
+    public static final int DEFAULT_TIMEOUT_MS = 1000;
+    // 单次扫描最多的主机数（/22），更大的子网需要手动缩小范围
+    public static final int MAX_HOSTS = 1024;
+    private static final int MAX_IN_FLIGHT_LIMIT = 512;
+    private static final long PROGRESS_INTERVAL_MS = 200;
+
+    private final Listener mListener;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private ScanLoop mLoop;
+
+    public LanScanner(Listener listener) {
+        this.mListener = listener;
+    }
+
+    /**
+     * 开始扫描，上一次扫描未结束时先取消
+     */
+    public synchronized void start(Config config) {
+        cancel();
+        mLoop = new ScanLoop(config);
+        new Thread(mLoop, "LanScanner").start();
+    }
+
+    /**
+     * 取消扫描，已发起的连接立即关闭，之后不再回调
+     */
+    public synchronized void cancel() {
+        if (mLoop != null) {
+            mLoop.cancel();
+            mLoop = null;
+        }
+    }
+
+    /**
+     * 把IP地址和前缀长度换算为子网，如192.168.1.23/24 -> 192.168.1.0/24
+     */
+    public static String toSubnet(String ipAddress, int prefixLength) throws UnknownHostException {
+        int ip = toInt(InetAddress.getByName(ipAddress));
+        int mask = prefixLength == 0 ? 0 : -1 << (32 - prefixLength);
+        return toAddress(ip & mask).getHostAddress() + "/" + prefixLength;
+    }
+
+    /**
+     * 展开扫描目标：子网（a.b.c.d/n，不含网络地址和广播地址）或单个IPv4地址。
+     * 只接受数字形式的地址，不做DNS解析，可以在主线程调用
+     * @throws IllegalArgumentException 为空、不是IPv4地址、格式错误或主机数超过MAX_HOSTS
+     */
+    public static List<InetAddress> expandTarget(String target) {
+        int slash = target.indexOf('/');
+        int ip = parseIPv4(slash >= 0 ? target.substring(0, slash).trim() : target.trim());
+        List<InetAddress> hosts = new ArrayList<>();
+        if (slash < 0) {
+            hosts.add(toAddress(ip));
+            return hosts;
+        }
+        int prefixLength;
+        try {
+            prefixLength = Integer.parseInt(target.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid prefix length: " + target);
+        }
+        if (prefixLength < 0 || prefixLength > 32) {
+            throw new IllegalArgumentException("Invalid prefix length: " + target);
+        }
+        long size = 1L << (32 - prefixLength);
+        if (size > MAX_HOSTS + 2) {
+            throw new IllegalArgumentException("Subnet too large (" + size + " addresses), max " + MAX_HOSTS);
+        }
+        int mask = prefixLength == 0 ? 0 : -1 << (32 - prefixLength);
+        int network = ip & mask;
+        if (size <= 2) {
+            // /31和/32没有网络地址和广播地址
+            for (int i = 0; i < size; i++) {
+                hosts.add(toAddress(network + i));
+            }
+        } else {
+            for (int i = 1; i < size - 1; i++) {
+                hosts.add(toAddress(network + i));
+            }
+        }
+        return hosts;
+    }
+
+    /**
+     * 解析端口列表，逗号分隔，支持范围（如80,443,8000-8010）
+     * @throws IllegalArgumentException 格式错误或端口超出范围
+     */
+    public static int[] parsePorts(String text) {
+        Set<Integer> ports = new TreeSet<>();
+        for (String part : text.split(",")) {
+            part = part.trim();
+            if (part.isEmpty()) {
+                continue;
+            }
+            int dash = part.indexOf('-');
+            int first;
+            int last;
+            try {
+                first = Integer.parseInt(dash >= 0 ? part.substring(0, dash).trim() : part);
+                last = dash >= 0 ? Integer.parseInt(part.substring(dash + 1).trim()) : first;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid port: " + part);
+            }
+            if (first < 1 || last > 65535 || first > last) {
+                throw new IllegalArgumentException("Invalid port range: " + part);
+            }
+            for (int port = first; port <= last; port++) {
+                ports.add(port);
+            }
+        }
+        int[] result = new int[ports.size()];
+        int i = 0;
+        for (int port : ports) {
+            result[i++] = port;
+        }
+        return result;
+    }
+
+    /**
+     * 解析点分十进制IPv4地址，不接受主机名，避免InetAddress.getByName触发DNS查询
+     */
+    private static int parseIPv4(String text) {
+        String[] parts = text.split("\\.", -1);
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Not an IPv4 address: " + text);
+        }
+        int ip = 0;
+        for (String part : parts) {
+            int octet = -1;
+            if (!part.isEmpty() && part.length() <= 3) {
+                octet = 0;
+                for (int i = 0; i < part.length() && octet >= 0; i++) {
+                    char c = part.charAt(i);
+                    octet = c >= '0' && c <= '9' ? octet * 10 + (c - '0') : -1;
+                }
+            }
+            if (octet < 0 || octet > 255) {
+                throw new IllegalArgumentException("Not an IPv4 address: " + text);
+            }
+            ip = (ip << 8) | octet;
+        }
+        return ip;
+    }
+
+    private static int toInt(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        return (bytes[0] & 0xff) << 24 | (bytes[1] & 0xff) << 16 | (bytes[2] & 0xff) << 8 | (bytes[3] & 0xff);
+    }
+
+    private static InetAddress toAddress(int ip) {
+        try {
+            return InetAddress.getByAddress(new byte[]{
+                    (byte) (ip >>> 24), (byte) (ip >>> 16), (byte) (ip >>> 8), (byte) ip});
+        } catch (UnknownHostException e) {
+            // 长度为4的地址不会抛出
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 扫描线程：每个实例对应一次start，状态只在本线程访问
+     */
+    private class ScanLoop implements Runnable {
+        private final Config mConfig;
+        private final int mTotal;
+        private volatile boolean mRunning = true;
+        private volatile Selector mSelector;
+        // 按发起顺序排列，超时时间相同，队首即最早超时
+        private final ArrayDeque<Probe> mInFlight = new ArrayDeque<>();
+        private final Set<InetAddress> mAliveHosts = new HashSet<>();
+        private int mNextIndex;
+        private int mActive;
+        private int mDone;
+        private int mOpenPorts;
+
+        ScanLoop(Config config) {
+            this.mConfig = config;
+            this.mTotal = config.hosts.size() * config.ports.length;
+        }
+
+        void cancel() {
+            mRunning = false;
+            Selector selector = mSelector;
+            if (selector != null) {
+                selector.wakeup();
+            }
+        }
+
+        @Override
+        public void run() {
+            long start = SystemClock.elapsedRealtime();
+            int maxInFlight = Math.max(1, Math.min(mConfig.maxInFlight, MAX_IN_FLIGHT_LIMIT));
+            long intervalNs = 1000000000L / Math.max(1, mConfig.ratePerSecond);
+            long timeoutNs = mConfig.timeoutMs * 1000000L;
+            Log.d(TAG, "Scanning " + mConfig.hosts.size() + " hosts x " + mConfig.ports.length + " ports, "
+                    + maxInFlight + " in flight, " + mConfig.ratePerSecond + "/s");
+            try (Selector selector = Selector.open()) {
+                mSelector = selector;
+                long nextStartNs = System.nanoTime();
+                long lastProgress = 0;
+                while (mRunning && (mNextIndex < mTotal || mActive > 0)) {
+                    long now = System.nanoTime();
+                    // 按速率发起新连接，空闲后不累积额度，避免突发
+                    while (mNextIndex < mTotal && mActive < maxInFlight && now >= nextStartNs) {
+                        startProbe(selector, mNextIndex++, now + timeoutNs);
+                        nextStartNs = Math.max(nextStartNs, now - intervalNs) + intervalNs;
+                    }
+
+                    long waitNs = Long.MAX_VALUE;
+                    if (mNextIndex < mTotal && mActive < maxInFlight) {
+                        waitNs = nextStartNs - now;
+                    }
+                    Probe head = peekInFlight();
+                    if (head != null) {
+                        waitNs = Math.min(waitNs, head.deadlineNs - now);
+                    }
+                    long waitMs = waitNs / 1000000;
+                    if (waitNs == Long.MAX_VALUE) {
+                        selector.select();
+                    } else if (waitMs > 0) {
+                        selector.select(waitMs);
+                    } else {
+                        selector.selectNow();
+                    }
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (key.isValid() && key.isConnectable()) {
+                            finishProbe((Probe) key.attachment());
+                        }
+                    }
+                    expireProbes(System.nanoTime());
+
+                    long elapsed = SystemClock.elapsedRealtime();
+                    if (elapsed - lastProgress >= PROGRESS_INTERVAL_MS) {
+                        lastProgress = elapsed;
+                        final int done = mDone;
+                        post(() -> mListener.onProgress(done, mTotal));
+                    }
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Scan loop failed: " + e.getMessage(), e);
+            } finally {
+                Probe probe;
+                while ((probe = mInFlight.poll()) != null) {
+                    closeQuietly(probe);
+                }
+            }
+
+            final Summary summary = new Summary();
+            summary.probes = mDone;
+            summary.total = mTotal;
+            summary.aliveHosts = mAliveHosts.size();
+            summary.openPorts = mOpenPorts;
+            summary.elapsedMs = SystemClock.elapsedRealtime() - start;
+            Log.d(TAG, "Scan finished: " + summary + (mRunning ? "" : " (cancelled)"));
+            post(() -> {
+                mListener.onProgress(summary.probes, summary.total);
+                mListener.onFinished(summary);
+            });
+        }
+
+        /**
+         * 端口在外层、主机在内层，相邻的连接落在不同主机上，避免集中冲击同一台设备
+         */
+        private void startProbe(Selector selector, int index, long deadlineNs) {
+            InetAddress host = mConfig.hosts.get(index % mConfig.hosts.size());
+            int port = mConfig.ports[index / mConfig.hosts.size()];
+            Probe probe = new Probe(host, port, deadlineNs);
+            mInFlight.add(probe);
+            mActive++;
+            try {
+                SocketChannel channel = SocketChannel.open();
+                probe.channel = channel;
+                channel.configureBlocking(false);
+                if (mConfig.network != null) {
+                    mConfig.network.bindSocket(channel.socket());
+                }
+                if (channel.connect(new InetSocketAddress(host, port))) {
+                    onOpen(probe);
+                    complete(probe);
+                } else {
+                    channel.register(selector, SelectionKey.OP_CONNECT, probe);
+                }
+            } catch (IOException e) {
+                onFailed(probe, e);
+                complete(probe);
+            }
+        }
+
+        private void finishProbe(Probe probe) {
+            try {
+                if (((SocketChannel) probe.channel).finishConnect()) {
+                    onOpen(probe);
+                    complete(probe);
+                }
+            } catch (IOException e) {
+                onFailed(probe, e);
+                complete(probe);
+            }
+        }
+
+        private void onOpen(Probe probe) {
+            final long rttUs = (System.nanoTime() - probe.startNs) / 1000;
+            final String host = probe.host.getHostAddress();
+            final int port = probe.port;
+            mOpenPorts++;
+            onAlive(probe, rttUs);
+            post(() -> mListener.onPortOpen(host, port, rttUs));
+        }
+
+        /**
+         * 连接失败时，除超时和不可达外的ConnectException（通常是收到RST被拒绝）说明主机有回应；
+         * 超时和主机不可达分别抛出SocketTimeoutException和NoRouteToHostException，不是ConnectException
+         */
+        private void onFailed(Probe probe, IOException e) {
+            if (e instanceof ConnectException && !isUnreachable(e)) {
+                onAlive(probe, (System.nanoTime() - probe.startNs) / 1000);
+            }
+        }
+
+        private void onAlive(Probe probe, final long rttUs) {
+            if (mAliveHosts.add(probe.host)) {
+                final String host = probe.host.getHostAddress();
+                post(() -> mListener.onHostFound(host, rttUs));
+            }
+        }
+
+        /**
+         * 在主线程回调，扫描已取消时丢弃，避免旧扫描的结果混入新扫描
+         */
+        private void post(final Runnable callback) {
+            mMainHandler.post(() -> {
+                if (mRunning) {
+                    callback.run();
+                }
+            });
+        }
+
+        private void complete(Probe probe) {
+            if (probe.done) {
+                return;
+            }
+            probe.done = true;
+            closeQuietly(probe);
+            mActive--;
+            mDone++;
+        }
+
+        private Probe peekInFlight() {
+            Probe head;
+            while ((head = mInFlight.peek()) != null && head.done) {
+                mInFlight.poll();
+            }
+            return head;
+        }
+
+        private void expireProbes(long now) {
+            Probe head;
+            while ((head = peekInFlight()) != null && now >= head.deadlineNs) {
+                mInFlight.poll();
+                complete(head);
+            }
+        }
+
+        private void closeQuietly(Probe probe) {
+            if (probe.channel != null) {
+                try {
+                    probe.channel.close();
+                } catch (IOException e) {
+                    // 忽略
+                }
+            }
+        }
+    }
+
+    /**
+     * 按错误码判断连接失败是否为网络不可达或超时，不依赖异常信息的文字
+     */
+    private static boolean isUnreachable(IOException e) {
+        if (!(e.getCause() instanceof ErrnoException)) {
+            return false;
+        }
+        int errno = ((ErrnoException) e.getCause()).errno;
+        return errno == OsConstants.ENETUNREACH || errno == OsConstants.EHOSTUNREACH
+                || errno == OsConstants.ETIMEDOUT;
+    }
+
+    private static class Probe {
+        final InetAddress host;
+        final int port;
+        final long startNs = System.nanoTime();
+        final long deadlineNs;
+        SocketChannel channel;
+        boolean done;
+
+        Probe(InetAddress host, int port, long deadlineNs) {
+            this.host = host;
+            this.port = port;
+            this.deadlineNs = deadlineNs;
+        }
+    }
+
+    /**
+     * 扫描参数
+     */
+    public static class Config {
+        public List<InetAddress> hosts = new ArrayList<>();
+        public int[] ports = DEFAULT_PORTS;
+        // 同时进行的连接数上限
+        public int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+        // 每秒发起的连接数上限
+        public int ratePerSecond = DEFAULT_RATE_PER_SECOND;
+        public int timeoutMs = DEFAULT_TIMEOUT_MS;
+        // 绑定的网络，为null时走默认路由
+        public Network network;
+    }
+
+    /**
+     * 扫描结果汇总
+     */
+    public static class Summary {
+        public int probes;
+        public int total;
+        public int aliveHosts;
+        public int openPorts;
+        public long elapsedMs;
+
+        @Override
+        public String toString() {
+            return probes + "/" + total + " probes, " + aliveHosts + " hosts, " + openPorts + " open ports in "
+                    + elapsedMs + " ms";
+        }
+    }
+
+    /**
+     * 扫描结果监听接口，全部在主线程回调
+     */
+    public interface Listener {
+        /**
+         * 发现在线主机（端口开放或拒绝连接），每台主机只回调一次
+         * @param rttUs 首次响应的耗时（微秒）
+         */
+        void onHostFound(String host, long rttUs);
+
+        /**
+         * 发现开放端口
+         * @param rttUs 连接建立耗时（微秒）
+         */
+        void onPortOpen(String host, int port, long rttUs);
+
+        /**
+         * 扫描进度，约每200毫秒回调一次
+         */
+        void onProgress(int done, int total);
+
+        /**
+         * 扫描正常结束（取消时不回调）
+         */
+        void onFinished(Summary summary);
+    }
+}
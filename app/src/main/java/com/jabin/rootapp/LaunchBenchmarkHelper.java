@@ -0,0 +1,316 @@
+package com.jabin.rootapp;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 应用启动耗时测试助手类，统计冷启动/热启动的首帧时间和完全绘制时间
+ */
+public class LaunchBenchmarkHelper {
+
+    private static final String TAG = "LaunchBenchmarkHelper";
+    // 两次启动之间的等待时间，让系统回到稳定状态
+    private static final long SETTLE_MS = 1500;
+    // 等待应用上报完全绘制（reportFullyDrawn）的最长时间
+    private static final long FULLY_DRAWN_TIMEOUT_MS = 5000;
+
+    private static final Pattern TOTAL_TIME = Pattern.compile("TotalTime:\\s*(\\d+)");
+    private static final Pattern WAIT_TIME = Pattern.compile("WaitTime:\\s*(\\d+)");
+    private static final Pattern FULLY_DRAWN = Pattern.compile("Fully drawn (\\S+): \\+(?:(\\d+)s)?(\\d+)ms");
+
+    private Context mContext;
+    private PackageManager mPackageManager;
+    private Handler mMainHandler;
+
+    public LaunchBenchmarkHelper(Context context) {
+        this.mContext = context;
+        this.mPackageManager = context.getPackageManager();
+        this.mMainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * 执行启动测试
+     * @param packageName 应用包名
+     * @param cold true为冷启动（每次启动前强制停止进程），false为热启动
+     * @param iterations 测试次数
+     * @param measureFullyDrawn 是否等待应用上报完全绘制，应用未调用reportFullyDrawn时应传false
+     * @param callback 测试回调，在主线程执行
+     */
+    public void runBenchmark(final String packageName, final boolean cold, final int iterations,
+                             final boolean measureFullyDrawn, final BenchmarkCallback callback) {
+        new Thread(() -> {
+            try {
+                Intent launchIntent = mPackageManager.getLaunchIntentForPackage(packageName);
+                if (launchIntent == null || launchIntent.getComponent() == null) {
+                    throw new IllegalArgumentException("No launcher activity for " + packageName);
+                }
+                ComponentName component = launchIntent.getComponent();
+                // “Fully drawn”由system_server输出，只读取该进程的日志
+                int systemServerPid = measureFullyDrawn ? findSystemServerPid() : -1;
+                boolean waitDrawn = measureFullyDrawn;
+
+                if (!cold) {
+                    // 热启动前先启动一次，确保进程已存在
+                    launch(component, false);
+                    goHome();
+                }
+
+                List<Long> firstFrame = new ArrayList<>();
+                List<Long> fullyDrawn = new ArrayList<>();
+                for (int i = 0; i < iterations; i++) {
+                    long startWallTime = System.currentTimeMillis();
+                    long totalTime = launch(component, cold);
+                    if (totalTime >= 0) {
+                        firstFrame.add(totalTime);
+                    }
+                    if (waitDrawn) {
+                        long drawnTime = waitFullyDrawn(component, startWallTime, systemServerPid);
+                        if (drawnTime >= 0) {
+                            fullyDrawn.add(drawnTime);
+                        } else if (fullyDrawn.isEmpty()) {
+                            // 第一次就没有等到，说明应用不调用reportFullyDrawn，后续不再等待
+                            Log.w(TAG, packageName + " did not report fully drawn, skipping further waits");
+                            waitDrawn = false;
+                        }
+                    }
+                    final int done = i + 1;
+                    mMainHandler.post(() -> callback.onProgress(done, iterations));
+                    goHome();
+                }
+
+                final Stats firstFrameStats = Stats.of(firstFrame);
+                final Stats fullyDrawnStats = Stats.of(fullyDrawn);
+                Log.d(TAG, packageName + (cold ? " cold" : " warm") + " first frame: " + firstFrameStats
+                        + ", fully drawn: " + fullyDrawnStats);
+                mMainHandler.post(() -> callback.onComplete(firstFrameStats, fullyDrawnStats));
+            } catch (Exception e) {
+                e.printStackTrace();
+                Log.e(TAG, "Launch benchmark failed: " + e.getMessage());
+                mMainHandler.post(() -> callback.onFailed(e));
+            }
+        }, "LaunchBenchmark").start();
+    }
+
+    /**
+     * 通过am start -W启动应用并等待首帧绘制
+     * @return 首帧耗时TotalTime（毫秒），获取失败返回-1
+     */
+    private long launch(ComponentName component, boolean cold) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add("am");
+        command.add("start");
+        command.add("-W");
+        if (cold) {
+            // -S：启动前强制停止目标应用
+            command.add("-S");
+        }
+        command.add("-n");
+        command.add(component.flattenToShortString());
+
+        long totalTime = -1;
+        long waitTime = -1;
+        for (String line : exec(command)) {
+            Matcher matcher = TOTAL_TIME.matcher(line);
+            if (matcher.find()) {
+                totalTime = Long.parseLong(matcher.group(1));
+            }
+            matcher = WAIT_TIME.matcher(line);
+            if (matcher.find()) {
+                waitTime = Long.parseLong(matcher.group(1));
+            }
+        }
+        // 部分系统版本不输出TotalTime，退而使用WaitTime
+        return totalTime >= 0 ? totalTime : waitTime;
+    }
+
+    /**
+     * 从系统日志中等待本次启动的“Fully drawn”记录，应用未调用reportFullyDrawn时超时返回-1。
+     * logcat以流方式读取，只输出启动之后、指定标签和进程的日志，不再反复导出整个日志缓冲区
+     * @param pid system_server的进程号，未知时传-1
+     */
+    private long waitFullyDrawn(ComponentName component, long startWallTime, int pid) throws IOException {
+        String shortName = component.flattenToShortString();
+        String longName = component.flattenToString();
+        List<String> command = new ArrayList<>(Arrays.asList("logcat", "-v", "epoch",
+                "-T", String.format(Locale.US, "%d.%03d", startWallTime / 1000, startWallTime % 1000)));
+        if (pid > 0) {
+            command.add("--pid=" + pid);
+        }
+        command.addAll(Arrays.asList("-s", "ActivityTaskManager:I", "ActivityManager:I"));
+
+        final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        // 超时后结束logcat进程，readLine随即返回null
+        Runnable timeout = process::destroy;
+        mMainHandler.postDelayed(timeout, FULLY_DRAWN_TIMEOUT_MS);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher matcher = FULLY_DRAWN.matcher(line);
+                if (!matcher.find()) {
+                    continue;
+                }
+                String name = matcher.group(1);
+                if (!name.equals(shortName) && !name.equals(longName)) {
+                    continue;
+                }
+                if (parseEpochMillis(line) < startWallTime) {
+                    continue;
+                }
+                long seconds = matcher.group(2) != null ? Long.parseLong(matcher.group(2)) : 0;
+                return seconds * 1000 + Long.parseLong(matcher.group(3));
+            }
+            return -1;
+        } finally {
+            mMainHandler.removeCallbacks(timeout);
+            process.destroy();
+        }
+    }
+
+    /**
+     * 查找system_server的进程号，失败返回-1
+     */
+    private int findSystemServerPid() {
+        try {
+            for (String line : exec(Arrays.asList("pidof", "system_server"))) {
+                String value = line.trim();
+                if (!value.isEmpty()) {
+                    return Integer.parseInt(value.split("\\s+")[0]);
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to find system_server pid: " + e.getMessage());
+        }
+        return -1;
+    }
+
+    /**
+     * 解析“-v epoch”格式日志行开头的时间戳
+     */
+    private long parseEpochMillis(String line) {
+        try {
+            String first = line.trim().split("\\s+")[0];
+            return (long) (Double.parseDouble(first) * 1000);
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 回到桌面，让被测应用进入后台
+     */
+    private void goHome() throws InterruptedException {
+        Intent home = new Intent(Intent.ACTION_MAIN);
+        home.addCategory(Intent.CATEGORY_HOME);
+        home.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        mContext.startActivity(home);
+        Thread.sleep(SETTLE_MS);
+    }
+
+    private List<String> exec(List<String> command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        process.waitFor();
+        return lines;
+    }
+
+    /**
+     * 耗时统计（毫秒）
+     */
+    public static class Stats {
+        public final int count;
+        public final long min;
+        public final long p50;
+        public final long p90;
+        public final long p99;
+        public final long max;
+        public final long mean;
+
+        private Stats(List<Long> sorted) {
+            count = sorted.size();
+            if (count == 0) {
+                min = p50 = p90 = p99 = max = mean = -1;
+                return;
+            }
+            long sum = 0;
+            for (long value : sorted) {
+                sum += value;
+            }
+            min = sorted.get(0);
+            max = sorted.get(count - 1);
+            mean = sum / count;
+            p50 = percentile(sorted, 50);
+            p90 = percentile(sorted, 90);
+            p99 = percentile(sorted, 99);
+        }
+
+        static Stats of(List<Long> values) {
+            List<Long> sorted = new ArrayList<>(values);
+            Collections.sort(sorted);
+            return new Stats(sorted);
+        }
+
+        /**
+         * 最近秩法计算百分位数
+         */
+        private static long percentile(List<Long> sorted, int percent) {
+            int rank = (int) Math.ceil(percent / 100.0 * sorted.size());
+            return sorted.get(Math.max(0, rank - 1));
+        }
+
+        @Override
+        public String toString() {
+            if (count == 0) {
+                return "无数据";
+            }
+            return "n=" + count + " min=" + min + " p50=" + p50 + " p90=" + p90
+                    + " p99=" + p99 + " max=" + max + " avg=" + mean + " (ms)";
+        }
+    }
+
+    /**
+     * 启动测试回调接口
+     */
+    public interface BenchmarkCallback {
+        /**
+         * 测试进度回调
+         * @param done 已完成次数
+         * @param total 总次数
+         */
+        void onProgress(int done, int total);
+
+        /**
+         * 测试完成回调
+         * @param firstFrame 首帧耗时统计
+         * @param fullyDrawn 完全绘制耗时统计（应用需调用reportFullyDrawn）
+         */
+        void onComplete(Stats firstFrame, Stats fullyDrawn);
+
+        /**
+         * 测试失败回调
+         * @param e 失败原因
+         */
+        void onFailed(Exception e);
+    }
+}
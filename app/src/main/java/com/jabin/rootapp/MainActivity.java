@@ -8,7 +8,6 @@ import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.media.projection.MediaProjectionManager;
-import android.net.wifi.ScanResult;
 import android.net.wifi.WifiManager;
 import android.os.Bundle;
 import android.util.Log;
@@ -26,6 +25,7 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentTransaction;
@@ -260,51 +260,54 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
         
-        // 开始扫描WiFi
-        wifiManager.startScan();
-        List<ScanResult> scanResults = wifiManager.getScanResults();
+        // 创建WiFi列表对话框，扫描结果到达后实时刷新
+        final List<WifiScanHelper.WifiNetwork> networks = new ArrayList<>();
+        final ArrayAdapter<WifiScanHelper.WifiNetwork> adapter =
+                new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, networks);
+        final AlertDialog dialog = new AlertDialog.Builder(this)
+                .setTitle("可用WiFi网络（扫描中…）")
+                .setAdapter(adapter, (d, which) -> showWifiConnectDialog(networks.get(which)))
+                .setNeutralButton("清理重复网络", (d, which) -> pruneDuplicateNetworks())
+                .setNegativeButton("关闭", null)
+                .create();
         
-        if (scanResults.isEmpty()) {
-            Toast.makeText(this, "未扫描到WiFi网络", Toast.LENGTH_SHORT).show();
-            return;
-        }
-        
-        // 创建WiFi列表对话框
-        AlertDialog.Builder builder = new AlertDialog.Builder(this);
-        builder.setTitle("可用WiFi网络");
-        
-        // 提取WiFi名称列表，过滤空白项
-        final List<String> wifiNames = new ArrayList<>();
-        for (ScanResult result : scanResults) {
-            // 过滤掉空白或无效的WiFi名称
-            if (result.SSID != null && !result.SSID.isEmpty()) {
-                wifiNames.add(result.SSID);
-            }
-        }
-        
-        if (wifiNames.isEmpty()) {
-            Toast.makeText(this, "未扫描到有效WiFi网络", Toast.LENGTH_SHORT).show();
-            return;
-        }
-        
-        // 创建适配器
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, wifiNames);
-        builder.setAdapter(adapter, new DialogInterface.OnClickListener() {
-            @Override
-            public void onClick(DialogInterface dialog, int which) {
-                String selectedWifi = wifiNames.get(which);
-                showWifiConnectDialog(selectedWifi);
+        final WifiScanHelper scanHelper = WifiScanHelper.getInstance(this);
+        final WifiScanHelper.ScanListener listener = (results, scanning) -> {
+            networks.clear();
+            networks.addAll(results);
+            adapter.notifyDataSetChanged();
+            if (scanning) {
+                dialog.setTitle("可用WiFi网络（扫描中…）");
+            } else {
+                dialog.setTitle(results.isEmpty() ? "未扫描到有效WiFi网络" : "可用WiFi网络（" + results.size() + "）");
             }
-        });
-        
-        builder.show();
+        };
+        dialog.setOnDismissListener(d -> scanHelper.removeListener(listener));
+        dialog.show();
+        scanHelper.scan(listener);
+    }
+
+    /**
+     * 在后台清理已保存网络中的重复项
+     */
+    private void pruneDuplicateNetworks() {
+        new Thread(() -> {
+            final int removed = mNetworkManager.pruneDuplicateNetworks();
+            runOnUiThread(() -> Toast.makeText(MainActivity.this,
+                    removed > 0 ? "已清理 " + removed + " 个重复网络" : "没有重复网络", Toast.LENGTH_SHORT).show());
+        }).start();
     }
 
     /**
      * 显示WiFi连接对话框
-     * @param ssid WiFi名称
+     * @param network 扫描到的WiFi网络
      */
-    private void showWifiConnectDialog(final String ssid) {
+    private void showWifiConnectDialog(final WifiScanHelper.WifiNetwork network) {
+        final String ssid = network.ssid;
+        if (!NetworkManagerHelper.isConnectSupported(network.securityType)) {
+            Toast.makeText(this, "暂不支持连接" + network.security + "网络: " + ssid, Toast.LENGTH_LONG).show();
+            return;
+        }
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("连接WiFi: " + ssid);
         
@@ -317,12 +320,11 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void onClick(DialogInterface dialog, int which) {
                 String password = etPassword.getText().toString();
-                boolean result = mNetworkManager.connectToWifi(ssid, password);
-                if (result) {
-                    Toast.makeText(MainActivity.this, "正在连接WiFi: " + ssid, Toast.LENGTH_SHORT).show();
-                } else {
-                    Toast.makeText(MainActivity.this, "连接WiFi失败", Toast.LENGTH_SHORT).show();
-                }
+                int security = network.securityType;
+                Toast.makeText(MainActivity.this, "正在连接WiFi: " + ssid, Toast.LENGTH_SHORT).show();
+                mNetworkManager.connectToWifi(ssid, password, security).thenAcceptAsync(result ->
+                        Toast.makeText(MainActivity.this, result.toString(), Toast.LENGTH_LONG).show(),
+                        ContextCompat.getMainExecutor(MainActivity.this));
             }
         });
         
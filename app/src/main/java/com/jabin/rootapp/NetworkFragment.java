@@ -1,21 +1,36 @@
 package com.jabin.rootapp;
 
 import android.app.AlertDialog;
+import android.net.Network;
 import android.os.Bundle;
+import android.text.TextUtils;
+import android.text.format.Formatter;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.LinearLayout;
 import android.widget.RadioButton;
 import android.widget.RadioGroup;
 import android.widget.Switch;
+import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
 /**
  * 网络管理Fragment - 提供WiFi、蓝牙、以太网、热点等网络功能的管理
  */
@@ -25,11 +40,42 @@ public class NetworkFragment extends Fragment {
     private Button btnEthernetSettings;
     private Button btnWlanSettings;
     private Button btnHotspotSettings;
+    private Button btnReflectBenchmark;
+    private Button btnNetworkProfiles;
+    private Button btnThroughputTest;
+    private Button btnHotspotClients;
+    private Button btnBleScan;
+    private Button btnLanScan;
     private Switch swWifi;
     private Switch swBluetooth;
     private Switch swEthernet;
     private Switch swHotspot;
+    private Switch swProbe;
+    private TextView tvProbeStats;
+    private Switch swTraffic;
+    private LinearLayout llTrafficRows;
     private NetworkManagerHelper mNetworkManager;
+    private NetworkProfileHelper mProfileHelper;
+    private ConnectivityProber mProber;
+    private TrafficSampler mTrafficSampler;
+    // 接口名 -> 速率文字和折线图，接口首次出现时创建
+    private final Map<String, TextView> mTrafficLabels = new HashMap<>();
+    private final Map<String, SparklineView> mTrafficCharts = new HashMap<>();
+    private final ThroughputTester mThroughputTester = new ThroughputTester();
+    private RadioCommandExecutor mRadioExecutor;
+    // 执行器是单例，只在页面可见期间注册，避免引用已销毁的页面
+    private final RadioCommandExecutor.Callback mRadioCallback = this::onRadioResult;
+    // 按网络状态刷新开关时忽略开关监听
+    private boolean mUpdatingSwitches;
+    private final NetworkStateStore.Listener mStateListener = store -> updateSwitchStates();
+    private final ActivityResultLauncher<String[]> mBlePermissionLauncher = registerForActivityResult(
+            new ActivityResultContracts.RequestMultiplePermissions(), result -> {
+                if (isAdded() && BleScanner.hasPermissions(requireContext())) {
+                    showBleScanDialog();
+                } else if (isAdded()) {
+                    Toast.makeText(getActivity(), "未授予蓝牙扫描或定位权限", Toast.LENGTH_SHORT).show();
+                }
+            });
 
     public NetworkFragment() {
         // Required empty public constructor
@@ -43,6 +89,12 @@ public class NetworkFragment extends Fragment {
         
         // 初始化网络管理助手
         mNetworkManager = new NetworkManagerHelper(getActivity());
+        mRadioExecutor = RadioCommandExecutor.getInstance(requireContext());
+        mProfileHelper = new NetworkProfileHelper(getActivity());
+        mProber = new ConnectivityProber(getActivity(), ConnectivityProber.DEFAULT_INTERVAL_MS,
+                this::onProbeResults);
+        mTrafficSampler = new TrafficSampler(TrafficSampler.DEFAULT_INTERVAL_MS, TrafficSampler.DEFAULT_HISTORY_SIZE,
+                this::onTrafficUpdated);
         
         // 初始化UI组件
         initViews(view);
@@ -65,11 +117,21 @@ public class NetworkFragment extends Fragment {
         btnEthernetSettings = view.findViewById(R.id.btn_ethernet_settings);
         btnWlanSettings = view.findViewById(R.id.btn_wlan_settings);
         btnHotspotSettings = view.findViewById(R.id.btn_hotspot_settings);
+        btnReflectBenchmark = view.findViewById(R.id.btn_reflect_benchmark);
+        btnNetworkProfiles = view.findViewById(R.id.btn_network_profiles);
+        btnThroughputTest = view.findViewById(R.id.btn_throughput_test);
+        btnHotspotClients = view.findViewById(R.id.btn_hotspot_clients);
+        btnBleScan = view.findViewById(R.id.btn_ble_scan);
+        btnLanScan = view.findViewById(R.id.btn_lan_scan);
         
         // 开关
         swWifi = view.findViewById(R.id.sw_wifi);
         swBluetooth = view.findViewById(R.id.sw_bluetooth);
         swEthernet = view.findViewById(R.id.sw_ethernet);
+        swProbe = view.findViewById(R.id.sw_probe);
+        tvProbeStats = view.findViewById(R.id.tv_probe_stats);
+        swTraffic = view.findViewById(R.id.sw_traffic);
+        llTrafficRows = view.findViewById(R.id.ll_traffic_rows);
         swHotspot = view.findViewById(R.id.sw_hotspot);
     }
     
@@ -77,55 +139,35 @@ public class NetworkFragment extends Fragment {
      * 设置事件监听器
      */
     private void setListeners() {
-        // WiFi开关
+        // 开关操作在各模块的后台线程串行执行，快速连续切换时只执行最终状态
         swWifi.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            boolean result = mNetworkManager.setWifiEnabled(isChecked);
-            if (result) {
-                Toast.makeText(getActivity(), "WiFi已" + (isChecked ? "开启" : "关闭"), Toast.LENGTH_SHORT).show();
-            } else {
-                Toast.makeText(getActivity(), "WiFi切换失败", Toast.LENGTH_SHORT).show();
-                swWifi.setChecked(!isChecked); // 恢复原状
+            if (mUpdatingSwitches) {
+                return;
             }
+            mRadioExecutor.submit(RadioCommandExecutor.WIFI, isChecked);
         });
         
-        // 蓝牙开关
         swBluetooth.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            boolean result = mNetworkManager.setBluetoothEnabled(isChecked);
-            if (result) {
-                Toast.makeText(getActivity(), "蓝牙已" + (isChecked ? "开启" : "关闭"), Toast.LENGTH_SHORT).show();
-            } else {
-                Toast.makeText(getActivity(), "蓝牙切换失败", Toast.LENGTH_SHORT).show();
-                swBluetooth.setChecked(!isChecked); // 恢复原状
+            if (mUpdatingSwitches) {
+                return;
             }
+            mRadioExecutor.submit(RadioCommandExecutor.BLUETOOTH, isChecked);
         });
         
-        // 热点开关
+        // 热点切换在后台等待状态广播，完成后才会执行下一次切换
         swHotspot.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            Log.d("NetworkFragment", "Attempting to set hotspot enabled: " + isChecked);
-            boolean result = mNetworkManager.setHotspotEnabled(isChecked);
-            if (result) {
-                Toast.makeText(getActivity(), "热点已" + (isChecked ? "开启" : "关闭"), Toast.LENGTH_SHORT).show();
-                Log.d("NetworkFragment", "Hotspot " + (isChecked ? "enabled" : "disabled") + " successfully");
-                // 热点开启成功后，弹出热点设置对话框
-                if (isChecked) {
-                    showHotspotSettingsDialog();
-                }
-            } else {
-                Toast.makeText(getActivity(), "热点切换失败", Toast.LENGTH_SHORT).show();
-                Log.e("NetworkFragment", "Failed to " + (isChecked ? "enable" : "disable") + " hotspot");
-                swHotspot.setChecked(!isChecked); // 恢复原状
+            if (mUpdatingSwitches) {
+                return;
             }
+            Log.d("NetworkFragment", "Attempting to set hotspot enabled: " + isChecked);
+            mRadioExecutor.submit(RadioCommandExecutor.HOTSPOT, isChecked);
         });
         
-        // 以太网开关
         swEthernet.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            boolean result = mNetworkManager.setEthernetEnabled(isChecked);
-            if (result) {
-                Toast.makeText(getActivity(), "以太网已" + (isChecked ? "开启" : "关闭"), Toast.LENGTH_SHORT).show();
-            } else {
-                Toast.makeText(getActivity(), "以太网切换失败", Toast.LENGTH_SHORT).show();
-                swEthernet.setChecked(!isChecked); // 恢复原状
+            if (mUpdatingSwitches) {
+                return;
             }
+            mRadioExecutor.submit(RadioCommandExecutor.ETHERNET, isChecked);
         });
         
         // 热点设置按钮
@@ -145,23 +187,655 @@ public class NetworkFragment extends Fragment {
         btnWlanSettings.setOnClickListener(v -> {
             Toast.makeText(getActivity(), "WLAN设置功能开发中", Toast.LENGTH_SHORT).show();
         });
+        
+        // 反射调用耗时测试
+        btnReflectBenchmark.setOnClickListener(v -> runReflectBenchmark());
+        
+        // 网络方案
+        btnNetworkProfiles.setOnClickListener(v -> showNetworkProfilesDialog());
+        
+        // 吞吐量测试
+        btnThroughputTest.setOnClickListener(v -> showThroughputTestDialog());
+        
+        // 热点设备
+        btnHotspotClients.setOnClickListener(v -> showHotspotClientsDialog());
+        
+        // 蓝牙扫描，缺少权限时先申请
+        btnBleScan.setOnClickListener(v -> {
+            if (BleScanner.hasPermissions(requireContext())) {
+                showBleScanDialog();
+            } else {
+                mBlePermissionLauncher.launch(BleScanner.getRequiredPermissions());
+            }
+        });
+        btnLanScan.setOnClickListener(v -> showLanScanDialog());
+        
+        // 接口流量
+        swTraffic.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            if (isChecked) {
+                mTrafficSampler.start();
+            } else {
+                mTrafficSampler.stop();
+            }
+        });
+        
+        // 连通性探测
+        swProbe.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            if (isChecked) {
+                tvProbeStats.setText("探测中...");
+                mProber.start();
+            } else {
+                mProber.stop();
+            }
+        });
+    }
+    
+    /**
+     * 每次采样后刷新各接口的速率和折线图
+     */
+    private void onTrafficUpdated(TrafficSampler sampler) {
+        if (!isAdded()) {
+            return;
+        }
+        for (String iface : sampler.getInterfaceNames()) {
+            TrafficSampler.TrafficRing ring = sampler.getRing(iface);
+            SparklineView chart = mTrafficCharts.get(iface);
+            if (chart == null) {
+                TextView label = new TextView(getActivity());
+                label.setTextSize(12);
+                label.setTextColor(0xFF666666);
+                chart = new SparklineView(getActivity());
+                chart.setRing(ring);
+                float density = getResources().getDisplayMetrics().density;
+                llTrafficRows.addView(label);
+                llTrafficRows.addView(chart, new LinearLayout.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, (int) (40 * density)));
+                mTrafficLabels.put(iface, label);
+                mTrafficCharts.put(iface, chart);
+            }
+            mTrafficLabels.get(iface).setText(iface + "  ↓ " + Formatter.formatFileSize(getActivity(), ring.getLatestRx())
+                    + "/s  ↑ " + Formatter.formatFileSize(getActivity(), ring.getLatestTx()) + "/s");
+            chart.invalidate();
+        }
+    }
+    
+    /**
+     * 按接口名查找对应的网络，用于把测试流量绑定到该网络
+     * @return 网络，接口名为空或没有对应网络时返回null
+     */
+    private Network findNetwork(String interfaceName) {
+        if (interfaceName.isEmpty()) {
+            return null;
+        }
+        for (NetworkStateStore.LinkInfo link : NetworkStateStore.getInstance(requireContext()).getLinks()) {
+            if (interfaceName.equals(link.interfaceName)) {
+                return link.network;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 显示每轮探测后的各接口延迟统计
+     */
+    private void onProbeResults(List<ConnectivityProber.InterfaceStats> stats) {
+        if (!isAdded()) {
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (ConnectivityProber.InterfaceStats item : stats) {
+            text.append(item).append("\n");
+        }
+        tvProbeStats.setText(text.toString().trim());
     }
     
     /**
-     * 更新开关状态
+     * 开关操作的最终结果，失败时按系统实际状态恢复开关
+     */
+    private void onRadioResult(String radio, boolean enabled, boolean success) {
+        if (!isAdded()) {
+            return;
+        }
+        String name;
+        switch (radio) {
+            case RadioCommandExecutor.WIFI:
+                name = "WiFi";
+                break;
+            case RadioCommandExecutor.BLUETOOTH:
+                name = "蓝牙";
+                break;
+            case RadioCommandExecutor.ETHERNET:
+                name = "以太网";
+                break;
+            default:
+                name = "热点";
+                break;
+        }
+        if (success) {
+            Toast.makeText(getActivity(), name + "已" + (enabled ? "开启" : "关闭"), Toast.LENGTH_SHORT).show();
+            // 热点开启成功后，弹出热点设置对话框
+            if (RadioCommandExecutor.HOTSPOT.equals(radio) && enabled) {
+                showHotspotSettingsDialog();
+            }
+        } else {
+            Toast.makeText(getActivity(), name + "切换失败", Toast.LENGTH_SHORT).show();
+            Log.e("NetworkFragment", "Failed to " + (enabled ? "enable" : "disable") + " " + radio);
+            updateSwitchStates();
+        }
+    }
+    
+    /**
+     * 在后台线程执行反射调用耗时测试，完成后显示结果
+     */
+    private void runReflectBenchmark() {
+        final int iterations = 10000;
+        btnReflectBenchmark.setEnabled(false);
+        new Thread(() -> {
+            final long[] result = mNetworkManager.benchmarkReflection(iterations);
+            if (getActivity() == null) {
+                return;
+            }
+            getActivity().runOnUiThread(() -> {
+                btnReflectBenchmark.setEnabled(true);
+                if (result == null) {
+                    Toast.makeText(getActivity(), "测试失败", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                new AlertDialog.Builder(getActivity())
+                        .setTitle("反射调用耗时")
+                        .setMessage("isWifiApEnabled × " + iterations + "\n\n"
+                                + "每次查找方法：" + result[0] + " ns/次\n"
+                                + "缓存方法：" + result[1] + " ns/次\n"
+                                + "预先解析：" + result[2] + " ns/次")
+                        .setPositiveButton("确定", null)
+                        .show();
+            });
+        }).start();
+    }
+    
+    /**
+     * 显示吞吐量测试对话框：可作为服务端等待对端测试，或作为客户端向对端发起测试
+     */
+    private void showThroughputTestDialog() {
+        View view = LayoutInflater.from(getActivity()).inflate(R.layout.dialog_throughput_test, null);
+        Switch swServer = view.findViewById(R.id.sw_server);
+        TextView tvServerInfo = view.findViewById(R.id.tv_server_info);
+        EditText etPeerHost = view.findViewById(R.id.et_peer_host);
+        EditText etInterface = view.findViewById(R.id.et_interface);
+        RadioButton rbUdp = view.findViewById(R.id.rb_udp);
+        EditText etStreams = view.findViewById(R.id.et_streams);
+        EditText etDuration = view.findViewById(R.id.et_duration);
+        EditText etUdpBitrate = view.findViewById(R.id.et_udp_bitrate);
+        Button btnStart = view.findViewById(R.id.btn_start_test);
+        TextView tvResult = view.findViewById(R.id.tv_test_result);
+        
+        // 显示本机各接口地址，供对端填写
+        StringBuilder addresses = new StringBuilder();
+        for (NetworkStateStore.LinkInfo link : NetworkStateStore.getInstance(requireContext()).getLinks()) {
+            if (link.ipAddress != null) {
+                addresses.append(link.interfaceName).append(": ").append(link.ipAddress).append("  ");
+            }
+        }
+        tvServerInfo.setText("端口 " + ThroughputTester.DEFAULT_PORT + "  " + addresses.toString().trim());
+        swServer.setChecked(mThroughputTester.isServerRunning());
+        swServer.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            if (!isChecked) {
+                mThroughputTester.stopServer();
+                return;
+            }
+            try {
+                mThroughputTester.startServer(ThroughputTester.DEFAULT_PORT);
+            } catch (Exception e) {
+                Log.e("NetworkFragment", "Failed to start throughput server: " + e.getMessage());
+                Toast.makeText(getActivity(), "服务端启动失败：" + e.getMessage(), Toast.LENGTH_SHORT).show();
+                swServer.setChecked(false);
+            }
+        });
+        
+        btnStart.setOnClickListener(v -> {
+            ThroughputTester.ClientConfig config = new ThroughputTester.ClientConfig();
+            config.host = etPeerHost.getText().toString().trim();
+            config.interfaceName = etInterface.getText().toString().trim();
+            config.network = findNetwork(config.interfaceName);
+            config.udp = rbUdp.isChecked();
+            try {
+                config.streams = Math.max(1, Integer.parseInt(etStreams.getText().toString().trim()));
+                config.durationMs = Math.max(1, Integer.parseInt(etDuration.getText().toString().trim())) * 1000L;
+                config.udpBitrate = Math.max(1, Long.parseLong(etUdpBitrate.getText().toString().trim())) * 1000000L;
+            } catch (NumberFormatException e) {
+                Toast.makeText(getActivity(), "请输入有效的数字", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            if (config.host.isEmpty()) {
+                Toast.makeText(getActivity(), "请输入对端IP地址", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            
+            btnStart.setEnabled(false);
+            tvResult.setText("测试中，约需 " + config.durationMs / 1000 + " 秒...");
+            mThroughputTester.runClient(config).whenCompleteAsync((result, error) -> {
+                if (!isAdded()) {
+                    return;
+                }
+                btnStart.setEnabled(true);
+                if (error != null) {
+                    Throwable cause = error.getCause() != null ? error.getCause() : error;
+                    tvResult.setText("测试失败：" + cause.getMessage());
+                } else {
+                    tvResult.setText(result.toString());
+                }
+            }, ContextCompat.getMainExecutor(requireContext()));
+        });
+        
+        new AlertDialog.Builder(getActivity())
+                .setTitle("吞吐量测试")
+                .setView(view)
+                .setNegativeButton("关闭", null)
+                .show();
+    }
+    
+    /**
+     * 显示热点上已连接的设备，对话框显示期间每秒刷新，只增删变化的设备
+     */
+    private void showHotspotClientsDialog() {
+        final ArrayAdapter<HotspotClientMonitor.Client> adapter = new ArrayAdapter<HotspotClientMonitor.Client>(
+                requireContext(), android.R.layout.simple_list_item_1) {
+            @Override
+            public View getView(int position, View convertView, ViewGroup parent) {
+                TextView view = (TextView) super.getView(position, convertView, parent);
+                HotspotClientMonitor.Client client = getItem(position);
+                String text = (client.hostname != null ? client.hostname : "未知设备") + "  " + client.ip
+                        + "\n" + client.mac;
+                if (client.hasTraffic) {
+                    text += "  ↓ " + Formatter.formatFileSize(getContext(), client.rxBytes)
+                            + "  ↑ " + Formatter.formatFileSize(getContext(), client.txBytes);
+                }
+                view.setText(text);
+                return view;
+            }
+        };
+        final AlertDialog dialog = new AlertDialog.Builder(getActivity())
+                .setTitle("热点设备（0）")
+                .setAdapter(adapter, null)
+                .setNegativeButton("关闭", null)
+                .create();
+        final HotspotClientMonitor monitor = new HotspotClientMonitor(requireContext(),
+                HotspotClientMonitor.DEFAULT_INTERVAL_MS, (joined, left) -> {
+                    adapter.setNotifyOnChange(false);
+                    for (HotspotClientMonitor.Client client : left) {
+                        adapter.remove(client);
+                    }
+                    adapter.addAll(joined);
+                    adapter.notifyDataSetChanged();
+                    dialog.setTitle("热点设备（" + adapter.getCount() + "）");
+                });
+        dialog.setOnDismissListener(d -> monitor.stop());
+        dialog.show();
+        monitor.start();
+    }
+    
+    /**
+     * 显示附近的蓝牙设备：每30秒扫描10秒，列表每秒最多刷新一次，按平均信号强度排序
+     */
+    private void showBleScanDialog() {
+        final ArrayAdapter<BleScanner.Device> adapter = new ArrayAdapter<BleScanner.Device>(
+                requireContext(), android.R.layout.simple_list_item_1) {
+            @Override
+            public View getView(int position, View convertView, ViewGroup parent) {
+                TextView view = (TextView) super.getView(position, convertView, parent);
+                BleScanner.Device device = getItem(position);
+                view.setText((device.name != null ? device.name : "未知设备") + "  " + device.getSmoothedRssi()
+                        + " dBm\n" + device.address + "  最近 " + device.rssi + " dBm");
+                return view;
+            }
+        };
+        final AlertDialog dialog = new AlertDialog.Builder(getActivity())
+                .setTitle("蓝牙设备（扫描中）")
+                .setAdapter(adapter, null)
+                .setNegativeButton("关闭", null)
+                .create();
+        final BleScanner scanner = new BleScanner(requireContext(), BleScanner.DEFAULT_SCAN_WINDOW_MS,
+                BleScanner.DEFAULT_SCAN_PERIOD_MS, BleScanner.DEFAULT_PUBLISH_INTERVAL_MS, (devices, scanning) -> {
+                    adapter.setNotifyOnChange(false);
+                    adapter.clear();
+                    adapter.addAll(devices);
+                    adapter.notifyDataSetChanged();
+                    dialog.setTitle("蓝牙设备（" + devices.size() + "，" + (scanning ? "扫描中" : "休眠中") + "）");
+                });
+        if (!scanner.start()) {
+            Toast.makeText(getActivity(), "请先开启蓝牙", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        dialog.setOnDismissListener(d -> scanner.stop());
+        dialog.show();
+    }
+    
+    /**
+     * 显示局域网扫描对话框：默认扫描本机第一个子网的常用设备端口，结果边扫描边显示，关闭对话框时取消扫描
+     */
+    private void showLanScanDialog() {
+        View view = LayoutInflater.from(getActivity()).inflate(R.layout.dialog_lan_scan, null);
+        TextView tvLocalSubnets = view.findViewById(R.id.tv_local_subnets);
+        EditText etTarget = view.findViewById(R.id.et_scan_target);
+        EditText etPorts = view.findViewById(R.id.et_scan_ports);
+        EditText etRate = view.findViewById(R.id.et_scan_rate);
+        EditText etConcurrency = view.findViewById(R.id.et_scan_concurrency);
+        Button btnStart = view.findViewById(R.id.btn_start_scan);
+        TextView tvProgress = view.findViewById(R.id.tv_scan_progress);
+        TextView tvResults = view.findViewById(R.id.tv_scan_results);
+        
+        Map<String, String> subnets = new SystemInfoHelper(requireContext()).getLocalSubnets();
+        StringBuilder subnetText = new StringBuilder("本机子网：");
+        for (Map.Entry<String, String> entry : subnets.entrySet()) {
+            subnetText.append(entry.getKey()).append(" ").append(entry.getValue()).append("  ");
+        }
+        tvLocalSubnets.setText(subnets.isEmpty() ? "未获取到本机子网" : subnetText.toString().trim());
+        if (!subnets.isEmpty()) {
+            etTarget.setText(subnets.values().iterator().next());
+        }
+        StringBuilder ports = new StringBuilder();
+        for (int port : LanScanner.DEFAULT_PORTS) {
+            ports.append(ports.length() > 0 ? "," : "").append(port);
+        }
+        etPorts.setText(ports);
+        etRate.setText(String.valueOf(LanScanner.DEFAULT_RATE_PER_SECOND));
+        etConcurrency.setText(String.valueOf(LanScanner.DEFAULT_MAX_IN_FLIGHT));
+        
+        // 在线主机按发现顺序显示：主机 -> 首次响应耗时，主机 -> 开放端口
+        final Map<String, Long> hostRtts = new LinkedHashMap<>();
+        final Map<String, List<Integer>> openPorts = new HashMap<>();
+        final Runnable renderResults = () -> {
+            StringBuilder text = new StringBuilder();
+            for (Map.Entry<String, Long> entry : hostRtts.entrySet()) {
+                text.append(entry.getKey()).append(String.format(Locale.US, "  %.1f ms", entry.getValue() / 1000.0));
+                List<Integer> hostPorts = openPorts.get(entry.getKey());
+                if (hostPorts != null) {
+                    text.append("  端口 ").append(TextUtils.join(", ", hostPorts));
+                }
+                text.append("\n");
+            }
+            tvResults.setText(text.toString().trim());
+        };
+        final boolean[] scanning = {false};
+        final LanScanner scanner = new LanScanner(new LanScanner.Listener() {
+            @Override
+            public void onHostFound(String host, long rttUs) {
+                hostRtts.put(host, rttUs);
+            }
+            
+            @Override
+            public void onPortOpen(String host, int port, long rttUs) {
+                List<Integer> hostPorts = openPorts.get(host);
+                if (hostPorts == null) {
+                    hostPorts = new ArrayList<>();
+                    openPorts.put(host, hostPorts);
+                }
+                hostPorts.add(port);
+            }
+            
+            @Override
+            public void onProgress(int done, int total) {
+                // 结果列表随进度一起刷新，避免每个结果都重建文本
+                tvProgress.setText("已探测 " + done + "/" + total + "，在线主机 " + hostRtts.size() + " 台");
+                renderResults.run();
+            }
+            
+            @Override
+            public void onFinished(LanScanner.Summary summary) {
+                scanning[0] = false;
+                btnStart.setText("开始扫描");
+                tvProgress.setText("完成：在线主机 " + summary.aliveHosts
+                        + " 台，开放端口 " + summary.openPorts + " 个，用时 "
+                        + String.format(Locale.US, "%.1f", summary.elapsedMs / 1000.0) + " 秒");
+                renderResults.run();
+            }
+        });
+        
+        btnStart.setOnClickListener(v -> {
+            if (scanning[0]) {
+                scanner.cancel();
+                scanning[0] = false;
+                btnStart.setText("开始扫描");
+                tvProgress.setText("已取消，在线主机 " + hostRtts.size() + " 台");
+                renderResults.run();
+                return;
+            }
+            String target = etTarget.getText().toString().trim();
+            if (target.isEmpty()) {
+                Toast.makeText(getActivity(), "请输入扫描目标", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            LanScanner.Config config = new LanScanner.Config();
+            try {
+                config.hosts = LanScanner.expandTarget(target);
+                config.ports = LanScanner.parsePorts(etPorts.getText().toString());
+                config.ratePerSecond = Math.max(1, Integer.parseInt(etRate.getText().toString().trim()));
+                config.maxInFlight = Math.max(1, Integer.parseInt(etConcurrency.getText().toString().trim()));
+            } catch (Exception e) {
+                Toast.makeText(getActivity(), "参数无效：" + e.getMessage(), Toast.LENGTH_SHORT).show();
+                return;
+            }
+            if (config.ports.length == 0) {
+                Toast.makeText(getActivity(), "请输入端口", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            hostRtts.clear();
+            openPorts.clear();
+            tvResults.setText("");
+            tvProgress.setText("扫描中...");
+            btnStart.setText("停止扫描");
+            scanning[0] = true;
+            scanner.start(config);
+        });
+        
+        AlertDialog dialog = new AlertDialog.Builder(getActivity())
+                .setTitle("局域网扫描")
+                .setView(view)
+                .setNegativeButton("关闭", null)
+                .create();
+        dialog.setOnDismissListener(d -> scanner.cancel());
+        dialog.show();
+    }
+    
+    /**
+     * 显示网络方案列表，点击方案可查看、应用或删除
+     */
+    private void showNetworkProfilesDialog() {
+        final List<String> names = mProfileHelper.getProfileNames();
+        AlertDialog.Builder builder = new AlertDialog.Builder(getActivity())
+                .setTitle("网络方案")
+                .setPositiveButton("新建方案", (d, which) -> showNetworkProfileEditDialog())
+                .setNegativeButton("关闭", null);
+        if (names.isEmpty()) {
+            builder.setMessage("暂无方案");
+        } else {
+            builder.setItems(names.toArray(new String[0]), (d, which) -> showNetworkProfileActions(names.get(which)));
+        }
+        builder.show();
+    }
+    
+    /**
+     * 显示单个方案的内容及操作
+     */
+    private void showNetworkProfileActions(final String name) {
+        final NetworkProfileHelper.NetworkProfile profile = mProfileHelper.getProfile(name);
+        if (profile == null) {
+            Toast.makeText(getActivity(), "方案读取失败", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        new AlertDialog.Builder(getActivity())
+                .setTitle(name)
+                .setMessage(profile.describe())
+                .setPositiveButton("应用", (d, which) -> applyNetworkProfile(profile))
+                .setNeutralButton("删除", (d, which) -> {
+                    mProfileHelper.deleteProfile(name);
+                    Toast.makeText(getActivity(), "方案已删除", Toast.LENGTH_SHORT).show();
+                })
+                .setNegativeButton("取消", null)
+                .show();
+    }
+    
+    /**
+     * 应用方案，期限内未确认连通时自动回滚
+     */
+    private void applyNetworkProfile(NetworkProfileHelper.NetworkProfile profile) {
+        btnNetworkProfiles.setEnabled(false);
+        Toast.makeText(getActivity(), "正在应用方案：" + profile.name, Toast.LENGTH_SHORT).show();
+        mProfileHelper.applyProfile(profile, NetworkProfileHelper.DEFAULT_CONFIRM_TIMEOUT_MS)
+                .thenAcceptAsync(result -> {
+                    if (!isAdded()) {
+                        return;
+                    }
+                    btnNetworkProfiles.setEnabled(true);
+                    String message;
+                    if (result.status == NetworkProfileHelper.ApplyResult.APPLIED) {
+                        message = "方案已应用";
+                    } else if (result.status == NetworkProfileHelper.ApplyResult.ROLLED_BACK) {
+                        message = "未能确认网络连通，已恢复原配置";
+                    } else {
+                        message = "未能确认网络连通，恢复原配置失败，请手动检查网络设置";
+                    }
+                    new AlertDialog.Builder(getActivity())
+                            .setTitle(profile.name)
+                            .setMessage(message + "\n耗时：" + result.elapsedMs + " ms")
+                            .setPositiveButton("确定", null)
+                            .show();
+                }, ContextCompat.getMainExecutor(requireContext()));
+    }
+    
+    /**
+     * 显示新建方案对话框
+     */
+    private void showNetworkProfileEditDialog() {
+        AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+        builder.setTitle("新建方案");
+        
+        View view = LayoutInflater.from(getActivity()).inflate(R.layout.dialog_network_profile, null);
+        builder.setView(view);
+        
+        EditText etName = view.findViewById(R.id.et_profile_name);
+        RadioGroup rgEthernetMode = view.findViewById(R.id.rg_ethernet_mode);
+        LinearLayout llStaticSettings = view.findViewById(R.id.ll_static_settings);
+        EditText etIpAddress = view.findViewById(R.id.et_ip_address);
+        EditText etGateway = view.findViewById(R.id.et_gateway);
+        EditText etNetmask = view.findViewById(R.id.et_netmask);
+        EditText etDns1 = view.findViewById(R.id.et_dns1);
+        EditText etDns2 = view.findViewById(R.id.et_dns2);
+        EditText etHotspotSsid = view.findViewById(R.id.et_hotspot_ssid);
+        EditText etHotspotPassword = view.findViewById(R.id.et_hotspot_password);
+        RadioGroup rgHotspotState = view.findViewById(R.id.rg_hotspot_state);
+        Button btnCancel = view.findViewById(R.id.btn_cancel);
+        Button btnSave = view.findViewById(R.id.btn_save);
+        
+        rgEthernetMode.setOnCheckedChangeListener((group, checkedId) -> llStaticSettings.setVisibility(
+                checkedId == R.id.rb_ethernet_static ? View.VISIBLE : View.GONE));
+        
+        AlertDialog dialog = builder.create();
+        btnCancel.setOnClickListener(v -> dialog.dismiss());
+        btnSave.setOnClickListener(v -> {
+            String name = etName.getText().toString().trim();
+            if (name.isEmpty()) {
+                Toast.makeText(getActivity(), "请输入方案名称", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            NetworkProfileHelper.NetworkProfile profile = new NetworkProfileHelper.NetworkProfile(name);
+            
+            int ethernetMode = rgEthernetMode.getCheckedRadioButtonId();
+            if (ethernetMode == R.id.rb_ethernet_dhcp) {
+                profile.ethernet = EthernetConfigEngine.EthernetConfig.dhcp();
+            } else if (ethernetMode == R.id.rb_ethernet_static) {
+                String ipAddress = etIpAddress.getText().toString().trim();
+                String gateway = etGateway.getText().toString().trim();
+                String netmask = etNetmask.getText().toString().trim();
+                if (ipAddress.isEmpty() || gateway.isEmpty() || netmask.isEmpty()) {
+                    Toast.makeText(getActivity(), "请填写完整的IP设置信息", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                profile.ethernet = EthernetConfigEngine.EthernetConfig.staticIp(ipAddress, gateway, netmask,
+                        etDns1.getText().toString().trim(), etDns2.getText().toString().trim());
+            }
+            
+            String ssid = etHotspotSsid.getText().toString().trim();
+            if (!ssid.isEmpty()) {
+                String password = etHotspotPassword.getText().toString().trim();
+                if (password.length() < 8) {
+                    Toast.makeText(getActivity(), "密码长度不能少于8位", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                profile.hotspotSsid = ssid;
+                profile.hotspotPassword = password;
+            }
+            
+            int hotspotState = rgHotspotState.getCheckedRadioButtonId();
+            if (hotspotState == R.id.rb_hotspot_on) {
+                profile.hotspotEnabled = true;
+            } else if (hotspotState == R.id.rb_hotspot_off) {
+                profile.hotspotEnabled = false;
+            }
+            
+            try {
+                mProfileHelper.saveProfile(profile);
+                Toast.makeText(getActivity(), "方案已保存", Toast.LENGTH_SHORT).show();
+                dialog.dismiss();
+            } catch (Exception e) {
+                Log.e("NetworkFragment", "Failed to save profile: " + e.getMessage());
+                Toast.makeText(getActivity(), "方案保存失败", Toast.LENGTH_SHORT).show();
+            }
+        });
+        
+        dialog.show();
+    }
+    
+    /**
+     * 更新开关状态，状态来自网络状态缓存，不触发开关监听
      */
     private void updateSwitchStates() {
-        swWifi.setChecked(mNetworkManager.isWifiEnabled());
-        swBluetooth.setChecked(mNetworkManager.isBluetoothEnabled());
-        swHotspot.setChecked(mNetworkManager.isHotspotEnabled());
-        // 以太网状态需要额外实现获取方法
+        mUpdatingSwitches = true;
+        // 正在切换的模块保持用户选择的状态，切换完成后再同步
+        if (!mRadioExecutor.isBusy(RadioCommandExecutor.WIFI)) {
+            swWifi.setChecked(mNetworkManager.isWifiEnabled());
+        }
+        if (!mRadioExecutor.isBusy(RadioCommandExecutor.BLUETOOTH)) {
+            swBluetooth.setChecked(mNetworkManager.isBluetoothEnabled());
+        }
+        if (!mRadioExecutor.isBusy(RadioCommandExecutor.HOTSPOT)) {
+            swHotspot.setChecked(mNetworkManager.isHotspotEnabled());
+        }
+        // 以太网没有开关状态广播，每次刷新时按连接和接口状态判断
+        if (!mRadioExecutor.isBusy(RadioCommandExecutor.ETHERNET)) {
+            swEthernet.setChecked(mNetworkManager.isEthernetEnabled());
+        }
+        mUpdatingSwitches = false;
     }
     
     @Override
     public void onResume() {
         super.onResume();
-        // 进入页面时刷新开关状态
+        // 进入页面时刷新开关状态，之后随网络状态变化更新
         updateSwitchStates();
+        NetworkStateStore.getInstance(requireContext()).addListener(mStateListener);
+        mRadioExecutor.addCallback(mRadioCallback);
+        if (swProbe.isChecked()) {
+            mProber.start();
+        }
+        if (swTraffic.isChecked()) {
+            mTrafficSampler.start();
+        }
+    }
+    
+    @Override
+    public void onPause() {
+        super.onPause();
+        NetworkStateStore.getInstance(requireContext()).removeListener(mStateListener);
+        mRadioExecutor.removeCallback(mRadioCallback);
+        mProber.stop();
+        mTrafficSampler.stop();
+    }
+    
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        mThroughputTester.stopServer();
     }
     
     /**
@@ -217,7 +891,8 @@ public class NetworkFragment extends Fragment {
         
         // 设置保存按钮点击事件
         btnSave.setOnClickListener(v -> {
-            boolean result;
+            final EthernetConfigEngine.EthernetConfig config;
+            final String label;
             
             if (rbStatic.isChecked()) {
                 // 保存静态IP设置
@@ -233,23 +908,35 @@ public class NetworkFragment extends Fragment {
                     return;
                 }
                 
-                result = mNetworkManager.setEthernetStaticIp(ipAddress, gateway, netmask, dns1, dns2);
-                if (result) {
-                    Toast.makeText(getActivity(), "静态IP设置保存成功", Toast.LENGTH_SHORT).show();
-                } else {
-                    Toast.makeText(getActivity(), "静态IP设置保存失败", Toast.LENGTH_SHORT).show();
-                }
+                config = EthernetConfigEngine.EthernetConfig.staticIp(ipAddress, gateway, netmask, dns1, dns2);
+                label = "静态IP设置";
             } else {
                 // 保存DHCP设置
-                result = mNetworkManager.setEthernetDhcp();
-                if (result) {
-                    Toast.makeText(getActivity(), "DHCP设置保存成功", Toast.LENGTH_SHORT).show();
-                } else {
-                    Toast.makeText(getActivity(), "DHCP设置保存失败", Toast.LENGTH_SHORT).show();
-                }
+                config = EthernetConfigEngine.EthernetConfig.dhcp();
+                label = "DHCP设置";
             }
             
-            dialog.dismiss();
+            // 各接口在后台并行配置，完成后显示每个接口的结果
+            btnSave.setEnabled(false);
+            mNetworkManager.configureEthernet(config).whenCompleteAsync((results, error) -> {
+                if (!isAdded()) {
+                    return;
+                }
+                dialog.dismiss();
+                if (error != null) {
+                    Toast.makeText(getActivity(), label + "保存失败", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                StringBuilder message = new StringBuilder();
+                for (EthernetConfigEngine.InterfaceResult result : results) {
+                    message.append(result).append("\n");
+                }
+                new AlertDialog.Builder(getActivity())
+                        .setTitle(label)
+                        .setMessage(message.toString().trim())
+                        .setPositiveButton("确定", null)
+                        .show();
+            }, ContextCompat.getMainExecutor(requireContext()));
         });
         
         dialog.show();
@@ -293,13 +980,19 @@ public class NetworkFragment extends Fragment {
                 return;
             }
             
-            boolean result = mNetworkManager.setHotspotConfig(ssid, password);
-            if (result) {
-                Toast.makeText(getActivity(), "热点设置保存成功", Toast.LENGTH_SHORT).show();
-                dialog.dismiss();
-            } else {
-                Toast.makeText(getActivity(), "热点设置保存失败", Toast.LENGTH_SHORT).show();
-            }
+            btnSave.setEnabled(false);
+            mNetworkManager.setHotspotConfig(ssid, password).thenAcceptAsync(result -> {
+                if (!isAdded()) {
+                    return;
+                }
+                btnSave.setEnabled(true);
+                if (result) {
+                    Toast.makeText(getActivity(), "热点设置保存成功", Toast.LENGTH_SHORT).show();
+                    dialog.dismiss();
+                } else {
+                    Toast.makeText(getActivity(), "热点设置保存失败", Toast.LENGTH_SHORT).show();
+                }
+            }, ContextCompat.getMainExecutor(requireContext()));
         });
         
         dialog.show();
@@ -3,27 +3,39 @@ package com.jabin.rootapp;
 import android.Manifest;
 import android.bluetooth.BluetoothAdapter;
 import android.content.Context;
+import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.net.ConnectivityManager;
 import android.net.LinkAddress;
 import android.net.LinkProperties;
+import android.net.NetworkInfo;
 import android.net.NetworkRequest;
 import android.net.wifi.SoftApConfiguration;
+import android.net.wifi.SupplicantState;
 import android.net.wifi.WifiConfiguration;
 import android.net.wifi.WifiManager;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.core.app.ActivityCompat;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
-import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * 网络管理助手类，提供以太网、WiFi、蓝牙、热点等网络功能的管理
@@ -31,12 +43,59 @@ import java.util.List;
 public class NetworkManagerHelper {
 
     private static final String TAG = "NetworkManagerHelper";
+    // 热点状态广播（隐藏接口）及其状态值
+    private static final String ACTION_WIFI_AP_STATE_CHANGED = "android.net.wifi.WIFI_AP_STATE_CHANGED";
+    private static final String EXTRA_WIFI_AP_STATE = "wifi_state";
+    private static final int WIFI_AP_STATE_DISABLED = 11;
+    private static final int WIFI_AP_STATE_ENABLED = 13;
+    private static final int WIFI_AP_STATE_FAILED = 14;
+    // 等待WiFi/热点状态切换的超时时间
+    private static final long RADIO_STATE_TIMEOUT_MS = 10000;
+    // 等待WiFi连接（关联并获取IP）的超时时间
+    private static final long WIFI_CONNECT_TIMEOUT_MS = 20000;
+    // WiFi安全类型，WEP、企业网络（802.1X）和增强型开放（OWE）只用于识别，不支持连接
+    public static final int SECURITY_OPEN = 0;
+    public static final int SECURITY_PSK = 1;
+    public static final int SECURITY_SAE = 2;
+    public static final int SECURITY_WEP = 3;
+    public static final int SECURITY_EAP = 4;
+    public static final int SECURITY_OWE = 5;
+
+    // 隐藏接口在类加载时解析一次，不存在的为null；SoftApConfiguration在Android 11以下不存在，按名称查找
+    private static final Class<?> ETHERNET_MANAGER_CLASS = ReflectCache.findClass("android.net.EthernetManager");
+    private static final Class<?> SOFT_AP_CONFIGURATION_CLASS = ReflectCache.findClass("android.net.wifi.SoftApConfiguration");
+    private static final Class<?> SOFT_AP_BUILDER_CLASS = ReflectCache.findClass("android.net.wifi.SoftApConfiguration$Builder");
+    private static final Method SET_ETHERNET_ENABLED = ReflectCache.resolveMethod(ETHERNET_MANAGER_CLASS,
+            "setEthernetEnabled", boolean.class);
+    private static final List<Method> START_SOFT_AP = ReflectCache.resolveMethods(WifiManager.class, "startSoftAp");
+    private static final List<Method> STOP_SOFT_AP = ReflectCache.resolveMethods(WifiManager.class, "stopSoftAp");
+    private static final Method GET_SOFT_AP_CONFIGURATION = ReflectCache.resolveMethod(WifiManager.class,
+            "getSoftApConfiguration");
+    private static final Method SET_SOFT_AP_CONFIGURATION = ReflectCache.resolveMethod(WifiManager.class,
+            "setSoftApConfiguration", SOFT_AP_CONFIGURATION_CLASS);
+    private static final Method GET_WIFI_AP_CONFIGURATION = ReflectCache.resolveMethod(WifiManager.class,
+            "getWifiApConfiguration");
+    private static final Method SET_WIFI_AP_CONFIGURATION = ReflectCache.resolveMethod(WifiManager.class,
+            "setWifiApConfiguration", WifiConfiguration.class);
+    private static final Method SET_WIFI_AP_ENABLED = ReflectCache.resolveMethod(WifiManager.class,
+            "setWifiApEnabled", WifiConfiguration.class, boolean.class);
+    private static final Constructor<?> SOFT_AP_BUILDER_CONSTRUCTOR = ReflectCache.resolveConstructor(SOFT_AP_BUILDER_CLASS);
+    private static final Method BUILDER_SET_SSID = ReflectCache.resolveMethod(SOFT_AP_BUILDER_CLASS, "setSsid", String.class);
+    private static final Method BUILDER_SET_PASSPHRASE = ReflectCache.resolveMethod(SOFT_AP_BUILDER_CLASS,
+            "setPassphrase", String.class, int.class);
+    private static final Method BUILDER_SET_HIDDEN_SSID = ReflectCache.resolveMethod(SOFT_AP_BUILDER_CLASS,
+            "setHiddenSsid", boolean.class);
+    private static final Method BUILDER_SET_BAND = ReflectCache.resolveMethod(SOFT_AP_BUILDER_CLASS, "setBand", int.class);
+    private static final Method BUILDER_BUILD = ReflectCache.resolveMethod(SOFT_AP_BUILDER_CLASS, "build");
+    private static final Object SECURITY_TYPE_WPA2_PSK = ReflectCache.resolveStaticValue(SOFT_AP_CONFIGURATION_CLASS,
+            "SECURITY_TYPE_WPA2_PSK");
+    private static final Object BAND_2GHZ = ReflectCache.resolveStaticValue(SOFT_AP_CONFIGURATION_CLASS, "BAND_2GHZ");
+
     private Context mContext;
     private ConnectivityManager mConnectivityManager;
     private WifiManager mWifiManager;
     private BluetoothAdapter mBluetoothAdapter;
     private Object mEthernetManager;
-    private Class<?> mEthernetManagerClass;
 
     public NetworkManagerHelper(Context context) {
         this.mContext = context;
@@ -44,9 +103,8 @@ public class NetworkManagerHelper {
         this.mWifiManager = (WifiManager) context.getSystemService(Context.WIFI_SERVICE);
         this.mBluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
         
-        // 使用反射方式获取EthernetManager实例
+        // EthernetManager是隐藏接口，按服务名获取实例
         try {
-            mEthernetManagerClass = Class.forName("android.net.EthernetManager");
             mEthernetManager = mContext.getSystemService("ethernet");
         } catch (Exception e) {
             e.printStackTrace();
@@ -61,9 +119,8 @@ public class NetworkManagerHelper {
      */
     public boolean setEthernetEnabled(boolean enabled) {
         try {
-            if (mEthernetManager != null && mEthernetManagerClass != null) {
-                Method setEnabledMethod = mEthernetManagerClass.getMethod("setEthernetEnabled", boolean.class);
-                setEnabledMethod.invoke(mEthernetManager, enabled);
+            if (mEthernetManager != null && SET_ETHERNET_ENABLED != null) {
+                SET_ETHERNET_ENABLED.invoke(mEthernetManager, enabled);
                 return true;
             }
             return false;
@@ -119,61 +176,287 @@ public class NetworkManagerHelper {
     }
 
     /**
-     * 连接到指定WiFi网络
+     * 连接WiFi，按安全类型根据密码是否为空判断（开放/WPA-PSK）
+     * @see #connectToWifi(String, String, int)
+     */
+    public CompletableFuture<WifiConnectResult> connectToWifi(String ssid, String password) {
+        return connectToWifi(ssid, password, password == null || password.isEmpty() ? SECURITY_OPEN : SECURITY_PSK);
+    }
+
+    /**
+     * 连接WiFi：优先复用已保存的同名同安全类型网络配置，没有时才新增；
+     * 等待关联完成和获取IP的广播，记录两段耗时
      * @param ssid WiFi名称
-     * @param password WiFi密码
-     * @return 是否执行成功
+     * @param password 密码，复用已保存网络时为空表示沿用原密码
+     * @param security 安全类型 SECURITY_*
+     * @return 完成时为连接结果，超时或失败时success为false
      */
-    public boolean connectToWifi(String ssid, String password) {
+    public CompletableFuture<WifiConnectResult> connectToWifi(final String ssid, String password, int security) {
+        if (!isConnectSupported(security)) {
+            // 按PSK配置这些网络永远无法关联，直接报告不支持，不让用户等到超时
+            return CompletableFuture.completedFuture(new WifiConnectResult(ssid, -1, false, "不支持该加密方式"));
+        }
+        final long start = SystemClock.elapsedRealtime();
+        final String quotedSsid = "\"" + ssid + "\"";
+        int netId;
+        boolean reused;
         try {
-            // 创建WiFi配置
-            WifiConfiguration wifiConfig = new WifiConfiguration();
-            wifiConfig.SSID = "\"" + ssid + "\"";
-            wifiConfig.preSharedKey = "\"" + password + "\"";
-
-            // 添加网络并连接
-            int netId = mWifiManager.addNetwork(wifiConfig);
-            if (netId != -1) {
-                return mWifiManager.enableNetwork(netId, true);
+            WifiConfiguration existing = findConfiguredNetwork(quotedSsid, security);
+            if (existing != null) {
+                netId = existing.networkId;
+                reused = true;
+                // 已保存网络的密码无法读取，输入了密码时更新，保证密码修改后仍能连接
+                if (security != SECURITY_OPEN && password != null && !password.isEmpty()) {
+                    WifiConfiguration update = buildWifiConfig(quotedSsid, password, security);
+                    update.networkId = netId;
+                    mWifiManager.updateNetwork(update);
+                }
+            } else {
+                netId = mWifiManager.addNetwork(buildWifiConfig(quotedSsid, password, security));
+                reused = false;
             }
-            return false;
         } catch (Exception e) {
-            e.printStackTrace();
-            Log.e(TAG, "Failed to connect to WiFi: " + e.getMessage());
-            return false;
+            Log.e(TAG, "Failed to prepare WiFi config: " + e.getMessage(), e);
+            return CompletableFuture.completedFuture(new WifiConnectResult(ssid, -1, false, e.getMessage()));
+        }
+        final WifiConnectResult result = new WifiConnectResult(ssid, netId, reused, null);
+        Log.d(TAG, "connectToWifi " + ssid + ", netId: " + netId + ", reused: " + reused);
+        if (netId == -1) {
+            result.message = "添加网络配置失败";
+            return CompletableFuture.completedFuture(result);
+        }
+        final int targetNetId = netId;
+        if (mWifiManager.getConnectionInfo().getNetworkId() == targetNetId
+                && NetworkStateStore.getInstance(mContext).getWifiIpAddress() != null) {
+            result.success = true;
+            result.associationMs = 0;
+            result.ipMs = 0;
+            return CompletableFuture.completedFuture(result);
+        }
+
+        // 先注册等待再发起连接，避免错过广播；关联完成的广播不带网络ID，
+        // 以当前连接信息确认是目标网络，避免把断开前其他网络的关联算进来
+        final CompletableFuture<Intent> associated = BroadcastWaiter.waitFor(mContext,
+                WifiManager.SUPPLICANT_STATE_CHANGED_ACTION,
+                intent -> SupplicantState.COMPLETED.equals(intent.getParcelableExtra(WifiManager.EXTRA_NEW_STATE))
+                        && mWifiManager.getConnectionInfo().getNetworkId() == targetNetId,
+                WIFI_CONNECT_TIMEOUT_MS);
+        final CompletableFuture<Intent> ipReady = BroadcastWaiter.waitFor(mContext,
+                WifiManager.NETWORK_STATE_CHANGED_ACTION,
+                intent -> {
+                    NetworkInfo info = intent.getParcelableExtra(WifiManager.EXTRA_NETWORK_INFO);
+                    return info != null && info.isConnected()
+                            && mWifiManager.getConnectionInfo().getNetworkId() == targetNetId;
+                }, WIFI_CONNECT_TIMEOUT_MS);
+        associated.thenAccept(intent -> result.associationMs = SystemClock.elapsedRealtime() - start);
+
+        if (!mWifiManager.enableNetwork(targetNetId, true)) {
+            associated.cancel(false);
+            ipReady.cancel(false);
+            result.message = "启用网络失败";
+            return CompletableFuture.completedFuture(result);
+        }
+        mWifiManager.reconnect();
+
+        return ipReady.handle((intent, e) -> {
+            associated.cancel(false);
+            if (e != null) {
+                result.message = result.associationMs < 0 ? "关联超时" : "获取IP超时";
+            } else {
+                result.success = true;
+                result.ipMs = SystemClock.elapsedRealtime() - start;
+                if (result.associationMs < 0) {
+                    // 关联广播晚于获取IP的广播到达，关联不晚于获取IP
+                    result.associationMs = result.ipMs;
+                }
+            }
+            Log.d(TAG, "connectToWifi finished: " + result);
+            return result;
+        });
+    }
+
+    /**
+     * 是否支持以该安全类型连接：只支持开放、WPA/WPA2-PSK和WPA3-SAE
+     */
+    public static boolean isConnectSupported(int security) {
+        return security == SECURITY_OPEN || security == SECURITY_PSK || security == SECURITY_SAE;
+    }
+
+    /**
+     * 查找已保存的同名同安全类型网络，存在多个时优先返回当前连接的网络；安全类型无法识别的配置不复用
+     */
+    private WifiConfiguration findConfiguredNetwork(String quotedSsid, int security) {
+        List<WifiConfiguration> configs = mWifiManager.getConfiguredNetworks();
+        if (configs == null) {
+            return null;
+        }
+        int currentNetId = mWifiManager.getConnectionInfo().getNetworkId();
+        WifiConfiguration found = null;
+        for (WifiConfiguration config : configs) {
+            if (security >= 0 && quotedSsid.equals(config.SSID) && securityOf(config) == security) {
+                if (config.networkId == currentNetId) {
+                    return config;
+                }
+                if (found == null || config.networkId > found.networkId) {
+                    found = config;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 清理已保存网络中同名同安全类型的重复项，保留当前连接的或最近添加的一项；
+     * 安全类型无法识别的配置（企业网络等，同名配置可能是不同账号）不清理
+     * @return 删除的网络数量
+     */
+    public int pruneDuplicateNetworks() {
+        List<WifiConfiguration> configs = mWifiManager.getConfiguredNetworks();
+        if (configs == null) {
+            return 0;
+        }
+        int currentNetId = mWifiManager.getConnectionInfo().getNetworkId();
+        Map<String, WifiConfiguration> kept = new HashMap<>();
+        List<Integer> duplicates = new ArrayList<>();
+        for (WifiConfiguration config : configs) {
+            int security = securityOf(config);
+            if (security < 0) {
+                continue;
+            }
+            String key = config.SSID + "|" + security;
+            WifiConfiguration previous = kept.get(key);
+            if (previous == null) {
+                kept.put(key, config);
+            } else if (config.networkId == currentNetId
+                    || (previous.networkId != currentNetId && config.networkId > previous.networkId)) {
+                duplicates.add(previous.networkId);
+                kept.put(key, config);
+            } else {
+                duplicates.add(config.networkId);
+            }
+        }
+        int removed = 0;
+        for (int netId : duplicates) {
+            if (mWifiManager.removeNetwork(netId)) {
+                removed++;
+            }
+        }
+        if (removed > 0 && Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            mWifiManager.saveConfiguration();
+        }
+        Log.d(TAG, "Pruned " + removed + " duplicate networks out of " + configs.size());
+        return removed;
+    }
+
+    private static WifiConfiguration buildWifiConfig(String quotedSsid, String password, int security) {
+        WifiConfiguration config = new WifiConfiguration();
+        config.SSID = quotedSsid;
+        if (security == SECURITY_OPEN) {
+            config.allowedKeyManagement.set(WifiConfiguration.KeyMgmt.NONE);
+        } else {
+            if (security == SECURITY_SAE && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                config.allowedKeyManagement.set(WifiConfiguration.KeyMgmt.SAE);
+            } else {
+                config.allowedKeyManagement.set(WifiConfiguration.KeyMgmt.WPA_PSK);
+            }
+            config.preSharedKey = "\"" + password + "\"";
+        }
+        return config;
+    }
+
+    /**
+     * 已保存网络的安全类型，企业网络、OWE等其它类型返回-1；
+     * WEP网络的密钥管理同样是NONE，按是否设置了WEP密钥与开放网络区分
+     */
+    private static int securityOf(WifiConfiguration config) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                && config.allowedKeyManagement.get(WifiConfiguration.KeyMgmt.SAE)) {
+            return SECURITY_SAE;
+        }
+        if (config.allowedKeyManagement.get(WifiConfiguration.KeyMgmt.WPA_PSK)) {
+            return SECURITY_PSK;
         }
+        if (config.allowedKeyManagement.get(WifiConfiguration.KeyMgmt.NONE)
+                || config.allowedKeyManagement.isEmpty()) {
+            return config.wepKeys != null && config.wepKeys[0] != null ? SECURITY_WEP : SECURITY_OPEN;
+        }
+        return -1;
     }
 
     /**
-     * 启用/禁用热点
+     * 启用/禁用热点，不阻塞调用线程：开启前先关闭WiFi并等待WiFi关闭广播，
+     * 再等待热点状态广播确认切换完成
      * @param enabled 是否启用
-     * @return 是否执行成功
+     * @return 完成时为是否执行成功，超时或出错时为false
      */
-    public boolean setHotspotEnabled(boolean enabled) {
-        try {
-            Log.d(TAG, "=== setHotspotEnabled called with enabled: " + enabled + " ===");
-            
-            // 先检查WiFi状态，开启热点前需要关闭WiFi
-            if (enabled && mWifiManager.isWifiEnabled()) {
-                Log.d(TAG, "Turning off WiFi before enabling hotspot");
-                boolean wifiDisabled = mWifiManager.setWifiEnabled(false);
-                Log.d(TAG, "Wifi disabled result: " + wifiDisabled);
-                // 等待WiFi关闭
-                Thread.sleep(1000);
+    public CompletableFuture<Boolean> setHotspotEnabled(final boolean enabled) {
+        Log.d(TAG, "=== setHotspotEnabled called with enabled: " + enabled + " ===");
+        final long start = SystemClock.elapsedRealtime();
+
+        CompletableFuture<Void> radioReady = CompletableFuture.completedFuture(null);
+        // 先检查WiFi状态，开启热点前需要关闭WiFi
+        if (enabled && mWifiManager.isWifiEnabled()) {
+            Log.d(TAG, "Turning off WiFi before enabling hotspot");
+            // 先注册等待再关闭WiFi，避免错过状态广播
+            CompletableFuture<Intent> wifiOff = BroadcastWaiter.waitFor(mContext, WifiManager.WIFI_STATE_CHANGED_ACTION,
+                    intent -> intent.getIntExtra(WifiManager.EXTRA_WIFI_STATE, -1) == WifiManager.WIFI_STATE_DISABLED,
+                    RADIO_STATE_TIMEOUT_MS);
+            boolean wifiDisabled = mWifiManager.setWifiEnabled(false);
+            Log.d(TAG, "Wifi disabled result: " + wifiDisabled);
+            if (!wifiDisabled) {
+                wifiOff.cancel(false);
+                return CompletableFuture.completedFuture(false);
             }
-            
+            radioReady = wifiOff.thenAccept(intent ->
+                    Log.d(TAG, "WiFi disabled after " + (SystemClock.elapsedRealtime() - start) + " ms"));
+        }
+
+        return radioReady
+                .thenCompose(v -> toggleSoftAp(enabled))
+                .handle((result, e) -> {
+                    if (e != null) {
+                        Log.e(TAG, "Failed to set hotspot enabled: " + e.getMessage(), e);
+                        return false;
+                    }
+                    Log.d(TAG, "Hotspot " + (enabled ? "enable" : "disable") + " finished with " + result
+                            + " in " + (SystemClock.elapsedRealtime() - start) + " ms");
+                    return result;
+                });
+    }
+
+    /**
+     * 调用系统接口切换热点，并等待热点状态广播
+     */
+    private CompletableFuture<Boolean> toggleSoftAp(final boolean enabled) {
+        if (isHotspotEnabled() == enabled) {
+            return CompletableFuture.completedFuture(true);
+        }
+        final int targetState = enabled ? WIFI_AP_STATE_ENABLED : WIFI_AP_STATE_DISABLED;
+        CompletableFuture<Intent> apState = BroadcastWaiter.waitFor(mContext, ACTION_WIFI_AP_STATE_CHANGED,
+                intent -> {
+                    int state = intent.getIntExtra(EXTRA_WIFI_AP_STATE, -1);
+                    return state == targetState || state == WIFI_AP_STATE_FAILED;
+                }, RADIO_STATE_TIMEOUT_MS);
+
+        boolean invoked;
+        try {
             // 根据Android版本使用不同的API
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
                 Log.d(TAG, "Using Android O+ API (SoftApConfiguration)");
-                return setHotspotEnabledOreo(enabled);
+                invoked = setHotspotEnabledOreo(enabled);
             } else {
                 Log.d(TAG, "Using legacy API");
-                return setHotspotEnabledLegacy(enabled);
+                invoked = setHotspotEnabledLegacy(enabled);
             }
         } catch (Exception e) {
-            Log.e(TAG, "Failed to set hotspot enabled: " + e.getMessage(), e);
-            return false;
+            apState.cancel(false);
+            throw new CompletionException(e);
+        }
+        if (!invoked) {
+            apState.cancel(false);
+            return CompletableFuture.completedFuture(false);
         }
+        return apState.thenApply(intent -> intent.getIntExtra(EXTRA_WIFI_AP_STATE, -1) == targetState);
     }
 
     /**
@@ -185,8 +468,8 @@ public class NetworkManagerHelper {
         if (enabled) {
             Log.d(TAG, "Starting soft AP...");
             
-            // 查找并调用正确的startSoftAp方法
-            Method[] methods = mWifiManager.getClass().getMethods();
+            // 查找并调用正确的startSoftAp方法（重载列表在类加载时解析）
+            List<Method> methods = START_SOFT_AP;
             Log.d(TAG, "Searching for startSoftAp method...");
             
             // 优先尝试使用SoftApConfiguration相关的方法，特别是在Android 12+上
@@ -210,8 +493,7 @@ public class NetworkManagerHelper {
                             if (parameterTypes.length == 1) {
                                 // 方法签名: startSoftAp(SoftApConfiguration)
                                 Log.d(TAG, "Calling startSoftAp with SoftApConfiguration");
-                                Method getSoftApConfigurationMethod = mWifiManager.getClass().getMethod("getSoftApConfiguration");
-                                SoftApConfiguration config = (SoftApConfiguration) getSoftApConfigurationMethod.invoke(mWifiManager);
+                                SoftApConfiguration config = (SoftApConfiguration) ReflectCache.require(GET_SOFT_AP_CONFIGURATION, "getSoftApConfiguration").invoke(mWifiManager);
                                 method.invoke(mWifiManager, config);
                                 Log.d(TAG, "startSoftAp called successfully");
                                 return true;
@@ -219,8 +501,7 @@ public class NetworkManagerHelper {
                                 if (parameterTypes[1].isInterface()) {
                                     // 方法签名: startSoftAp(SoftApConfiguration, SoftApCallback)
                                     Log.d(TAG, "Calling startSoftAp with SoftApConfiguration and callback");
-                                    Method getSoftApConfigurationMethod = mWifiManager.getClass().getMethod("getSoftApConfiguration");
-                                    SoftApConfiguration config = (SoftApConfiguration) getSoftApConfigurationMethod.invoke(mWifiManager);
+                                    SoftApConfiguration config = (SoftApConfiguration) ReflectCache.require(GET_SOFT_AP_CONFIGURATION, "getSoftApConfiguration").invoke(mWifiManager);
                                     // 创建SoftApCallback代理
                                     Object callback = Proxy.newProxyInstance(
                                             parameterTypes[1].getClassLoader(),
@@ -242,8 +523,7 @@ public class NetworkManagerHelper {
                                 } else if (parameterTypes[1] == int.class) {
                                     // 方法签名: startSoftAp(SoftApConfiguration, int)
                                     Log.d(TAG, "Calling startSoftAp with SoftApConfiguration and int");
-                                    Method getSoftApConfigurationMethod = mWifiManager.getClass().getMethod("getSoftApConfiguration");
-                                    SoftApConfiguration config = (SoftApConfiguration) getSoftApConfigurationMethod.invoke(mWifiManager);
+                                    SoftApConfiguration config = (SoftApConfiguration) ReflectCache.require(GET_SOFT_AP_CONFIGURATION, "getSoftApConfiguration").invoke(mWifiManager);
                                     method.invoke(mWifiManager, config, 0);
                                     Log.d(TAG, "startSoftAp called successfully");
                                     return true;
@@ -270,16 +550,14 @@ public class NetworkManagerHelper {
                                 // 方法签名: startSoftAp(WifiConfiguration)
                                 Log.d(TAG, "Calling startSoftAp with WifiConfiguration");
                                 // 获取WifiConfiguration
-                                Method getWifiApConfigurationMethod = mWifiManager.getClass().getMethod("getWifiApConfiguration");
-                                Object wifiConfig = getWifiApConfigurationMethod.invoke(mWifiManager);
+                                Object wifiConfig = ReflectCache.require(GET_WIFI_AP_CONFIGURATION, "getWifiApConfiguration").invoke(mWifiManager);
                                 method.invoke(mWifiManager, wifiConfig);
                                 Log.d(TAG, "startSoftAp called successfully");
                                 return true;
                             } else if (parameterTypes.length == 2 && parameterTypes[0].getName().equals("android.net.wifi.WifiConfiguration")) {
                                 // 方法签名: startSoftAp(WifiConfiguration, int) 或 startSoftAp(WifiConfiguration, callback)
                                 Log.d(TAG, "Calling startSoftAp with WifiConfiguration and second parameter");
-                                Method getWifiApConfigurationMethod = mWifiManager.getClass().getMethod("getWifiApConfiguration");
-                                Object wifiConfig = getWifiApConfigurationMethod.invoke(mWifiManager);
+                                Object wifiConfig = ReflectCache.require(GET_WIFI_AP_CONFIGURATION, "getWifiApConfiguration").invoke(mWifiManager);
                                 
                                 if (parameterTypes[1].isInterface()) {
                                     // 创建代理回调
@@ -318,7 +596,7 @@ public class NetworkManagerHelper {
             Log.d(TAG, "Stopping soft AP");
             
             // 查找并调用stopSoftAp方法
-            Method[] methods = mWifiManager.getClass().getMethods();
+            List<Method> methods = STOP_SOFT_AP;
             for (Method method : methods) {
                 if (method.getName().equals("stopSoftAp")) {
                     Log.d(TAG, "Found stopSoftAp method");
@@ -339,15 +617,13 @@ public class NetworkManagerHelper {
     private boolean setHotspotEnabledLegacy(boolean enabled) throws Exception {
         Log.d(TAG, "setHotspotEnabledLegacy called with enabled: " + enabled);
         
-        // 通过反射获取当前热点配置
-        Method getWifiApConfigurationMethod = mWifiManager.getClass().getMethod("getWifiApConfiguration");
-        Object wifiConfig = getWifiApConfigurationMethod.invoke(mWifiManager);
+        // 获取当前热点配置（隐藏接口）
+        Object wifiConfig = ReflectCache.require(GET_WIFI_AP_CONFIGURATION, "getWifiApConfiguration").invoke(mWifiManager);
         Log.d(TAG, "Got legacy wifi config: " + wifiConfig);
 
-        // 通过反射调用setWifiApEnabled方法
-        Method setWifiApEnabledMethod = mWifiManager.getClass().getMethod("setWifiApEnabled",
-                Class.forName("android.net.wifi.WifiConfiguration"), boolean.class);
-        boolean result = (boolean) setWifiApEnabledMethod.invoke(mWifiManager, wifiConfig, enabled);
+        // 调用隐藏接口setWifiApEnabled
+        boolean result = (boolean) ReflectCache.require(SET_WIFI_AP_ENABLED, "setWifiApEnabled")
+                .invoke(mWifiManager, wifiConfig, enabled);
         Log.d(TAG, "setWifiApEnabled returned: " + result);
         
         return result;
@@ -357,9 +633,9 @@ public class NetworkManagerHelper {
      * 设置热点信息
      * @param ssid 热点名称
      * @param password 热点密码
-     * @return 是否执行成功
+     * @return 完成时为是否执行成功（热点原本开启时，在重启完成后结束）
      */
-    public boolean setHotspotConfig(String ssid, String password) {
+    public CompletableFuture<Boolean> setHotspotConfig(String ssid, String password) {
         try {
             Log.d(TAG, "=== setHotspotConfig called with ssid: " + ssid + ", password: " + password + " ===");
             
@@ -375,25 +651,55 @@ public class NetworkManagerHelper {
                 result = setHotspotConfigLegacy(ssid, password);
             }
             
-            // 如果热点配置成功且热点原本是开启的，需要重启热点使新配置生效
-            if (result && wasEnabled) {
-                Log.d(TAG, "Hotspot config updated successfully, restarting hotspot to apply changes");
-                // 先关闭热点
-                setHotspotEnabled(false);
-                // 短暂延迟，确保热点完全关闭
-                Thread.sleep(1000);
-                // 重新打开热点
-                setHotspotEnabled(true);
-                Log.d(TAG, "Hotspot restarted to apply new config");
-            }
-            
-            return result;
+            return restartIfEnabled(result, wasEnabled);
         } catch (Exception e) {
             Log.e(TAG, "Failed to set hotspot config: " + e.getMessage(), e);
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
     }
 
+    /**
+     * 恢复之前读取的热点配置对象，加密方式、频段等设置保持原样
+     * @param config Android 11及以上为SoftApConfiguration，以下为WifiConfiguration
+     * @return 完成时为是否执行成功（热点原本开启时，在重启完成后结束）
+     */
+    public CompletableFuture<Boolean> restoreHotspotConfig(Object config) {
+        try {
+            boolean wasEnabled = isHotspotEnabled();
+            boolean result;
+            if (config instanceof WifiConfiguration) {
+                result = (boolean) ReflectCache.require(SET_WIFI_AP_CONFIGURATION, "setWifiApConfiguration")
+                        .invoke(mWifiManager, config);
+            } else {
+                result = (boolean) ReflectCache.require(SET_SOFT_AP_CONFIGURATION, "setSoftApConfiguration")
+                        .invoke(mWifiManager, config);
+            }
+            Log.d(TAG, "Restored hotspot config: " + result);
+            return restartIfEnabled(result, wasEnabled);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to restore hotspot config: " + e.getMessage(), e);
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    /**
+     * 如果热点配置成功且热点原本是开启的，需要重启热点使新配置生效
+     */
+    private CompletableFuture<Boolean> restartIfEnabled(boolean result, boolean wasEnabled) {
+        if (!result || !wasEnabled) {
+            return CompletableFuture.completedFuture(result);
+        }
+        Log.d(TAG, "Hotspot config updated successfully, restarting hotspot to apply changes");
+        // 等热点确认关闭后再重新打开
+        return setHotspotEnabled(false)
+                .thenCompose(stopped -> setHotspotEnabled(true)
+                        .thenApply(started -> {
+                            Log.d(TAG, "Hotspot restarted to apply new config, stopped: " + stopped
+                                    + ", started: " + started);
+                            return stopped && started;
+                        }));
+    }
+
     /**
      * Android 8.0及以上版本设置热点信息
      */
@@ -405,8 +711,8 @@ public class NetworkManagerHelper {
         Log.d(TAG, "Created SoftApConfiguration: " + config);
         
         // 调用setSoftApConfiguration方法
-        Method setSoftApConfigurationMethod = mWifiManager.getClass().getMethod("setSoftApConfiguration", SoftApConfiguration.class);
-        boolean result = (boolean) setSoftApConfigurationMethod.invoke(mWifiManager, config);
+        boolean result = (boolean) ReflectCache.require(SET_SOFT_AP_CONFIGURATION, "setSoftApConfiguration")
+                .invoke(mWifiManager, config);
         Log.d(TAG, "setSoftApConfiguration result: " + result);
         
         return result;
@@ -419,25 +725,18 @@ public class NetworkManagerHelper {
         Log.d(TAG, "createSoftApConfiguration called with ssid: " + ssid + ", password: " + password);
         
         // 使用反射创建SoftApConfiguration.Builder
-        Class<?> builderClass = Class.forName("android.net.wifi.SoftApConfiguration$Builder");
-        Object builder = builderClass.getConstructor().newInstance();
+        Object builder = ReflectCache.require(SOFT_AP_BUILDER_CONSTRUCTOR, "SoftApConfiguration.Builder").newInstance();
         
-        // 反射调用setSsid方法
-        Method setSsidMethod = builderClass.getMethod("setSsid", String.class);
-        setSsidMethod.invoke(builder, ssid);
+        ReflectCache.require(BUILDER_SET_SSID, "setSsid").invoke(builder, ssid);
         Log.d(TAG, "Set SSID to: " + ssid);
         
-        // 反射调用setPassphrase方法
-        Method setPassphraseMethod = builderClass.getMethod("setPassphrase", String.class, int.class);
-        // 获取SECURITY_TYPE_WPA2_PSK常量
-        int securityTypeWpa2Psk = (int) SoftApConfiguration.class.getField("SECURITY_TYPE_WPA2_PSK").get(null);
-        setPassphraseMethod.invoke(builder, password, securityTypeWpa2Psk);
+        ReflectCache.require(BUILDER_SET_PASSPHRASE, "setPassphrase")
+                .invoke(builder, password, ReflectCache.require(SECURITY_TYPE_WPA2_PSK, "SECURITY_TYPE_WPA2_PSK"));
         Log.d(TAG, "Set passphrase and security type to WPA2_PSK");
         
         // 设置热点可见性（确保其他设备可以搜索到）
         try {
-            Method setHiddenSsidMethod = builderClass.getMethod("setHiddenSsid", boolean.class);
-            setHiddenSsidMethod.invoke(builder, false);
+            ReflectCache.require(BUILDER_SET_HIDDEN_SSID, "setHiddenSsid").invoke(builder, false);
             Log.d(TAG, "Set hiddenSSID to: false");
         } catch (Exception e) {
             Log.w(TAG, "Failed to set hiddenSSID: " + e.getMessage());
@@ -445,18 +744,13 @@ public class NetworkManagerHelper {
         
         // 设置热点频段为2.4GHz（兼容性更好）
         try {
-            Method setBandMethod = builderClass.getMethod("setBand", int.class);
-            // 获取BAND_2GHZ常量
-            int band2Ghz = (int) SoftApConfiguration.class.getField("BAND_2GHZ").get(null);
-            setBandMethod.invoke(builder, band2Ghz);
+            ReflectCache.require(BUILDER_SET_BAND, "setBand").invoke(builder, ReflectCache.require(BAND_2GHZ, "BAND_2GHZ"));
             Log.d(TAG, "Set band to: 2.4GHz");
         } catch (Exception e) {
             Log.w(TAG, "Failed to set band: " + e.getMessage());
         }
         
-        // 反射调用build方法
-        Method buildMethod = builderClass.getMethod("build");
-        SoftApConfiguration config = (SoftApConfiguration) buildMethod.invoke(builder);
+        SoftApConfiguration config = (SoftApConfiguration) ReflectCache.require(BUILDER_BUILD, "build").invoke(builder);
         
         // 打印配置的详细信息
         Log.d(TAG, "Final SoftApConfiguration: " + config.toString());
@@ -470,498 +764,192 @@ public class NetworkManagerHelper {
     private boolean setHotspotConfigLegacy(String ssid, String password) throws Exception {
         Log.d(TAG, "setHotspotConfigLegacy called with ssid: " + ssid + ", password: " + password);
         
-        // 获取WifiConfiguration类
-        Class<?> wifiConfigClass = Class.forName("android.net.wifi.WifiConfiguration");
-        Object wifiConfig = wifiConfigClass.newInstance();
+        // WifiConfiguration的字段和位集合都是公开接口，只有setWifiApConfiguration需要反射
+        WifiConfiguration wifiConfig = new WifiConfiguration();
+        wifiConfig.SSID = ssid;
+        wifiConfig.preSharedKey = password;
+        wifiConfig.hiddenSSID = false;
         
-        // 设置基本属性
-        wifiConfigClass.getField("SSID").set(wifiConfig, ssid);
-        wifiConfigClass.getField("preSharedKey").set(wifiConfig, password);
-        wifiConfigClass.getField("hiddenSSID").set(wifiConfig, false);
+        // 设置安全配置：WPA/WPA2-PSK，CCMP优先，兼容TKIP
+        wifiConfig.allowedAuthAlgorithms.set(WifiConfiguration.AuthAlgorithm.OPEN);
+        wifiConfig.allowedProtocols.set(WifiConfiguration.Protocol.RSN);
+        wifiConfig.allowedProtocols.set(WifiConfiguration.Protocol.WPA);
+        wifiConfig.allowedKeyManagement.set(WifiConfiguration.KeyMgmt.WPA_PSK);
+        wifiConfig.allowedPairwiseCiphers.set(WifiConfiguration.PairwiseCipher.CCMP);
+        wifiConfig.allowedPairwiseCiphers.set(WifiConfiguration.PairwiseCipher.TKIP);
+        wifiConfig.allowedGroupCiphers.set(WifiConfiguration.GroupCipher.CCMP);
+        wifiConfig.allowedGroupCiphers.set(WifiConfiguration.GroupCipher.TKIP);
         
-        // 设置安全配置
-        // 获取AuthAlgorithm枚举
-        Class<?> authAlgorithmClass = Class.forName("android.net.wifi.WifiConfiguration$AuthAlgorithm");
-        Object authOpen = authAlgorithmClass.getField("OPEN").get(null);
-        wifiConfigClass.getMethod("setAllowedAuthAlgorithms", int.class).invoke(wifiConfig, 1 << (int) authAlgorithmClass.getMethod("ordinal").invoke(authOpen));
-        
-        // 设置协议
-        Class<?> protocolClass = Class.forName("android.net.wifi.WifiConfiguration$Protocol");
-        Object protocolRSN = protocolClass.getField("RSN").get(null);
-        Object protocolWPA = protocolClass.getField("WPA").get(null);
-        wifiConfigClass.getMethod("setAllowedProtocols", int.class).invoke(wifiConfig, 
-                (1 << (int) protocolClass.getMethod("ordinal").invoke(protocolRSN)) | 
-                (1 << (int) protocolClass.getMethod("ordinal").invoke(protocolWPA)));
-        
-        // 设置密钥管理
-        Class<?> keyMgmtClass = Class.forName("android.net.wifi.WifiConfiguration$KeyMgmt");
-        Object keyMgmtWPA_PSK = keyMgmtClass.getField("WPA_PSK").get(null);
-        wifiConfigClass.getMethod("setAllowedKeyManagement", int.class).invoke(wifiConfig, 
-                1 << (int) keyMgmtClass.getMethod("ordinal").invoke(keyMgmtWPA_PSK));
-        
-        // 设置加密方式
-        Class<?> pairwiseCipherClass = Class.forName("android.net.wifi.WifiConfiguration$PairwiseCipher");
-        Object pairwiseCCMP = pairwiseCipherClass.getField("CCMP").get(null);
-        Object pairwiseTKIP = pairwiseCipherClass.getField("TKIP").get(null);
-        wifiConfigClass.getMethod("setAllowedPairwiseCiphers", int.class).invoke(wifiConfig, 
-                (1 << (int) pairwiseCipherClass.getMethod("ordinal").invoke(pairwiseCCMP)) | 
-                (1 << (int) pairwiseCipherClass.getMethod("ordinal").invoke(pairwiseTKIP)));
-        
-        Class<?> groupCipherClass = Class.forName("android.net.wifi.WifiConfiguration$GroupCipher");
-        Object groupCCMP = groupCipherClass.getField("CCMP").get(null);
-        Object groupTKIP = groupCipherClass.getField("TKIP").get(null);
-        wifiConfigClass.getMethod("setAllowedGroupCiphers", int.class).invoke(wifiConfig, 
-                (1 << (int) groupCipherClass.getMethod("ordinal").invoke(groupCCMP)) | 
-                (1 << (int) groupCipherClass.getMethod("ordinal").invoke(groupTKIP)));
-        
-        // 通过反射设置热点配置
-        Method setWifiApConfigurationMethod = mWifiManager.getClass().getMethod("setWifiApConfiguration", wifiConfigClass);
-        boolean result = (boolean) setWifiApConfigurationMethod.invoke(mWifiManager, wifiConfig);
+        boolean result = (boolean) ReflectCache.require(SET_WIFI_AP_CONFIGURATION, "setWifiApConfiguration")
+                .invoke(mWifiManager, wifiConfig);
         Log.d(TAG, "setWifiApConfiguration result: " + result);
         
         return result;
     }
 
     /**
-     * 设置以太网静态IP
+     * 设置以太网静态IP，配置全部以太网接口，配置未变化的接口不会重新设置
      * @param ipAddress IP地址
      * @param gateway 网关
      * @param netmask 子网掩码
      * @param dns1 首选DNS
      * @param dns2 备用DNS
-     * @return 是否执行成功
+     * @return 完成时为是否执行成功，不阻塞调用线程
      */
-    public boolean setEthernetStaticIp(String ipAddress, String gateway, String netmask, String dns1, String dns2) {
-        try {
-            Log.d(TAG, "setEthernetStaticIp called with ip: " + ipAddress + ", gateway: " + gateway + ", netmask: " + netmask + ", dns1: " + dns1 + ", dns2: " + dns2);
-            
-            if (mEthernetManager == null || mEthernetManagerClass == null) {
-                Log.e(TAG, "EthernetManager is null");
-                return false;
-            }
-            
-            Log.d(TAG, "EthernetManager: " + mEthernetManager + ", Class: " + mEthernetManagerClass);
-            
-            // 获取可用的以太网接口列表
-            List<String> interfaces = new ArrayList<>();
-            try {
-                // 尝试获取接口列表
-                Method getInterfaceListMethod = mEthernetManagerClass.getMethod("getInterfaceList");
-                Object result = getInterfaceListMethod.invoke(mEthernetManager);
-                if (result instanceof List) {
-                    interfaces = (List<String>) result;
-                    Log.d(TAG, "Available interfaces: " + interfaces);
-                } else {
-                    Log.d(TAG, "getInterfaceList returned: " + result);
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Failed to get interface list: " + e.getMessage());
-                // 如果获取接口列表失败，默认使用eth0
-                interfaces.add("eth0");
-            }
-            
-            // 如果没有可用接口，添加默认eth0
-            if (interfaces.isEmpty()) {
-                interfaces.add("eth0");
-                Log.d(TAG, "Added default interface eth0");
-            }
-            
-            // 尝试设置静态IP配置
-            for (String iface : interfaces) {
-                Log.d(TAG, "Processing interface: " + iface);
-                
-                try {
-                    // 获取当前配置
-                    Method getConfigurationMethod = mEthernetManagerClass.getMethod("getConfiguration", String.class);
-                    Object config = getConfigurationMethod.invoke(mEthernetManager, iface);
-                    Log.d(TAG, "Got configuration for " + iface + ": " + config);
-                    
-                    if (config != null) {
-                        // 直接使用配置对象，日志显示它已经是IpConfiguration类型
-                        Class<?> ipConfigClass = config.getClass();
-                        Log.d(TAG, "Configuration class: " + ipConfigClass.getName());
-                        
-                        // 设置IP分配方式为STATIC
-                        try {
-                            // 动态查找setIpAssignment方法并获取正确的参数类型
-                            Method setIpAssignmentMethod = null;
-                            Class<?> correctParamType = null;
-                            
-                            // 遍历所有方法，找到setIpAssignment方法
-                            for (Method method : ipConfigClass.getMethods()) {
-                                if (method.getName().equals("setIpAssignment")) {
-                                    Class<?>[] params = method.getParameterTypes();
-                                    if (params.length == 1) {
-                                        setIpAssignmentMethod = method;
-                                        correctParamType = params[0];
-                                        Log.d(TAG, "Found setIpAssignment method with param type: " + correctParamType.getName());
-                                        break;
-                                    }
-                                }
-                            }
-                            
-                            if (setIpAssignmentMethod != null && correctParamType != null) {
-                                // 获取IpAssignment枚举类型和STATIC值
-                                Class<?> ipAssignmentClass = correctParamType;
-                                Object staticValue;
-                                
-                                try {
-                                    // 尝试直接获取STATIC枚举值
-                                    staticValue = ipAssignmentClass.getField("STATIC").get(null);
-                                    Log.d(TAG, "Got STATIC value: " + staticValue);
-                                } catch (Exception e) {
-                                    // 尝试通过valueOf方法获取
-                                    Method valueOfMethod = ipAssignmentClass.getMethod("valueOf", String.class);
-                                    staticValue = valueOfMethod.invoke(null, "STATIC");
-                                    Log.d(TAG, "Got STATIC value via valueOf: " + staticValue);
-                                }
-                                
-                                // 调用setIpAssignment方法，设置为STATIC
-                                setIpAssignmentMethod.invoke(config, staticValue);
-                                Log.d(TAG, "Set IpAssignment to STATIC");
-                                
-                                // 设置静态IP地址信息
-                                // 首先查找setStaticIpConfiguration方法
-                                Method setStaticIpConfigurationMethod = null;
-                                for (Method method : ipConfigClass.getMethods()) {
-                                    if (method.getName().equals("setStaticIpConfiguration")) {
-                                        setStaticIpConfigurationMethod = method;
-                                        break;
-                                    }
-                                }
-                                
-                                if (setStaticIpConfigurationMethod != null) {
-                                    // 获取StaticIpConfiguration类
-                                    Class<?> staticIpConfigClass = Class.forName("android.net.StaticIpConfiguration");
-                                    Object staticIpConfig = staticIpConfigClass.newInstance();
-                                    
-                                    // 设置IP地址
-                                    InetAddress ipAddr = InetAddress.getByName(ipAddress);
-                                    InetAddress gatewayAddr = InetAddress.getByName(gateway);
-                                    InetAddress dns1Addr = dns1.isEmpty() ? null : InetAddress.getByName(dns1);
-                                    InetAddress dns2Addr = dns2.isEmpty() ? null : InetAddress.getByName(dns2);
-                                    
-                                    // 设置IP地址和前缀长度
-                                    int prefixLength = 24; // 默认子网掩码255.255.255.0对应的前缀长度
-                                    try {
-                                        // 从子网掩码计算前缀长度
-                                        String[] maskParts = netmask.split("\\.");
-                                        if (maskParts.length == 4) {
-                                            int mask = 0;
-                                            for (String part : maskParts) {
-                                                mask = (mask << 8) | Integer.parseInt(part);
-                                            }
-                                            prefixLength = 32 - Integer.numberOfTrailingZeros(mask);
-                                        }
-                                    } catch (Exception e) {
-                                        Log.e(TAG, "Failed to calculate prefix length, using default 24: " + e.getMessage());
-                                    }
-                                    
-                                    // 设置StaticIpConfiguration
-                                    java.lang.reflect.Field linkPropertiesField = staticIpConfigClass.getDeclaredField("ipAddress");
-                                    linkPropertiesField.setAccessible(true);
-                                    
-                                    // 使用反射创建和配置LinkAddress对象
-                                    try {
-                                        // 获取LinkAddress类
-                                        Class<?> linkAddressClass = Class.forName("android.net.LinkAddress");
-                                        
-                                        // 尝试查找合适的构造器
-                                        java.lang.reflect.Constructor<?> constructor = null;
-                                        Object linkAddress = null;
-                                        
-                                        // 尝试使用有参构造器
-                                        try {
-                                            // 尝试使用InetAddress和int参数的构造器
-                                            constructor = linkAddressClass.getDeclaredConstructor(InetAddress.class, int.class);
-                                            constructor.setAccessible(true);
-                                            linkAddress = constructor.newInstance(ipAddr, prefixLength);
-                                            Log.d(TAG, "Successfully created LinkAddress with InetAddress and int constructor");
-                                        } catch (NoSuchMethodException e) {
-                                            Log.e(TAG, "No InetAddress and int constructor found: " + e.getMessage());
-                                            
-                                            // 尝试使用String和int参数的构造器
-                                            try {
-                                                constructor = linkAddressClass.getDeclaredConstructor(String.class, int.class);
-                                                constructor.setAccessible(true);
-                                                linkAddress = constructor.newInstance(ipAddress, prefixLength);
-                                                Log.d(TAG, "Successfully created LinkAddress with String and int constructor");
-                                            } catch (NoSuchMethodException e2) {
-                                                Log.e(TAG, "No String and int constructor found: " + e2.getMessage());
-                                                
-                                                // 尝试使用单个String参数的构造器
-                                                try {
-                                                    constructor = linkAddressClass.getDeclaredConstructor(String.class);
-                                                    constructor.setAccessible(true);
-                                                    // 格式: "ip/prefix" 例如: "192.168.1.100/24"
-                                                    String ipWithPrefix = ipAddress + "/" + prefixLength;
-                                                    linkAddress = constructor.newInstance(ipWithPrefix);
-                                                    Log.d(TAG, "Successfully created LinkAddress with String constructor: " + ipWithPrefix);
-                                                } catch (NoSuchMethodException e3) {
-                                                    Log.e(TAG, "No suitable constructor found for LinkAddress: " + e3.getMessage());
-                                                }
-                                            }
-                                        }
-                                        
-                                        if (linkAddress != null) {
-                                            // 将创建好的LinkAddress对象设置到静态IP配置中
-                                            linkPropertiesField.set(staticIpConfig, linkAddress);
-                                            Log.d(TAG, "Successfully set LinkAddress to static IP configuration");
-                                        } else {
-                                            // 如果无法创建LinkAddress对象，尝试设置为null
-                                            linkPropertiesField.set(staticIpConfig, null);
-                                            Log.d(TAG, "Set LinkAddress to null due to creation failure");
-                                        }
-                                    } catch (Exception e) {
-                                        Log.e(TAG, "Failed to handle LinkAddress via reflection: " + e.getMessage());
-                                        // 如果反射失败，尝试其他方法
-                                        // 直接使用null或其他默认值
-                                        linkPropertiesField.set(staticIpConfig, null);
-                                    }
-                                    
-                                    java.lang.reflect.Field gatewayField = staticIpConfigClass.getDeclaredField("gateway");
-                                    gatewayField.setAccessible(true);
-                                    gatewayField.set(staticIpConfig, gatewayAddr);
-                                    
-                                    java.lang.reflect.Field dnsServersField = staticIpConfigClass.getDeclaredField("dnsServers");
-                                    dnsServersField.setAccessible(true);
-                                    ArrayList<InetAddress> dnsList = new ArrayList<>();
-                                    if (dns1Addr != null) dnsList.add(dns1Addr);
-                                    if (dns2Addr != null) dnsList.add(dns2Addr);
-                                    dnsServersField.set(staticIpConfig, dnsList);
-                                    
-                                    // 设置域名服务器搜索路径（可选）
-                                    try {
-                                        java.lang.reflect.Field domainsField = staticIpConfigClass.getDeclaredField("domains");
-                                        domainsField.setAccessible(true);
-                                        domainsField.set(staticIpConfig, "");
-                                    } catch (Exception e) {
-                                        // 忽略，该字段可能不存在
-                                    }
-                                    
-                                    // 调用setStaticIpConfiguration方法
-                                    setStaticIpConfigurationMethod.invoke(config, staticIpConfig);
-                                    Log.d(TAG, "Set StaticIpConfiguration: " + staticIpConfig);
-                                }
-                                
-                                // 保存配置
-                                Method setConfigurationMethod = mEthernetManagerClass.getMethod("setConfiguration", String.class, ipConfigClass);
-                                Object result = setConfigurationMethod.invoke(mEthernetManager, iface, config);
-                                
-                                // 处理invoke返回值，避免null转换为boolean导致的空指针异常
-                                boolean setResult = false;
-                                if (result != null) {
-                                    if (result instanceof Boolean) {
-                                        setResult = (Boolean) result;
-                                    } else if (result instanceof String) {
-                                        // 有些设备可能返回字符串表示结果
-                                        setResult = "success".equalsIgnoreCase((String) result);
-                                    } else {
-                                        // 默认认为操作成功
-                                        setResult = true;
-                                        Log.w(TAG, "setConfiguration returned non-boolean result: " + result + ", assuming success");
-                                    }
-                                } else {
-                                    // 有些设备可能返回null表示成功
-                                    setResult = true;
-                                    Log.w(TAG, "setConfiguration returned null, assuming success");
-                                }
-                                
-                                Log.d(TAG, "setConfiguration for " + iface + " result: " + setResult);
-                                
-                                if (setResult) {
-                                    return true;
-                                }
-                            }
-                        } catch (Exception e) {
-                            Log.e(TAG, "Failed to update IP configuration: " + e.getMessage(), e);
-                            // 尝试其他方法
-                        }
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "Failed to process interface " + iface + ": " + e.getMessage());
-                    // 继续尝试下一个接口
-                }
-            }
-            
-            Log.e(TAG, "Failed to set Ethernet static IP using all available methods");
-            return false;
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to set Ethernet static IP: " + e.getMessage(), e);
-            return false;
-        }
+    public CompletableFuture<Boolean> setEthernetStaticIp(String ipAddress, String gateway, String netmask,
+                                                          String dns1, String dns2) {
+        Log.d(TAG, "setEthernetStaticIp called with ip: " + ipAddress + ", gateway: " + gateway + ", netmask: " + netmask + ", dns1: " + dns1 + ", dns2: " + dns2);
+        return toSuccess(configureEthernet(
+                EthernetConfigEngine.EthernetConfig.staticIp(ipAddress, gateway, netmask, dns1, dns2)));
     }
 
     /**
-     * 设置以太网动态IP（DHCP）
-     * @return 是否执行成功
+     * 设置以太网动态IP（DHCP），配置未变化的接口不会重新设置
+     * @return 完成时为是否执行成功，不阻塞调用线程
      */
-    public boolean setEthernetDhcp() {
-        try {
-            Log.d(TAG, "setEthernetDhcp called");
-            
-            if (mEthernetManager == null || mEthernetManagerClass == null) {
-                Log.e(TAG, "EthernetManager is null");
+    public CompletableFuture<Boolean> setEthernetDhcp() {
+        Log.d(TAG, "setEthernetDhcp called");
+        return toSuccess(configureEthernet(EthernetConfigEngine.EthernetConfig.dhcp()));
+    }
+
+    /**
+     * 异步配置全部以太网接口，各接口并行执行
+     * @param config 期望配置
+     * @return 完成时为每个接口的配置结果和耗时
+     */
+    public CompletableFuture<List<EthernetConfigEngine.InterfaceResult>> configureEthernet(
+            EthernetConfigEngine.EthernetConfig config) {
+        return new EthernetConfigEngine(mContext).apply(config);
+    }
+
+    /**
+     * 把配置结果转换为是否成功，至少一个接口应用成功或无需变化即视为成功
+     */
+    private static CompletableFuture<Boolean> toSuccess(
+            CompletableFuture<List<EthernetConfigEngine.InterfaceResult>> future) {
+        return future.handle((results, error) -> {
+            if (error != null) {
+                Log.e(TAG, "Failed to configure Ethernet: " + error.getMessage(), error);
                 return false;
             }
-            
-            Log.d(TAG, "EthernetManager: " + mEthernetManager + ", Class: " + mEthernetManagerClass);
-            
-            // 获取可用的以太网接口列表
-            List<String> interfaces = new ArrayList<>();
-            try {
-                // 尝试获取接口列表
-                Method getInterfaceListMethod = mEthernetManagerClass.getMethod("getInterfaceList");
-                Object result = getInterfaceListMethod.invoke(mEthernetManager);
-                if (result instanceof List) {
-                    interfaces = (List<String>) result;
-                    Log.d(TAG, "Available interfaces: " + interfaces);
-                } else {
-                    Log.d(TAG, "getInterfaceList returned: " + result);
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Failed to get interface list: " + e.getMessage());
-                // 如果获取接口列表失败，默认使用eth0
-                interfaces.add("eth0");
-            }
-            
-            // 如果没有可用接口，添加默认eth0
-            if (interfaces.isEmpty()) {
-                interfaces.add("eth0");
-                Log.d(TAG, "Added default interface eth0");
-            }
-            
-            // 尝试设置DHCP配置
-            for (String iface : interfaces) {
-                Log.d(TAG, "Processing interface: " + iface);
-                
-                try {
-                    // 获取当前配置
-                    Method getConfigurationMethod = mEthernetManagerClass.getMethod("getConfiguration", String.class);
-                    Object config = getConfigurationMethod.invoke(mEthernetManager, iface);
-                    Log.d(TAG, "Got configuration for " + iface + ": " + config);
-                    
-                    if (config != null) {
-                        // 直接使用配置对象，日志显示它已经是IpConfiguration类型
-                        Class<?> ipConfigClass = config.getClass();
-                        Log.d(TAG, "Configuration class: " + ipConfigClass.getName());
-                        
-                        // 设置IP分配方式为DHCP
-                        try {
-                            // 动态查找setIpAssignment方法并获取正确的参数类型
-                            Method setIpAssignmentMethod = null;
-                            Class<?> correctParamType = null;
-                            
-                            // 遍历所有方法，找到setIpAssignment方法
-                            for (Method method : ipConfigClass.getMethods()) {
-                                if (method.getName().equals("setIpAssignment")) {
-                                    Class<?>[] params = method.getParameterTypes();
-                                    if (params.length == 1) {
-                                        setIpAssignmentMethod = method;
-                                        correctParamType = params[0];
-                                        Log.d(TAG, "Found setIpAssignment method with param type: " + correctParamType.getName());
-                                        break;
-                                    }
-                                }
-                            }
-                            
-                            if (setIpAssignmentMethod != null && correctParamType != null) {
-                                // 获取IpAssignment枚举类型和DHCP值
-                                Class<?> ipAssignmentClass = correctParamType;
-                                Object dhcpValue;
-                                
-                                try {
-                                    // 尝试直接获取DHCP枚举值
-                                    dhcpValue = ipAssignmentClass.getField("DHCP").get(null);
-                                    Log.d(TAG, "Got DHCP value: " + dhcpValue);
-                                } catch (Exception e) {
-                                    // 尝试通过valueOf方法获取
-                                    Method valueOfMethod = ipAssignmentClass.getMethod("valueOf", String.class);
-                                    dhcpValue = valueOfMethod.invoke(null, "DHCP");
-                                    Log.d(TAG, "Got DHCP value via valueOf: " + dhcpValue);
-                                }
-                                
-                                // 调用setIpAssignment方法，使用正确的参数类型
-                                setIpAssignmentMethod.invoke(config, dhcpValue);
-                                Log.d(TAG, "Set IpAssignment to DHCP");
-                                
-                                // 保存配置
-                                Method setConfigurationMethod = mEthernetManagerClass.getMethod("setConfiguration", String.class, ipConfigClass);
-                                Object result = setConfigurationMethod.invoke(mEthernetManager, iface, config);
-                                
-                                // 处理invoke返回值，避免null转换为boolean导致的空指针异常
-                                boolean setResult = false;
-                                if (result != null) {
-                                    if (result instanceof Boolean) {
-                                        setResult = (Boolean) result;
-                                    } else if (result instanceof String) {
-                                        // 有些设备可能返回字符串表示结果
-                                        setResult = "success".equalsIgnoreCase((String) result);
-                                    } else {
-                                        // 默认认为操作成功
-                                        setResult = true;
-                                        Log.w(TAG, "setConfiguration returned non-boolean result: " + result + ", assuming success");
-                                    }
-                                } else {
-                                    // 有些设备可能返回null表示成功
-                                    setResult = true;
-                                    Log.w(TAG, "setConfiguration returned null, assuming success");
-                                }
-                                
-                                Log.d(TAG, "setConfiguration for " + iface + " result: " + setResult);
-                                
-                                if (setResult) {
-                                    return true;
-                                }
-                            }
-                        } catch (Exception e) {
-                            Log.e(TAG, "Failed to update IP configuration: " + e.getMessage(), e);
-                            // 尝试其他方法
-                        }
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "Failed to process interface " + iface + ": " + e.getMessage());
-                    // 继续尝试下一个接口
+            for (EthernetConfigEngine.InterfaceResult result : results) {
+                if (result.status != EthernetConfigEngine.InterfaceResult.FAILED) {
+                    return true;
                 }
             }
-            
-            Log.e(TAG, "Failed to set Ethernet DHCP using all available methods");
+            Log.e(TAG, "Failed to configure Ethernet on all interfaces");
             return false;
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to set Ethernet DHCP: " + e.getMessage(), e);
-            return false;
-        }
+        });
     }
 
     /**
-     * 获取当前WiFi状态
+     * 获取当前WiFi状态（来自网络状态缓存）
      * @return WiFi是否启用
      */
     public boolean isWifiEnabled() {
-        return mWifiManager.isWifiEnabled();
+        return NetworkStateStore.getInstance(mContext).isWifiEnabled();
     }
 
     /**
-     * 获取当前蓝牙状态
+     * 获取当前蓝牙状态（来自网络状态缓存）
      * @return 蓝牙是否启用
      */
     public boolean isBluetoothEnabled() {
-        return mBluetoothAdapter.isEnabled();
+        return NetworkStateStore.getInstance(mContext).isBluetoothEnabled();
     }
 
     /**
-     * 获取当前热点状态
+     * 获取当前热点状态（来自网络状态缓存，由热点状态广播更新）
      * @return 热点是否启用
      */
     public boolean isHotspotEnabled() {
+        return NetworkStateStore.getInstance(mContext).isHotspotEnabled();
+    }
+
+    /**
+     * 获取以太网连接状态（来自网络状态缓存）
+     * @return 以太网是否已连接
+     */
+    public boolean isEthernetConnected() {
+        return NetworkStateStore.getInstance(mContext).isEthernetConnected();
+    }
+
+    /**
+     * 获取以太网开关状态：已连接时必然启用；未插网线时没有以太网连接，
+     * 以eth接口是否处于UP状态判断（关闭以太网时系统会把接口置为DOWN）
+     * @return 以太网是否启用
+     */
+    public boolean isEthernetEnabled() {
+        if (isEthernetConnected()) {
+            return true;
+        }
+        try {
+            Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+            if (interfaces == null) {
+                return false;
+            }
+            for (NetworkInterface intf : Collections.list(interfaces)) {
+                if (intf.getName().startsWith("eth") && intf.isUp()) {
+                    return true;
+                }
+            }
+        } catch (SocketException e) {
+            Log.e(TAG, "Failed to read Ethernet interface state: " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * 反射调用耗时测试：对比每次getMethod查找、缓存查找与预先解析常量的单次调用耗时
+     * @param iterations 调用次数
+     * @return {直接查找, 缓存查找, 预先解析} 的平均纳秒数，失败返回null
+     */
+    public long[] benchmarkReflection(int iterations) {
         try {
-            Method isWifiApEnabledMethod = mWifiManager.getClass().getMethod("isWifiApEnabled");
-            return (boolean) isWifiApEnabledMethod.invoke(mWifiManager);
+            return ReflectCache.benchmark(mWifiManager, "isWifiApEnabled", iterations);
         } catch (Exception e) {
-            e.printStackTrace();
-            Log.e(TAG, "Failed to check hotspot enabled: " + e.getMessage());
-            return false;
+            Log.e(TAG, "Reflection benchmark failed: " + e.getMessage());
+            return null;
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * WiFi连接结果
+     */
+    public static class WifiConnectResult {
+        public final String ssid;
+        public final int networkId;
+        // 是否复用了已保存的网络配置
+        public final boolean reused;
+        // 由广播线程写入，调用方在结果完成后读取
+        public volatile boolean success;
+        // 从发起连接到关联完成、获取到IP的耗时，未到达该阶段为-1
+        public volatile long associationMs = -1;
+        public volatile long ipMs = -1;
+        public volatile String message;
+
+        WifiConnectResult(String ssid, int networkId, boolean reused, String message) {
+            this.ssid = ssid;
+            this.networkId = networkId;
+            this.reused = reused;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(ssid);
+            text.append(success ? " 已连接" : " 连接失败");
+            if (message != null) {
+                text.append("（").append(message).append("）");
+            }
+            if (associationMs >= 0) {
+                text.append("，关联 ").append(associationMs).append(" ms");
+            }
+            if (ipMs >= 0) {
+                text.append("，获取IP ").append(ipMs).append(" ms");
+            }
+            text.append(reused ? "，复用已保存网络" : "，新增网络");
+            return text.toString();
+        }
+    }
+}
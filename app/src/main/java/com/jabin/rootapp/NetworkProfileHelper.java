@@ -0,0 +1,451 @@
+package com.jabin.rootapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.wifi.SoftApConfiguration;
+import android.net.wifi.WifiConfiguration;
+import android.net.wifi.WifiManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONObject;
+
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 网络配置方案助手类：按名称保存以太网IP、热点名称密码和热点开关的组合配置，
+ * 作为一个整体应用。互不依赖的步骤并行执行，在期限内未确认连通时自动回滚到应用前的状态
+ */
+public class NetworkProfileHelper {
+
+    private static final String TAG = "NetworkProfileHelper";
+    private static final String PREFS_NAME = "network_profiles";
+    // 默认的连通确认期限
+    public static final long DEFAULT_CONFIRM_TIMEOUT_MS = 30000;
+    private static final Method GET_SOFT_AP_CONFIGURATION = ReflectCache.resolveMethod(WifiManager.class,
+            "getSoftApConfiguration");
+    private static final Method GET_WIFI_AP_CONFIGURATION = ReflectCache.resolveMethod(WifiManager.class,
+            "getWifiApConfiguration");
+
+    private Context mContext;
+    private SharedPreferences mPrefs;
+    private NetworkManagerHelper mNetworkManager;
+    private RadioCommandExecutor mRadioExecutor;
+    private EthernetConfigEngine mEthernetEngine;
+    private Handler mMainHandler;
+
+    public NetworkProfileHelper(Context context) {
+        this.mContext = context;
+        this.mPrefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.mNetworkManager = new NetworkManagerHelper(context);
+        this.mRadioExecutor = RadioCommandExecutor.getInstance(context);
+        this.mEthernetEngine = new EthernetConfigEngine(context);
+        this.mMainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * 获取全部方案名称
+     */
+    public List<String> getProfileNames() {
+        List<String> names = new ArrayList<>(mPrefs.getAll().keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * 获取方案
+     * @param name 方案名称
+     * @return 方案，不存在或格式错误时返回null
+     */
+    public NetworkProfile getProfile(String name) {
+        String json = mPrefs.getString(name, null);
+        if (json == null) {
+            return null;
+        }
+        try {
+            return NetworkProfile.fromJson(name, new JSONObject(json));
+        } catch (Exception e) {
+            Log.w(TAG, "Invalid profile " + name + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 保存方案，同名方案会被覆盖
+     */
+    public void saveProfile(NetworkProfile profile) throws Exception {
+        mPrefs.edit().putString(profile.name, profile.toJson().toString()).apply();
+    }
+
+    /**
+     * 删除方案
+     */
+    public void deleteProfile(String name) {
+        mPrefs.edit().remove(name).apply();
+    }
+
+    /**
+     * 应用方案：以太网配置与热点配置并行执行，热点名称密码先于热点开关；
+     * 全部步骤完成后等待连通确认，失败或超时时恢复应用前的配置。
+     * 读取当前配置需要多次跨进程调用，在后台线程执行，不阻塞调用线程
+     * @param profile 方案
+     * @param confirmTimeoutMs 连通确认期限
+     * @return 完成时为应用结果
+     */
+    public CompletableFuture<ApplyResult> applyProfile(final NetworkProfile profile, final long confirmTimeoutMs) {
+        final long start = SystemClock.elapsedRealtime();
+        return CompletableFuture.supplyAsync(() -> captureCurrent(profile))
+                .thenCompose(previous -> applyProfile(profile, previous, confirmTimeoutMs, start));
+    }
+
+    private CompletableFuture<ApplyResult> applyProfile(final NetworkProfile profile, final NetworkProfile previous,
+                                                        long confirmTimeoutMs, final long start) {
+        Log.d(TAG, "Applying profile " + profile.name + ", previous state: " + previous.describe());
+
+        CompletableFuture<Boolean> ethernetStep = CompletableFuture.completedFuture(true);
+        if (profile.ethernet != null) {
+            ethernetStep = mNetworkManager.configureEthernet(profile.ethernet).thenApply(results -> {
+                for (EthernetConfigEngine.InterfaceResult result : results) {
+                    if (result.status != EthernetConfigEngine.InterfaceResult.FAILED) {
+                        return true;
+                    }
+                }
+                return false;
+            });
+        }
+        CompletableFuture<Boolean> hotspotStep = applyHotspot(profile.hotspotSsid, profile.hotspotPassword,
+                profile.hotspotEnabled);
+
+        return ethernetStep.thenCombine(hotspotStep, (ethernetOk, hotspotOk) -> ethernetOk && hotspotOk)
+                .thenCompose(stepsOk -> {
+                    if (!stepsOk) {
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    return awaitConfirmed(profile, confirmTimeoutMs);
+                })
+                .exceptionally(e -> {
+                    Log.e(TAG, "Failed to apply profile " + profile.name + ": " + e.getMessage(), e);
+                    return false;
+                })
+                .thenCompose(confirmed -> {
+                    if (confirmed) {
+                        return CompletableFuture.completedFuture(
+                                new ApplyResult(ApplyResult.APPLIED, SystemClock.elapsedRealtime() - start));
+                    }
+                    Log.w(TAG, "Profile " + profile.name + " not confirmed, rolling back");
+                    return rollback(previous).handle((ok, e) -> new ApplyResult(
+                            ok != null && ok ? ApplyResult.ROLLED_BACK : ApplyResult.ROLLBACK_FAILED,
+                            SystemClock.elapsedRealtime() - start));
+                });
+    }
+
+    /**
+     * 按顺序应用热点名称密码和热点开关，参数为null的步骤跳过；
+     * 开关经RadioCommandExecutor执行，与界面上的热点开关串行
+     */
+    private CompletableFuture<Boolean> applyHotspot(String ssid, String password, Boolean enabled) {
+        CompletableFuture<Boolean> step = CompletableFuture.completedFuture(true);
+        if (ssid != null) {
+            step = mNetworkManager.setHotspotConfig(ssid, password);
+        }
+        if (enabled != null) {
+            step = step.thenCompose(ok -> ok ? mRadioExecutor.submit(RadioCommandExecutor.HOTSPOT, enabled)
+                    : CompletableFuture.completedFuture(false));
+        }
+        return step;
+    }
+
+    /**
+     * 恢复应用前的配置：以太网按接口分别恢复；热点名称密码和开关各自恢复，一步失败不影响另一步，
+     * 最后重新打开因开启热点而被关闭的WiFi
+     */
+    private CompletableFuture<Boolean> rollback(NetworkProfile previous) {
+        List<CompletableFuture<Boolean>> steps = new ArrayList<>();
+        for (Map.Entry<String, EthernetConfigEngine.EthernetConfig> entry : previous.ethernetByInterface.entrySet()) {
+            steps.add(mEthernetEngine.apply(entry.getValue(), Collections.singletonList(entry.getKey()))
+                    .thenApply(results -> results.get(0).status != EthernetConfigEngine.InterfaceResult.FAILED));
+        }
+        for (Map.Entry<String, Object> entry : previous.ethernetSnapshots.entrySet()) {
+            steps.add(mEthernetEngine.restoreSnapshot(entry.getKey(), entry.getValue())
+                    .thenApply(result -> result.status != EthernetConfigEngine.InterfaceResult.FAILED));
+        }
+        steps.add(rollbackHotspot(previous));
+        return CompletableFuture.allOf(steps.toArray(new CompletableFuture[0])).thenApply(v -> {
+            boolean ok = true;
+            for (CompletableFuture<Boolean> step : steps) {
+                ok &= step.join();
+            }
+            Log.d(TAG, "Rollback finished: " + ok);
+            return ok;
+        });
+    }
+
+    private CompletableFuture<Boolean> rollbackHotspot(final NetworkProfile previous) {
+        CompletableFuture<Boolean> step = CompletableFuture.completedFuture(true);
+        if (previous.hotspotSnapshot != null) {
+            // 恢复原始配置对象，开放热点和WPA3热点不会被改成WPA2
+            step = mNetworkManager.restoreHotspotConfig(previous.hotspotSnapshot);
+        }
+        if (previous.hotspotEnabled != null) {
+            step = step.thenCompose(configOk -> mRadioExecutor.submit(RadioCommandExecutor.HOTSPOT, previous.hotspotEnabled)
+                    .thenApply(enabledOk -> configOk && enabledOk));
+        }
+        if (Boolean.TRUE.equals(previous.wifiEnabled)) {
+            // 热点关闭后才能重新打开WiFi
+            step = step.thenCompose(ok -> (mNetworkManager.isWifiEnabled()
+                    ? CompletableFuture.completedFuture(true)
+                    : mRadioExecutor.submit(RadioCommandExecutor.WIFI, true)).thenApply(wifiOk -> {
+                        Log.d(TAG, "Restored WiFi after hotspot rollback: " + wifiOk);
+                        return ok && wifiOk;
+                    }));
+        }
+        return step;
+    }
+
+    /**
+     * 记录方案会修改的配置项当前的值，用于回滚；无法解析的以太网配置保存原始对象
+     */
+    private NetworkProfile captureCurrent(NetworkProfile profile) {
+        NetworkProfile previous = new NetworkProfile("rollback");
+        if (profile.ethernet != null) {
+            for (String iface : mEthernetEngine.getInterfaces()) {
+                EthernetConfigEngine.EthernetConfig config = mEthernetEngine.readCurrent(iface);
+                if (config != null) {
+                    previous.ethernetByInterface.put(iface, config);
+                    continue;
+                }
+                // 读取失败时应用方案也会在同一步失败，不会修改该接口
+                Object snapshot = mEthernetEngine.readSnapshot(iface);
+                if (snapshot != null) {
+                    previous.ethernetSnapshots.put(iface, snapshot);
+                }
+            }
+        }
+        if (profile.hotspotSsid != null) {
+            readHotspotConfig(previous);
+        }
+        if (profile.hotspotEnabled != null) {
+            previous.hotspotEnabled = mNetworkManager.isHotspotEnabled();
+            // 开启热点会关闭WiFi，回滚时需要恢复
+            previous.wifiEnabled = mNetworkManager.isWifiEnabled();
+        }
+        return previous;
+    }
+
+    /**
+     * 读取当前热点配置：名称、密码、加密方式，并保存原始配置对象用于回滚
+     */
+    private void readHotspotConfig(NetworkProfile target) {
+        try {
+            WifiManager wifiManager = (WifiManager) mContext.getSystemService(Context.WIFI_SERVICE);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                SoftApConfiguration config = (SoftApConfiguration) ReflectCache
+                        .require(GET_SOFT_AP_CONFIGURATION, "getSoftApConfiguration").invoke(wifiManager);
+                target.hotspotSsid = config.getSsid();
+                target.hotspotPassword = config.getPassphrase();
+                target.hotspotSecurityType = config.getSecurityType();
+                target.hotspotSnapshot = config;
+            } else {
+                WifiConfiguration config = (WifiConfiguration) ReflectCache
+                        .require(GET_WIFI_AP_CONFIGURATION, "getWifiApConfiguration").invoke(wifiManager);
+                target.hotspotSsid = config.SSID;
+                target.hotspotPassword = config.preSharedKey;
+                // 旧版本热点只有开放和WPA2-PSK两种（WPA2_PSK为隐藏的密钥管理序号4）
+                target.hotspotSecurityType = config.allowedKeyManagement.get(WifiConfiguration.KeyMgmt.WPA_PSK)
+                        || config.allowedKeyManagement.get(4)
+                        ? SoftApConfiguration.SECURITY_TYPE_WPA2_PSK : SoftApConfiguration.SECURITY_TYPE_OPEN;
+                target.hotspotSnapshot = config;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to read hotspot config: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 等待网络状态满足方案要求：以太网已连接（静态IP时地址一致），热点开关一致
+     */
+    private CompletableFuture<Boolean> awaitConfirmed(final NetworkProfile profile, long timeoutMs) {
+        final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        final NetworkStateStore store = NetworkStateStore.getInstance(mContext);
+        final NetworkStateStore.Listener listener = s -> {
+            if (isConfirmed(profile, s)) {
+                future.complete(true);
+            }
+        };
+        final Runnable timeout = () -> future.complete(false);
+
+        mMainHandler.post(() -> {
+            if (isConfirmed(profile, store)) {
+                future.complete(true);
+                return;
+            }
+            store.addListener(listener);
+            mMainHandler.postDelayed(timeout, timeoutMs);
+        });
+        future.whenComplete((confirmed, e) -> {
+            store.removeListener(listener);
+            mMainHandler.removeCallbacks(timeout);
+        });
+        return future;
+    }
+
+    private boolean isConfirmed(NetworkProfile profile, NetworkStateStore store) {
+        if (profile.hotspotEnabled != null && store.isHotspotEnabled() != profile.hotspotEnabled) {
+            return false;
+        }
+        if (profile.ethernet != null) {
+            String ipAddress = store.getEthernetIpAddress();
+            if (ipAddress == null) {
+                return false;
+            }
+            if (!profile.ethernet.dhcp) {
+                try {
+                    return InetAddress.getByName(profile.ethernet.ipAddress).getHostAddress().equals(ipAddress);
+                } catch (Exception e) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 网络配置方案，为null的配置项表示不修改
+     */
+    public static class NetworkProfile {
+        public final String name;
+        public EthernetConfigEngine.EthernetConfig ethernet;
+        public String hotspotSsid;
+        public String hotspotPassword;
+        public Boolean hotspotEnabled;
+        // 仅用于回滚：各接口原有的以太网配置
+        final Map<String, EthernetConfigEngine.EthernetConfig> ethernetByInterface = new LinkedHashMap<>();
+        // 仅用于回滚：无法解析为EthernetConfig的接口的原始配置
+        final Map<String, Object> ethernetSnapshots = new LinkedHashMap<>();
+        // 仅用于回滚：应用前的WiFi开关
+        Boolean wifiEnabled;
+        // 仅用于回滚：热点原始配置对象（SoftApConfiguration或WifiConfiguration）和加密方式，未读取时为-1
+        Object hotspotSnapshot;
+        int hotspotSecurityType = -1;
+
+        public NetworkProfile(String name) {
+            this.name = name;
+        }
+
+        JSONObject toJson() throws Exception {
+            JSONObject json = new JSONObject();
+            if (ethernet != null) {
+                JSONObject eth = new JSONObject();
+                eth.put("dhcp", ethernet.dhcp);
+                if (!ethernet.dhcp) {
+                    eth.put("ip", ethernet.ipAddress);
+                    eth.put("gateway", ethernet.gateway);
+                    eth.put("netmask", ethernet.netmask);
+                    eth.put("dns1", ethernet.dns1);
+                    eth.put("dns2", ethernet.dns2);
+                }
+                json.put("ethernet", eth);
+            }
+            if (hotspotSsid != null) {
+                JSONObject hotspot = new JSONObject();
+                hotspot.put("ssid", hotspotSsid);
+                hotspot.put("password", hotspotPassword);
+                json.put("hotspot", hotspot);
+            }
+            if (hotspotEnabled != null) {
+                json.put("hotspotEnabled", hotspotEnabled);
+            }
+            return json;
+        }
+
+        static NetworkProfile fromJson(String name, JSONObject json) {
+            NetworkProfile profile = new NetworkProfile(name);
+            JSONObject eth = json.optJSONObject("ethernet");
+            if (eth != null) {
+                profile.ethernet = eth.optBoolean("dhcp", true)
+                        ? EthernetConfigEngine.EthernetConfig.dhcp()
+                        : EthernetConfigEngine.EthernetConfig.staticIp(eth.optString("ip"), eth.optString("gateway"),
+                                eth.optString("netmask"), eth.optString("dns1"), eth.optString("dns2"));
+            }
+            JSONObject hotspot = json.optJSONObject("hotspot");
+            if (hotspot != null) {
+                profile.hotspotSsid = hotspot.optString("ssid");
+                profile.hotspotPassword = hotspot.optString("password");
+            }
+            if (json.has("hotspotEnabled")) {
+                profile.hotspotEnabled = json.optBoolean("hotspotEnabled");
+            }
+            return profile;
+        }
+
+        /**
+         * 方案内容摘要
+         */
+        public String describe() {
+            StringBuilder text = new StringBuilder();
+            if (ethernet != null) {
+                text.append("以太网: ").append(ethernet.dhcp ? "DHCP"
+                        : ethernet.ipAddress + " 网关 " + ethernet.gateway).append("\n");
+            }
+            for (Map.Entry<String, EthernetConfigEngine.EthernetConfig> entry : ethernetByInterface.entrySet()) {
+                EthernetConfigEngine.EthernetConfig config = entry.getValue();
+                text.append(entry.getKey()).append(": ").append(config.dhcp ? "DHCP" : config.ipAddress).append("\n");
+            }
+            for (String iface : ethernetSnapshots.keySet()) {
+                text.append(iface).append(": 原始配置\n");
+            }
+            if (hotspotSsid != null) {
+                text.append("热点名称: ").append(hotspotSsid).append("\n");
+            }
+            if (hotspotSecurityType >= 0) {
+                text.append("热点加密: ").append(securityName(hotspotSecurityType)).append("\n");
+            }
+            if (hotspotEnabled != null) {
+                text.append("热点: ").append(hotspotEnabled ? "开启" : "关闭").append("\n");
+            }
+            return text.length() > 0 ? text.toString().trim() : "无配置项";
+        }
+
+        private static String securityName(int securityType) {
+            switch (securityType) {
+                case SoftApConfiguration.SECURITY_TYPE_OPEN:
+                    return "开放";
+                case SoftApConfiguration.SECURITY_TYPE_WPA2_PSK:
+                    return "WPA2";
+                case SoftApConfiguration.SECURITY_TYPE_WPA3_SAE_TRANSITION:
+                    return "WPA2/WPA3";
+                case SoftApConfiguration.SECURITY_TYPE_WPA3_SAE:
+                    return "WPA3";
+                default:
+                    return String.valueOf(securityType);
+            }
+        }
+    }
+
+    /**
+     * 方案应用结果
+     */
+    public static class ApplyResult {
+        public static final int APPLIED = 0;
+        public static final int ROLLED_BACK = 1;
+        public static final int ROLLBACK_FAILED = 2;
+
+        public final int status;
+        public final long elapsedMs;
+
+        ApplyResult(int status, long elapsedMs) {
+            this.status = status;
+            this.elapsedMs = elapsedMs;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.jabin.rootapp;
+
+import android.bluetooth.BluetoothAdapter;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.LinkAddress;
+import android.net.LinkProperties;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.net.wifi.WifiManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import java.lang.reflect.Method;
+import java.net.Inet4Address;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 网络状态缓存：由网络回调和状态广播驱动，在内存中维护WiFi、蓝牙、热点、以太网的开关状态
+ * 以及各网络的接口、IP和连接状态，查询时直接读取内存，界面通过监听接收变化
+ */
+public class NetworkStateStore {
+
+    private static final String TAG = "NetworkStateStore";
+    private static final String ACTION_WIFI_AP_STATE_CHANGED = "android.net.wifi.WIFI_AP_STATE_CHANGED";
+    private static final String EXTRA_WIFI_AP_STATE = "wifi_state";
+    private static final int WIFI_AP_STATE_ENABLED = 13;
+    private static final Method IS_WIFI_AP_ENABLED = ReflectCache.resolveMethod(WifiManager.class, "isWifiApEnabled");
+
+    private static NetworkStateStore sInstance;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> mListeners = new CopyOnWriteArrayList<>();
+    // 当前可用的网络及其连接信息，由ConnectivityManager回调线程更新
+    private final Map<Network, LinkInfo> mLinks = new HashMap<>();
+
+    private volatile boolean mWifiEnabled;
+    private volatile boolean mBluetoothEnabled;
+    private volatile boolean mHotspotEnabled;
+    private boolean mNotifyPending;
+
+    private NetworkStateStore(Context context) {
+        WifiManager wifiManager = (WifiManager) context.getSystemService(Context.WIFI_SERVICE);
+        BluetoothAdapter bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
+
+        // 初始状态只查询一次，之后由广播更新
+        mWifiEnabled = wifiManager.isWifiEnabled();
+        mBluetoothEnabled = bluetoothAdapter != null && bluetoothAdapter.isEnabled();
+        try {
+            mHotspotEnabled = (boolean) ReflectCache.require(IS_WIFI_AP_ENABLED, "isWifiApEnabled")
+                    .invoke(wifiManager);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to read initial hotspot state: " + e.getMessage());
+        }
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(WifiManager.WIFI_STATE_CHANGED_ACTION);
+        filter.addAction(BluetoothAdapter.ACTION_STATE_CHANGED);
+        filter.addAction(ACTION_WIFI_AP_STATE_CHANGED);
+        ContextCompat.registerReceiver(context, mStateReceiver, filter, ContextCompat.RECEIVER_NOT_EXPORTED);
+
+        // 不限定传输类型，接收全部网络的连接信息
+        NetworkRequest request = new NetworkRequest.Builder()
+                .removeCapability(NetworkCapabilities.NET_CAPABILITY_NOT_RESTRICTED)
+                .build();
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        connectivityManager.registerNetworkCallback(request, mNetworkCallback);
+    }
+
+    public static synchronized NetworkStateStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new NetworkStateStore(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private final BroadcastReceiver mStateReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            String action = intent.getAction();
+            if (WifiManager.WIFI_STATE_CHANGED_ACTION.equals(action)) {
+                mWifiEnabled = intent.getIntExtra(WifiManager.EXTRA_WIFI_STATE, -1)
+                        == WifiManager.WIFI_STATE_ENABLED;
+            } else if (BluetoothAdapter.ACTION_STATE_CHANGED.equals(action)) {
+                mBluetoothEnabled = intent.getIntExtra(BluetoothAdapter.EXTRA_STATE, -1)
+                        == BluetoothAdapter.STATE_ON;
+            } else if (ACTION_WIFI_AP_STATE_CHANGED.equals(action)) {
+                mHotspotEnabled = intent.getIntExtra(EXTRA_WIFI_AP_STATE, -1) == WIFI_AP_STATE_ENABLED;
+            }
+            notifyChanged();
+        }
+    };
+
+    private final ConnectivityManager.NetworkCallback mNetworkCallback = new ConnectivityManager.NetworkCallback() {
+        @Override
+        public void onCapabilitiesChanged(Network network, NetworkCapabilities capabilities) {
+            synchronized (mLinks) {
+                LinkInfo info = linkFor(network);
+                info.transport = transportOf(capabilities);
+                info.validated = capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+            }
+            notifyChanged();
+        }
+
+        @Override
+        public void onLinkPropertiesChanged(Network network, LinkProperties linkProperties) {
+            synchronized (mLinks) {
+                LinkInfo info = linkFor(network);
+                info.interfaceName = linkProperties.getInterfaceName();
+                info.ipAddress = null;
+                for (LinkAddress address : linkProperties.getLinkAddresses()) {
+                    if (address.getAddress() instanceof Inet4Address) {
+                        info.ipAddress = address.getAddress().getHostAddress();
+                        info.prefixLength = address.getPrefixLength();
+                        break;
+                    }
+                }
+            }
+            notifyChanged();
+        }
+
+        @Override
+        public void onLost(Network network) {
+            synchronized (mLinks) {
+                mLinks.remove(network);
+            }
+            notifyChanged();
+        }
+    };
+
+    private LinkInfo linkFor(Network network) {
+        LinkInfo info = mLinks.get(network);
+        if (info == null) {
+            info = new LinkInfo();
+            info.network = network;
+            mLinks.put(network, info);
+        }
+        return info;
+    }
+
+    private static int transportOf(NetworkCapabilities capabilities) {
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
+            return NetworkCapabilities.TRANSPORT_ETHERNET;
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+            return NetworkCapabilities.TRANSPORT_WIFI;
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+            return NetworkCapabilities.TRANSPORT_CELLULAR;
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_BLUETOOTH)) {
+            return NetworkCapabilities.TRANSPORT_BLUETOOTH;
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_VPN)) {
+            return NetworkCapabilities.TRANSPORT_VPN;
+        }
+        return -1;
+    }
+
+    /**
+     * 合并短时间内的多次变化，在主线程统一通知一次
+     */
+    private void notifyChanged() {
+        synchronized (this) {
+            if (mNotifyPending) {
+                return;
+            }
+            mNotifyPending = true;
+        }
+        mMainHandler.post(() -> {
+            synchronized (this) {
+                mNotifyPending = false;
+            }
+            for (Listener listener : mListeners) {
+                listener.onNetworkStateChanged(this);
+            }
+        });
+    }
+
+    /**
+     * 添加状态变化监听，回调在主线程执行
+     */
+    public void addListener(Listener listener) {
+        mListeners.add(listener);
+    }
+
+    /**
+     * 移除状态变化监听
+     */
+    public void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    public boolean isWifiEnabled() {
+        return mWifiEnabled;
+    }
+
+    public boolean isBluetoothEnabled() {
+        return mBluetoothEnabled;
+    }
+
+    public boolean isHotspotEnabled() {
+        return mHotspotEnabled;
+    }
+
+    public boolean isWifiConnected() {
+        return findLink(NetworkCapabilities.TRANSPORT_WIFI) != null;
+    }
+
+    public boolean isEthernetConnected() {
+        return findLink(NetworkCapabilities.TRANSPORT_ETHERNET) != null;
+    }
+
+    /**
+     * 获取WLAN的IPv4地址
+     * @return IP地址，未连接时返回null
+     */
+    public String getWifiIpAddress() {
+        LinkInfo info = findLink(NetworkCapabilities.TRANSPORT_WIFI);
+        return info != null ? info.ipAddress : null;
+    }
+
+    /**
+     * 获取以太网的IPv4地址
+     * @return IP地址，未连接时返回null
+     */
+    public String getEthernetIpAddress() {
+        LinkInfo info = findLink(NetworkCapabilities.TRANSPORT_ETHERNET);
+        return info != null ? info.ipAddress : null;
+    }
+
+    /**
+     * 获取当前全部网络连接信息
+     * @return 连接信息副本
+     */
+    public List<LinkInfo> getLinks() {
+        List<LinkInfo> links = new ArrayList<>();
+        synchronized (mLinks) {
+            for (LinkInfo info : mLinks.values()) {
+                links.add(info.copy());
+            }
+        }
+        return links;
+    }
+
+    private LinkInfo findLink(int transport) {
+        synchronized (mLinks) {
+            for (LinkInfo info : mLinks.values()) {
+                if (info.transport == transport) {
+                    return info.copy();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 单个网络的连接信息
+     */
+    public static class LinkInfo {
+        public Network network;
+        // NetworkCapabilities.TRANSPORT_*，未知为-1
+        public int transport = -1;
+        public String interfaceName;
+        public String ipAddress;
+        public int prefixLength;
+        public boolean validated;
+
+        LinkInfo copy() {
+            LinkInfo info = new LinkInfo();
+            info.network = network;
+            info.transport = transport;
+            info.interfaceName = interfaceName;
+            info.ipAddress = ipAddress;
+            info.prefixLength = prefixLength;
+            info.validated = validated;
+            return info;
+        }
+    }
+
+    /**
+     * 网络状态变化监听接口
+     */
+    public interface Listener {
+        /**
+         * 网络状态变化回调（主线程）
+         * @param store 状态缓存
+         */
+        void onNetworkStateChanged(NetworkStateStore store);
+    }
+}
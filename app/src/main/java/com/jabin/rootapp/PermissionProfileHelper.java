@@ -0,0 +1,302 @@
+package com.jabin.rootapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageInstaller;
+import android.content.pm.PackageManager;
+import android.content.pm.PermissionInfo;
+import android.os.Build;
+import android.os.Process;
+import android.os.UserHandle;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 运行时权限配置助手类，按包名保存需要授予的权限集合，安装成功后自动批量授予
+ */
+public class PermissionProfileHelper {
+
+    private static final String TAG = "PermissionProfileHelper";
+    private static final String PREFS_NAME = "permission_profiles";
+
+    // SessionParams.PERMISSION_STATE_GRANTED（Android 14系统接口）
+    private static final int PERMISSION_STATE_GRANTED = 1;
+
+    // grantRuntimePermission为隐藏接口，解析一次后复用
+    private static Method sGrantMethod;
+    private static boolean sGrantMethodResolved;
+    // 安装会话预授权接口：Android 14起为setPermissionState，之前为setGrantedRuntimePermissions
+    private static Method sSessionGrantMethod;
+    private static boolean sSessionGrantMethodResolved;
+
+    private Context mContext;
+    private PackageManager mPackageManager;
+    private SharedPreferences mPrefs;
+
+    public PermissionProfileHelper(Context context) {
+        this.mContext = context;
+        this.mPackageManager = context.getPackageManager();
+        this.mPrefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * 获取应用的权限配置
+     * @param packageName 应用包名
+     * @return 权限集合，未配置时为空集合
+     */
+    public Set<String> getProfile(String packageName) {
+        Set<String> permissions = new LinkedHashSet<>();
+        String json = mPrefs.getString(packageName, null);
+        if (json == null) {
+            return permissions;
+        }
+        try {
+            JSONArray array = new JSONArray(json);
+            for (int i = 0; i < array.length(); i++) {
+                permissions.add(array.getString(i));
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Invalid profile for " + packageName + ": " + e.getMessage());
+        }
+        return permissions;
+    }
+
+    /**
+     * 保存应用的权限配置，集合为空时删除配置
+     * @param packageName 应用包名
+     * @param permissions 权限集合
+     */
+    public void setProfile(String packageName, Set<String> permissions) {
+        if (permissions == null || permissions.isEmpty()) {
+            mPrefs.edit().remove(packageName).apply();
+            return;
+        }
+        mPrefs.edit().putString(packageName, new JSONArray(permissions).toString()).apply();
+    }
+
+    /**
+     * 从JSON文件批量导入权限配置，格式为 {"包名": ["权限", ...], ...}
+     * @param file 配置文件
+     * @return 导入的应用数量
+     */
+    public int importProfiles(File file) throws Exception {
+        try (FileInputStream in = new FileInputStream(file)) {
+            return importProfiles(in);
+        }
+    }
+
+    /**
+     * 从输入流批量导入权限配置，格式同importProfiles(File)，不关闭输入流
+     * @param in 输入流
+     * @return 导入的应用数量
+     */
+    public int importProfiles(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        JSONObject profiles = new JSONObject(new String(out.toByteArray(), StandardCharsets.UTF_8));
+        SharedPreferences.Editor editor = mPrefs.edit();
+        int count = 0;
+        Iterator<String> keys = profiles.keys();
+        while (keys.hasNext()) {
+            String packageName = keys.next();
+            JSONArray permissions = profiles.optJSONArray(packageName);
+            if (permissions != null) {
+                editor.putString(packageName, permissions.toString());
+                count++;
+            }
+        }
+        editor.apply();
+        return count;
+    }
+
+    /**
+     * 获取应用声明的危险（运行时）权限
+     * @param packageName 应用包名
+     * @return 权限列表
+     */
+    public List<String> getRuntimePermissions(String packageName) {
+        List<String> result = new ArrayList<>();
+        try {
+            PackageInfo packageInfo = mPackageManager.getPackageInfo(packageName, PackageManager.GET_PERMISSIONS);
+            if (packageInfo.requestedPermissions == null) {
+                return result;
+            }
+            for (String permission : packageInfo.requestedPermissions) {
+                try {
+                    PermissionInfo info = mPackageManager.getPermissionInfo(permission, 0);
+                    int protection = Build.VERSION.SDK_INT >= Build.VERSION_CODES.P
+                            ? info.getProtection()
+                            : info.protectionLevel & PermissionInfo.PROTECTION_MASK_BASE;
+                    if (protection == PermissionInfo.PROTECTION_DANGEROUS) {
+                        result.add(permission);
+                    }
+                } catch (PackageManager.NameNotFoundException e) {
+                    // 未定义的权限，忽略
+                }
+            }
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.w(TAG, "Package not found: " + packageName);
+        }
+        return result;
+    }
+
+    /**
+     * 将应用的权限配置写入安装会话参数，安装完成时由系统一次性授予，无需安装后逐项授予
+     * @param params 安装会话参数
+     * @param packageName 应用包名
+     * @return 是否已写入（没有配置或系统不支持时返回false）
+     */
+    public boolean applyToSession(PackageInstaller.SessionParams params, String packageName) {
+        Set<String> permissions = getProfile(packageName);
+        Method method = getSessionGrantMethod();
+        if (permissions.isEmpty() || method == null) {
+            return false;
+        }
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
+                for (String permission : permissions) {
+                    method.invoke(params, permission, PERMISSION_STATE_GRANTED);
+                }
+            } else {
+                method.invoke(params, (Object) permissions.toArray(new String[0]));
+            }
+            return true;
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to preset permissions for " + packageName + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 按配置为应用批量授予运行时权限，已授予的权限会跳过。
+     * 授予状态通过一次getPackageInfo取得，只对尚未授予的权限调用授予接口；安装时已预授权的应用不会再有调用
+     * @param packageName 应用包名
+     * @return 授予结果
+     */
+    public GrantResult applyProfile(String packageName) {
+        GrantResult result = new GrantResult(packageName);
+        Set<String> permissions = getProfile(packageName);
+        if (permissions.isEmpty()) {
+            return result;
+        }
+        PackageInfo packageInfo;
+        try {
+            packageInfo = mPackageManager.getPackageInfo(packageName, PackageManager.GET_PERMISSIONS);
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.w(TAG, "Package not found: " + packageName);
+            result.failed.addAll(permissions);
+            return result;
+        }
+        List<String> missing = new ArrayList<>();
+        for (String permission : permissions) {
+            int flags = requestedFlags(packageInfo, permission);
+            if (flags < 0) {
+                // 应用未声明的权限无法授予
+                result.failed.add(permission);
+            } else if ((flags & PackageInfo.REQUESTED_PERMISSION_GRANTED) != 0) {
+                result.alreadyGranted++;
+            } else {
+                missing.add(permission);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Method grantMethod = getGrantMethod();
+            UserHandle user = Process.myUserHandle();
+            for (String permission : missing) {
+                try {
+                    if (grantMethod == null) {
+                        throw new NoSuchMethodException("grantRuntimePermission");
+                    }
+                    grantMethod.invoke(mPackageManager, packageName, permission, user);
+                    result.granted++;
+                } catch (Exception e) {
+                    Log.e(TAG, "Failed to grant " + permission + " to " + packageName + ": " + e.getMessage());
+                    result.failed.add(permission);
+                }
+            }
+        }
+        Log.d(TAG, "Applied profile to " + packageName + ": granted=" + result.granted
+                + ", alreadyGranted=" + result.alreadyGranted + ", failed=" + result.failed);
+        return result;
+    }
+
+    /**
+     * 查找应用声明的权限对应的授予标志
+     * @return 标志位，未声明时返回-1
+     */
+    private static int requestedFlags(PackageInfo packageInfo, String permission) {
+        if (packageInfo.requestedPermissions == null) {
+            return -1;
+        }
+        for (int i = 0; i < packageInfo.requestedPermissions.length; i++) {
+            if (permission.equals(packageInfo.requestedPermissions[i])) {
+                return packageInfo.requestedPermissionsFlags != null ? packageInfo.requestedPermissionsFlags[i] : 0;
+            }
+        }
+        return -1;
+    }
+
+    private static synchronized Method getSessionGrantMethod() {
+        if (!sSessionGrantMethodResolved) {
+            sSessionGrantMethodResolved = true;
+            try {
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
+                    sSessionGrantMethod = PackageInstaller.SessionParams.class.getMethod("setPermissionState",
+                            String.class, int.class);
+                } else {
+                    sSessionGrantMethod = PackageInstaller.SessionParams.class.getMethod("setGrantedRuntimePermissions",
+                            String[].class);
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Install-time permission grant not available: " + e.getMessage());
+            }
+        }
+        return sSessionGrantMethod;
+    }
+
+    private static synchronized Method getGrantMethod() {
+        if (!sGrantMethodResolved) {
+            sGrantMethodResolved = true;
+            try {
+                sGrantMethod = PackageManager.class.getMethod("grantRuntimePermission",
+                        String.class, String.class, UserHandle.class);
+            } catch (Exception e) {
+                Log.e(TAG, "grantRuntimePermission not available: " + e.getMessage());
+            }
+        }
+        return sGrantMethod;
+    }
+
+    /**
+     * 权限授予结果
+     */
+    public static class GrantResult {
+        public final String packageName;
+        public int granted;
+        public int alreadyGranted;
+        public final List<String> failed = new ArrayList<>();
+
+        GrantResult(String packageName) {
+            this.packageName = packageName;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.jabin.rootapp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 流水线拷贝工具类：读线程负责从输入流读取（下载、解压等），调用线程负责写入输出流，
+ * 两端通过固定数量的缓冲区交替工作，读和写可以同时进行
+ */
+public class PipedStreamCopier {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int BUFFER_COUNT = 4;
+
+    private final InputStream mInput;
+    private final OutputStream mOutput;
+    private final MessageDigest mDigest;
+    private volatile long mBytesWritten;
+
+    /**
+     * @param input 输入流，在读线程中读取
+     * @param output 输出流，在调用线程中写入
+     * @param digest 对写入数据计算摘要，不需要时传null
+     */
+    public PipedStreamCopier(InputStream input, OutputStream output, MessageDigest digest) {
+        this.mInput = input;
+        this.mOutput = output;
+        this.mDigest = digest;
+    }
+
+    /**
+     * 执行拷贝直到输入流结束，读写任一端出错都会抛出异常
+     * @return 本次写入的字节数
+     */
+    public long copy() throws IOException {
+        final BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(BUFFER_COUNT);
+        final BlockingQueue<Chunk> filled = new ArrayBlockingQueue<>(BUFFER_COUNT + 1);
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            free.add(new Chunk(new byte[BUFFER_SIZE]));
+        }
+
+        Thread reader = new Thread(() -> {
+            try {
+                while (true) {
+                    Chunk chunk = free.take();
+                    chunk.length = mInput.read(chunk.data);
+                    filled.put(chunk);
+                    if (chunk.length < 0) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                // 写端出错时中断读线程
+            } catch (IOException e) {
+                filled.offer(new Chunk(e));
+            }
+        }, "PipedStreamReader");
+        reader.start();
+
+        long written = 0;
+        try {
+            while (true) {
+                Chunk chunk = filled.take();
+                if (chunk.error != null) {
+                    throw chunk.error;
+                }
+                if (chunk.length < 0) {
+                    break;
+                }
+                if (chunk.length > 0) {
+                    mOutput.write(chunk.data, 0, chunk.length);
+                    if (mDigest != null) {
+                        mDigest.update(chunk.data, 0, chunk.length);
+                    }
+                    written += chunk.length;
+                    mBytesWritten += chunk.length;
+                }
+                free.put(chunk);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Copy interrupted");
+        } finally {
+            reader.interrupt();
+        }
+        return written;
+    }
+
+    /**
+     * 已写入输出流的字节数（包括出错前已写入的部分）
+     */
+    public long getBytesWritten() {
+        return mBytesWritten;
+    }
+
+    /**
+     * 缓冲区
+     */
+    private static class Chunk {
+        final byte[] data;
+        final IOException error;
+        int length;
+
+        Chunk(byte[] data) {
+            this.data = data;
+            this.error = null;
+        }
+
+        Chunk(IOException error) {
+            this.data = null;
+            this.error = error;
+        }
+    }
+}
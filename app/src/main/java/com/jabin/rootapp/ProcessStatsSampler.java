@@ -0,0 +1,256 @@
+package com.jabin.rootapp;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.system.Os;
+import android.system.OsConstants;
+import android.util.Log;
+import android.util.SparseArray;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 进程资源采样器：每个刷新周期扫描一次/proc，按UID汇总应用进程的RSS/PSS内存和CPU占用，
+ * 采样在后台线程执行，结果在主线程回调
+ */
+public class ProcessStatsSampler {
+
+    private static final String TAG = "ProcessStatsSampler";
+    public static final long DEFAULT_INTERVAL_MS = 2000;
+
+    private final long mIntervalMs;
+    private final Listener mListener;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final long mClockTicks;
+    private final int mCpuCount;
+
+    private HandlerThread mThread;
+    // 当前的采样任务，每次start新建，旧任务即使还在执行也只会操作自己的状态
+    private SampleRun mRun;
+    private volatile Set<Integer> mWatchedUids = new HashSet<>();
+
+    public ProcessStatsSampler(long intervalMs, Listener listener) {
+        this.mIntervalMs = intervalMs;
+        this.mListener = listener;
+        long ticks = 100;
+        try {
+            ticks = Os.sysconf(OsConstants._SC_CLK_TCK);
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to get CLK_TCK, using 100");
+        }
+        this.mClockTicks = ticks > 0 ? ticks : 100;
+        this.mCpuCount = Math.max(1, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 设置需要采样的应用UID，只有这些UID的进程会读取CPU和PSS
+     * @param uids UID集合
+     */
+    public void setWatchedUids(Set<Integer> uids) {
+        mWatchedUids = new HashSet<>(uids);
+    }
+
+    /**
+     * 开始周期采样
+     */
+    public synchronized void start() {
+        if (mThread != null) {
+            return;
+        }
+        mThread = new HandlerThread("ProcessStats");
+        mThread.start();
+        mRun = new SampleRun(new Handler(mThread.getLooper()));
+        mRun.handler.post(mRun);
+    }
+
+    /**
+     * 停止采样
+     */
+    public synchronized void stop() {
+        if (mThread == null) {
+            return;
+        }
+        mRun.stopped = true;
+        mRun.handler.removeCallbacksAndMessages(null);
+        mThread.quitSafely();
+        mThread = null;
+        mRun = null;
+    }
+
+    /**
+     * 一次start到stop之间的采样任务，只在自己的线程上重新调度，停止后不再回调
+     */
+    private class SampleRun implements Runnable {
+        final Handler handler;
+        volatile boolean stopped;
+        private final byte[] mBuffer = new byte[8192];
+        // 上一次采样时每个进程的CPU节拍数，用于计算增量
+        private SparseArray<Long> mLastTicks = new SparseArray<>();
+        private long mLastSampleTime;
+
+        SampleRun(Handler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void run() {
+            if (stopped) {
+                return;
+            }
+            final SparseArray<AppStats> stats = sample();
+            mMainHandler.post(() -> {
+                if (!stopped) {
+                    mListener.onStatsUpdated(stats);
+                }
+            });
+            if (!stopped) {
+                handler.postDelayed(this, mIntervalMs);
+            }
+        }
+
+        /**
+         * 一次/proc扫描
+         * @return UID -> 资源汇总
+         */
+        private SparseArray<AppStats> sample() {
+            SparseArray<AppStats> result = new SparseArray<>();
+            SparseArray<Long> ticks = new SparseArray<>();
+            Set<Integer> watched = mWatchedUids;
+            long now = SystemClock.elapsedRealtime();
+            long elapsedMs = mLastSampleTime > 0 ? now - mLastSampleTime : 0;
+
+            String[] pids = new File("/proc").list();
+            if (pids == null) {
+                return result;
+            }
+            for (String pidName : pids) {
+                if (pidName.isEmpty() || pidName.charAt(0) < '0' || pidName.charAt(0) > '9') {
+                    continue;
+                }
+                try {
+                    int pid = Integer.parseInt(pidName);
+                    // status中同时包含UID和VmRSS，一次读取即可过滤
+                    String status = readFile("/proc/" + pid + "/status");
+                    if (status == null) {
+                        continue;
+                    }
+                    int uid = (int) parseField(status, "Uid:");
+                    if (!watched.contains(uid)) {
+                        continue;
+                    }
+                    AppStats appStats = result.get(uid);
+                    if (appStats == null) {
+                        appStats = new AppStats();
+                        result.put(uid, appStats);
+                    }
+                    appStats.processCount++;
+                    appStats.rssKb += parseField(status, "VmRSS:");
+
+                    String rollup = readFile("/proc/" + pid + "/smaps_rollup");
+                    if (rollup != null) {
+                        appStats.pssKb += parseField(rollup, "Pss:");
+                    }
+
+                    long cpuTicks = readCpuTicks(pid);
+                    if (cpuTicks >= 0) {
+                        ticks.put(pid, cpuTicks);
+                        Long last = mLastTicks.get(pid);
+                        if (last != null && elapsedMs > 0) {
+                            double cpuMs = (cpuTicks - last) * 1000.0 / mClockTicks;
+                            appStats.cpuPercent += (float) (cpuMs * 100 / elapsedMs / mCpuCount);
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    // 进程在扫描过程中退出，忽略
+                }
+            }
+            mLastTicks = ticks;
+            mLastSampleTime = now;
+            return result;
+        }
+
+        /**
+         * 读取/proc/[pid]/stat中的utime+stime
+         */
+        private long readCpuTicks(int pid) {
+            String stat = readFile("/proc/" + pid + "/stat");
+            if (stat == null) {
+                return -1;
+            }
+            // 进程名可能包含空格，从最后一个')'之后开始解析，之后第1个字段是state（总第3个字段）
+            int end = stat.lastIndexOf(')');
+            if (end < 0) {
+                return -1;
+            }
+            String[] fields = stat.substring(end + 2).split(" ");
+            if (fields.length < 13) {
+                return -1;
+            }
+            // utime为总第14个字段，stime为第15个字段
+            return Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+        }
+
+        /**
+         * 使用复用的缓冲区读取小文件，读取失败（无权限或进程已退出）返回null
+         */
+        private String readFile(String path) {
+            try (FileInputStream in = new FileInputStream(path)) {
+                int total = 0;
+                int read;
+                while (total < mBuffer.length && (read = in.read(mBuffer, total, mBuffer.length - total)) > 0) {
+                    total += read;
+                }
+                return new String(mBuffer, 0, total);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 解析“Key: value ...”格式行中的第一个数值
+     */
+    private long parseField(String content, String key) {
+        int index = content.indexOf(key);
+        if (index < 0) {
+            return 0;
+        }
+        int i = index + key.length();
+        while (i < content.length() && (content.charAt(i) == ' ' || content.charAt(i) == '\t')) {
+            i++;
+        }
+        long value = 0;
+        while (i < content.length() && Character.isDigit(content.charAt(i))) {
+            value = value * 10 + (content.charAt(i) - '0');
+            i++;
+        }
+        return value;
+    }
+
+    /**
+     * 单个应用（UID）的资源占用
+     */
+    public static class AppStats {
+        public int processCount;
+        public long rssKb;
+        public long pssKb;
+        public float cpuPercent;
+    }
+
+    /**
+     * 采样结果回调接口
+     */
+    public interface Listener {
+        /**
+         * 采样结果回调（主线程）
+         * @param stats UID -> 资源汇总，只包含有运行中进程的应用
+         */
+        void onStatsUpdated(SparseArray<AppStats> stats);
+    }
+}
@@ -0,0 +1,180 @@
+package com.jabin.rootapp;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 无线开关命令执行器：每个无线模块（WiFi、蓝牙、以太网、热点）一个串行后台线程，
+ * 同一模块的开关操作依次执行；执行期间的多次切换只保留最后一次期望状态，
+ * 当前操作完成后如期望状态已改变再执行一次。开关操作由执行器自身持有的NetworkManagerHelper执行，
+ * 结果在主线程通知已注册的监听，界面在可见期间注册，不会被单例长期引用
+ */
+public class RadioCommandExecutor {
+
+    private static final String TAG = "RadioCommandExecutor";
+    public static final String WIFI = "wifi";
+    public static final String BLUETOOTH = "bluetooth";
+    public static final String ETHERNET = "ethernet";
+    public static final String HOTSPOT = "hotspot";
+
+    private static RadioCommandExecutor sInstance;
+
+    private final NetworkManagerHelper mNetworkManager;
+    private final Map<String, RadioQueue> mQueues = new HashMap<>();
+    private final List<Callback> mCallbacks = new CopyOnWriteArrayList<>();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private RadioCommandExecutor(Context context) {
+        mNetworkManager = new NetworkManagerHelper(context);
+    }
+
+    public static synchronized RadioCommandExecutor getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new RadioCommandExecutor(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * 注册结果监听，需与removeCallback成对调用
+     */
+    public void addCallback(Callback callback) {
+        mCallbacks.add(callback);
+    }
+
+    public void removeCallback(Callback callback) {
+        mCallbacks.remove(callback);
+    }
+
+    /**
+     * 提交开关操作，可在任意线程调用
+     * @param radio 无线模块
+     * @param enabled 期望状态
+     * @return 该模块的操作全部完成后结束：最终执行的状态等于本次期望状态且执行成功时为true
+     */
+    public synchronized CompletableFuture<Boolean> submit(String radio, boolean enabled) {
+        RadioQueue queue = mQueues.get(radio);
+        if (queue == null) {
+            queue = new RadioQueue(radio);
+            mQueues.put(radio, queue);
+        }
+        Waiter waiter = new Waiter(enabled);
+        queue.waiters.add(waiter);
+        queue.desired = enabled;
+        if (queue.running) {
+            Log.d(TAG, radio + " busy, coalescing request to " + enabled);
+        } else {
+            run(queue);
+        }
+        return waiter.future;
+    }
+
+    /**
+     * 模块是否有正在执行的操作，执行期间界面不应以系统状态覆盖开关
+     */
+    public synchronized boolean isBusy(String radio) {
+        RadioQueue queue = mQueues.get(radio);
+        return queue != null && queue.running;
+    }
+
+    private void run(final RadioQueue queue) {
+        queue.running = true;
+        final boolean target = queue.desired;
+        queue.executor.execute(() -> {
+            CompletableFuture<Boolean> future;
+            try {
+                future = apply(queue.radio, target);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to set " + queue.radio + " to " + target + ": " + e.getMessage(), e);
+                future = CompletableFuture.completedFuture(false);
+            }
+            future.whenComplete((result, e) -> onFinished(queue, target, result != null && result));
+        });
+    }
+
+    /**
+     * 执行开关，在该模块的后台线程调用，返回的future完成后才执行下一个操作
+     */
+    private CompletableFuture<Boolean> apply(String radio, boolean enabled) {
+        switch (radio) {
+            case WIFI:
+                return CompletableFuture.completedFuture(mNetworkManager.setWifiEnabled(enabled));
+            case BLUETOOTH:
+                return CompletableFuture.completedFuture(mNetworkManager.setBluetoothEnabled(enabled));
+            case ETHERNET:
+                return CompletableFuture.completedFuture(mNetworkManager.setEthernetEnabled(enabled));
+            case HOTSPOT:
+                // 等待热点状态广播，完成后才会执行下一次切换
+                return mNetworkManager.setHotspotEnabled(enabled);
+            default:
+                throw new IllegalArgumentException("Unknown radio " + radio);
+        }
+    }
+
+    private synchronized void onFinished(RadioQueue queue, boolean target, boolean success) {
+        if (queue.desired != target) {
+            // 执行期间期望状态又被切换，按最新状态再执行一次
+            Log.d(TAG, queue.radio + " changed to " + queue.desired + " while applying " + target);
+            run(queue);
+            return;
+        }
+        queue.running = false;
+        for (Waiter waiter : queue.waiters) {
+            waiter.future.complete(success && waiter.enabled == target);
+        }
+        queue.waiters.clear();
+        final String radio = queue.radio;
+        mMainHandler.post(() -> {
+            for (Callback callback : mCallbacks) {
+                callback.onResult(radio, target, success);
+            }
+        });
+    }
+
+    private static class RadioQueue {
+        final String radio;
+        final ExecutorService executor;
+        // 等待本轮操作结束的请求
+        final List<Waiter> waiters = new ArrayList<>();
+        boolean desired;
+        boolean running;
+
+        RadioQueue(String radio) {
+            this.radio = radio;
+            this.executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "Radio-" + radio));
+        }
+    }
+
+    private static class Waiter {
+        final boolean enabled;
+        final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        Waiter(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    /**
+     * 执行结果回调接口
+     */
+    public interface Callback {
+        /**
+         * 执行结果回调（主线程）
+         * @param radio 无线模块
+         * @param enabled 最终执行的状态
+         * @param success 是否执行成功
+         */
+        void onResult(String radio, boolean enabled, boolean success);
+    }
+}
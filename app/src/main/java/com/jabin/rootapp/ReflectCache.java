@@ -0,0 +1,309 @@
+package com.jabin.rootapp;
+
+import android.util.Log;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 反射查找工具：调用方应在静态常量中用resolve*一次性解析固定的类、方法、字段和构造器，
+ * 调用时直接使用常量，不再有按名称查表的开销；类型只能在运行时确定的查找使用带缓存的get*方法，
+ * 查找失败的结果同样缓存，避免对不存在的隐藏接口重复查找
+ */
+public final class ReflectCache {
+
+    private static final String TAG = "ReflectCache";
+
+    // 查找失败的占位值
+    private static final Object MISSING = new Object();
+
+    private static final ConcurrentHashMap<String, Object> sClasses = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Object> sMembers = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, List<Method>> sOverloads = new ConcurrentHashMap<>();
+
+    private ReflectCache() {
+    }
+
+    /**
+     * 按名称加载类
+     */
+    public static Class<?> forName(String className) throws ClassNotFoundException {
+        Object cached = sClasses.get(className);
+        if (cached == null) {
+            try {
+                cached = Class.forName(className);
+            } catch (ClassNotFoundException e) {
+                cached = MISSING;
+            }
+            sClasses.put(className, cached);
+        }
+        if (cached == MISSING) {
+            throw new ClassNotFoundException(className);
+        }
+        return (Class<?>) cached;
+    }
+
+    /**
+     * 获取公开方法，等同于Class.getMethod
+     */
+    public static Method getMethod(Class<?> cls, String name, Class<?>... parameterTypes)
+            throws NoSuchMethodException {
+        String key = "m:" + cls.getName() + "#" + name + Arrays.toString(parameterTypes);
+        Object cached = sMembers.get(key);
+        if (cached == null) {
+            try {
+                cached = cls.getMethod(name, parameterTypes);
+            } catch (NoSuchMethodException e) {
+                cached = MISSING;
+            }
+            sMembers.put(key, cached);
+        }
+        if (cached == MISSING) {
+            throw new NoSuchMethodException(cls.getName() + "." + name);
+        }
+        return (Method) cached;
+    }
+
+    /**
+     * 获取指定名称的全部公开重载方法，替代每次遍历getMethods()
+     * @return 方法列表，不存在时为空列表
+     */
+    public static List<Method> getMethods(Class<?> cls, String name) {
+        String key = cls.getName() + "#" + name;
+        List<Method> methods = sOverloads.get(key);
+        if (methods == null) {
+            List<Method> found = new ArrayList<>();
+            for (Method method : cls.getMethods()) {
+                if (method.getName().equals(name)) {
+                    found.add(method);
+                }
+            }
+            methods = Collections.unmodifiableList(found);
+            sOverloads.put(key, methods);
+        }
+        return methods;
+    }
+
+    /**
+     * 获取指定名称和参数个数的第一个公开方法
+     * @return 方法，不存在时返回null
+     */
+    public static Method findMethod(Class<?> cls, String name, int parameterCount) {
+        for (Method method : getMethods(cls, name)) {
+            if (method.getParameterTypes().length == parameterCount) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取公开字段，等同于Class.getField
+     */
+    public static Field getField(Class<?> cls, String name) throws NoSuchFieldException {
+        return field(cls, name, false);
+    }
+
+    /**
+     * 获取声明的字段（包括私有字段），并设置为可访问
+     */
+    public static Field getDeclaredField(Class<?> cls, String name) throws NoSuchFieldException {
+        return field(cls, name, true);
+    }
+
+    private static Field field(Class<?> cls, String name, boolean declared) throws NoSuchFieldException {
+        String key = (declared ? "df:" : "f:") + cls.getName() + "#" + name;
+        Object cached = sMembers.get(key);
+        if (cached == null) {
+            try {
+                Field field = declared ? cls.getDeclaredField(name) : cls.getField(name);
+                if (declared) {
+                    field.setAccessible(true);
+                }
+                cached = field;
+            } catch (NoSuchFieldException e) {
+                cached = MISSING;
+            }
+            sMembers.put(key, cached);
+        }
+        if (cached == MISSING) {
+            throw new NoSuchFieldException(cls.getName() + "." + name);
+        }
+        return (Field) cached;
+    }
+
+    /**
+     * 读取静态字段的值（常量），字段本身会被缓存
+     */
+    public static Object getStaticValue(Class<?> cls, String name) throws Exception {
+        return getField(cls, name).get(null);
+    }
+
+    /**
+     * 获取声明的构造器，并设置为可访问
+     */
+    public static Constructor<?> getDeclaredConstructor(Class<?> cls, Class<?>... parameterTypes)
+            throws NoSuchMethodException {
+        String key = "c:" + cls.getName() + Arrays.toString(parameterTypes);
+        Object cached = sMembers.get(key);
+        if (cached == null) {
+            try {
+                Constructor<?> constructor = cls.getDeclaredConstructor(parameterTypes);
+                constructor.setAccessible(true);
+                cached = constructor;
+            } catch (NoSuchMethodException e) {
+                cached = MISSING;
+            }
+            sMembers.put(key, cached);
+        }
+        if (cached == MISSING) {
+            throw new NoSuchMethodException(cls.getName() + ".<init>");
+        }
+        return (Constructor<?>) cached;
+    }
+
+    /**
+     * 按名称查找类，用于静态常量初始化
+     * @return 类，不存在时返回null
+     */
+    public static Class<?> findClass(String className) {
+        try {
+            return forName(className);
+        } catch (ClassNotFoundException e) {
+            Log.w(TAG, "Class not found: " + className);
+            return null;
+        }
+    }
+
+    /**
+     * 解析公开方法，用于静态常量初始化
+     * @return 方法，类或参数类型为null、方法不存在时返回null
+     */
+    public static Method resolveMethod(Class<?> cls, String name, Class<?>... parameterTypes) {
+        if (cls == null || Arrays.asList(parameterTypes).contains(null)) {
+            return null;
+        }
+        try {
+            return getMethod(cls, name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            Log.w(TAG, "Method not found: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 解析指定名称的全部公开重载方法，用于静态常量初始化
+     * @return 方法列表，类为null或不存在时为空列表
+     */
+    public static List<Method> resolveMethods(Class<?> cls, String name) {
+        return cls != null ? getMethods(cls, name) : Collections.<Method>emptyList();
+    }
+
+    /**
+     * 解析字段，用于静态常量初始化
+     * @param declared true时查找声明的字段（包括私有字段）并设置为可访问
+     * @return 字段，类为null或字段不存在时返回null
+     */
+    public static Field resolveField(Class<?> cls, String name, boolean declared) {
+        if (cls == null) {
+            return null;
+        }
+        try {
+            return field(cls, name, declared);
+        } catch (NoSuchFieldException e) {
+            Log.w(TAG, "Field not found: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 解析声明的构造器并设置为可访问，用于静态常量初始化
+     * @return 构造器，类为null或不存在时返回null
+     */
+    public static Constructor<?> resolveConstructor(Class<?> cls, Class<?>... parameterTypes) {
+        if (cls == null) {
+            return null;
+        }
+        try {
+            return getDeclaredConstructor(cls, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 读取静态字段的值，用于静态常量初始化
+     * @return 字段值，不存在时返回null
+     */
+    public static Object resolveStaticValue(Class<?> cls, String name) {
+        Field field = resolveField(cls, name, false);
+        if (field == null) {
+            return null;
+        }
+        try {
+            return field.get(null);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 使用预先解析的常量前检查是否存在
+     * @param member 解析结果
+     * @param name 用于异常信息的名称
+     * @return member本身
+     */
+    public static <T> T require(T member, String name) throws ReflectiveOperationException {
+        if (member == null) {
+            throw new ReflectiveOperationException(name + " is not available");
+        }
+        return member;
+    }
+
+    /**
+     * 对比每次查找、缓存查找和预先解析的常量三种方式的单次调用耗时
+     * @param target 调用对象
+     * @param methodName 无参方法名
+     * @param iterations 调用次数
+     * @return {直接查找+调用, 缓存查找+调用, 预先解析+调用} 的平均纳秒数
+     */
+    public static long[] benchmark(Object target, String methodName, int iterations) throws Exception {
+        Class<?> cls = target.getClass();
+        Method resolved = cls.getMethod(methodName);
+        // 预热，同时让缓存完成解析
+        for (int i = 0; i < 100; i++) {
+            cls.getMethod(methodName).invoke(target);
+            getMethod(cls, methodName).invoke(target);
+            resolved.invoke(target);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            cls.getMethod(methodName).invoke(target);
+        }
+        long uncached = (System.nanoTime() - start) / iterations;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            getMethod(cls, methodName).invoke(target);
+        }
+        long cached = (System.nanoTime() - start) / iterations;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            resolved.invoke(target);
+        }
+        long preResolved = (System.nanoTime() - start) / iterations;
+
+        Log.d(TAG, cls.getSimpleName() + "." + methodName + " x" + iterations
+                + ": getMethod+invoke " + uncached + " ns/call, cached+invoke " + cached
+                + " ns/call, resolved+invoke " + preResolved + " ns/call");
+        return new long[]{uncached, cached, preResolved};
+    }
+}
@@ -0,0 +1,90 @@
+package com.jabin.rootapp;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * 流量折线图：直接从TrafficSampler的环形缓冲绘制接收（绿色）和发送（橙色）速率，
+ * 绘制用的数组、Path和Paint在视图内复用，刷新时不分配对象
+ */
+public class SparklineView extends View {
+
+    private final Paint mRxPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mTxPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Path mPath = new Path();
+    private TrafficSampler.TrafficRing mRing;
+    private long[] mRx = new long[0];
+    private long[] mTx = new long[0];
+
+    public SparklineView(Context context) {
+        this(context, null);
+    }
+
+    public SparklineView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        mRxPaint.setStyle(Paint.Style.STROKE);
+        mRxPaint.setStrokeWidth(1.5f * density);
+        mRxPaint.setColor(Color.parseColor("#4CAF50"));
+        mTxPaint.setStyle(Paint.Style.STROKE);
+        mTxPaint.setStrokeWidth(1.5f * density);
+        mTxPaint.setColor(Color.parseColor("#FF9800"));
+    }
+
+    /**
+     * 设置数据来源
+     */
+    public void setRing(TrafficSampler.TrafficRing ring) {
+        mRing = ring;
+        if (ring != null && mRx.length < ring.getCapacity()) {
+            mRx = new long[ring.getCapacity()];
+            mTx = new long[ring.getCapacity()];
+        }
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (mRing == null) {
+            return;
+        }
+        int count = mRing.copyTo(mRx, mTx);
+        if (count < 2) {
+            return;
+        }
+        // 收发共用纵轴，便于比较
+        long max = 1;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, Math.max(mRx[i], mTx[i]));
+        }
+        drawLine(canvas, mRx, count, max, mRxPaint);
+        drawLine(canvas, mTx, count, max, mTxPaint);
+    }
+
+    private void drawLine(Canvas canvas, long[] values, int count, long max, Paint paint) {
+        float width = getWidth() - getPaddingLeft() - getPaddingRight();
+        float height = getHeight() - getPaddingTop() - getPaddingBottom();
+        float left = getPaddingLeft();
+        float bottom = getHeight() - getPaddingBottom();
+        // 横轴按缓冲容量等分，数据不足时从右侧开始绘制
+        float step = width / (mRing.getCapacity() - 1);
+        float x = left + width - step * (count - 1);
+        mPath.rewind();
+        for (int i = 0; i < count; i++) {
+            float y = bottom - height * values[i] / max;
+            if (i == 0) {
+                mPath.moveTo(x, y);
+            } else {
+                mPath.lineTo(x, y);
+            }
+            x += step;
+        }
+        canvas.drawPath(mPath, paint);
+    }
+}
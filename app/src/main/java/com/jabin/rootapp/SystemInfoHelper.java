@@ -18,8 +18,11 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.net.SocketException;
+import java.net.UnknownHostException;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * 系统信息助手类，提供设备SN号、MAC地址、IP地址等信息的获取功能
@@ -121,15 +124,20 @@ public class SystemInfoHelper {
     }
 
     /**
-     * 获取以太网IP地址
+     * 获取以太网IP地址：优先来自网络状态缓存，ConnectivityManager未上报的以太网接口
+     * （例如未被系统接管的eth接口）再从网络接口中查找
      * @return 以太网IP地址
      */
     public String getEthernetIpAddress() {
+        String ipAddress = NetworkStateStore.getInstance(mContext).getEthernetIpAddress();
+        if (ipAddress != null) {
+            return ipAddress;
+        }
         try {
             // 遍历所有网络接口，查找以太网接口
             Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
             for (NetworkInterface intf : Collections.list(interfaces)) {
-                if (intf.getName().equals("eth0") || intf.getName().contains("eth")) {
+                if (intf.getName().contains("eth")) {
                     Enumeration<InetAddress> addresses = intf.getInetAddresses();
                     for (InetAddress addr : Collections.list(addresses)) {
                         if (!addr.isLoopbackAddress() && addr.getAddress().length == 4) {
@@ -145,24 +153,31 @@ public class SystemInfoHelper {
     }
 
     /**
-     * 获取WLAN IP地址
+     * 获取WLAN IP地址（来自网络状态缓存）
      * @return WLAN IP地址
      */
     public String getWlanIpAddress() {
-        try {
-            if (mWifiManager.isWifiEnabled()) {
-                WifiInfo wifiInfo = mWifiManager.getConnectionInfo();
-                int ipAddress = wifiInfo.getIpAddress();
-                return String.format("%d.%d.%d.%d",
-                        (ipAddress & 0xff),
-                        (ipAddress >> 8 & 0xff),
-                        (ipAddress >> 16 & 0xff),
-                        (ipAddress >> 24 & 0xff));
+        String ipAddress = NetworkStateStore.getInstance(mContext).getWifiIpAddress();
+        return ipAddress != null ? ipAddress : "Unknown";
+    }
+
+    /**
+     * 获取本机各接口所在的IPv4子网（来自网络状态缓存）
+     * @return 接口名 -> 子网（如192.168.1.0/24）
+     */
+    public Map<String, String> getLocalSubnets() {
+        Map<String, String> subnets = new LinkedHashMap<>();
+        for (NetworkStateStore.LinkInfo link : NetworkStateStore.getInstance(mContext).getLinks()) {
+            if (link.interfaceName == null || link.ipAddress == null || link.ipAddress.indexOf(':') >= 0) {
+                continue;
+            }
+            try {
+                subnets.put(link.interfaceName, LanScanner.toSubnet(link.ipAddress, link.prefixLength));
+            } catch (UnknownHostException e) {
+                Log.w(TAG, "Invalid address " + link.ipAddress + " on " + link.interfaceName);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
-        return "Unknown";
+        return subnets;
     }
 
 }
\ No newline at end of file
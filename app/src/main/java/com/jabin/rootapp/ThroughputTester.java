@@ -0,0 +1,499 @@
+package com.jabin.rootapp;
+
+import android.net.Network;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 吞吐量测试工具：客户端通过TCP或UDP的多个并行流向对端发送数据，统计有效吞吐、抖动、丢包和TCP重传；
+ * 对端为另一台运行服务端模式的设备，服务端统计收到的数据量并回报给客户端
+ */
+public class ThroughputTester {
+
+    private static final String TAG = "ThroughputTester";
+    public static final int DEFAULT_PORT = 5201;
+    private static final int TCP_BUFFER_SIZE = 64 * 1024;
+    private static final int UDP_PAYLOAD_SIZE = 1400;
+    // UDP结束报文的序号
+    private static final int UDP_END = -1;
+    private static final int UDP_END_RETRIES = 5;
+    // 会话结束后保留统计的时间，期间收到重复的结束报文时重发同一份统计
+    private static final long UDP_FINISHED_KEEP_MS = 10000;
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+
+    private ServerSocket mServerSocket;
+    private DatagramSocket mUdpSocket;
+    private ExecutorService mServerExecutor;
+
+    // ==================== 服务端 ====================
+
+    /**
+     * 启动服务端，同时监听TCP和UDP端口
+     * @param port 端口
+     */
+    public synchronized void startServer(int port) throws IOException {
+        if (mServerExecutor != null) {
+            return;
+        }
+        mServerSocket = new ServerSocket(port);
+        mUdpSocket = new DatagramSocket(port);
+        mServerExecutor = Executors.newCachedThreadPool();
+        final ServerSocket serverSocket = mServerSocket;
+        final DatagramSocket udpSocket = mUdpSocket;
+        final ExecutorService executor = mServerExecutor;
+        executor.execute(() -> acceptLoop(serverSocket, executor));
+        executor.execute(() -> udpLoop(udpSocket));
+        Log.d(TAG, "Server started on port " + port);
+    }
+
+    /**
+     * 停止服务端
+     */
+    public synchronized void stopServer() {
+        if (mServerExecutor == null) {
+            return;
+        }
+        closeQuietly(mServerSocket);
+        mUdpSocket.close();
+        mServerExecutor.shutdownNow();
+        mServerSocket = null;
+        mUdpSocket = null;
+        mServerExecutor = null;
+        Log.d(TAG, "Server stopped");
+    }
+
+    public synchronized boolean isServerRunning() {
+        return mServerExecutor != null;
+    }
+
+    private void acceptLoop(ServerSocket serverSocket, ExecutorService executor) {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                executor.execute(() -> serveTcpStream(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    Log.e(TAG, "Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 接收一个TCP流直到对端关闭输出，然后回报收到的字节数
+     */
+    private void serveTcpStream(Socket socket) {
+        try {
+            socket.setReceiveBufferSize(TCP_BUFFER_SIZE * 4);
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[TCP_BUFFER_SIZE];
+            long received = 0;
+            int length;
+            while ((length = in.read(buffer)) >= 0) {
+                received += length;
+            }
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeLong(received);
+            out.flush();
+        } catch (IOException e) {
+            Log.w(TAG, "TCP stream failed: " + e.getMessage());
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * UDP报文：序号(int) + 发送时间(long, 纳秒) + 填充；序号为UDP_END时表示结束，
+     * 服务端回复收到的报文数、字节数和抖动。抖动按RFC 3550计算，两端时钟偏差在传输时间差中抵消。
+     * 回复可能丢失，客户端会重发结束报文，结束的会话保留一段时间用于重发同一份统计
+     */
+    private void udpLoop(DatagramSocket socket) {
+        Map<SocketAddress, UdpSession> sessions = new HashMap<>();
+        Map<SocketAddress, UdpSession> finished = new HashMap<>();
+        byte[] buffer = new byte[UDP_PAYLOAD_SIZE + 64];
+        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        ByteBuffer view = ByteBuffer.wrap(buffer);
+        while (!socket.isClosed()) {
+            try {
+                packet.setLength(buffer.length);
+                socket.receive(packet);
+                long arrival = System.nanoTime();
+                if (packet.getLength() < 12) {
+                    continue;
+                }
+                SocketAddress from = packet.getSocketAddress();
+                int seq = view.getInt(0);
+                if (seq == UDP_END) {
+                    long now = SystemClock.elapsedRealtime();
+                    finished.values().removeIf(done -> now - done.finishedAt > UDP_FINISHED_KEEP_MS);
+                    UdpSession session = sessions.remove(from);
+                    if (session != null) {
+                        session.finishedAt = now;
+                        finished.put(from, session);
+                    } else {
+                        // 重复的结束报文重发同一份统计；数据报文全部丢失时统计为0
+                        session = finished.get(from);
+                        if (session == null) {
+                            session = new UdpSession();
+                            session.finishedAt = now;
+                            finished.put(from, session);
+                        }
+                    }
+                    ByteBuffer reply = ByteBuffer.allocate(24);
+                    reply.putLong(session.packets).putLong(session.bytes).putLong((long) session.jitterNs);
+                    socket.send(new DatagramPacket(reply.array(), reply.capacity(), from));
+                    continue;
+                }
+                UdpSession done = finished.get(from);
+                if (done != null) {
+                    if (SystemClock.elapsedRealtime() - done.finishedAt <= UDP_FINISHED_KEEP_MS) {
+                        // 结束报文之后迟到的数据报文，不计入已回复的统计
+                        continue;
+                    }
+                    // 保留期已过，同一地址开始了新的测试
+                    finished.remove(from);
+                }
+                UdpSession session = sessions.get(from);
+                if (session == null) {
+                    session = new UdpSession();
+                    sessions.put(from, session);
+                }
+                session.add(packet.getLength(), arrival - view.getLong(4));
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    Log.e(TAG, "UDP receive failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static class UdpSession {
+        // 收到结束报文的时间（elapsedRealtime），进行中为0
+        long finishedAt;
+        long packets;
+        long bytes;
+        double jitterNs;
+        long lastTransit;
+
+        void add(int length, long transit) {
+            if (packets > 0) {
+                jitterNs += (Math.abs(transit - lastTransit) - jitterNs) / 16;
+            }
+            lastTransit = transit;
+            packets++;
+            bytes += length;
+        }
+    }
+
+    // ==================== 客户端 ====================
+
+    /**
+     * 执行一次吞吐量测试
+     * @param config 测试参数
+     * @return 完成时为测试结果，失败时以异常结束
+     */
+    public CompletableFuture<Result> runClient(final ClientConfig config) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return config.udp ? runUdp(config) : runTcp(config);
+            } catch (Exception e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        });
+    }
+
+    private Result runTcp(final ClientConfig config) throws Exception {
+        final InetAddress localAddress = config.network == null ? resolveLocalAddress(config.interfaceName) : null;
+        final InetSocketAddress remote = new InetSocketAddress(InetAddress.getByName(config.host), config.port);
+        long retransBefore = readTcpRetransmits();
+        ExecutorService executor = Executors.newFixedThreadPool(config.streams);
+        try {
+            final long start = SystemClock.elapsedRealtime();
+            List<Future<Long>> streams = new ArrayList<>();
+            for (int i = 0; i < config.streams; i++) {
+                streams.add(executor.submit(() -> sendTcpStream(remote, config.network, localAddress,
+                        config.durationMs)));
+            }
+            long bytes = 0;
+            for (Future<Long> stream : streams) {
+                bytes += stream.get();
+            }
+            Result result = new Result(false, config, SystemClock.elapsedRealtime() - start);
+            result.bytes = bytes;
+            long retransAfter = readTcpRetransmits();
+            result.retransmits = retransBefore >= 0 && retransAfter >= 0 ? retransAfter - retransBefore : -1;
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 发送一个TCP流，返回服务端确认收到的字节数
+     */
+    private long sendTcpStream(InetSocketAddress remote, Network network, InetAddress localAddress, long durationMs)
+            throws IOException {
+        try (Socket socket = new Socket()) {
+            if (network != null) {
+                network.bindSocket(socket);
+            } else if (localAddress != null) {
+                socket.bind(new InetSocketAddress(localAddress, 0));
+            }
+            socket.setSendBufferSize(TCP_BUFFER_SIZE * 4);
+            socket.connect(remote, CONNECT_TIMEOUT_MS);
+            OutputStream out = socket.getOutputStream();
+            byte[] buffer = new byte[TCP_BUFFER_SIZE];
+            long end = SystemClock.elapsedRealtime() + durationMs;
+            while (SystemClock.elapsedRealtime() < end) {
+                out.write(buffer);
+            }
+            socket.shutdownOutput();
+            return new DataInputStream(socket.getInputStream()).readLong();
+        }
+    }
+
+    private Result runUdp(final ClientConfig config) throws Exception {
+        final InetAddress localAddress = config.network == null ? resolveLocalAddress(config.interfaceName) : null;
+        final InetSocketAddress remote = new InetSocketAddress(InetAddress.getByName(config.host), config.port);
+        ExecutorService executor = Executors.newFixedThreadPool(config.streams);
+        try {
+            final long start = SystemClock.elapsedRealtime();
+            final long bitsPerStream = config.udpBitrate / config.streams;
+            List<Future<Result>> streams = new ArrayList<>();
+            for (int i = 0; i < config.streams; i++) {
+                streams.add(executor.submit(() -> sendUdpStream(remote, localAddress, config, bitsPerStream)));
+            }
+            Result total = new Result(true, config, 0);
+            double jitterSum = 0;
+            for (Future<Result> stream : streams) {
+                Result result = stream.get();
+                total.bytes += result.bytes;
+                total.packetsSent += result.packetsSent;
+                total.packetsReceived += result.packetsReceived;
+                jitterSum += result.jitterMs;
+            }
+            total.elapsedMs = SystemClock.elapsedRealtime() - start;
+            total.jitterMs = jitterSum / config.streams;
+            return total;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 按目标码率发送一个UDP流，结束后向服务端索取统计
+     */
+    private Result sendUdpStream(InetSocketAddress remote, InetAddress localAddress, ClientConfig config,
+                                 long bitsPerSecond) throws IOException {
+        try (DatagramSocket socket = new DatagramSocket(new InetSocketAddress(localAddress, 0))) {
+            if (config.network != null) {
+                config.network.bindSocket(socket);
+            }
+            socket.connect(remote);
+            byte[] payload = new byte[UDP_PAYLOAD_SIZE];
+            ByteBuffer view = ByteBuffer.wrap(payload);
+            DatagramPacket packet = new DatagramPacket(payload, payload.length);
+            long intervalNs = Math.max(1, UDP_PAYLOAD_SIZE * 8L * 1000000000L / Math.max(1, bitsPerSecond));
+            long startNs = System.nanoTime();
+            long endNs = startNs + config.durationMs * 1000000L;
+            int seq = 0;
+            long next = startNs;
+            while (true) {
+                long now = System.nanoTime();
+                if (now >= endNs) {
+                    break;
+                }
+                if (now < next) {
+                    // 按码率节奏发送，间隔较长时让出CPU
+                    long waitNs = next - now;
+                    if (waitNs > 2000000) {
+                        SystemClock.sleep(waitNs / 1000000 - 1);
+                    }
+                    continue;
+                }
+                view.putInt(0, seq++);
+                view.putLong(4, System.nanoTime());
+                socket.send(packet);
+                next += intervalNs;
+            }
+
+            Result result = new Result(true, config, (System.nanoTime() - startNs) / 1000000);
+            result.packetsSent = seq;
+            byte[] end = new byte[12];
+            ByteBuffer.wrap(end).putInt(UDP_END);
+            byte[] reply = new byte[24];
+            DatagramPacket replyPacket = new DatagramPacket(reply, reply.length);
+            socket.setSoTimeout(500);
+            for (int i = 0; i < UDP_END_RETRIES; i++) {
+                socket.send(new DatagramPacket(end, end.length));
+                try {
+                    socket.receive(replyPacket);
+                    ByteBuffer stats = ByteBuffer.wrap(reply);
+                    result.packetsReceived = stats.getLong();
+                    result.bytes = stats.getLong();
+                    result.jitterMs = stats.getLong() / 1000000.0;
+                    return result;
+                } catch (SocketTimeoutException e) {
+                    // 结束报文或回复丢失，重试
+                }
+            }
+            throw new IOException("No reply from server");
+        }
+    }
+
+    /**
+     * 获取指定接口的IPv4地址，没有对应Network时用于绑定源地址（路由仍由系统选择）
+     * @param interfaceName 接口名，为空时返回null（使用默认路由）
+     */
+    private static InetAddress resolveLocalAddress(String interfaceName) throws IOException {
+        if (interfaceName == null || interfaceName.isEmpty()) {
+            return null;
+        }
+        NetworkInterface networkInterface = NetworkInterface.getByName(interfaceName);
+        if (networkInterface != null) {
+            for (InetAddress address : Collections.list(networkInterface.getInetAddresses())) {
+                if (address instanceof Inet4Address) {
+                    return address;
+                }
+            }
+        }
+        throw new IOException("No IPv4 address on " + interfaceName);
+    }
+
+    /**
+     * 读取系统TCP重传报文段计数（全系统累计值）
+     * @return 计数，读取失败返回-1
+     */
+    private static long readTcpRetransmits() {
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/net/snmp"))) {
+            String header = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith("Tcp:")) {
+                    continue;
+                }
+                if (header == null) {
+                    header = line;
+                    continue;
+                }
+                String[] names = header.split("\\s+");
+                String[] values = line.split("\\s+");
+                for (int i = 1; i < names.length && i < values.length; i++) {
+                    if ("RetransSegs".equals(names[i])) {
+                        return Long.parseLong(values[i]);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to read TCP retransmits: " + e.getMessage());
+        }
+        return -1;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            if (closeable != null) {
+                closeable.close();
+            }
+        } catch (IOException e) {
+            // 忽略
+        }
+    }
+
+    /**
+     * 客户端测试参数
+     */
+    public static class ClientConfig {
+        public String host;
+        public int port = DEFAULT_PORT;
+        // 绑定的网络，通过Network.bindSocket同时限定路由和源地址
+        public Network network;
+        // 没有network时按接口名绑定源地址，都为空时使用默认路由
+        public String interfaceName;
+        public boolean udp;
+        public int streams = 4;
+        public long durationMs = 10000;
+        // UDP目标总码率，单位bit/s
+        public long udpBitrate = 100000000L;
+    }
+
+    /**
+     * 测试结果
+     */
+    public static class Result {
+        public final boolean udp;
+        public final int streams;
+        public long elapsedMs;
+        public long bytes;
+        // TCP：测试期间系统重传报文段数，读取失败为-1
+        public long retransmits = -1;
+        // UDP
+        public long packetsSent;
+        public long packetsReceived;
+        public double jitterMs;
+
+        Result(boolean udp, ClientConfig config, long elapsedMs) {
+            this.udp = udp;
+            this.streams = config.streams;
+            this.elapsedMs = elapsedMs;
+        }
+
+        /**
+         * 有效吞吐，单位Mbit/s
+         */
+        public double getGoodputMbps() {
+            return elapsedMs > 0 ? bytes * 8.0 / elapsedMs / 1000 : 0;
+        }
+
+        public double getLossPercent() {
+            return packetsSent > 0 ? Math.max(0, packetsSent - packetsReceived) * 100.0 / packetsSent : 0;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            text.append(udp ? "UDP" : "TCP").append("  ").append(streams).append("个并行流\n");
+            text.append(String.format(Locale.US, "有效吞吐：%.2f Mbit/s\n", getGoodputMbps()));
+            text.append(String.format(Locale.US, "数据量：%.2f MB，耗时 %d ms\n", bytes / 1048576.0, elapsedMs));
+            if (udp) {
+                text.append(String.format(Locale.US, "抖动：%.3f ms\n", jitterMs));
+                text.append(String.format(Locale.US, "丢包：%d/%d (%.2f%%)", packetsSent - packetsReceived,
+                        packetsSent, getLossPercent()));
+            } else {
+                text.append("重传报文段：").append(retransmits >= 0 ? String.valueOf(retransmits) : "未知")
+                        .append("（系统累计差值）");
+            }
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package com.jabin.rootapp;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+/**
+ * 接口流量采样器：按固定周期读取/proc/net/dev（不可读时改读/sys/class/net/接口/statistics），
+ * 计算每个接口的收发速率并写入固定大小的环形缓冲。解析复用同一个字节缓冲，
+ * 稳定运行后每次采样不分配对象，结果通知在主线程回调
+ */
+public class TrafficSampler {
+
+    private static final String TAG = "TrafficSampler";
+    public static final long DEFAULT_INTERVAL_MS = 1000;
+    public static final int DEFAULT_HISTORY_SIZE = 60;
+    private static final String PROC_NET_DEV = "/proc/net/dev";
+    private static final String SYS_CLASS_NET = "/sys/class/net";
+    private static final int MAX_INTERFACES = 32;
+
+    private final long mIntervalMs;
+    private final int mHistorySize;
+    private final Listener mListener;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private HandlerThread mThread;
+    // 当前的采样任务，每次start新建，旧任务即使还在执行也只会操作自己的文件和计数
+    private SampleRun mRun;
+
+    // 接口表，跨多次start保留；追加时持有锁，mNames整体替换，主线程可直接读取
+    private volatile String[] mNames = new String[0];
+    private final byte[][] mNameBytes = new byte[MAX_INTERFACES][];
+    private final TrafficRing[] mRings = new TrafficRing[MAX_INTERFACES];
+
+    public TrafficSampler(long intervalMs, int historySize, Listener listener) {
+        this.mIntervalMs = intervalMs;
+        this.mHistorySize = historySize;
+        this.mListener = listener;
+    }
+
+    /**
+     * 开始周期采样
+     */
+    public synchronized void start() {
+        if (mThread != null) {
+            return;
+        }
+        mThread = new HandlerThread("TrafficSampler");
+        mThread.start();
+        mRun = new SampleRun(new Handler(mThread.getLooper()));
+        mRun.handler.post(mRun);
+    }
+
+    /**
+     * 停止采样，已采集的历史数据保留
+     */
+    public synchronized void stop() {
+        if (mThread == null) {
+            return;
+        }
+        final SampleRun run = mRun;
+        run.stopped = true;
+        run.handler.removeCallbacksAndMessages(null);
+        // 在该任务自己的线程上关闭文件，不会与正在进行的采样冲突
+        run.handler.post(run::closeProcFile);
+        mThread.quitSafely();
+        mThread = null;
+        mRun = null;
+    }
+
+    /**
+     * 当前已发现的接口名（不含lo），数组不可修改
+     */
+    public String[] getInterfaceNames() {
+        return mNames;
+    }
+
+    /**
+     * 获取接口的速率环形缓冲
+     * @return 环形缓冲，接口不存在时返回null
+     */
+    public TrafficRing getRing(String iface) {
+        String[] names = mNames;
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(iface)) {
+                return mRings[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按字节比较查找接口，新接口只在第一次出现时分配名称和缓冲；
+     * 停止后立即重新开始时新旧任务可能同时采样，追加接口需持有锁
+     * @return 接口序号，为lo或接口表已满时返回-1
+     */
+    private synchronized int findInterface(byte[] buf, int start, int end) {
+        int count = mNames.length;
+        for (int i = 0; i < count; i++) {
+            byte[] name = mNameBytes[i];
+            if (name.length != end - start) {
+                continue;
+            }
+            boolean match = true;
+            for (int j = 0; j < name.length; j++) {
+                if (name[j] != buf[start + j]) {
+                    match = false;
+                    break;
+                }
+            }
+            if (match) {
+                return i;
+            }
+        }
+        boolean loopback = end - start == 2 && buf[start] == 'l' && buf[start + 1] == 'o';
+        if (loopback || count >= MAX_INTERFACES) {
+            return -1;
+        }
+        String name = new String(buf, start, end - start);
+        mNameBytes[count] = Arrays.copyOfRange(buf, start, end);
+        mRings[count] = new TrafficRing(mHistorySize);
+        String[] names = Arrays.copyOf(mNames, count + 1);
+        names[count] = name;
+        mNames = names;
+        Log.d(TAG, "Tracking interface " + name);
+        return count;
+    }
+
+    private static int skipLine(byte[] buf, int pos, int length) {
+        while (pos < length && buf[pos] != '\n') {
+            pos++;
+        }
+        return pos + 1;
+    }
+
+    /**
+     * 一次start到stop之间的采样任务，持有自己的文件、缓冲和上次计数，只在自己的线程上重新调度
+     */
+    private class SampleRun implements Runnable {
+        final Handler handler;
+        volatile boolean stopped;
+        private RandomAccessFile mProcFile;
+        private boolean mUseSysfs;
+        private byte[] mBuffer = new byte[4096];
+        private final byte[] mSysfsBuffer = new byte[32];
+        private long mLastSampleTime;
+        private final long[] mLastRx = new long[MAX_INTERFACES];
+        private final long[] mLastTx = new long[MAX_INTERFACES];
+
+        SampleRun(Handler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void run() {
+            if (stopped) {
+                return;
+            }
+            sample();
+            mMainHandler.post(() -> {
+                if (!stopped) {
+                    mListener.onTrafficUpdated(TrafficSampler.this);
+                }
+            });
+            if (!stopped) {
+                handler.postDelayed(this, mIntervalMs);
+            }
+        }
+
+        private void sample() {
+            long now = SystemClock.elapsedRealtime();
+            long elapsedMs = mLastSampleTime > 0 ? now - mLastSampleTime : 0;
+            mLastSampleTime = now;
+            if (!mUseSysfs) {
+                try {
+                    sampleProcNetDev(elapsedMs);
+                    return;
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to read " + PROC_NET_DEV + ", switching to sysfs: " + e.getMessage());
+                    closeProcFile();
+                    mUseSysfs = true;
+                }
+            }
+            sampleSysfs(elapsedMs);
+        }
+
+        /**
+         * 解析/proc/net/dev：前两行为表头，之后每行为“接口名: 接收8项 发送8项”，
+         * 接收字节为第1项，发送字节为第9项
+         */
+        private void sampleProcNetDev(long elapsedMs) throws IOException {
+            if (mProcFile == null) {
+                mProcFile = new RandomAccessFile(PROC_NET_DEV, "r");
+            }
+            mProcFile.seek(0);
+            int length = 0;
+            int read;
+            while ((read = mProcFile.read(mBuffer, length, mBuffer.length - length)) > 0) {
+                length += read;
+                if (length == mBuffer.length) {
+                    mBuffer = Arrays.copyOf(mBuffer, mBuffer.length * 2);
+                }
+            }
+
+            byte[] buf = mBuffer;
+            int pos = skipLine(buf, skipLine(buf, 0, length), length);
+            while (pos < length) {
+                while (pos < length && buf[pos] == ' ') {
+                    pos++;
+                }
+                int nameStart = pos;
+                while (pos < length && buf[pos] != ':' && buf[pos] != '\n') {
+                    pos++;
+                }
+                if (pos >= length || buf[pos] != ':') {
+                    pos = skipLine(buf, pos, length);
+                    continue;
+                }
+                int nameEnd = pos++;
+                long rx = 0;
+                long tx = 0;
+                for (int field = 0; field <= 8; field++) {
+                    while (pos < length && buf[pos] == ' ') {
+                        pos++;
+                    }
+                    long value = 0;
+                    while (pos < length && buf[pos] >= '0' && buf[pos] <= '9') {
+                        value = value * 10 + (buf[pos++] - '0');
+                    }
+                    if (field == 0) {
+                        rx = value;
+                    } else if (field == 8) {
+                        tx = value;
+                    }
+                }
+                record(buf, nameStart, nameEnd, rx, tx, elapsedMs);
+                pos = skipLine(buf, pos, length);
+            }
+        }
+
+        /**
+         * /proc/net/dev不可读时的备用路径：逐个读取/sys/class/net/接口/statistics下的计数
+         */
+        private void sampleSysfs(long elapsedMs) {
+            String[] ifaces = new File(SYS_CLASS_NET).list();
+            if (ifaces == null) {
+                return;
+            }
+            for (String iface : ifaces) {
+                long rx = readSysfsCounter(iface, "rx_bytes");
+                long tx = readSysfsCounter(iface, "tx_bytes");
+                if (rx >= 0 && tx >= 0) {
+                    byte[] name = iface.getBytes();
+                    record(name, 0, name.length, rx, tx, elapsedMs);
+                }
+            }
+        }
+
+        private long readSysfsCounter(String iface, String counter) {
+            try (RandomAccessFile file = new RandomAccessFile(SYS_CLASS_NET + "/" + iface + "/statistics/" + counter, "r")) {
+                int length = file.read(mSysfsBuffer);
+                long value = 0;
+                for (int i = 0; i < length && mSysfsBuffer[i] >= '0' && mSysfsBuffer[i] <= '9'; i++) {
+                    value = value * 10 + (mSysfsBuffer[i] - '0');
+                }
+                return value;
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+
+        /**
+         * 记录一个接口的累计计数，与上一次的差值换算为每秒字节数写入环形缓冲
+         */
+        private void record(byte[] buf, int nameStart, int nameEnd, long rx, long tx, long elapsedMs) {
+            int index = findInterface(buf, nameStart, nameEnd);
+            if (index < 0) {
+                return;
+            }
+            if (elapsedMs > 0) {
+                // 计数回绕或接口重建时差值为负，记为0
+                long rxRate = Math.max(0, rx - mLastRx[index]) * 1000 / elapsedMs;
+                long txRate = Math.max(0, tx - mLastTx[index]) * 1000 / elapsedMs;
+                mRings[index].add(rxRate, txRate);
+            }
+            mLastRx[index] = rx;
+            mLastTx[index] = tx;
+        }
+
+        private void closeProcFile() {
+            if (mProcFile != null) {
+                try {
+                    mProcFile.close();
+                } catch (IOException e) {
+                    // 忽略
+                }
+                mProcFile = null;
+            }
+        }
+    }
+
+    /**
+     * 收发速率环形缓冲（字节/秒），采样线程写入、界面线程读取
+     */
+    public static class TrafficRing {
+        private final long[] mRx;
+        private final long[] mTx;
+        private int mNext;
+        private int mCount;
+
+        TrafficRing(int capacity) {
+            mRx = new long[capacity];
+            mTx = new long[capacity];
+        }
+
+        synchronized void add(long rxRate, long txRate) {
+            mRx[mNext] = rxRate;
+            mTx[mNext] = txRate;
+            mNext = (mNext + 1) % mRx.length;
+            if (mCount < mRx.length) {
+                mCount++;
+            }
+        }
+
+        public int getCapacity() {
+            return mRx.length;
+        }
+
+        /**
+         * 按时间顺序（旧到新）复制到调用方的数组，数组长度不小于容量
+         * @return 有效样本数
+         */
+        public synchronized int copyTo(long[] rx, long[] tx) {
+            int start = (mNext - mCount + mRx.length) % mRx.length;
+            for (int i = 0; i < mCount; i++) {
+                int index = (start + i) % mRx.length;
+                rx[i] = mRx[index];
+                tx[i] = mTx[index];
+            }
+            return mCount;
+        }
+
+        /**
+         * 最近一次的接收速率
+         */
+        public synchronized long getLatestRx() {
+            return mCount > 0 ? mRx[(mNext - 1 + mRx.length) % mRx.length] : 0;
+        }
+
+        /**
+         * 最近一次的发送速率
+         */
+        public synchronized long getLatestTx() {
+            return mCount > 0 ? mTx[(mNext - 1 + mTx.length) % mTx.length] : 0;
+        }
+    }
+
+    /**
+     * 采样监听接口
+     */
+    public interface Listener {
+        /**
+         * 每次采样后回调（主线程）
+         * @param sampler 采样器，通过getRing读取各接口数据
+         */
+        void onTrafficUpdated(TrafficSampler sampler);
+    }
+}
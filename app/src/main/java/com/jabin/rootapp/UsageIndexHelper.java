@@ -0,0 +1,320 @@
+package com.jabin.rootapp;
+
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageStatsManager;
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * 应用使用统计助手类，将系统使用事件按小时聚合为前台时长和启动次数，
+ * 保存在紧凑的本地索引文件中，查询时直接读取内存中的桶，无需重新聚合原始事件
+ */
+public class UsageIndexHelper {
+
+    private static final String TAG = "UsageIndexHelper";
+    private static final String INDEX_FILE = "usage_index.bin";
+    private static final int MAGIC = 0x55534731; // "USG1"
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+    // 保留31天的小时桶，按小时号取模循环使用
+    public static final int MAX_DAYS = 31;
+    private static final int CAPACITY = MAX_DAYS * 24;
+
+    private static UsageIndexHelper sInstance;
+
+    private final File mIndexFile;
+    private final UsageStatsManager mUsageStatsManager;
+    // 每个槽位当前保存的小时号（epoch小时），用于判断槽位是否过期
+    private final long[] mSlotHour = new long[CAPACITY];
+    private final Map<String, PackageBuckets> mPackages = new HashMap<>();
+    // 索引截止时仍在前台的应用及其进入前台的时间
+    private final Map<String, Long> mOpenSessions = new HashMap<>();
+    private long mIndexedUntil;
+
+    private UsageIndexHelper(Context context) {
+        mIndexFile = new File(context.getFilesDir(), INDEX_FILE);
+        mUsageStatsManager = (UsageStatsManager) context.getSystemService(Context.USAGE_STATS_SERVICE);
+        load();
+    }
+
+    public static synchronized UsageIndexHelper getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new UsageIndexHelper(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * 增量更新索引：只处理上次索引之后的新事件，在后台线程调用
+     */
+    public synchronized void update() {
+        long now = System.currentTimeMillis();
+        long from = Math.max(mIndexedUntil, now - MAX_DAYS * 24 * HOUR_MS);
+        if (from >= now) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int eventCount = 0;
+        UsageEvents events = mUsageStatsManager.queryEvents(from, now);
+        UsageEvents.Event event = new UsageEvents.Event();
+        while (events.hasNextEvent()) {
+            events.getNextEvent(event);
+            int type = event.getEventType();
+            String packageName = event.getPackageName();
+            long time = event.getTimeStamp();
+            if (type == UsageEvents.Event.MOVE_TO_FOREGROUND) {
+                if (!mOpenSessions.containsKey(packageName)) {
+                    mOpenSessions.put(packageName, time);
+                    int slot = slotFor(time);
+                    if (slot >= 0) {
+                        bucketsFor(packageName).addLaunch(slot);
+                    }
+                }
+            } else if (type == UsageEvents.Event.MOVE_TO_BACKGROUND) {
+                Long fgStart = mOpenSessions.remove(packageName);
+                if (fgStart != null) {
+                    addForeground(packageName, fgStart, time);
+                }
+            } else if (type == UsageEvents.Event.DEVICE_SHUTDOWN) {
+                // 关机时不会再有切到后台的事件，所有前台会话在关机时结束
+                for (Map.Entry<String, Long> entry : mOpenSessions.entrySet()) {
+                    addForeground(entry.getKey(), entry.getValue(), time);
+                }
+                mOpenSessions.clear();
+            } else if (type == UsageEvents.Event.DEVICE_STARTUP) {
+                // 开机时仍未结束的会话来自异常关机，结束时间未知，直接丢弃
+                mOpenSessions.clear();
+            }
+            eventCount++;
+        }
+
+        // 仍在前台的应用先把已过去的时长记入，并把会话起点推进到当前时间
+        for (Map.Entry<String, Long> entry : mOpenSessions.entrySet()) {
+            addForeground(entry.getKey(), entry.getValue(), now);
+            entry.setValue(now);
+        }
+        mIndexedUntil = now;
+        save();
+        Log.d(TAG, "Indexed " + eventCount + " events in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * 查询最近若干天各应用的使用汇总，按前台时长降序
+     * @param days 天数（不超过31）
+     * @return 使用汇总列表
+     */
+    public synchronized List<UsageSummary> query(int days) {
+        long nowHour = System.currentTimeMillis() / HOUR_MS;
+        long fromHour = nowHour - Math.min(days, MAX_DAYS) * 24L + 1;
+        List<UsageSummary> result = new ArrayList<>();
+        for (Map.Entry<String, PackageBuckets> entry : mPackages.entrySet()) {
+            UsageSummary summary = new UsageSummary(entry.getKey());
+            PackageBuckets buckets = entry.getValue();
+            for (int slot = 0; slot < CAPACITY; slot++) {
+                if (mSlotHour[slot] >= fromHour && mSlotHour[slot] <= nowHour) {
+                    summary.foregroundMs += buckets.foregroundSeconds[slot] * 1000L;
+                    summary.launchCount += buckets.launches[slot];
+                }
+            }
+            if (summary.foregroundMs > 0 || summary.launchCount > 0) {
+                result.add(summary);
+            }
+        }
+        Collections.sort(result, (a, b) -> Long.compare(b.foregroundMs, a.foregroundMs));
+        return result;
+    }
+
+    /**
+     * 查询应用最近若干天的每日前台时长
+     * @param packageName 应用包名
+     * @param days 天数（不超过31）
+     * @return 每日前台时长（毫秒），下标0为今天
+     */
+    public synchronized long[] queryDaily(String packageName, int days) {
+        days = Math.min(days, MAX_DAYS);
+        long[] daily = new long[days];
+        PackageBuckets buckets = mPackages.get(packageName);
+        if (buckets == null) {
+            return daily;
+        }
+        // 按本地时区划分自然日
+        long now = System.currentTimeMillis();
+        long offset = TimeZone.getDefault().getOffset(now);
+        long today = (now + offset) / HOUR_MS / 24;
+        for (int slot = 0; slot < CAPACITY; slot++) {
+            long dayIndex = today - (mSlotHour[slot] * HOUR_MS + offset) / HOUR_MS / 24;
+            if (dayIndex >= 0 && dayIndex < days) {
+                daily[(int) dayIndex] += buckets.foregroundSeconds[slot] * 1000L;
+            }
+        }
+        return daily;
+    }
+
+    /**
+     * 把一段前台时间按小时边界拆分记入对应的桶
+     */
+    private void addForeground(String packageName, long start, long end) {
+        PackageBuckets buckets = bucketsFor(packageName);
+        long t = start;
+        while (t < end) {
+            long hourEnd = (t / HOUR_MS + 1) * HOUR_MS;
+            long segmentEnd = Math.min(hourEnd, end);
+            int slot = slotFor(t);
+            if (slot >= 0) {
+                buckets.foregroundSeconds[slot] += (int) ((segmentEnd - t) / 1000);
+            }
+            t = segmentEnd;
+        }
+    }
+
+    /**
+     * 获取时间对应的槽位，槽位保存的是更早的小时时先清空
+     * @return 槽位，时间早于环形缓冲区覆盖的范围（槽位已被更新的小时占用）时返回-1
+     */
+    private int slotFor(long time) {
+        long hour = time / HOUR_MS;
+        int slot = (int) (hour % CAPACITY);
+        if (mSlotHour[slot] > hour) {
+            return -1;
+        }
+        if (mSlotHour[slot] < hour) {
+            mSlotHour[slot] = hour;
+            for (PackageBuckets buckets : mPackages.values()) {
+                buckets.foregroundSeconds[slot] = 0;
+                buckets.launches[slot] = 0;
+            }
+        }
+        return slot;
+    }
+
+    private PackageBuckets bucketsFor(String packageName) {
+        PackageBuckets buckets = mPackages.get(packageName);
+        if (buckets == null) {
+            buckets = new PackageBuckets();
+            mPackages.put(packageName, buckets);
+        }
+        return buckets;
+    }
+
+    /**
+     * 读取索引文件，只保存非零的桶
+     */
+    private void load() {
+        if (!mIndexFile.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mIndexFile)))) {
+            if (in.readInt() != MAGIC) {
+                Log.w(TAG, "Unknown index format, rebuilding");
+                return;
+            }
+            mIndexedUntil = in.readLong();
+            for (int slot = 0; slot < CAPACITY; slot++) {
+                mSlotHour[slot] = in.readLong();
+            }
+            int openCount = in.readInt();
+            for (int i = 0; i < openCount; i++) {
+                mOpenSessions.put(in.readUTF(), in.readLong());
+            }
+            int packageCount = in.readInt();
+            for (int i = 0; i < packageCount; i++) {
+                PackageBuckets buckets = bucketsFor(in.readUTF());
+                int nonZero = in.readShort();
+                for (int j = 0; j < nonZero; j++) {
+                    int slot = in.readShort();
+                    buckets.foregroundSeconds[slot] = in.readInt();
+                    buckets.launches[slot] = in.readShort();
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to load usage index, rebuilding: " + e.getMessage());
+            mIndexedUntil = 0;
+            mPackages.clear();
+            mOpenSessions.clear();
+            Arrays.fill(mSlotHour, 0);
+        }
+    }
+
+    private void save() {
+        File tmp = new File(mIndexFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(mIndexedUntil);
+            for (int slot = 0; slot < CAPACITY; slot++) {
+                out.writeLong(mSlotHour[slot]);
+            }
+            out.writeInt(mOpenSessions.size());
+            for (Map.Entry<String, Long> entry : mOpenSessions.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+            out.writeInt(mPackages.size());
+            for (Map.Entry<String, PackageBuckets> entry : mPackages.entrySet()) {
+                PackageBuckets buckets = entry.getValue();
+                out.writeUTF(entry.getKey());
+                int nonZero = 0;
+                for (int slot = 0; slot < CAPACITY; slot++) {
+                    if (buckets.foregroundSeconds[slot] != 0 || buckets.launches[slot] != 0) {
+                        nonZero++;
+                    }
+                }
+                out.writeShort(nonZero);
+                for (int slot = 0; slot < CAPACITY; slot++) {
+                    if (buckets.foregroundSeconds[slot] != 0 || buckets.launches[slot] != 0) {
+                        out.writeShort(slot);
+                        out.writeInt(buckets.foregroundSeconds[slot]);
+                        out.writeShort(buckets.launches[slot]);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to save usage index: " + e.getMessage());
+            return;
+        }
+        if (!tmp.renameTo(mIndexFile)) {
+            Log.e(TAG, "Failed to replace usage index file");
+        }
+    }
+
+    /**
+     * 单个应用的小时桶：前台秒数和启动次数
+     */
+    private static class PackageBuckets {
+        final int[] foregroundSeconds = new int[CAPACITY];
+        final short[] launches = new short[CAPACITY];
+
+        void addLaunch(int slot) {
+            if (launches[slot] < Short.MAX_VALUE) {
+                launches[slot]++;
+            }
+        }
+    }
+
+    /**
+     * 应用使用汇总
+     */
+    public static class UsageSummary {
+        public final String packageName;
+        public long foregroundMs;
+        public int launchCount;
+
+        UsageSummary(String packageName) {
+            this.packageName = packageName;
+        }
+    }
+}
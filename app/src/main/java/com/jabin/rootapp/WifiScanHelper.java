@@ -0,0 +1,251 @@
+package com.jabin.rootapp;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.wifi.ScanResult;
+import android.net.wifi.WifiManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * WiFi扫描助手类：发起扫描后等待扫描结果广播，按SSID聚合扫描结果（最强信号、频段、加密方式），
+ * 扫描过程中持续向监听者推送结果，短时间内重复请求直接使用上一次的扫描结果
+ */
+public class WifiScanHelper {
+
+    private static final String TAG = "WifiScanHelper";
+    // 扫描结果缓存有效期
+    private static final long CACHE_MS = 10000;
+    // 等待扫描结果广播的最长时间
+    private static final long SCAN_TIMEOUT_MS = 15000;
+
+    private static WifiScanHelper sInstance;
+
+    private final Context mContext;
+    private final WifiManager mWifiManager;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final List<ScanListener> mListeners = new ArrayList<>();
+
+    private List<WifiNetwork> mLastResults = Collections.emptyList();
+    private long mLastScanTime;
+    private boolean mScanning;
+
+    private final BroadcastReceiver mScanReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            boolean updated = intent.getBooleanExtra(WifiManager.EXTRA_RESULTS_UPDATED, true);
+            Log.d(TAG, "Scan results available, updated: " + updated);
+            finishScan(updated);
+        }
+    };
+
+    private final Runnable mTimeoutTask = () -> {
+        Log.w(TAG, "Scan timed out, using current results");
+        finishScan(false);
+    };
+
+    private WifiScanHelper(Context context) {
+        this.mContext = context;
+        this.mWifiManager = (WifiManager) context.getSystemService(Context.WIFI_SERVICE);
+    }
+
+    public static synchronized WifiScanHelper getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new WifiScanHelper(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * 请求扫描结果，需在主线程调用。缓存有效时直接返回缓存结果；
+     * 否则先推送系统当前已有的结果，扫描完成后再推送新结果
+     * @param listener 结果监听，在主线程回调，不再需要时调用removeListener
+     */
+    public void scan(ScanListener listener) {
+        if (!mListeners.contains(listener)) {
+            mListeners.add(listener);
+        }
+        if (!mScanning && SystemClock.elapsedRealtime() - mLastScanTime < CACHE_MS) {
+            Log.d(TAG, "Serving " + mLastResults.size() + " networks from cache");
+            listener.onResults(mLastResults, false);
+            return;
+        }
+
+        // 先推送系统已有的结果，避免列表空白
+        listener.onResults(aggregate(mWifiManager.getScanResults()), true);
+        if (mScanning) {
+            return;
+        }
+
+        ContextCompat.registerReceiver(mContext, mScanReceiver,
+                new IntentFilter(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION), ContextCompat.RECEIVER_NOT_EXPORTED);
+        mScanning = true;
+        if (!mWifiManager.startScan()) {
+            // 扫描被系统节流，直接使用当前结果
+            Log.w(TAG, "startScan rejected, using current results");
+            finishScan(false);
+            return;
+        }
+        mMainHandler.postDelayed(mTimeoutTask, SCAN_TIMEOUT_MS);
+    }
+
+    /**
+     * 移除结果监听
+     */
+    public void removeListener(ScanListener listener) {
+        mListeners.remove(listener);
+    }
+
+    private void finishScan(boolean updated) {
+        if (!mScanning) {
+            return;
+        }
+        mScanning = false;
+        mMainHandler.removeCallbacks(mTimeoutTask);
+        try {
+            mContext.unregisterReceiver(mScanReceiver);
+        } catch (IllegalArgumentException e) {
+            // 已注销
+        }
+
+        mLastResults = aggregate(mWifiManager.getScanResults());
+        // 只有拿到新的扫描结果时才作为缓存，节流或超时时下次仍重新扫描
+        mLastScanTime = updated ? SystemClock.elapsedRealtime() : 0;
+        for (ScanListener listener : new ArrayList<>(mListeners)) {
+            listener.onResults(mLastResults, false);
+        }
+    }
+
+    /**
+     * 按SSID聚合扫描结果，同名网络的多个BSSID合并为一项，按信号强度降序
+     */
+    private List<WifiNetwork> aggregate(List<ScanResult> scanResults) {
+        Map<String, WifiNetwork> networks = new LinkedHashMap<>();
+        if (scanResults != null) {
+            for (ScanResult result : scanResults) {
+                // 过滤掉空白或无效的WiFi名称
+                if (result.SSID == null || result.SSID.isEmpty()) {
+                    continue;
+                }
+                WifiNetwork network = networks.get(result.SSID);
+                if (network == null) {
+                    network = new WifiNetwork(result.SSID);
+                    networks.put(result.SSID, network);
+                }
+                network.add(result);
+            }
+        }
+        List<WifiNetwork> list = new ArrayList<>(networks.values());
+        Collections.sort(list, (a, b) -> Integer.compare(b.rssi, a.rssi));
+        return list;
+    }
+
+    /**
+     * 按SSID聚合后的WiFi网络
+     */
+    public static class WifiNetwork {
+        public final String ssid;
+        public int rssi = Integer.MIN_VALUE;
+        public String security = "开放";
+        // NetworkManagerHelper.SECURITY_*，与security标签对应
+        public int securityType = NetworkManagerHelper.SECURITY_OPEN;
+        public int bssidCount;
+        public final TreeSet<String> bands = new TreeSet<>();
+
+        WifiNetwork(String ssid) {
+            this.ssid = ssid;
+        }
+
+        void add(ScanResult result) {
+            bssidCount++;
+            bands.add(bandOf(result.frequency));
+            if (result.level > rssi) {
+                rssi = result.level;
+                securityType = securityOf(result.capabilities);
+                security = securityLabel(securityType);
+            }
+        }
+
+        private static String bandOf(int frequency) {
+            if (frequency >= 5925) {
+                return "6G";
+            } else if (frequency >= 4900) {
+                return "5G";
+            }
+            return "2.4G";
+        }
+
+        /**
+         * 由扫描结果的capabilities（如[WPA2-PSK-CCMP][RSN-SAE-CCMP][ESS]）判断安全类型
+         */
+        static int securityOf(String capabilities) {
+            if (capabilities == null) {
+                return NetworkManagerHelper.SECURITY_OPEN;
+            }
+            if (capabilities.contains("SAE")) {
+                return NetworkManagerHelper.SECURITY_SAE;
+            } else if (capabilities.contains("EAP")) {
+                return NetworkManagerHelper.SECURITY_EAP;
+            } else if (capabilities.contains("PSK")) {
+                return NetworkManagerHelper.SECURITY_PSK;
+            } else if (capabilities.contains("WEP")) {
+                return NetworkManagerHelper.SECURITY_WEP;
+            } else if (capabilities.contains("OWE")) {
+                return NetworkManagerHelper.SECURITY_OWE;
+            }
+            return NetworkManagerHelper.SECURITY_OPEN;
+        }
+
+        static String securityLabel(int securityType) {
+            switch (securityType) {
+                case NetworkManagerHelper.SECURITY_SAE:
+                    return "WPA3";
+                case NetworkManagerHelper.SECURITY_EAP:
+                    return "802.1X";
+                case NetworkManagerHelper.SECURITY_PSK:
+                    return "WPA/WPA2";
+                case NetworkManagerHelper.SECURITY_WEP:
+                    return "WEP";
+                case NetworkManagerHelper.SECURITY_OWE:
+                    return "增强型开放";
+                default:
+                    return "开放";
+            }
+        }
+
+        @Override
+        public String toString() {
+            String text = ssid + "\n" + rssi + " dBm  " + TextUtils.join("/", bands) + "  " + security;
+            if (bssidCount > 1) {
+                text += "  (" + bssidCount + "个接入点)";
+            }
+            return text;
+        }
+    }
+
+    /**
+     * 扫描结果监听接口
+     */
+    public interface ScanListener {
+        /**
+         * 扫描结果回调（主线程）
+         * @param networks 聚合后的网络列表
+         * @param scanning 是否仍在扫描，为true时之后还会推送新结果
+         */
+        void onResults(List<WifiNetwork> networks, boolean scanning);
+    }
+}